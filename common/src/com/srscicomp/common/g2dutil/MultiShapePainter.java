@@ -1,9 +1,11 @@
 package com.srscicomp.common.g2dutil;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Paint;
 import java.awt.Shape;
+import java.awt.Stroke;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
@@ -26,6 +28,15 @@ import com.srscicomp.common.util.Utilities;
  * <p><b>MultiShapePainter</b> supports canceling an ongoing paint operation; it will check for cancellation of the
  * rendering task after painting every 50 shapes.</p>
  * 
+ * <p><em>Sprite stamping on screen:</em> When many of the painted shapes are identical -- as is typically the case 
+ * for the marker symbols in a scatter plot -- the painter can render the shape once into a cached image and then 
+ * simply draw that image at each shape location, provided that sprite stamping is enabled (see {@link 
+ * #setSpriteStamping(boolean)}) and the target is a bitmap. Only shapes that supply a key identifying the shape 
+ * primitive ({@link PaintedShape#getShapeKey()}) are stamped in this manner. See {@link SpriteStamper}.</p>
+ * 
+ * <p>Any shape lying entirely outside the clip region of the graphics context is skipped, unless it has a stem line.
+ * When a large painter is rendered in tiles, each tile thus pays only for its own shapes.</p>
+ * 
  * @author sruffner
  */
 public class MultiShapePainter extends Painter
@@ -49,13 +60,50 @@ public class MultiShapePainter extends Painter
     */
    public void setShapeProducer(Iterable<PaintedShape> producer) {shapeProducer = producer; }
    
+   /** If set, painter will stamp identical shapes from a cached sprite when rendering onto a bitmap target. */
+   private boolean spriteStamping = false;
+
+   /**
+    * Set policy for painting many identical shapes onto a bitmap target, such as the screen.
+    * 
+    * <p>If enabled, a painted shape that supplies a non-null {@link PaintedShape#getShapeKey()} and is filled with a
+    * solid color (or not at all) is rendered once into a cached sprite image, which is then drawn at the location of 
+    * each shape with the same key and styling. Sprites are used only when the graphics context has antialiasing on
+    * and the default composite, and never when rendering to a printer. Disabled by default. <b>Since a sprite is a
+    * bitmap, the painter's owner must disable this feature when the graphics are destined for a vector format like PDF
+    * or SVG.</b></p>
+    * 
+    * @param ena True to enable sprite stamping, false to disable it.
+    */
+   public void setSpriteStamping(boolean ena) { spriteStamping = ena; }
+
    @Override protected boolean paintInternal(Graphics2D g2d)
    {
       if(shapeProducer == null) return(true);
       
+      SpriteStamper stamper = (spriteStamping && SpriteStamper.isApplicable(g2d)) ? new SpriteStamper(g2d) : null;
+      try
+      {
+         return(paintShapes(g2d, stamper));
+      }
+      finally 
+      {
+         if(stamper != null) stamper.dispose();
+      }
+   }
+
+   /**
+    * Helper method for {@link #paintInternal(Graphics2D)} paints all shapes delivered by the shape producer.
+    * @param g2d The graphics context.
+    * @param stamper If not null, each shape that can be stamped from a cached sprite is painted in that manner.
+    * @return True if painting was completed; false if the rendering task was cancelled.
+    */
+   private boolean paintShapes(Graphics2D g2d, SpriteStamper stamper)
+   {
       int nShapesPainted = 0;
       double xPrev = 0;
       double yPrev = 0;
+      Rectangle2D clip = getClipBounds(g2d);
             
       for(PaintedShape s : shapeProducer)
       {
@@ -66,6 +114,19 @@ public class MultiShapePainter extends Painter
             continue;
          }
          
+         // skip a shape that lies entirely outside the clip region -- unless it has a stem line, which may cross it
+         Point2D pEnd = s.getStemEnd();
+         PainterStyle stemPS = s.getStemPainterStyle();
+         if(stemPS == null) stemPS = s;
+         boolean hasStem = stemPS.isStroked() && Utilities.isWellDefined(pEnd);
+         Shape shape = s.getShape();
+         Stroke stroke = s.isStroked() ? s.getStroke(0) : null;
+         if(clip != null && !hasStem && isOutsideClip(clip, loc.getX(), loc.getY(), getExtent(shape, stroke)))
+         {
+            ++nShapesPainted;
+            continue;
+         }
+         
          // translate origin from previous point to the current point
          double dx = loc.getX() - xPrev;
          double dy = loc.getY() - yPrev;
@@ -75,29 +136,38 @@ public class MultiShapePainter extends Painter
          
          // draw stem line if there is one. Since we've moved the origin, we have to adjust the end point of the
          // stem line so it's drawn WRT an origin at the shape's center.
-         Point2D pEnd = s.getStemEnd();
-         PainterStyle stemPS = s.getStemPainterStyle();
-         if(stemPS == null) stemPS = s;
-         if(stemPS.isStroked() && Utilities.isWellDefined(pEnd))
+         if(hasStem)
          {
             g2d.setStroke(stemPS.getStroke(0));
             g2d.setColor(stemPS.getStrokeColor());
             g2d.draw(new Line2D.Double(0, 0, pEnd.getX()-loc.getX(), pEnd.getY()-loc.getY()));
          }
          
-         Shape shape = s.getShape();
+         Paint fillPaint = null;
          if(isFilled(s))
          {
-            Paint fillPaint = s.getFillPaint();
+            fillPaint = s.getFillPaint();
             if(fillPaint == null) fillPaint = s.getFillColor();
-            g2d.setPaint(fillPaint);
-            g2d.fill(shape);
          }
-         if(s.isStroked())
+
+         // stamp the shape from a cached sprite if possible; else fill and stroke it
+         Object shapeKey = (stamper != null) ? s.getShapeKey() : null;
+         if(shapeKey != null && (fillPaint == null || fillPaint instanceof Color) &&
+               stamper.select(shapeKey, shape, 0, fillPaint, fillPaint, stroke, s.getStrokeColor()))
+            stamper.stamp(loc.getX(), loc.getY());
+         else
          {
-            g2d.setStroke(s.getStroke(0));
-            g2d.setColor(s.getStrokeColor());
-            g2d.draw(shape);
+            if(fillPaint != null)
+            {
+               g2d.setPaint(fillPaint);
+               g2d.fill(shape);
+            }
+            if(stroke != null)
+            {
+               g2d.setStroke(stroke);
+               g2d.setColor(s.getStrokeColor());
+               g2d.draw(shape);
+            }
          }
 
          // check for render task cancellation at regular intervals
@@ -112,6 +182,29 @@ public class MultiShapePainter extends Painter
       return(true);
    }
 
+   /**
+    * Helper method computes the rectangle bounding a painted shape relative to its location, including its stroke. For
+    * speed, the stroke's extent is estimated generously from its line width, join and miter limit when it is a {@link
+    * BasicStroke}.
+    * @param shape The shape primitive.
+    * @param stroke The stroke. Null if the shape is not stroked.
+    * @return The bounding rectangle.
+    */
+   private static Rectangle2D getExtent(Shape shape, Stroke stroke)
+   {
+      if(stroke != null && !(stroke instanceof BasicStroke)) return(stroke.createStrokedShape(shape).getBounds2D());
+
+      Rectangle2D r = shape.getBounds2D();
+      if(stroke != null)
+      {
+         BasicStroke bs = (BasicStroke) stroke;
+         double pad = bs.getLineWidth() / 2.0 * 
+               ((bs.getLineJoin() == BasicStroke.JOIN_MITER) ? Math.max(bs.getMiterLimit(), 1.5) : 1.5);
+         r.setRect(r.getX() - pad, r.getY() - pad, r.getWidth() + 2*pad, r.getHeight() + 2*pad);
+      }
+      return(r);
+   }
+
    @Override protected void recalcBounds2D(Rectangle2D r)
    {
       // start out with an empty rectangle
@@ -211,6 +304,15 @@ public class MultiShapePainter extends Painter
        * @return True if shape is closed; else false.
        */
       boolean isClosed();
+      /**
+       * Get a key identifying the shape primitive returned by {@link #getShape()}, so that the painter may stamp the
+       * shape from a cached sprite when sprite stamping is enabled. Any two painted shapes with equal keys must have
+       * identical shape primitives. An implementation should supply a key only if many of the shapes it delivers are 
+       * identical in every respect, including their styling; otherwise a sprite is rendered for nearly every shape.
+       * @return The shape key. The default implementation returns null, in which case the shape is always filled and
+       * stroked directly.
+       */
+      default Object getShapeKey() { return(null); }
    }
    
    /** 
@@ -2,9 +2,12 @@ package com.srscicomp.common.g2dutil;
 
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.srscicomp.common.g2dviewer.RenderTask;
@@ -35,7 +38,9 @@ import com.srscicomp.common.g2dviewer.Renderable;
  *    context passed to the <code>render()</code> method has already been transformed into the coordinate system in 
  *    which the points delivered by the location provider are expressed. Exactly how the locations are consumed will 
  *    vary with the <code>Painter</code> implementation. The idea here is to leave the details of maintaining and 
- *    transforming loci up to the user of a <code>Painter</code> implementation.</li>
+ *    transforming loci up to the user of a <code>Painter</code> implementation. A producer that generates a great 
+ *    many locations should implement {@link PointProducer}, so that painters can read the locations in bulk -- see 
+ *    {@link #openLocationStream()}.</li>
  * </ul>
  * </p>
  * 
@@ -121,6 +126,48 @@ public abstract class Painter implements Renderable
       this.locationProducer = producer;
    }
 
+   /**
+    * Open a stream over the locations generated by this <code>Painter</code>'s location producer. If the producer is a 
+    * {@link PointProducer}, its own point stream is returned. Otherwise, the producer's iterator is adapted to the 
+    * {@link PointStream} interface; a <code>null</code> location is delivered as an ill-defined point.
+    * 
+    * <p>Painters that may have to render a very large number of locations should consume them via this method rather 
+    * than iterating over the location producer, reading the locations into a buffer that is reused throughout the 
+    * painting operation.</p>
+    * 
+    * @return A new stream over the painter's locations, or <code>null</code> if the location producer is undefined.
+    */
+   protected PointStream openLocationStream() { return(openLocationStream(null)); }
+
+   /**
+    * Open a stream over the locations generated by this <code>Painter</code>'s location producer, for painting onto a
+    * raster device. Same as {@link #openLocationStream()}, except that a {@link PointProducer} is given the device
+    * transform -- so it may omit locations that would make no visible difference at the device resolution. See {@link
+    * PointProducer#openStream(AffineTransform)}.
+    * 
+    * @param toDevice The transform from the painter's logical coordinates to device coordinates. If null, all 
+    * locations are generated.
+    * @return A new stream over the painter's locations, or <code>null</code> if the location producer is undefined.
+    */
+   protected PointStream openLocationStream(AffineTransform toDevice)
+   {
+      if(locationProducer == null) return(null);
+      if(locationProducer instanceof PointProducer) return(((PointProducer) locationProducer).openStream(toDevice));
+      
+      final Iterator<Point2D> iter = locationProducer.iterator();
+      return((xy, max) -> {
+         int n = 0;
+         while(n < max && iter.hasNext())
+         {
+            Point2D p = iter.next();
+            xy[2*n] = (p == null) ? Double.NaN : p.getX();
+            xy[2*n+1] = (p == null) ? Double.NaN : p.getY();
+            ++n;
+         }
+         return(n);
+      });
+   }
+
 
    //
    // Painting
@@ -146,6 +193,46 @@ public abstract class Painter implements Renderable
       return(progressHook != null && !progressHook.updateProgress());
    }
 
+   /**
+    * Get the bounds of a graphics context's clip region in its logical coordinates, grown by two device pixels on 
+    * all sides to allow for antialiasing.
+    * 
+    * <p>A painter that makes many small marks may skip any mark lying entirely outside these bounds, since it cannot
+    * change any pixel inside the clip. This matters when a large painter is rendered in tiles, or when only a small
+    * part of it is redrawn: the painter then pays only for the marks that are actually visible.</p>
+    * 
+    * @param g2d The graphics context.
+    * @return The grown clip bounds, or null if the context is not clipped or its transform is degenerate.
+    */
+   protected static Rectangle2D getClipBounds(Graphics2D g2d)
+   {
+      Shape clip = g2d.getClip();
+      if(clip == null) return(null);
+      AffineTransform at = g2d.getTransform();
+      double scale = Math.min(Math.hypot(at.getScaleX(), at.getShearY()), Math.hypot(at.getShearX(), at.getScaleY()));
+      if(!(scale > 0) || Double.isInfinite(scale)) return(null);
+
+      Rectangle2D r = clip.getBounds2D();
+      double margin = 2 / scale;
+      r.setRect(r.getX() - margin, r.getY() - margin, r.getWidth() + 2*margin, r.getHeight() + 2*margin);
+      return(r);
+   }
+
+   /**
+    * Does a mark lie entirely outside the clip bounds computed by {@link #getClipBounds(Graphics2D)}?
+    * 
+    * @param clip The clip bounds. If null, the mark is never outside.
+    * @param x X-coordinate of the mark's location, in logical coordinates.
+    * @param y Y-coordinate of the mark's location, in logical coordinates.
+    * @param extent The rectangle bounding the mark relative to its location, including any stroke.
+    * @return True if the mark cannot touch any pixel inside the clip.
+    */
+   protected static boolean isOutsideClip(Rectangle2D clip, double x, double y, Rectangle2D extent)
+   {
+      return(clip != null && (x + extent.getMaxX() < clip.getMinX() || x + extent.getMinX() > clip.getMaxX() ||
+            y + extent.getMaxY() < clip.getMinY() || y + extent.getMinY() > clip.getMaxY()));
+   }
+
    /**
     * Paint into the specified graphics context in accordance with the current definition of this <code>Painter</code>.
     * 
@@ -0,0 +1,135 @@
+package com.srscicomp.common.g2dutil;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A location producer that delivers its points in bulk via a {@link PointStream}, in addition to the traditional
+ * <code>Iterable&lt;Point2D&gt;</code> interface expected by all {@link Painter} implementations.
+ *
+ * <p>A producer that iterates over a very large data set should implement this interface. {@link PolylinePainter} and
+ * {@link ShapePainter} read the points from a point stream into a reusable buffer, so painting a polyline or a set of
+ * symbols located at a million points need not allocate any objects per point. Any other consumer of the producer may
+ * still iterate over the points in the usual manner; the default {@link #iterator()} is an adapter that pulls points
+ * from a fresh stream in chunks and delivers each one in a single, reused <code>Point2D</code>. Conversely, a painter
+ * given an ordinary <code>Iterable&lt;Point2D&gt;</code> producer adapts it to a point stream internally.</p>
+ *
+ * @author sruffner
+ */
+public interface PointProducer extends Iterable<Point2D>
+{
+   /**
+    * Open a new stream over the points generated by this producer, starting with the first point.
+    * @return The point stream.
+    */
+   PointStream openStream();
+
+   /**
+    * Open a new stream over the points generated by this producer, for painting onto a raster device. A producer of a
+    * very large number of points may use the device transform to omit points that would make no visible difference at
+    * the device resolution -- e.g., all but a few of many consecutive vertices of a polyline that fall within the same
+    * device pixel. The default implementation ignores the transform and returns {@link #openStream()}.
+    * @param toDevice The transform from the logical coordinates of the generated points to device coordinates (in
+    * pixels). If null, all points must be generated.
+    * @return The point stream.
+    */
+   default PointStream openStream(AffineTransform toDevice) { return(openStream()); }
+
+   /**
+    * Get an iterator over the points generated by this producer. <b>The iterator reuses a single <code>Point2D</code>
+    * to deliver each point. The consumer must make a copy of any point it needs to keep.</b> The iterator does not
+    * support removal.
+    * @return The iterator.
+    */
+   @Override default Iterator<Point2D> iterator()
+   {
+      final PointStream stream = openStream();
+      return(new Iterator<Point2D>() {
+         private final double[] buf = new double[2*CHUNKSZ];
+         private final Point2D pCurrent = new Point2D.Double();
+         private int nBuf = 0;
+         private int iBuf = 0;
+
+         @Override public boolean hasNext()
+         {
+            if(iBuf >= nBuf)
+            {
+               nBuf = (nBuf < 0) ? nBuf : stream.fill(buf, CHUNKSZ);
+               iBuf = 0;
+               if(nBuf == 0) nBuf = -1;
+            }
+            return(iBuf < nBuf);
+         }
+
+         @Override public Point2D next()
+         {
+            if(!hasNext()) throw new NoSuchElementException("Out of elements.");
+            pCurrent.setLocation(buf[2*iBuf], buf[2*iBuf+1]);
+            ++iBuf;
+            return(pCurrent);
+         }
+      });
+   }
+
+   /** The number of points pulled from a point stream at a time by the default iterator. */
+   int CHUNKSZ = 256;
+
+   /**
+    * Copy all of the points generated by a producer into a packed array of coordinates. Intended for consumers that 
+    * must retain the entire point sequence, such as a Postscript document.
+    * @param producer The point producer.
+    * @return An array containing the coordinates of each point generated, in order: <i>(xy[2*i], xy[2*i+1])</i> is
+    * the <i>i</i>-th point.
+    */
+   static double[] toArray(PointProducer producer)
+   {
+      PointStream stream = producer.openStream();
+      double[] buf = new double[2*CHUNKSZ];
+      double[] xy = new double[2*CHUNKSZ];
+      int nPts = 0, n;
+      while((n = stream.fill(buf, CHUNKSZ)) > 0)
+      {
+         if(2*(nPts + n) > xy.length) xy = Arrays.copyOf(xy, Math.max(2*xy.length, 2*(nPts + n)));
+         System.arraycopy(buf, 0, xy, 2*nPts, 2*n);
+         nPts += n;
+      }
+      return(Arrays.copyOf(xy, 2*nPts));
+   }
+
+   /**
+    * Base class for a producer that serves as its own point stream and generates its points one at a time, reusing a
+    * single <code>Point2D</code> to deliver each point. The subclass implements {@link #openStream()} to supply a fresh
+    * instance of itself, and it implements {@link #hasNext()} and {@link #next()} to generate the points. This class 
+    * implements {@link PointStream#fill(double[], int)} on top of those two methods.
+    */
+   abstract class Sequential implements PointProducer, PointStream
+   {
+      /**
+       * Are there any more points in this stream?
+       * @return True if there is at least one more point.
+       */
+      protected abstract boolean hasNext();
+
+      /**
+       * Generate the next point in this stream. Called only if {@link #hasNext()} returns true.
+       * @return The next point. The implementation may reuse the same object to deliver each point.
+       */
+      protected abstract Point2D next();
+
+      @Override public int fill(double[] xy, int max)
+      {
+         int n = 0;
+         while(n < max && hasNext())
+         {
+            Point2D p = next();
+            xy[2*n] = p.getX();
+            xy[2*n+1] = p.getY();
+            ++n;
+         }
+         return(n);
+      }
+   }
+}
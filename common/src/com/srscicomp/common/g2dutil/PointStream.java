@@ -0,0 +1,25 @@
+package com.srscicomp.common.g2dutil;
+
+/**
+ * A single pass over an ordered sequence of points, delivered in bulk as primitive coordinate pairs rather than one
+ * {@link java.awt.geom.Point2D} object at a time. A point stream is obtained from a {@link PointProducer}, and it is
+ * typically consumed by a {@link Painter} that reads the points into a reusable buffer.
+ *
+ * <p>A point whose X- or Y-coordinate is not well-defined (NaN or infinite) is delivered as is; it is up to the
+ * consumer to decide how ill-defined points are handled. For example, {@link PolylinePainter} treats an ill-defined
+ * point as a break in the polyline path.</p>
+ *
+ * @author sruffner
+ */
+public interface PointStream
+{
+   /**
+    * Copy the next points in this stream into the specified buffer, as consecutive (x,y) coordinate pairs.
+    * @param xy The buffer. Upon return, <i>xy[2*i]</i> and <i>xy[2*i+1]</i> hold the X- and Y-coordinates of the
+    * <i>i</i>-th point delivered, for <i>i = 0 .. N-1</i>, where <i>N</i> is the return value.
+    * @param max The maximum number of points to deliver. The buffer length must be at least twice this value.
+    * @return The number of points delivered. Fewer than the maximum are delivered only when the stream has been
+    * exhausted; 0 is returned once there are no more points.
+    */
+   int fill(double[] xy, int max);
+}
@@ -1,10 +1,17 @@
 package com.srscicomp.common.g2dutil;
 
 import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
 import com.srscicomp.common.util.Utilities;
 
@@ -32,7 +39,10 @@ import com.srscicomp.common.util.Utilities;
  * 
  * <p><code>PolylinePainter</code> does its rendering work by assembling a <code>GeneralPath</code> that represents the 
  * polyline in painting coordinates, then submitting that to the <code>Graphics2D.fill()</code> and <code>draw()</code> 
- * methods for filling and stroking, respectively. The problem here is that, if the polyline path is very long, these 
+ * methods for filling and stroking, respectively. [NOTE: The path is not actually assembled in memory. Instead, the 
+ * vertices are streamed directly from the location producer -- see {@link StreamedPolyline}. This avoids allocating 
+ * memory for every vertex of a polyline that may have a million vertices or more.] The problem here is that, if the 
+ * polyline path is very long, these 
  * primitive graphic operations can take a significant amount of time to complete. In that case, reporting progress and 
  * checking for cancellation after the fill and again after stroking is not sufficiently fine-grained. For example, a 
  * 4000-pt polyline of random points covering a roughly 4x6in area took ~1.8 sec to fill and stroke on a WinXP machine 
@@ -46,6 +56,15 @@ import com.srscicomp.common.util.Utilities;
  * desirable, <code>PolylinePainter</code> will, by default, stroke the entire polyline in one go.  To enable the 
  * lower-fidelity, but more fine-grained implementation, use <code>setAllowChunking()</code>.</p>
  * 
+ * <p><em>On-screen decimation of very long polylines:</em> When a polyline has millions of vertices, most of them map 
+ * to the same few pixel columns on the screen, and stroking them all is a waste of time. If decimation is enabled 
+ * (see <code>setDecimated()</code>), the painter strokes a decimated version of the polyline path when rendering onto
+ * a raster device: consecutive vertices that fall in the same pixel column in device space are reduced to a few 
+ * vertices that include the first, lowest, highest and last vertex in that column -- see {@link 
+ * DecimatedPathIterator}. The decimated path is rasterized the same as the original, so the rendered polyline looks 
+ * the same, but the time it takes to stroke it is proportional to the width of the polyline in pixels rather than the
+ * number of vertices.</p>
+ * 
  * @author  sruffner
  */
 public class PolylinePainter extends Painter
@@ -162,6 +181,33 @@ public class PolylinePainter extends Painter
       this.allowChunking = allowChunking;
    }
 
+   /**
+    * If set, painter will stroke a decimated version of the polyline path when rendering onto a raster device.
+    */
+   private boolean decimated = false;
+
+   /**
+    * Set policy for stroking a polyline with very many points onto a raster device, such as the screen.
+    * 
+    * <p>If enabled, any run of consecutive vertices that fall within the same pixel column in device space -- as 
+    * determined by the transform of the graphics context passed to <code>render()</code> -- is reduced to a handful of
+    * vertices that include the first, lowest, highest and last vertex in that column. Gaps introduced by ill-defined 
+    * points are preserved. Only the stroke is decimated, and only when the stroke is solid and the graphics context 
+    * has antialiasing on and stroke normalization in effect (as is the case for the figure canvas); a dashed stroke or
+    * a fill is always rendered from the full polyline path. Decimation never applies when rendering to a printer. 
+    * Disabled by default.</p>
+    * 
+    * <p>Decimation is intended for rendering to the screen only. Since the decimated path depends on the device 
+    * resolution, it is not appropriate when rendering to a vector-graphics target that is later scaled, such as a PDF 
+    * document. It is up to the painter's owner to enable decimation only when appropriate.</p>
+    * 
+    * @param decimated <code>True</code> iff the polyline stroke should be decimated on a raster device.
+    */
+   public void setDecimated(boolean decimated)
+   {
+      this.decimated = decimated;
+   }
+
    /**
     * Construct a <code>PolylinePainter</code> with no location producer and default graphic styles. The painter 
     * constructed will render nothing.
@@ -199,6 +245,17 @@ public class PolylinePainter extends Painter
     */
    private final static int STROKECHUNK = 500;
 
+   /**
+    * Number of locations read from the painter's location stream at a time.
+    */
+   private final static int BUFSZ = 512;
+
+   /**
+    * Maximum number of locations buffered so that a polyline that is both filled and stroked is streamed from the 
+    * location producer only once.
+    */
+   private final static int MAXBUFFERED = 65536;
+
    @Override
    protected boolean paintInternal(Graphics2D g2d)
    {
@@ -207,40 +264,18 @@ public class PolylinePainter extends Painter
       if(locationProducer == null || !(filled || isStroked))
          return(true);
  
-      // build the entire polyline path
-      GeneralPath polyline = new GeneralPath();
-      boolean gotValidLoc = false;              // we MUST move to the first valid location in list
-      boolean nextOpIsMoveTo = true;
-      int nValidLocs = 0;
-      for(Point2D p : locationProducer)
-      {
-         if(Utilities.isWellDefined(p))
-         {
-            if((!gotValidLoc) || nextOpIsMoveTo)
-            {
-               polyline.moveTo((float)p.getX(), (float)p.getY());
-            }
-            else
-               polyline.lineTo((float)p.getX(), (float)p.getY());
-            gotValidLoc = true;
-            nextOpIsMoveTo = false;
-            ++nValidLocs;
-         }
-         else if(gotValidLoc)
-         {
-            // handle ill-defined point IAW connection policy
-            if(connect == ConnectPolicy.CONNECTED)
-               nextOpIsMoveTo = false;
-            else
-            {
-               nextOpIsMoveTo = true;
-               if(connect == ConnectPolicy.CLOSED)
-               {
-                  polyline.closePath();
-               }
-            }
-         }
-      }
+      // stroke a decimated path if decimation is enabled and applicable
+      boolean decimateStroke = isStroked && decimated && style.isStrokeSolid() &&
+            g2d.getDeviceConfiguration().getDevice().getType() != GraphicsDevice.TYPE_PRINTER &&
+            RenderingHints.VALUE_ANTIALIAS_ON.equals(g2d.getRenderingHint(RenderingHints.KEY_ANTIALIASING)) &&
+            !RenderingHints.VALUE_STROKE_PURE.equals(g2d.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL));
+
+      // the polyline path. Only as many locations as we need to decide how to paint the polyline are read up front; 
+      // the rest are streamed as the path is traversed. If the path is both filled and stroked, all locations are 
+      // buffered (up to a limit) so that both are rendered from a single pass over the location producer.
+      StreamedPolyline polyline = new StreamedPolyline((decimateStroke && !filled) ? g2d.getTransform() : null,
+            (isStroked && allowChunking) ? 2*STROKECHUNK+1 : 3, (filled && isStroked) ? MAXBUFFERED : 0);
+      int nValidLocs = polyline.getValidLocationCount();
 
       // check for job cancellation
       if(stopPainting()) return(false);
@@ -261,6 +296,8 @@ public class PolylinePainter extends Painter
       // stroke path if required. If chunking allowed, check for job cancellation after each chunk.
       if(isStroked)
       {
+         if(decimateStroke) polyline.setDecimated(g2d.getTransform());
+
          if(nValidLocs <= 2*STROKECHUNK || !allowChunking)
          {
             g2d.setColor(style.getStrokeColor());
@@ -281,7 +318,7 @@ public class PolylinePainter extends Painter
 
             PathIterator pi = polyline.getPathIterator(null);
             float[] coords = new float[] {0, 0, 0, 0, 0, 0};
-            GeneralPath chunk = new GeneralPath(polyline.getWindingRule(), STROKECHUNK);
+            GeneralPath chunk = new GeneralPath(pi.getWindingRule(), STROKECHUNK);
             Point2D pLast = null;
             Point2D pLastMoveto = null;
             while( !pi.isDone() )
@@ -360,14 +397,21 @@ public class PolylinePainter extends Painter
       double xMax = Double.NEGATIVE_INFINITY;
       double yMin = Double.POSITIVE_INFINITY;
       double yMax = Double.NEGATIVE_INFINITY;
-      for(Point2D p : locationProducer) if(Utilities.isWellDefined(p))
+      PointStream stream = openLocationStream();
+      double[] xy = new double[2*BUFSZ];
+      int n;
+      while((n = stream.fill(xy, BUFSZ)) > 0) for(int i=0; i<n; i++)
       {
+         double x = xy[2*i];
+         double y = xy[2*i+1];
+         if(!Utilities.isWellDefined(x, y)) continue;
+
          gotValidLoc = true;
-         if(p.getX() < xMin) xMin = p.getX();
-         if(p.getX() > xMax) xMax = p.getX();
+         if(x < xMin) xMin = x;
+         if(x > xMax) xMax = x;
 
-         if(p.getY() < yMin) yMin = p.getY();
-         if(p.getY() > yMax) yMax = p.getY();
+         if(y < yMin) yMin = y;
+         if(y > yMax) yMax = y;
       }
 
       // grow strict bounding box by half-stroke width so bounding box encompasses strokes near its edge
@@ -377,4 +421,625 @@ public class PolylinePainter extends Painter
          r.setRect(xMin-strokeW/2, yMin-strokeW/2, xMax-xMin+strokeW, yMax-yMin+strokeW);
       }
    }
+
+   /**
+    * The polyline path rendered by <code>PolylinePainter</code>. Rather than storing the path's vertices, this shape 
+    * streams them from the painter's location producer as the path is traversed, applying the painter's connection 
+    * policy on the fly. The sequence of path segments is exactly the same as that of a <code>GeneralPath</code> 
+    * assembled by executing a "moveto", "lineto" or "closepath" for each location generated by the producer -- 
+    * including the truncation of each vertex to single precision. 
+    * 
+    * <p>Upon construction, the path opens a stream over the painter's locations and reads them into a buffer until it 
+    * has seen the specified number of well-defined locations -- which is all the painter needs to decide how to paint
+    * the polyline. It may be asked to buffer more locations than that. The first traversal of the path consumes the 
+    * buffered locations, then the rest of the stream; so, if the polyline is either filled or stroked, the location
+    * producer is traversed just once. If the stream was exhausted while filling the buffer, any later traversal also 
+    * reads from the buffer; otherwise, it must stream the locations from the producer again. Thus, the location 
+    * producer is traversed only once when a short polyline -- up to the specified buffer size -- is filled and 
+    * stroked; a longer one is traversed twice. The memory allocated is bounded by that buffer size, which matters when
+    * the polyline has a million vertices or more.</p>
+    * 
+    * <p>Only the path iterator is used when the polyline is filled or stroked. The remaining <code>Shape</code> 
+    * methods are implemented by traversing the path in full.</p>
+    * 
+    * <p>If a device transform is specified via {@link #setDecimated(AffineTransform)}, the path is decimated on the 
+    * fly IAW that transform -- see {@link DecimatedPathIterator}. The device transform is also passed on to the 
+    * location producer whenever a stream is opened for a decimated traversal, so it may omit vertices that make no 
+    * visible difference at the device resolution -- see {@link Painter#openLocationStream(AffineTransform)}.</p>
+    * 
+    * @author sruffner
+    */
+   private class StreamedPolyline implements Shape
+   {
+      /**
+       * Construct the streamed polyline path, reading the first few locations from the painter's location producer.
+       * @param streamXfm The transform from the painter's logical coordinates to device coordinates passed to the 
+       * location producer when the location stream is opened. If null, all locations are generated.
+       * @param nValid Read locations until this many well-defined locations have been read.
+       * @param nBuffered Read at least this many locations (unless the stream is exhausted first).
+       */
+      StreamedPolyline(AffineTransform streamXfm, int nValid, int nBuffered)
+      {
+         this.streamXfm = streamXfm;
+         stream = openLocationStream(streamXfm);
+         double[] chunk = new double[2*BUFSZ];
+         while(stream != null && (nValidRead < nValid || nBuf < nBuffered))
+         {
+            int n = stream.fill(chunk, BUFSZ);
+            if(n == 0)
+            {
+               stream = null;
+               break;
+            }
+            for(int i=0; i<n; i++) if(Utilities.isWellDefined(chunk[2*i], chunk[2*i+1])) ++nValidRead;
+            if(2*(nBuf+n) > buf.length) buf = Arrays.copyOf(buf, Math.max(2*buf.length, 2*(nBuf+n)));
+            System.arraycopy(chunk, 0, buf, 2*nBuf, 2*n);
+            nBuf += n;
+         }
+      }
+
+      /**
+       * Get the number of well-defined locations read from the painter's location producer upon construction.
+       * @return The number of well-defined locations read. If it is less than the number requested at construction, 
+       * then that is the total number of well-defined locations in the polyline.
+       */
+      int getValidLocationCount() { return(nValidRead); }
+
+      /**
+       * Decimate the path on any subsequent traversal.
+       * @param toDevice The path is decimated IAW the pixel grid in device space as determined by this transform from 
+       * the painter's logical coordinates to device coordinates.
+       */
+      void setDecimated(AffineTransform toDevice) { this.toDevice = toDevice; }
+
+      @Override public PathIterator getPathIterator(AffineTransform at) 
+      { 
+         // the first traversal continues the stream opened at construction; if that stream was not exhausted while
+         // filling the buffer, any later traversal must open a new stream over all of the locations -- passing the 
+         // device transform to the location producer if the path is decimated.
+         PathIterator pi;
+         if(consumed && stream != null) pi = new StreamedPathIterator(toDevice == null ? at : null, null, 0, 
+               openLocationStream(toDevice != null ? toDevice : streamXfm));
+         else pi = new StreamedPathIterator(toDevice == null ? at : null, buf, nBuf, consumed ? null : stream);
+         consumed = true;
+
+         return(toDevice == null ? pi : new DecimatedPathIterator(pi, toDevice, at));
+      }
+      @Override public PathIterator getPathIterator(AffineTransform at, double flatness) 
+      { 
+         return(getPathIterator(at)); 
+      }
+
+      @Override public Rectangle getBounds() { return(getBounds2D().getBounds()); }
+      @Override public Rectangle2D getBounds2D()
+      {
+         float xMin = Float.POSITIVE_INFINITY;
+         float xMax = Float.NEGATIVE_INFINITY;
+         float yMin = Float.POSITIVE_INFINITY;
+         float yMax = Float.NEGATIVE_INFINITY;
+         float[] coords = new float[6];
+         for(PathIterator pi = getPathIterator(null); !pi.isDone(); pi.next())
+         {
+            if(pi.currentSegment(coords) == PathIterator.SEG_CLOSE) continue;
+            if(coords[0] < xMin) xMin = coords[0];
+            if(coords[0] > xMax) xMax = coords[0];
+            if(coords[1] < yMin) yMin = coords[1];
+            if(coords[1] > yMax) yMax = coords[1];
+         }
+         return(xMin > xMax ? new Rectangle2D.Float() : new Rectangle2D.Float(xMin, yMin, xMax-xMin, yMax-yMin));
+      }
+
+      @Override public boolean contains(double x, double y) { return(Path2D.contains(getPathIterator(null), x, y)); }
+      @Override public boolean contains(Point2D p) { return(Path2D.contains(getPathIterator(null), p)); }
+      @Override public boolean contains(double x, double y, double w, double h)
+      {
+         return(Path2D.contains(getPathIterator(null), x, y, w, h));
+      }
+      @Override public boolean contains(Rectangle2D r) { return(Path2D.contains(getPathIterator(null), r)); }
+      @Override public boolean intersects(double x, double y, double w, double h)
+      {
+         return(Path2D.intersects(getPathIterator(null), x, y, w, h));
+      }
+      @Override public boolean intersects(Rectangle2D r) { return(Path2D.intersects(getPathIterator(null), r)); }
+
+      /** Transform passed to the location producer when the location stream is opened. May be null. */
+      private final AffineTransform streamXfm;
+      /** The location stream opened at construction, or null if it was exhausted while filling the buffer. */
+      private PointStream stream;
+      /** Buffer holding the first locations read from the location stream, as packed (x,y) coordinate pairs. */
+      private double[] buf = new double[2*BUFSZ];
+      /** Number of locations in the buffer. */
+      private int nBuf = 0;
+      /** Number of well-defined locations in the buffer. */
+      private int nValidRead = 0;
+      /** Set once the path has been traversed, consuming the location stream opened at construction. */
+      private boolean consumed = false;
+      /** Transform from logical to device coordinates for decimating the path. Null if path is not decimated. */
+      private AffineTransform toDevice = null;
+   }
+
+   /**
+    * The path iterator for {@link StreamedPolyline}. It processes any locations already read into a buffer, then reads
+    * the rest from the location stream into a buffer of its own, one chunk at a time; it converts the locations into
+    * path segments IAW the connection policy.
+    * 
+    * @author sruffner
+    */
+   private class StreamedPathIterator implements PathIterator
+   {
+      /**
+       * Construct an iterator over the streamed polyline path, positioned at the first segment.
+       * @param at An optional transform applied to the coordinates of each path segment. May be null.
+       * @param buf Buffer holding the first locations in the path, as packed (x,y) coordinate pairs. It is not 
+       * modified. May be null if there are none.
+       * @param nBuf The number of locations in the buffer.
+       * @param stream The stream over the remaining locations in the path. May be null if there are none.
+       */
+      StreamedPathIterator(AffineTransform at, double[] buf, int nBuf, PointStream stream)
+      {
+         this.stream = stream;
+         this.at = (at == null || at.isIdentity()) ? null : at;
+         this.buf = buf;
+         this.nBuf = nBuf;
+         next();
+      }
+
+      @Override public int getWindingRule() { return(WIND_NON_ZERO); }
+      @Override public boolean isDone() { return(done); }
+
+      @Override public void next()
+      {
+         while(!done)
+         {
+            if(iBuf >= nBuf)
+            {
+               if(stream == null)
+               {
+                  done = true;
+                  break;
+               }
+               if(ownBuf == null) ownBuf = new double[2*BUFSZ];
+               buf = ownBuf;
+               nBuf = stream.fill(buf, BUFSZ);
+               iBuf = 0;
+               if(nBuf == 0) stream = null;
+               continue;
+            }
+            double x = buf[2*iBuf];
+            double y = buf[2*iBuf+1];
+            ++iBuf;
+
+            if(Utilities.isWellDefined(x, y))
+            {
+               segType = (!gotValidLoc || nextOpIsMoveTo) ? SEG_MOVETO : SEG_LINETO;
+               segCoords[0] = (float) x;
+               segCoords[1] = (float) y;
+               gotValidLoc = true;
+               nextOpIsMoveTo = false;
+               return;
+            }
+            else if(gotValidLoc)
+            {
+               // handle ill-defined point IAW connection policy. Like GeneralPath, we never close a path twice in a row
+               if(connect == ConnectPolicy.CONNECTED)
+                  nextOpIsMoveTo = false;
+               else
+               {
+                  nextOpIsMoveTo = true;
+                  if(connect == ConnectPolicy.CLOSED && segType != SEG_CLOSE)
+                  {
+                     segType = SEG_CLOSE;
+                     return;
+                  }
+               }
+            }
+         }
+      }
+
+      @Override public int currentSegment(float[] coords)
+      {
+         if(segType != SEG_CLOSE)
+         {
+            if(at != null) at.transform(segCoords, 0, coords, 0, 1);
+            else
+            {
+               coords[0] = segCoords[0];
+               coords[1] = segCoords[1];
+            }
+         }
+         return(segType);
+      }
+
+      @Override public int currentSegment(double[] coords)
+      {
+         if(segType != SEG_CLOSE)
+         {
+            if(at != null) at.transform(segCoords, 0, coords, 0, 1);
+            else
+            {
+               coords[0] = segCoords[0];
+               coords[1] = segCoords[1];
+            }
+         }
+         return(segType);
+      }
+
+      /** The stream over the remaining locations in the path. Null once the stream is exhausted. */
+      private PointStream stream;
+      /** Optional transform applied to the path segment coordinates. Null if no transform is applied. */
+      private final AffineTransform at;
+      /** Buffer holding the locations being processed: initially the buffer provided at construction. */
+      private double[] buf;
+      /** This iterator's own buffer into which locations are read from the location stream. Allocated as needed. */
+      private double[] ownBuf = null;
+      /** Number of locations currently in the buffer. */
+      private int nBuf;
+      /** Index of the next location in the buffer to be processed. */
+      private int iBuf = 0;
+      /** The type of the current path segment. */
+      private int segType = SEG_CLOSE;
+      /** The (untransformed) end point of the current path segment, in single precision. */
+      private final float[] segCoords = new float[2];
+      /** Set once a well-defined location has been encountered. The path MUST begin with a move to that location. */
+      private boolean gotValidLoc = false;
+      /** Set if the next well-defined location begins a new subpath. */
+      private boolean nextOpIsMoveTo = true;
+      /** Set once the path has been fully traversed. */
+      private boolean done = false;
+   }
+
+   /**
+    * A path iterator that decimates the polyline path delivered by another path iterator, in accordance with the pixel
+    * grid in device space.
+    * 
+    * <p>The decimation is designed to produce the same rendered output as the original path when the path is stroked
+    * with antialiasing on and stroke normalization in effect -- the Java2D default. In that case, the rasterizer first 
+    * snaps each vertex to the center of the device pixel that contains it. After snapping, consecutive vertices in the
+    * same pixel column all lie on one vertical line, and consecutive vertices in the same pixel coincide. The iterator
+    * therefore works with "runs" -- maximal sequences of consecutive vertices that snap to the same pixel -- and
+    * "groups" -- maximal sequences of consecutive runs in the same pixel column and subpath. Each run is represented
+    * by its first vertex, repeated if the run had more than one vertex.</p>
+    * 
+    * <p>Within a group, every segment is vertical, so the stroked group covers the span between its lowest and highest
+    * runs, plus the line joins where the path enters and leaves the group, plus the joins where the path reverses 
+    * direction -- a round join extends half a stroke width beyond such a run, while a mitered or beveled join does 
+    * not. The other complication is a repeated vertex. The stroker treats the zero-length segment as pointing in the +X
+    * direction, so it adds a join decoration on either side of that segment; the decoration extends half a stroke width
+    * above or below the run, depending on whether the path arrives at (or leaves) the run moving up or down. Each group
+    * is therefore reduced to these "key" runs: the first and last runs, the lowest and highest runs, the lowest and 
+    * highest runs at which the path reverses direction, and -- among the runs with a repeated vertex -- the lowest and
+    * highest run arriving in each direction and the lowest and highest run leaving in each direction. Each key run is
+    * accompanied by the runs immediately before and after it in the group, and a retained run is repeated only if both
+    * of its neighbors are retained, so every join in the decimated group also appears in the original. For the same 
+    * reason, when two retained runs in the same pixel would become consecutive in the decimated group, only the first
+    * is kept. A group is thus reduced to at most 42 runs, in their original order.</p>
+    * 
+    * <p>A "moveto" or "closepath" always ends the current group, so any gaps or closed subpaths in the original path
+    * are preserved exactly. The vertex coordinates themselves are never altered.</p>
+    * 
+    * @author sruffner
+    */
+   private static class DecimatedPathIterator implements PathIterator
+   {
+      /**
+       * Construct an iterator over the decimated path, positioned at the first segment.
+       * @param src Iterator over the original polyline path, untransformed. It must contain only "moveto", "lineto" and
+       * "closepath" segments.
+       * @param toDevice Transform from the path coordinates to device coordinates; determines the pixel grid.
+       * @param at An optional transform applied to the coordinates of each decimated path segment. May be null.
+       */
+      DecimatedPathIterator(PathIterator src, AffineTransform toDevice, AffineTransform at)
+      {
+         this.src = src;
+         this.at = (at == null || at.isIdentity()) ? null : at;
+         this.toDevice = toDevice;
+         for(int i=0; i<keys.length; i++) keys[i] = new Run();
+         next();
+      }
+
+      @Override public int getWindingRule() { return(src.getWindingRule()); }
+      @Override public boolean isDone() { return(qPos >= qLen); }
+
+      @Override public void next()
+      {
+         if(++qPos < qLen) return;
+         qPos = 0;
+         qLen = 0;
+         while(qLen == 0 && !src.isDone())
+         {
+            int type = src.currentSegment(srcCoords);
+            src.next();
+            if(type == SEG_CLOSE)
+            {
+               endGroup();
+               enqueue(SEG_CLOSE, 0, 0);
+               continue;
+            }
+
+            // the device pixel containing the vertex. Note that an ill-defined pixel never matches.
+            toDevice.transform(srcCoords, 0, devCoords, 0, 1);
+            double col = Math.floor(devCoords[0]);
+            double row = Math.floor(devCoords[1]);
+
+            if(nRuns > 0 && type == SEG_LINETO && col == grpCol)
+            {
+               // same pixel column: the vertex either extends the current run or starts the next run in the group
+               if(row == cur.row) cur.dup = true;
+               else
+               {
+                  addCurrentRunToGroup();
+                  cur.set(srcCoords[0], srcCoords[1], row, nRuns);
+                  ++nRuns;
+               }
+            }
+            else
+            {
+               // a new group starts with this vertex
+               endGroup();
+               grpType = type;
+               grpCol = col;
+               cur.set(srcCoords[0], srcCoords[1], row, 0);
+               nRuns = 1;
+            }
+         }
+         if(qLen == 0) endGroup();
+      }
+
+      /** 
+       * Helper method updates the key runs retained in the current group after the current run -- the most recent run
+       * in the group -- is complete.
+       */
+      private void addCurrentRunToGroup()
+      {
+         // the current run is the successor of any key run still waiting for one
+         for(int k=0; k<NKEYS; k++) if(succPending[k])
+         {
+            keys[3*k+2].copy(cur);
+            succPending[k] = false;
+         }
+
+         // now we know whether the path reverses direction at the previous run
+         if(prev.index > 0 && prev2.row > prev.row && cur.row > prev.row &&
+               (keys[3*REVERSE_LOW+1].index < 0 || prev.row < keys[3*REVERSE_LOW+1].row))
+            setKey(REVERSE_LOW, prev2, prev, cur);
+         if(prev.index > 0 && prev2.row < prev.row && cur.row < prev.row &&
+               (keys[3*REVERSE_HIGH+1].index < 0 || prev.row > keys[3*REVERSE_HIGH+1].row))
+            setKey(REVERSE_HIGH, prev2, prev, cur);
+
+         // now we know which way the path leaves the previous run
+         if(prev.index >= 0 && prev.dup)
+         {
+            if(cur.row > prev.row)
+            {
+               if(keys[3*LEAVEDN_LOW+1].index < 0 || prev.row <= keys[3*LEAVEDN_LOW+1].row) 
+                  setKey(LEAVEDN_LOW, prev2, prev, cur);
+               if(keys[3*LEAVEDN_HIGH+1].index < 0 || prev.row >= keys[3*LEAVEDN_HIGH+1].row) 
+                  setKey(LEAVEDN_HIGH, prev2, prev, cur);
+            }
+            else
+            {
+               if(keys[3*LEAVEUP_LOW+1].index < 0 || prev.row <= keys[3*LEAVEUP_LOW+1].row) 
+                  setKey(LEAVEUP_LOW, prev2, prev, cur);
+               if(keys[3*LEAVEUP_HIGH+1].index < 0 || prev.row >= keys[3*LEAVEUP_HIGH+1].row) 
+                  setKey(LEAVEUP_HIGH, prev2, prev, cur);
+            }
+         }
+
+         if(cur.index == 0) setKey(FIRST, prev, cur, null);
+         if(cur.index == 0 || cur.row < keys[3*LOW+1].row) setKey(LOW, prev, cur, null);
+         if(cur.index == 0 || cur.row > keys[3*HIGH+1].row) setKey(HIGH, prev, cur, null);
+         if(cur.index > 0 && cur.dup)
+         {
+            if(cur.row > prev.row)
+            {
+               if(keys[3*ARRIVEDN_LOW+1].index < 0 || cur.row <= keys[3*ARRIVEDN_LOW+1].row) 
+                  setKey(ARRIVEDN_LOW, prev, cur, null);
+               if(keys[3*ARRIVEDN_HIGH+1].index < 0 || cur.row >= keys[3*ARRIVEDN_HIGH+1].row) 
+                  setKey(ARRIVEDN_HIGH, prev, cur, null);
+            }
+            else
+            {
+               if(keys[3*ARRIVEUP_LOW+1].index < 0 || cur.row <= keys[3*ARRIVEUP_LOW+1].row) 
+                  setKey(ARRIVEUP_LOW, prev, cur, null);
+               if(keys[3*ARRIVEUP_HIGH+1].index < 0 || cur.row >= keys[3*ARRIVEUP_HIGH+1].row) 
+                  setKey(ARRIVEUP_HIGH, prev, cur, null);
+            }
+         }
+         setKey(LAST, prev, cur, null);
+
+         prev2.copy(prev);
+         prev.copy(cur);
+      }
+
+      /**
+       * Helper method replaces one of the key runs retained in the current group, along with its neighbors.
+       * @param k Index identifying the key run.
+       * @param before The run preceding the key run in the group. Its index is negative if there is none.
+       * @param r The key run.
+       * @param after The run following the key run. If null, the successor is filled in when the next run in the group
+       * is complete.
+       */
+      private void setKey(int k, Run before, Run r, Run after)
+      {
+         if(r.index > 0) keys[3*k].copy(before);
+         else keys[3*k].index = -1;
+         keys[3*k+1].copy(r);
+         if(after != null) keys[3*k+2].copy(after);
+         else keys[3*k+2].index = -1;
+         succPending[k] = (after == null);
+      }
+
+      /** 
+       * Helper method ends the current group, if any, appending its retained runs to the segment queue in their 
+       * original order.
+       */
+      private void endGroup()
+      {
+         if(nRuns == 0) return;
+         addCurrentRunToGroup();
+
+         // the distinct retained runs, sorted by index
+         int n = 0;
+         for(Run r : keys) if(r.index >= 0)
+         {
+            int i = n;
+            while(i > 0 && sorted[i-1].index > r.index) --i;
+            if(i > 0 && sorted[i-1].index == r.index) continue;
+            System.arraycopy(sorted, i, sorted, i+1, n-i);
+            sorted[i] = r;
+            ++n;
+         }
+
+         for(int i=0; i<n; i++)
+         {
+            // two retained runs in the same pixel, with runs dropped between them, must not become a repeated vertex: 
+            // that would add join decorations not found in the original. Since neither run is repeated, and the path 
+            // arrives at and leaves the pixel in the same directions, it is enough to emit the vertex once.
+            Run r = sorted[i];
+            if(i > 0 && sorted[i-1].index < r.index - 1 && sorted[i-1].row == r.row) continue;
+            enqueue(r.index == 0 ? grpType : SEG_LINETO, r.x, r.y);
+
+            // repeat the vertex only if the joins on either side of the zero-length segment are preserved
+            boolean prevKept = (r.index == 0) || (i > 0 && sorted[i-1].index == r.index - 1);
+            boolean nextKept = (r.index == nRuns-1) || (i < n-1 && sorted[i+1].index == r.index + 1);
+            if(r.dup && prevKept && nextKept) enqueue(SEG_LINETO, r.x, r.y);
+         }
+
+         for(Run r : keys) r.index = -1;
+         prev.index = -1;
+         prev2.index = -1;
+         nRuns = 0;
+      }
+
+      /**
+       * Helper method appends a path segment to the segment queue.
+       * @param type The segment type.
+       * @param x The X-coordinate of the segment end point. Ignored for a "closepath".
+       * @param y The Y-coordinate of the segment end point. Ignored for a "closepath".
+       */
+      private void enqueue(int type, float x, float y)
+      {
+         qType[qLen] = type;
+         qCoords[2*qLen] = x;
+         qCoords[2*qLen+1] = y;
+         ++qLen;
+      }
+
+      @Override public int currentSegment(float[] coords)
+      {
+         int type = qType[qPos];
+         if(type != SEG_CLOSE)
+         {
+            if(at != null) at.transform(qCoords, 2*qPos, coords, 0, 1);
+            else
+            {
+               coords[0] = qCoords[2*qPos];
+               coords[1] = qCoords[2*qPos+1];
+            }
+         }
+         return(type);
+      }
+
+      @Override public int currentSegment(double[] coords)
+      {
+         int type = qType[qPos];
+         if(type != SEG_CLOSE)
+         {
+            if(at != null) at.transform(qCoords, 2*qPos, coords, 0, 1);
+            else
+            {
+               coords[0] = qCoords[2*qPos];
+               coords[1] = qCoords[2*qPos+1];
+            }
+         }
+         return(type);
+      }
+
+      /** A run of consecutive vertices in the same pixel, represented by the first vertex in the run. */
+      private static class Run
+      {
+         void set(float x, float y, double row, int index)
+         {
+            this.x = x;
+            this.y = y;
+            this.row = row;
+            this.index = index;
+            this.dup = false;
+         }
+
+         void copy(Run r)
+         {
+            x = r.x;
+            y = r.y;
+            row = r.row;
+            index = r.index;
+            dup = r.dup;
+         }
+
+         /** Coordinates of the first vertex in the run. */
+         float x, y;
+         /** The pixel row containing the run, in device space. */
+         double row;
+         /** Index of the run within its group. A negative index marks an unused slot in the retained runs. */
+         int index = -1;
+         /** Set if the run contains more than one vertex. */
+         boolean dup;
+      }
+
+      /** 
+       * Identifies each key run retained in a group: the first, last, lowest and highest runs; the lowest and highest
+       * runs at which the path reverses direction; and, among the runs with a repeated vertex, the lowest and highest 
+       * runs arriving (or leaving) in the up (or down) direction.
+       */
+      private final static int FIRST = 0, LAST = 1, LOW = 2, HIGH = 3, ARRIVEUP_LOW = 4, ARRIVEUP_HIGH = 5,
+            ARRIVEDN_LOW = 6, ARRIVEDN_HIGH = 7, LEAVEUP_LOW = 8, LEAVEUP_HIGH = 9, LEAVEDN_LOW = 10, 
+            LEAVEDN_HIGH = 11, REVERSE_LOW = 12, REVERSE_HIGH = 13;
+      /** The number of key runs retained in a group. */
+      private final static int NKEYS = 14;
+
+      /** Iterator over the original polyline path. */
+      private final PathIterator src;
+      /** Optional transform applied to the decimated path segment coordinates. Null if no transform is applied. */
+      private final AffineTransform at;
+      /** Transform from path coordinates to device coordinates. */
+      private final AffineTransform toDevice;
+      /** Coordinates of the current segment from the original path. */
+      private final float[] srcCoords = new float[6];
+      /** Device coordinates of the current segment end point. */
+      private final double[] devCoords = new double[2];
+
+      /** The current run, ie, the most recent run in the current group. */
+      private final Run cur = new Run();
+      /** The run preceding the current run in the current group. Its index is negative if there is none. */
+      private final Run prev = new Run();
+      /** The run preceding {@link #prev} in the current group. Its index is negative if there is none. */
+      private final Run prev2 = new Run();
+      /** 
+       * The key runs retained in the current group, not including the current run. The K-th key run is at index 3K+1,
+       * preceded by its predecessor and followed by its successor in the group.
+       */
+      private final Run[] keys = new Run[3*NKEYS];
+      /** Flag set for each key run whose successor has not yet been seen. */
+      private final boolean[] succPending = new boolean[NKEYS];
+      /** Scratch array used to sort the retained runs of a group by index. */
+      private final Run[] sorted = new Run[3*NKEYS];
+      /** The number of runs in the current group, including the current run. If 0, there is no current group. */
+      private int nRuns = 0;
+      /** The segment type of the first vertex in the current group: "moveto" or "lineto". */
+      private int grpType = SEG_MOVETO;
+      /** The pixel column in device space for the current group. */
+      private double grpCol = 0;
+
+      /** 
+       * Queue of decimated path segments ready for delivery. It holds at most the retained runs of one group, each of
+       * which may be repeated, followed by a "closepath".
+       */
+      private final int[] qType = new int[6*NKEYS + 1];
+      /** End point coordinates for each segment in the queue, in single precision. */
+      private final float[] qCoords = new float[2*(6*NKEYS + 1)];
+      /** Number of segments in the queue. */
+      private int qLen = 0;
+      /** Index of the current segment in the queue. The path is fully traversed when the queue is exhausted. */
+      private int qPos = -1;
+   }
 }
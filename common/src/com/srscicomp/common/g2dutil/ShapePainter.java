@@ -1,6 +1,7 @@
 package com.srscicomp.common.g2dutil;
 
 import java.awt.Graphics2D;
+import java.awt.Paint;
 import java.awt.Shape;
 import java.awt.font.TextAttribute;
 import java.awt.font.TextLayout;
@@ -11,6 +12,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.StringTokenizer;
 
@@ -55,6 +57,14 @@ import com.srscicomp.common.util.Utilities;
  * <p><b>ShapePainter</b> supports canceling an ongoing paint operation; it will check for cancellation of the
  * rendering task after painting every 50 locations, or every 200 locations if there is no text label to draw.</p>
  * 
+ * <p><em>Sprite stamping on screen:</em> When the painter draws a marker symbol at many thousands of locations, 
+ * filling and stroking the same shape over and over again is a waste of time. If sprite stamping is enabled (see 
+ * {@link #setSpriteStamping(boolean)}) and the target is a bitmap, the painter renders the symbol once into a cached 
+ * image -- a sprite -- and then simply draws that image at each location. See {@link SpriteStamper}.</p>
+ * 
+ * <p>Unless a label is drawn, the painter skips any location at which the shape lies entirely outside the clip region
+ * of the graphics context. When a large painter is rendered in tiles, each tile thus pays only for its own symbols.</p>
+ * 
  * @author sruffner
  */
 public class ShapePainter extends Painter
@@ -273,6 +283,23 @@ public class ShapePainter extends Painter
       this.bkgFill = bf;
    }
    
+   /** If set, painter will stamp each shape from a cached sprite when rendering onto a bitmap target. */
+   private boolean spriteStamping = false;
+
+   /**
+    * Set policy for painting the shape at many locations onto a bitmap target, such as the screen.
+    * 
+    * <p>If enabled, the shape is rendered once into a cached sprite image, which is then drawn at each location. The
+    * result is practically indistinguishable from filling and stroking the shape at each location, but it is much 
+    * faster when there are many locations. Sprites are used only when the shape has no text label and no rotation 
+    * angle producer, and only when the graphics context has antialiasing on and the default composite; the painter
+    * never uses them when rendering to a printer. Disabled by default. <b>Since a sprite is a bitmap, the painter's
+    * owner must disable this feature when the graphics are destined for a vector format like PDF or SVG.</b></p>
+    * 
+    * @param ena True to enable sprite stamping, false to disable it.
+    */
+   public void setSpriteStamping(boolean ena) { spriteStamping = ena; }
+
    /**
     * Angle by which the scaled shape, and the accompanying text label, are rotated about the target location. Default 
     * is zero deg.
@@ -409,6 +436,9 @@ public class ShapePainter extends Painter
     */
    private final static int PROGRESSINTV_NOLABEL = 200;
 
+   /** Number of locations read from the painter's location stream at a time. */
+   private final static int BUFSZ = 512;
+
    @Override
    protected boolean paintInternal(Graphics2D g2d)
    {
@@ -422,6 +452,30 @@ public class ShapePainter extends Painter
       g2d.setStroke(style.getStroke(0));
       g2d.setFont(style.getFont());
 
+      // unless a label is drawn, we skip any location at which the shape lies entirely outside the clip region
+      Shape s = (width == 1f && height == 1f) ? paintedShape.getDesignShape() : scaledShape;
+      Rectangle2D clip = doLabel ? null : getClipBounds(g2d);
+      Rectangle2D extent = (clip == null) ? null : getRotatedExtent(s);
+
+      // on a bitmap target, stamp the shape at each location from a cached sprite whenever possible
+      if(spriteStamping && doShape && !doLabel && rotationProducer == null && SpriteStamper.isApplicable(g2d))
+      {
+         SpriteStamper stamper = new SpriteStamper(g2d);
+         try
+         {
+            Paint fill = null;
+            if(doFill)
+               fill = (bkgFill != null) ? bkgFill.getPaintForFill(width, height, -width/2.0f, -height/2.0f) : 
+                  style.getFillColor();
+            Object fillKey = (bkgFill != null) ? bkgFill : style.getFillColor();
+            boolean stroked = style.isStroked();
+            if(stamper.select(Arrays.asList(paintedShape, width, height), s, Math.toRadians(rotation), fill, fillKey,
+                  stroked ? style.getStroke(0) : null, style.getStrokeColor()))
+               return(stampShapes(stamper, clip, extent));
+         }
+         finally { stamper.dispose(); }
+      }
+
       // if label is drawn, get string bounding box and use it to determine the offset from each shape's center pt to 
       // the label's starting point. Since text must be drawn in a left-handed coord system (x-axis increasing to right, 
       // y-axis increasing downward), we compute offsets that are consistent with such a coord system.
@@ -447,13 +501,27 @@ public class ShapePainter extends Painter
       int nLocsPainted = 0;
       int nEvery = doLabel ? PROGRESSINTV : PROGRESSINTV_NOLABEL;
 
-      Shape s = (width == 1f && height == 1f) ? paintedShape.getDesignShape() : scaledShape;
       double xPrev = 0;
       double yPrev = 0;
-      for(Point2D p : locationProducer)
+      PointStream stream = openLocationStream();
+      double[] xy = new double[2*BUFSZ];
+      int nBuf = 0;
+      int iBuf = 0;
+      while(true)
       {
-         // skip ill-defined locations.
-         if(!Utilities.isWellDefined(p))
+         // get next location from the location stream
+         if(iBuf >= nBuf)
+         {
+            nBuf = stream.fill(xy, BUFSZ);
+            iBuf = 0;
+            if(nBuf == 0) break;
+         }
+         double x = xy[2*iBuf];
+         double y = xy[2*iBuf+1];
+         ++iBuf;
+
+         // skip ill-defined locations, and locations at which the shape would lie outside the clip region
+         if(!Utilities.isWellDefined(x, y) || isOutsideClip(clip, x, y, extent))
          {
             ++nLocsPainted;
             if(rotIterator != null && rotIterator.hasNext()) rotIterator.next();
@@ -461,11 +529,11 @@ public class ShapePainter extends Painter
          }
 
          // translate origin from previous point to the current point
-         double dx = p.getX() - xPrev;
-         double dy = p.getY() - yPrev;
+         double dx = x - xPrev;
+         double dy = y - yPrev;
          g2d.translate(dx, dy);
-         xPrev = p.getX();
-         yPrev = p.getY();
+         xPrev = x;
+         yPrev = y;
 
          // rotate about the target location, if necessary
          double shapeRot = 0;
@@ -527,6 +595,52 @@ public class ShapePainter extends Painter
       return(true);
    }
 
+   /**
+    * Helper method for {@link #paintInternal(Graphics2D)} stamps the painter's shape at each well-defined location
+    * generated by the location producer, using the sprite already selected in the sprite stamper.
+    * @param stamper The sprite stamper.
+    * @param clip The clip bounds, as computed by {@link #getClipBounds(Graphics2D)}. If null, no location is skipped.
+    * @param extent The rectangle bounding the shape relative to its location. A location at which the shape lies 
+    * entirely outside the clip bounds is skipped.
+    * @return True if painting was completed; false if the rendering task was cancelled.
+    */
+   private boolean stampShapes(SpriteStamper stamper, Rectangle2D clip, Rectangle2D extent)
+   {
+      int nLocsPainted = 0;
+      PointStream stream = openLocationStream();
+      double[] xy = new double[2*BUFSZ];
+      int n;
+      while((n = stream.fill(xy, BUFSZ)) > 0) for(int i=0; i<n; i++)
+      {
+         double x = xy[2*i];
+         double y = xy[2*i+1];
+         if(Utilities.isWellDefined(x, y) && !isOutsideClip(clip, x, y, extent)) stamper.stamp(x, y);
+
+         // check for render task cancellation at regular intervals
+         ++nLocsPainted;
+         if(nLocsPainted >= PROGRESSINTV_NOLABEL)
+         {
+            nLocsPainted = 0;
+            if(stopPainting()) return(false);
+         }
+      }
+      return(true);
+   }
+
+   /**
+    * Helper method computes a square centered on the origin that bounds the painted shape, including its stroke, at any
+    * rotation about the origin.
+    * @param s The shape, centered on the origin.
+    * @return The bounding square.
+    */
+   private Rectangle2D getRotatedExtent(Shape s)
+   {
+      Rectangle2D b = style.getStroke(0).createStrokedShape(s).getBounds2D();
+      double r = Math.hypot(Math.max(Math.abs(b.getMinX()), Math.abs(b.getMaxX())), 
+            Math.max(Math.abs(b.getMinY()), Math.abs(b.getMaxY())));
+      return(new Rectangle2D.Double(-r, -r, 2*r, 2*r));
+   }
+
    @Override protected void recalcBounds2D(Rectangle2D r)
    {
       // start out with an empty rectangle
@@ -586,10 +700,16 @@ public class ShapePainter extends Painter
       double yMax = Double.NEGATIVE_INFINITY;
 
       Iterator<Float> rotIterator = (rotationProducer == null) ? null : rotationProducer.iterator();
-      for(Point2D p : locationProducer)
+      PointStream stream = openLocationStream();
+      double[] xy = new double[2*BUFSZ];
+      int n;
+      while((n = stream.fill(xy, BUFSZ)) > 0) for(int i=0; i<n; i++)
       {
+         double px = xy[2*i];
+         double py = xy[2*i+1];
+         
          // skip ill-defined locations.
-         if(!Utilities.isWellDefined(p)) 
+         if(!Utilities.isWellDefined(px, py)) 
          {
             if(rotIterator != null && rotIterator.hasNext()) rotIterator.next();
             continue;
@@ -603,12 +723,12 @@ public class ShapePainter extends Painter
                rotatedBounds = AffineTransform.getRotateInstance(rot).createTransformedShape(bounds).getBounds2D();
          }
          
-         double x = p.getX() + rotatedBounds.getX();
+         double x = px + rotatedBounds.getX();
          if(x < xMin) xMin = x;
          x += rotatedBounds.getWidth();
          if(x > xMax) xMax = x;
          
-         double y = p.getY() + rotatedBounds.getY();
+         double y = py + rotatedBounds.getY();
          if(y < yMin) yMin = y;
          y += rotatedBounds.getHeight();
          if(y > yMax) yMax = y;
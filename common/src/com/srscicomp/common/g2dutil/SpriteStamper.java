@@ -0,0 +1,431 @@
+package com.srscicomp.common.g2dutil;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * <b>SpriteStamper</b> paints the same marker symbol at many locations on a bitmap target by "stamping" a cached image
+ * of the symbol -- a sprite -- at each location, rather than filling and stroking the symbol's shape anew each time.
+ * It is used by {@link ShapePainter} and {@link MultiShapePainter} to speed up the on-screen rendering of scatter plots
+ * and traces with many thousands of symbols.
+ *
+ * <p>A sprite is rendered with the same rendering hints, paint and stroke as the symbol itself, under the scale, shear
+ * and rotation of the graphics context's transform. Since the rasterization of an antialiased shape depends on its
+ * sub-pixel position in device space, a sprite is actually a set of images, one for each of a number of intervals of
+ * the sub-pixel offset of the symbol's location. With stroke normalization in effect -- the Java2D default --, the 
+ * rasterizer snaps each vertex of a stroked path to the center of the device pixel containing it, so the stroked
+ * outline changes only where the offset crosses a "breakpoint" at which some vertex moves into the next pixel. A 
+ * filled shape is not normalized, so the offset is also divided on a regular 1/<code>NPHASE</code>-pixel grid. The 
+ * symbol's image is rendered at the midpoint of each interval. As a result, a stamped stroke is pixel-for-pixel the
+ * same as the stroke painted directly, while a stamped fill (or an unnormalized stroke) is displaced by at most 
+ * 1/(2*<code>NPHASE</code>) pixel. The images have premultiplied alpha and are composited onto the target with the
+ * source-over rule.</p>
+ *
+ * <p>Sprites are kept in a small, thread-safe, least-recently-used cache shared by all painters. A sprite is keyed by
+ * the symbol's shape and size, its fill and stroke, and the device transform and rendering hints in effect. The images
+ * in a sprite are rendered lazily, as they are needed.</p>
+ *
+ * <p>Stamping is appropriate only for a bitmap target (never a printer), with antialiasing on and the source-over
+ * composite in effect -- see {@link #isApplicable(Graphics2D)}. Since the sprites are bitmaps, a painter must never
+ * stamp symbols when its output is destined for a vector format like Postscript, PDF or SVG.</p>
+ *
+ * @author sruffner
+ */
+final class SpriteStamper
+{
+   /**
+    * Can marker symbols be stamped from sprites onto the specified graphics context? The target device must not be a
+    * printer, antialiasing must be on, and the composite must be the default source-over rule.
+    * @param g2d The graphics context.
+    * @return True if sprite stamping is applicable.
+    */
+   static boolean isApplicable(Graphics2D g2d)
+   {
+      return(g2d.getDeviceConfiguration().getDevice().getType() != GraphicsDevice.TYPE_PRINTER &&
+            AlphaComposite.SrcOver.equals(g2d.getComposite()) &&
+            RenderingHints.VALUE_ANTIALIAS_ON.equals(g2d.getRenderingHint(RenderingHints.KEY_ANTIALIASING)));
+   }
+
+   /**
+    * Construct a sprite stamper for the specified graphics context. The stamper captures the context's current
+    * transform, clip and rendering hints; symbol locations passed to {@link #stamp(double, double)} are in the logical
+    * coordinate system of the context at this time. Call {@link #dispose()} when done.
+    * @param g2d The graphics context. Sprite stamping must be applicable -- see {@link #isApplicable(Graphics2D)}.
+    */
+   SpriteStamper(Graphics2D g2d)
+   {
+      AffineTransform at = g2d.getTransform();
+      m00 = at.getScaleX();
+      m10 = at.getShearY();
+      m01 = at.getShearX();
+      m11 = at.getScaleY();
+      m02 = at.getTranslateX();
+      m12 = at.getTranslateY();
+      hints = g2d.getRenderingHints();
+
+      gDev = (Graphics2D) g2d.create();
+      gDev.setTransform(new AffineTransform());
+      clip = gDev.getClipBounds();
+   }
+
+   /** Release the device-space graphics context used to stamp sprites. */
+   void dispose() { gDev.dispose(); }
+
+   /**
+    * Select the sprite to be stamped by subsequent calls to {@link #stamp(double, double)}. If the arguments match
+    * those of the previous call, the method returns immediately. Otherwise, the sprite is retrieved from the shared
+    * cache, or created and put in the cache if it is not there.
+    *
+    * @param shapeKey An object identifying the symbol's shape primitive, including its size. Two primitives with equal
+    * keys must be identical. Cannot be null.
+    * @param shape The symbol's shape primitive, centered at the origin in logical coordinates. It is copied if a new
+    * sprite is created.
+    * @param rot Rotation of the symbol about its origin, in radians.
+    * @param fill The paint with which the shape is filled. If null, the shape is not filled.
+    * @param fillKey An object identifying the fill paint; for a gradient, it must also identify the gradient's end
+    * points. Ignored if the shape is not filled.
+    * @param stroke The stroke with which the shape is outlined. If null, the shape is not stroked.
+    * @param strokeC The stroke color. Ignored if the shape is not stroked.
+    * @return True if the sprite was selected; false if the symbol is too large or too complex to be stamped.
+    */
+   boolean select(Object shapeKey, Shape shape, double rot, Paint fill, Object fillKey, Stroke stroke, Color strokeC)
+   {
+      if(fill == null) fillKey = null;
+      if(stroke == null) strokeC = null;
+      if(selShapeKey != null && shapeKey.equals(selShapeKey) && rot == selRot && Objects.equals(fillKey, selFillKey) &&
+            Objects.equals(stroke, selStroke) && Objects.equals(strokeC, selStrokeC))
+         return(sprite != null);
+
+      selShapeKey = shapeKey;
+      selRot = rot;
+      selFillKey = fillKey;
+      selStroke = stroke;
+      selStrokeC = strokeC;
+
+      AffineTransform xfm = new AffineTransform(m00, m10, m01, m11, 0, 0);
+      if(rot != 0) xfm.rotate(rot);
+      Key key = new Key(shapeKey, fillKey, stroke, strokeC, xfm, hints);
+      Sprite s;
+      synchronized(cache)
+      {
+         s = cache.get(key);
+         if(s == null)
+         {
+            s = new Sprite(shape, xfm, fill, stroke, strokeC, hints);
+            cache.put(key, s);
+         }
+      }
+      sprite = s.isStamped() ? s : null;
+      Arrays.fill(images, null);
+      return(sprite != null);
+   }
+
+   /**
+    * Stamp the currently selected sprite at the specified location. No action is taken if no sprite is selected, or if
+    * the stamped sprite would lie entirely outside the clip region.
+    * @param x X-coordinate of the symbol location, in the logical coordinate system of the graphics context.
+    * @param y Y-coordinate of the symbol location.
+    */
+   void stamp(double x, double y)
+   {
+      if(sprite == null) return;
+      double dx = m00*x + m01*y + m02;
+      double dy = m10*x + m11*y + m12;
+      if(!(Math.abs(dx) < MAXCOORD && Math.abs(dy) < MAXCOORD)) return;
+
+      double ix = Math.floor(dx);
+      double iy = Math.floor(dy);
+      int left = ((int) ix) + sprite.x0;
+      int top = ((int) iy) + sprite.y0;
+      if(clip != null && (left >= clip.x + clip.width || top >= clip.y + clip.height ||
+            left + sprite.width <= clip.x || top + sprite.height <= clip.y))
+         return;
+
+      int phase = sprite.getPhase(dx - ix, dy - iy);
+      BufferedImage img = images[phase];
+      if(img == null)
+      {
+         img = sprite.getImage(phase);
+         images[phase] = img;
+      }
+      gDev.drawImage(img, left, top, null);
+   }
+
+   /** Number of divisions of the sub-pixel offset along each axis for a filled or unnormalized symbol. */
+   private final static int NPHASE = 8;
+   /** Maximum width or height of a sprite, in pixels. A larger symbol is not stamped. */
+   private final static int MAXSPRITEDIM = 64;
+   /** Maximum number of images in a sprite. A symbol requiring more images is not stamped. */
+   private final static int MAXIMAGES = 400;
+   /** Maximum number of sprites kept in the shared cache. */
+   private final static int MAXSPRITES = 16;
+   /** Symbols whose device coordinates exceed this value in magnitude are far off-screen; they're skipped. */
+   private final static double MAXCOORD = 1.0e9;
+
+   /** The shared sprite cache, in least-recently-used order. Access to the cache must be synchronized on it. */
+   private final static Map<Key, Sprite> cache = new LinkedHashMap<Key, Sprite>(MAXSPRITES, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Key, Sprite> eldest)
+      {
+         return(size() > MAXSPRITES);
+      }
+   };
+
+   /** The transform of the graphics context: scale, shear and translation components. */
+   private final double m00, m10, m01, m11, m02, m12;
+   /** The rendering hints of the graphics context. */
+   private final RenderingHints hints;
+   /** The graphics context, with an identity transform so that sprites are stamped in device space. */
+   private final Graphics2D gDev;
+   /** The clip rectangle in device space. Null if there is no clip. */
+   private final Rectangle clip;
+
+   /** Key identifying the symbol shape for the currently selected sprite. Null if no sprite has been selected. */
+   private Object selShapeKey = null;
+   /** Symbol rotation for the currently selected sprite. */
+   private double selRot = 0;
+   /** Key identifying the fill paint for the currently selected sprite. Null if symbol is not filled. */
+   private Object selFillKey = null;
+   /** Stroke for the currently selected sprite. Null if symbol is not stroked. */
+   private Stroke selStroke = null;
+   /** Stroke color for the currently selected sprite. Null if symbol is not stroked. */
+   private Color selStrokeC = null;
+
+   /** The currently selected sprite. Null if none is selected, or if the last selected symbol cannot be stamped. */
+   private Sprite sprite = null;
+   /** The images of the currently selected sprite that have been retrieved thus far, indexed by sub-pixel offset. */
+   private final BufferedImage[] images = new BufferedImage[MAXIMAGES];
+
+
+   /** The key by which a sprite is retrieved from the shared sprite cache. */
+   private static class Key
+   {
+      Key(Object shapeKey, Object fillKey, Stroke stroke, Color strokeC, AffineTransform xfm, RenderingHints hints)
+      {
+         this.shapeKey = shapeKey;
+         this.fillKey = fillKey;
+         this.stroke = stroke;
+         this.strokeC = strokeC;
+         this.matrix = new double[4];
+         xfm.getMatrix(matrix);
+         this.hints = hints;
+         hash = Objects.hash(shapeKey, fillKey, stroke, strokeC, Arrays.hashCode(matrix), hints);
+      }
+
+      @Override public boolean equals(Object obj)
+      {
+         if(!(obj instanceof Key)) return(false);
+         Key k = (Key) obj;
+         return(hash == k.hash && shapeKey.equals(k.shapeKey) && Objects.equals(fillKey, k.fillKey) &&
+               Objects.equals(stroke, k.stroke) && Objects.equals(strokeC, k.strokeC) &&
+               Arrays.equals(matrix, k.matrix) && hints.equals(k.hints));
+      }
+
+      @Override public int hashCode() { return(hash); }
+
+      private final Object shapeKey;
+      private final Object fillKey;
+      private final Stroke stroke;
+      private final Color strokeC;
+      /** Scale, shear and rotation components of the device transform. */
+      private final double[] matrix;
+      private final RenderingHints hints;
+      private final int hash;
+   }
+
+   /** A cached sprite: the images of one symbol rendered at each distinct sub-pixel offset. */
+   private static class Sprite
+   {
+      /**
+       * Construct a sprite. Its images are rendered lazily.
+       * @param shape The symbol's shape primitive, in logical coordinates.
+       * @param xfm The device transform, excluding the translation component.
+       * @param fill The fill paint. Null if the shape is not filled.
+       * @param stroke The stroke. Null if the shape is not stroked.
+       * @param strokeC The stroke color.
+       * @param hints The rendering hints.
+       */
+      Sprite(Shape shape, AffineTransform xfm, Paint fill, Stroke stroke, Color strokeC, RenderingHints hints)
+      {
+         this.shape = new GeneralPath(shape);
+         this.xfm = xfm;
+         this.fill = fill;
+         this.stroke = stroke;
+         this.strokeC = strokeC;
+         this.hints = hints;
+
+         // the sprite bounds allow for antialiasing and the sub-pixel offset
+         Rectangle2D r = shape.getBounds2D();
+         if(stroke != null) r.add(stroke.createStrokedShape(shape).getBounds2D());
+         r = xfm.createTransformedShape(r).getBounds2D();
+         x0 = (int) Math.floor(r.getMinX()) - 1;
+         y0 = (int) Math.floor(r.getMinY()) - 1;
+         width = (int) Math.ceil(r.getMaxX()) + 2 - x0;
+         height = (int) Math.ceil(r.getMaxY()) + 2 - y0;
+
+         // the sub-pixel offsets at which the rendered symbol changes: wherever a vertex of a normalized stroke moves
+         // into the next pixel, plus a regular grid for a fill or an unnormalized stroke
+         boolean normalized = !RenderingHints.VALUE_STROKE_PURE.equals(hints.get(RenderingHints.KEY_STROKE_CONTROL));
+         TreeSet<Double> bx = new TreeSet<>();
+         TreeSet<Double> by = new TreeSet<>();
+         if(fill != null || !normalized) for(int i=1; i<NPHASE; i++)
+         {
+            bx.add(((double) i) / NPHASE);
+            by.add(((double) i) / NPHASE);
+         }
+         if(stroke != null && normalized)
+         {
+            PathIterator pi = shape.getPathIterator(xfm);
+            double[] coords = new double[6];
+            while(!pi.isDone())
+            {
+               int type = pi.currentSegment(coords);
+               int i = (type == PathIterator.SEG_CUBICTO) ? 4 : ((type == PathIterator.SEG_QUADTO) ? 2 : 0);
+               if(type != PathIterator.SEG_CLOSE)
+               {
+                  addBreak(bx, coords[i]);
+                  addBreak(by, coords[i+1]);
+               }
+               pi.next();
+            }
+         }
+         breaksX = toArray(bx);
+         breaksY = toArray(by);
+
+         boolean ok = (width <= MAXSPRITEDIM && height <= MAXSPRITEDIM) && 
+               (breaksX.length + 1) * (breaksY.length + 1) <= MAXIMAGES;
+         images = ok ? new BufferedImage[(breaksX.length + 1) * (breaksY.length + 1)] : null;
+      }
+
+      /**
+       * Helper method adds the sub-pixel offset at which the specified vertex coordinate moves into the next pixel, 
+       * when the symbol is located at that offset instead of a pixel boundary.
+       * @param breaks The set of sub-pixel offsets, in (0..1).
+       * @param v A vertex coordinate in device space, relative to the symbol location.
+       */
+      private static void addBreak(TreeSet<Double> breaks, double v)
+      {
+         double b = Math.ceil(v) - v;
+         if(b > 0 && b < 1) breaks.add(b);
+      }
+
+      /**
+       * Helper method converts a set of sub-pixel offsets to an array.
+       * @param breaks The set of sub-pixel offsets, in ascending order.
+       * @return Array containing the offsets, in ascending order.
+       */
+      private static double[] toArray(TreeSet<Double> breaks)
+      {
+         double[] out = new double[breaks.size()];
+         int i = 0;
+         for(Double b : breaks) out[i++] = b;
+         return(out);
+      }
+
+      /**
+       * Get the index of the sprite image to be stamped for a symbol at the specified sub-pixel offset.
+       * @param fx Sub-pixel offset of the symbol location in X, in [0..1).
+       * @param fy Sub-pixel offset of the symbol location in Y, in [0..1).
+       * @return The image index: <i>(N+1)*j + i</i>, where <i>i</i> and <i>j</i> are the indices of the intervals
+       * containing the X and Y offsets, and <i>N</i> is the number of breakpoints in X.
+       */
+      int getPhase(double fx, double fy)
+      {
+         int i = 0;
+         while(i < breaksX.length && fx >= breaksX[i]) ++i;
+         int j = 0;
+         while(j < breaksY.length && fy >= breaksY[j]) ++j;
+         return((breaksX.length + 1) * j + i);
+      }
+
+      /**
+       * Helper method computes the sub-pixel offset at which the symbol is rendered for one of the intervals between
+       * breakpoints. The midpoint of the interval is used.
+       * @param breaks The breakpoints, in ascending order.
+       * @param i The interval index.
+       * @return The sub-pixel offset at the midpoint of the interval.
+       */
+      private static double getOffset(double[] breaks, int i)
+      {
+         double lo = (i == 0) ? 0 : breaks[i-1];
+         double hi = (i == breaks.length) ? 1 : breaks[i];
+         return((lo + hi) / 2.0);
+      }
+
+      /**
+       * Can the symbol be stamped from this sprite?
+       * @return False if the symbol is too large, or if it requires too many images; the sprite has no images.
+       */
+      boolean isStamped() { return(images != null); }
+
+      /**
+       * Get the sprite's image for the specified sub-pixel offset, rendering it if necessary.
+       * @param phase The index of the sub-pixel offset, as computed by {@link #getPhase(double, double)}.
+       * @return The image. The symbol origin lies at <i>(fx - x0, fy - y0)</i> in the image, where <i>(fx, fy)</i> is
+       * a sub-pixel offset in the interval corresponding to the phase index.
+       */
+      synchronized BufferedImage getImage(int phase)
+      {
+         BufferedImage img = images[phase];
+         if(img == null)
+         {
+            img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g2 = img.createGraphics();
+            try
+            {
+               g2.setRenderingHints(hints);
+               int nx = breaksX.length + 1;
+               g2.translate(getOffset(breaksX, phase % nx) - x0, getOffset(breaksY, phase / nx) - y0);
+               g2.transform(xfm);
+               if(fill != null)
+               {
+                  g2.setPaint(fill);
+                  g2.fill(shape);
+               }
+               if(stroke != null)
+               {
+                  g2.setStroke(stroke);
+                  g2.setColor(strokeC);
+                  g2.draw(shape);
+               }
+            }
+            finally { g2.dispose(); }
+            images[phase] = img;
+         }
+         return(img);
+      }
+
+      private final Shape shape;
+      private final AffineTransform xfm;
+      private final Paint fill;
+      private final Stroke stroke;
+      private final Color strokeC;
+      private final RenderingHints hints;
+      /** Device-space offset from the symbol location (truncated to whole pixels) to the top-left corner of sprite. */
+      final int x0, y0;
+      /** Width and height of each sprite image, in pixels. */
+      final int width, height;
+      /** Breakpoints dividing the sub-pixel offsets in X into intervals, in ascending order. */
+      private final double[] breaksX;
+      /** Breakpoints dividing the sub-pixel offsets in Y into intervals, in ascending order. */
+      private final double[] breaksY;
+      /** The sprite images, indexed by sub-pixel offset. Null if the symbol cannot be stamped. */
+      private final BufferedImage[] images;
+   }
+}
@@ -497,6 +497,22 @@ public class Graph2DViewer extends JPanel implements RenderableModelViewer
     */
    public void setFocusHighlightEnabled(boolean ena) { if(canvas != null) canvas.setFocusHighlightEnabled(ena); }
 
+   /**
+    * Enable/disable the tiled rendering mode, in which the viewer's canvas is split into tiles that are rendered in 
+    * parallel on the common fork-join pool. The mode only applies to a rendered graphic that supports concurrent 
+    * rendering (see {@link RootRenderable#supportsConcurrentRendering()}), and only on a multi-processor host. The 
+    * change takes effect on the next render cycle. Disabled by default.
+    * @param ena True to enable, false to disable tiled rendering.
+    */
+   public void setTiledRenderingEnabled(boolean ena) { if(canvas != null) canvas.setTiledRenderingEnabled(ena); }
+
+   /**
+    * Is the tiled rendering mode enabled on this viewer?
+    * @return True if tiled rendering is enabled.
+    * @see #setTiledRenderingEnabled(boolean)
+    */
+   public boolean isTiledRenderingEnabled() { return(canvas != null && canvas.isTiledRenderingEnabled()); }
+
    /**
     * Get the aspect ratio X:Y for the graphic currently rendered in this viewer. If print preview mode is on, the 
     * method returns the ratio of the imageable width over the imageable height in the current page format. Otherwise,
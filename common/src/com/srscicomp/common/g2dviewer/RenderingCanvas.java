@@ -28,6 +28,10 @@ import java.awt.print.PageFormat;
 import java.awt.print.Paper;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -1617,6 +1621,35 @@ final class RenderingCanvas extends JComponent implements MouseInputListener
       }
    }
 
+
+   //
+   // Tiled rendering
+   //
+
+   /** Side length of a square tile, in pixels, when the tiled rendering mode is in effect. */
+   private final static int TILESZ = 256;
+
+   /** Flag set to enable the tiled, multi-threaded rendering mode. Initially false. */
+   private volatile boolean isTiledRenderingEnabled = false;
+
+   /**
+    * Enable/disable the tiled rendering mode. In this mode, the background renderer splits the canvas into square tiles
+    * and renders those tiles that intersect the dirty regions in parallel on the common fork-join pool, each in its own
+    * graphics context clipped to the tile. The mode is only used if the rendered graphic supports it (see {@link 
+    * RootRenderable#supportsConcurrentRendering()}), if more than one processor is available, and if there are at
+    * least two tiles to render; otherwise, rendering takes place entirely on the background renderer thread. The change
+    * takes effect on the next render job.
+    * @param b <code>True</code> to enable, <code>false</code> to disable tiled rendering.
+    */
+   void setTiledRenderingEnabled(boolean b) { isTiledRenderingEnabled = b; }
+
+   /**
+    * Is the tiled rendering mode enabled on this canvas?
+    * @return <code>True</code> if tiled rendering is enabled.
+    * @see #setTiledRenderingEnabled(boolean)
+    */
+   boolean isTiledRenderingEnabled() { return(isTiledRenderingEnabled); }
+
       
    //
    // Display focus -- available only if canvas is interactive or focus highlight is specifically enabled
@@ -2265,9 +2298,10 @@ final class RenderingCanvas extends JComponent implements MouseInputListener
  
       /**
        * This flag is set whenever a rendering job is posted to the Renderer, normally in the Swing event thread.  It 
-       * is cleared whenever the Renderer starts a new job in the background thread.
+       * is cleared whenever the Renderer starts a new job in the background thread. It is volatile because it is
+       * polled without locking by the threads rendering the current job.
        */
-      private boolean isJobPending = false;
+      private volatile boolean isJobPending = false;
 
       /**
        * The pending render task.
@@ -2391,7 +2425,7 @@ final class RenderingCanvas extends JComponent implements MouseInputListener
       /**
        * Flag set to (eventually) kill the background renderer thread. Initially <code>false</code>.
        */
-      private boolean dieAsap = false;
+      private volatile boolean dieAsap = false;
 
       /**
        * Invoke this method (on the Swing event thread) to inform the background renderer thread that it should die as 
@@ -2520,8 +2554,9 @@ final class RenderingCanvas extends JComponent implements MouseInputListener
                   }
                }
 
-               // clear dirty areas within buffer
+               // clear dirty areas within buffer. Remember the device clip shape for tiled rendering (null = no clip).
                Graphics2D g2d = workingBuffer.createGraphics();
+               Shape devClip = null;
                g2d.setColor( RenderingCanvas.this.getBackground() );
                if(doFullRender || skipRender)
                {
@@ -2564,7 +2599,8 @@ final class RenderingCanvas extends JComponent implements MouseInputListener
                         else clipArea.add(new Area(rDev));
                      }
                   }
-                  g2d.clip(isMac ? clipRect : clipArea);
+                  devClip = isMac ? clipRect : clipArea;
+                  g2d.clip(devClip);
                }
 
                // perform rendering as needed
@@ -2576,18 +2612,28 @@ final class RenderingCanvas extends JComponent implements MouseInputListener
                   g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
                   g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
                   
-                  // install the rendering transform so logical coordinates are correct
-                  g2d.transform(xfm);
-
-                  try
-                  {
-                     success = r.render(g2d, this);
-                  }
-                  catch(Exception e)
+                  // in tiled mode, render the tiles in parallel if there are at least two of them
+                  List<Rectangle> tiles = null;
+                  if(isTiledRenderingEnabled && ForkJoinPool.getCommonPoolParallelism() > 1 && 
+                        r.supportsConcurrentRendering())
+                     tiles = prepareTiles(canvasSize, devClip);
+                  if(tiles != null && tiles.size() > 1)
+                     success = renderTiles(r, g2d, xfm, invXfm, tiles);
+                  else
                   {
-                      //noinspection CallToPrintStackTrace
-                      e.printStackTrace();
-                     success = false;
+                     // install the rendering transform so logical coordinates are correct
+                     g2d.transform(xfm);
+
+                     try
+                     {
+                        success = r.render(g2d, this);
+                     }
+                     catch(Exception e)
+                     {
+                         //noinspection CallToPrintStackTrace
+                         e.printStackTrace();
+                        success = false;
+                     }
                   }
                }
                long tDone = System.currentTimeMillis();
@@ -2683,6 +2729,145 @@ final class RenderingCanvas extends JComponent implements MouseInputListener
 
       }
 
+      /**
+       * Helper method for {@link #run()}. It splits the working buffer into square tiles and returns those tiles that
+       * intersect the specified clip shape.
+       * @param canvasSize The canvas size for the current job, in pixels.
+       * @param devClip The clip shape in device coordinates. If null, all tiles are returned.
+       * @return The list of tiles to be rendered, in device coordinates.
+       */
+      private List<Rectangle> prepareTiles(Dimension canvasSize, Shape devClip)
+      {
+         List<Rectangle> tiles = new ArrayList<>();
+         for(int y=0; y<canvasSize.height; y+=TILESZ)
+         {
+            for(int x=0; x<canvasSize.width; x+=TILESZ)
+            {
+               Rectangle tile = new Rectangle(x, y, Math.min(TILESZ, canvasSize.width-x), 
+                     Math.min(TILESZ, canvasSize.height-y));
+               if(devClip == null || devClip.intersects(tile)) tiles.add(tile);
+            }
+         }
+         return(tiles);
+      }
+
+      /**
+       * Helper method for {@link #run()} renders the current job in tiles, in parallel on the common fork-join pool.
+       * Each tile is rendered by a separate {@link TileTask}, which invokes <code>render()</code> on the root graphic 
+       * with a copy of the prepared graphics context that is further clipped to the tile. The method blocks until all
+       * tile tasks are finished. If any tile fails or is cancelled, the remaining tiles are cancelled as well.
+       * 
+       * @param r The root graphic to render.
+       * @param g2d The graphics context for the working buffer, with rendering hints and the dirty region clip 
+       * installed -- but not the rendering transform.
+       * @param xfm The rendering transform.
+       * @param invXfm The inverse of the rendering transform.
+       * @param tiles The tiles to be rendered, in device coordinates.
+       * @return <code>True</code> if all tiles were rendered successfully; <code>false</code> otherwise.
+       */
+      private boolean renderTiles(RootRenderable r, Graphics2D g2d, AffineTransform xfm, AffineTransform invXfm, 
+            List<Rectangle> tiles)
+      {
+         abortTiles = false;
+         List<TileTask> tasks = new ArrayList<>();
+         for(Rectangle tile : tiles)
+         {
+            // the tile's dirty regions are the job's dirty regions intersected with the tile's logical bounds. The tile
+            // is expanded by 2pix to account for antialiasing effects. Skip the tile if none intersect.
+            Rectangle2D rDev = new Rectangle2D.Double(tile.x-2, tile.y-2, tile.width+4, tile.height+4);
+            Rectangle2D rLog = invXfm.createTransformedShape(rDev).getBounds2D();
+            List<Rectangle2D> tileDirty = new ArrayList<>();
+            for(Rectangle2D rect : dirtyRegions)
+            {
+               Rectangle2D rTile = rect.createIntersection(rLog);
+               if(!rTile.isEmpty()) tileDirty.add(rTile);
+            }
+            if(tileDirty.isEmpty()) continue;
+
+            Graphics2D g2Tile = (Graphics2D) g2d.create();
+            g2Tile.clip(tile);
+            g2Tile.transform(xfm);
+            tasks.add(new TileTask(r, g2Tile, tileDirty));
+         }
+
+         boolean success = true;
+         for(Future<Boolean> result : ForkJoinPool.commonPool().invokeAll(tasks))
+         {
+            try
+            {
+               if(!result.get()) success = false;
+            }
+            catch(InterruptedException | ExecutionException e) 
+            { 
+               success = false; 
+            }
+         }
+         return(success);
+      }
+
+      /**
+       * Flag set to cancel all remaining tiles of the current tiled rendering job -- because a new job is pending, the
+       * renderer thread must die, or one of the tiles failed.
+       */
+      private volatile boolean abortTiles = false;
+
+      /** Lock serializing progress updates from the tiles of a tiled rendering job. */
+      private final Object progressLock = new Object();
+
+      /**
+       * Renders one tile of a tiled rendering job. Each tile presents only the dirty regions intersecting the tile, 
+       * and its progress updates are forwarded to the {@link Renderer}, one tile at a time. If the job is cancelled or
+       * any tile fails, all tiles of the job are aborted.
+       */
+      private class TileTask implements RenderTask, Callable<Boolean>
+      {
+         TileTask(RootRenderable root, Graphics2D g2d, List<Rectangle2D> dirtyRegions)
+         {
+            this.root = root;
+            this.g2d = g2d;
+            this.dirtyRegions = dirtyRegions;
+         }
+
+         /** The root graphic to render. */
+         private final RootRenderable root;
+         /** The graphics context for the tile, clipped to the tile and with the rendering transform installed. */
+         private final Graphics2D g2d;
+         /** The dirty regions within the tile, in logical coordinates. */
+         private final List<Rectangle2D> dirtyRegions;
+
+         @Override public Boolean call()
+         {
+            boolean ok = false;
+            try
+            {
+               if(!abortTiles) ok = root.render(g2d, this);
+            }
+            catch(Exception e)
+            {
+               //noinspection CallToPrintStackTrace
+               e.printStackTrace();
+            }
+            finally
+            {
+               g2d.dispose();
+            }
+            if(!ok) abortTiles = true;
+            return(ok);
+         }
+
+         @Override public List<Rectangle2D> getDirtyRegions() { return(dirtyRegions); }
+
+         @Override public boolean updateProgress()
+         {
+            if(abortTiles) return(false);
+            synchronized(progressLock)
+            {
+               if(!Renderer.this.updateProgress()) abortTiles = true;
+            }
+            return(!abortTiles);
+         }
+      }
+
       /**
        * A list of rectangles covering the regions of a graphic that must be redrawn during the current rendering pass.
        * If it is empty, then the entire graphic must be redrawn.
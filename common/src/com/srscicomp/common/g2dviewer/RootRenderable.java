@@ -62,4 +62,19 @@ public interface RootRenderable extends Renderable
     * @return True if rendered graphic contains translucent regions; false otherwise.
     */
    boolean hasTranslucentRegions();
+
+   /**
+    * Can this graphic be rendered concurrently on several threads? When tiled rendering is enabled on the {@link 
+    * RenderingCanvas}, the canvas splits its backbuffer into tiles and, if this method returns true, invokes 
+    * <code>render()</code> on this <code>RootRenderable</code> once per tile, in parallel, each time with a separate 
+    * graphics context clipped to the tile. The tile's <code>RenderTask</code> reports only those dirty regions that 
+    * intersect the tile. The implementation must ensure that concurrent invocations do not corrupt any render state 
+    * that is lazily prepared or cached during a render cycle.
+    * 
+    * <p>The default implementation returns false, in which case the graphic is always rendered on the canvas's single 
+    * background renderer thread.</p>
+    * 
+    * @return True if the graphic supports concurrent rendering in tiles, as described.
+    */
+   default boolean supportsConcurrentRendering() { return(false); }
 }
@@ -756,6 +756,12 @@ public class Utilities
     */
    public static boolean isWellDefined( double d ) { return(Double.isFinite(d)); }
 
+   /** 
+    * Are the specified values both finite, valid double values?
+    * @return True if both values are finite, valid doubles.
+    */
+   public static boolean isWellDefined(double d1, double d2) { return(Double.isFinite(d1) && Double.isFinite(d2)); }
+
    /**
     * A convenience method for testing whether all of the values in a double-valued array are well-defined.
     * 
@@ -1,5 +1,7 @@
 package com.srscicomp.common.xml;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -51,6 +53,12 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
 	 */
 	private final StringBuffer textContentBuf = new StringBuffer();
 
+	/**
+	 * If this element admits text content and that content is supplied by a text content writer rather than stored in
+	 * the text content buffer, this is the writer. Otherwise it is null.
+	 */
+	private ISimpleXMLTextWriter textContentWriter = null;
+
  	/**
  	 * Construct a new <code>BasicSchemaElement</code> with no parent, no children, and an empty attribute list.
  	 * 
@@ -82,7 +90,10 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
 		boolean didAllowText = schemaInfo.allowsText();
 		schemaInfo = ownerSchema.getSchemaElementInfo(this.tag);
 		if(didAllowText && !schemaInfo.allowsText())
+		{
 			textContentBuf.replace(0, textContentBuf.length(), "");
+			textContentWriter = null;
+		}
 		setAllowsChildren(schemaInfo.allowsChildren());
 	}
 
@@ -160,7 +171,60 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
 
 	public final boolean allowsTextContent() { return(schemaInfo.allowsText()); }
 
-	public String getTextContent() { return( schemaInfo.allowsText() ? textContentBuf.toString() : null ); }
+	/**
+	 * Get the text content of this element. If the text content is supplied by a text content writer, the method 
+	 * collects the writer's output in a string. Avoid doing so if the text content is large.
+	 * @see ISimpleXMLElement#getTextContent()
+	 */
+	public String getTextContent() 
+	{
+	   if(!schemaInfo.allowsText()) return(null);
+	   if(textContentWriter == null) return(textContentBuf.toString());
+
+	   StringWriter sw = new StringWriter();
+	   try { textContentWriter.writeTextContent(sw); }
+	   catch(IOException ioe) { throw new IllegalStateException(ioe); }  // a string writer does not throw IOException
+	   return(sw.toString());
+	}
+
+	/**
+	 * Get the text content of this element as a character sequence. Unlike {@link #getTextContent()}, this method does
+	 * not copy the element's text content buffer, so it is a better choice for reading very large text content. The 
+	 * sequence returned is backed by the element's text content buffer; it should be treated as read-only, and it 
+	 * should not be retained, since it will change if the element's text content is modified. If the text content is
+	 * supplied by a text content writer, the method returns the writer's output collected in a string.
+	 * 
+	 * @return The element's text content, or <code>null</code> if the element does not admit text content.
+	 */
+	public CharSequence getTextContentChars()
+	{
+	   if(!schemaInfo.allowsText()) return(null);
+	   return(textContentWriter == null ? textContentBuf : getTextContent());
+	}
+
+	public ISimpleXMLTextWriter getTextContentWriter() 
+	{ 
+	   return(schemaInfo.allowsText() ? textContentWriter : null); 
+	}
+
+	/**
+	 * Replace the text content of this XML element with content that is written directly to the output stream by the
+	 * specified writer when the element is serialized. This avoids materializing very large text content in memory.
+	 * The method will have no effect if the element does not allow text content. <b>Text content supplied in this manner
+	 * is NOT validated against the owner schema</b>, neither here nor in {@link #validate(boolean)}.
+	 * 
+	 * @param w The text content writer. If <code>null</code> and the element allows text, the text content will be 
+	 * reset to an empty string.
+	 * @return <code>True</code> iff the element's text content was updated.
+	 */
+	public boolean setTextContentWriter(ISimpleXMLTextWriter w)
+	{
+	   if(!schemaInfo.allowsText()) return(false);
+	   textContentBuf.replace(0, textContentBuf.length(), "");
+	   textContentBuf.trimToSize();
+	   textContentWriter = w;
+	   return(true);
+	}
 
    /**
     * Replace the text content of this XML element, optionally validating it first. The method will have no effect if 
@@ -181,7 +245,10 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
          ok = true;
          if(validate) ok = ownerSchema.isValidTextContent(this, content);
          if(ok)
+         {
             textContentBuf.replace(0, textContentBuf.length(), (content == null) ? "" : content);
+            textContentWriter = null;
+         }
       }
       return(ok);
    }
@@ -217,6 +284,7 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
 		// in case we're reusing element, reset its definition: empty text content and any element content, and all 
 		// attributes returned to default state
 		textContentBuf.replace(0, textContentBuf.length(), "");
+		textContentWriter = null;
 		removeAllChildren();
 		attrMap.clear();
 
@@ -274,6 +342,25 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
 			textContentBuf.append(frag);
 	}
 
+	/**
+	 * Append a range of characters to the current text content of this XML element during modal binding. 
+	 * 
+	 * @param chars The character buffer containing the text fragment just parsed.
+	 * @param start Index of the first character of the text fragment in the buffer.
+	 * @param length Number of characters in the text fragment.
+	 * @throws XMLException if element does not admit text content or the method is invoked out of context.
+	 * @see ISimpleXMLElement#appendTextContent(char[], int, int)
+	 */
+	public final void appendTextContent(char[] chars, int start, int length) throws XMLException
+	{
+		if(!allowsTextContent())
+			throw new XMLException("This element must not contain CDATA", getTag(), null);
+		if(!isBinding)
+			throw new XMLException("Invoke only during modal binding");
+
+		textContentBuf.append(chars, start, length);
+	}
+
 	public void addElement(ISimpleXMLElement child) throws XMLException
 	{
 		if(!isBinding) throw new XMLException("addElement() invoked outside of binding context"); 
@@ -334,8 +421,8 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
 			}
 		}
 
-		// validate text content if the element admits text
-		if(allowsTextContent())
+		// validate text content if the element admits text, unless that content is supplied by a text content writer
+		if(allowsTextContent() && textContentWriter == null)
 		{
 			if(!ownerSchema.isValidTextContent(this, textContentBuf.toString()))
 				throw new XMLException("Invalid text content", getTag(), null);
@@ -383,7 +470,7 @@ public class BasicSchemaElement extends DefaultMutableTreeNode implements ISimpl
 	   jsonEl.put("attrs", jsonAttrs);
 	   
 	   if(allowsTextContent())
-	      jsonEl.put("text", textContentBuf.toString());
+	      jsonEl.put("text", getTextContent());
 	   
 	   if(getChildCount() > 0)
 	   {
@@ -71,6 +71,16 @@ public interface ISimpleXMLElement
 	 */
 	String getTextContent();
 
+	/**
+	 * Get the object which writes this element's text content directly to the output stream, if any. An element with a
+	 * very large text payload may supply its content in this manner to avoid materializing it as a single string. When
+	 * a text content writer is provided, a parser will use it instead of <code>getTextContent()</code> to write the
+	 * element's text content.
+	 * @return The text content writer, or <code>null</code> if the element's text content is available only from
+	 * <code>getTextContent()</code>.
+	 */
+	ISimpleXMLTextWriter getTextContentWriter();
+
 	/**
 	 * Supply the ordered list of children contained in this XML element. The order of child elements can be significant,
 	 * so it should be preserved. The objects in the list must implement <code>ISimpleXMLElement</code>.
@@ -114,6 +124,19 @@ public interface ISimpleXMLElement
 	 */
 	void appendTextContent(String text) throws XMLException;
 
+	/**
+	 * Concatenate the specified range of characters to the current text content of this element. This is equivalent to
+	 * <code>appendTextContent(new String(chars, start, length))</code>, but it allows a parser to deliver very large
+	 * text content in many small fragments directly from its internal character buffer.
+	 * @param chars The character buffer containing the text fragment. The content of this buffer should not be
+	 * retained, as the parser may reuse it.
+	 * @param start Index of the first character of the text fragment in the buffer.
+	 * @param length Number of characters in the text fragment.
+	 * @throws XMLException if element does not admit text content, or the method is invoked out of context.
+	 * @see #appendTextContent(String)
+	 */
+	void appendTextContent(char[] chars, int start, int length) throws XMLException;
+
 	/**
 	 * Append a simple XML element to this XML element's children list. This method can be invoked any number of times 
 	 * after <code>startTag()</code> is called (within the restrictions imposed by the element's content schema, which 
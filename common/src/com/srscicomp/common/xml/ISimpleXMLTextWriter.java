@@ -0,0 +1,30 @@
+package com.srscicomp.common.xml;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * A source of the text content of an {@link ISimpleXMLElement} that writes that content directly to the character
+ * stream when the element is serialized, rather than supplying it as a single string. It is intended for elements
+ * carrying a very large text payload -- such as base64-encoded binary data -- that would otherwise have to be fully
+ * materialized in memory (often more than once) before it is written.
+ *
+ * <p>The writer supplied to {@link #writeTextContent(Writer)} handles all character escaping on behalf of the
+ * implementation, which should deliver the "raw" text content, and it must not be closed by the implementation. The
+ * text content is formatted in the output exactly as if it had been supplied as a string by {@link
+ * ISimpleXMLElement#getTextContent()}; in particular, long content should be broken into lines with carriage-return
+ * linefeed pairs for readability of the XML file.</p>
+ *
+ * @see ISimpleXMLElement#getTextContentWriter()
+ * @author sruffner
+ */
+public interface ISimpleXMLTextWriter
+{
+   /**
+    * Write the entire text content of the XML element to the specified character stream.
+    * @param wrt The character stream writer. It must NOT be closed by this method.
+    * @throws IOException if an IO error occurs while writing the text content.
+    */
+   void writeTextContent(Writer wrt) throws IOException;
+}
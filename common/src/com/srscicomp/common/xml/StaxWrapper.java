@@ -31,13 +31,17 @@ import javax.xml.stream.XMLStreamReader;
  * ISimpleXMLContentProvider)} and {@link #writeContent}.</p>
  * 
  * <p>Under the hood, <b>StaxWrapper</b> uses the {@link XMLStreamReader} from the StAX API to handle parsing the 
- * XML content stream. The parser implementation is configured to coalesce adjacent character data sections, is 
- * namespace-aware, and handles the replacement of entity references. On the output side, <b>StaxWrapper</b> does NOT
- * use StAX's XML writer, as it does not handle character entity replacement in the manner required for FypML. Instead,
- * we write the XML content directly to the supplied {@link Writer} in {@link #writeContent}. This
- * method "pretty-prints" the XML output with reasonable indentations, uses the shorthand for empty elements (lacking
- * any children or text content), and replaces non-ASCII characters with character entity references (eg, "&#x03BC" for
- * the Greek letter micron) in attribute values and text content.</p>
+ * XML content stream. The parser implementation is namespace-aware and handles the replacement of entity references.
+ * It is NOT configured to coalesce adjacent character data, since that would require the parser to buffer the entire
+ * text content of an element -- which could be tens of megabytes for an element containing base64-encoded binary data.
+ * Instead, text content is delivered to the element in small fragments as it is parsed; see {@link #processText()}.
+ * On the output side, <b>StaxWrapper</b> does NOT use StAX's XML writer, as it does not handle character entity
+ * replacement in the manner required for FypML. Instead, we write the XML content directly to the supplied {@link
+ * Writer} in {@link #writeContent}. This method "pretty-prints" the XML output with reasonable indentations, uses the
+ * shorthand for empty elements (lacking any children or text content), and replaces non-ASCII characters with
+ * character entity references (eg, "&#x03BC" for the Greek letter micron) in attribute values and text content. An
+ * element may supply very large text content via an {@link ISimpleXMLTextWriter}, in which case that content is
+ * streamed directly to the output.</p>
  * 
  * <p><b>StaxWrapper</b> sets the "standalone" attribute to "yes" when writing out an XML document.</p>
  * 
@@ -56,6 +60,13 @@ public class StaxWrapper
    private Stack<ISimpleXMLElement> elementStack = null;
    /** Indent depth, applicable when formatting XML on output. */
    private int indentDepth = 0;
+   /** 
+    * Whitespace-only text fragments parsed since the last non-text parser event, held until we know whether or not they
+    * are part of a text node that contains non-whitespace characters. 
+    */
+   private final StringBuilder pendingWhitespace = new StringBuilder();
+   /** Flag set once a text fragment containing non-whitespace characters is parsed; cleared by any non-text event. */
+   private boolean inTextNode = false;
    
    /** Constructs a wrapper instance.  */
    public StaxWrapper() 
@@ -77,7 +88,7 @@ public class StaxWrapper
       try
       {
          XMLInputFactory factory = XMLInputFactory.newFactory();
-         factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+         factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
          factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
          factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE);
    
@@ -200,6 +211,8 @@ public class StaxWrapper
    
    	// allocate a stack for holding element "objects" as we create them
    	elementStack = new Stack<>();
+   	pendingWhitespace.setLength(0);
+   	inTextNode = false;
    
    	// parsing loop. Note that we catch all parser exceptions here rather than in the individual helper methods 
    	// that process the START_TAG, END_TAG, and TEXT event types. Whether or not an exception occurs, we empty 
@@ -210,6 +223,11 @@ public class StaxWrapper
    	   while(staxParser.hasNext())
    	   {
    	      int evtCode = staxParser.next();
+   	      if(!staxParser.isCharacters())
+   	      {
+   	         pendingWhitespace.setLength(0);
+   	         inTextNode = false;
+   	      }
    	      
    	      if(evtCode == XMLStreamReader.PROCESSING_INSTRUCTION && contentModel == null)
    	      {
@@ -239,6 +257,7 @@ public class StaxWrapper
    	{
    		elementStack.clear();
    		elementStack = null;
+   		pendingWhitespace.setLength(0);
    		try { staxParser.close(); }
    		catch( XMLStreamException xse ) { staxParser = null; }
    	}
@@ -318,20 +337,37 @@ public class StaxWrapper
     * any text content appears in a single block (rather than intermixed among child elements), all CDATA found in a 
     * "mixed content" element are collected into a single text string.
     * 
+    * <p>The parser does not coalesce adjacent character data, so a single text node may be delivered as many small
+    * fragments, some of which contain only whitespace. To ignore exactly those text nodes that are whitespace-only, a
+    * whitespace-only fragment is held until a fragment with non-whitespace characters arrives in the same text node,
+    * and it is discarded if the text node ends first. Once a text node is known to contain non-whitespace characters,
+    * all of its remaining fragments are passed directly to the element from the parser's character buffer.</p>
+    * 
     * @throws XMLException if the current element being bound does not accept text content, the text content is
     * otherwise invalid, or unexpected text content was found prior to the root element in the XML stream.
     */
    private void processText() throws XMLException
    {
-   	// ignore whitespace
-   	if(staxParser.isWhiteSpace()) return;
-   
+      // hold onto whitespace until we know whether or not it is part of a whitespace-only text node
+      if(!inTextNode && staxParser.isWhiteSpace())
+      {
+         pendingWhitespace.append(staxParser.getTextCharacters(), staxParser.getTextStart(), 
+               staxParser.getTextLength());
+         return;
+      }
+      
    	// play it safe -- there SHOULD be an element on the element stack before this method is called!
    	if(elementStack.empty()) throw new XMLException( "Missing root element tag?" );
    
-   	// append text fragment to the current text content of the current element (at top of stack)
+   	// append text fragment (preceded by any pending whitespace) to the current text content of the current element
    	ISimpleXMLElement element = elementStack.peek();
-   	element.appendTextContent(staxParser.getText());
+   	if(pendingWhitespace.length() > 0)
+   	{
+   	   element.appendTextContent(pendingWhitespace.toString());
+   	   pendingWhitespace.setLength(0);
+   	}
+   	element.appendTextContent(staxParser.getTextCharacters(), staxParser.getTextStart(), staxParser.getTextLength());
+   	inTextNode = true;
    }
    
    /**
@@ -472,8 +508,17 @@ public class StaxWrapper
    		   // Else, if element has ONLY text content, close start tag with ">", write the text content, then 
    		   // complete the element with the full end tag "</tag>". In either case, we're done with the current
    		   // element, so go to next line.
-   		   String s = el.getTextContent();
-   		   if(s==null || s.isEmpty())
+   		   // Text content supplied by a text writer is formatted exactly like text content supplied as a string; if it
+   		   // is long, it has already been streamed to the output by the time the text writer returns.
+   		   ISimpleXMLTextWriter textWriter = el.getTextContentWriter();
+   		   String s = (textWriter != null) ? streamTextContent(wrt, textWriter, ">" + NEWLINE) : el.getTextContent();
+   		   if(textWriter != null && s == null)
+   		   {
+   		      wrt.append(NEWLINE);
+   		      for(int i=0; i<indentDepth; i++) wrt.append(INDENT);
+   		      wrt.append("</").append(el.getTag()).append(">").append(NEWLINE);
+   		   }
+   		   else if(s==null || s.isEmpty())
    		      wrt.append("/>").append(NEWLINE);
    		   else
    			{
@@ -481,7 +526,7 @@ public class StaxWrapper
    		      
    			   // if text content relatively long, we go to next line and don't bother to indent first line of text.
    		      // but we do have to indent the end tag
-   			   if(s.length() > 200)
+   			   if(s.length() > LONGTEXTLEN)
    			   {
    			      wrt.append(NEWLINE);
    		         writeTextContent(wrt, s);
@@ -518,7 +563,21 @@ public class StaxWrapper
    	    // starts at same depth as children of the element, and that end tag is at same depth as element's start tag.
    		el = elementStack.pop();
    		
-   		if(el.allowsTextContent())
+   		ISimpleXMLTextWriter textWriter = el.getTextContentWriter();
+   		if(textWriter != null)
+   		{
+   		   StringBuilder indent = new StringBuilder();
+   		   for(int i=0; i<indentDepth; i++) indent.append(INDENT);
+   		   String s = streamTextContent(wrt, textWriter, indent.toString());
+   		   if(s == null) wrt.append(NEWLINE);
+   		   else if(!s.isEmpty())
+   		   {
+   		      wrt.append(indent);
+   		      writeTextContent(wrt, s);
+   		      wrt.append(NEWLINE);
+   		   }
+   		}
+   		else if(el.allowsTextContent())
    		{
    		   String s = el.getTextContent();
    		   if(!s.isEmpty())
@@ -582,22 +641,153 @@ public class StaxWrapper
    */
    private void writeTextContent(Writer wrt, String text) throws IOException
    {
-      int pos = 0;
-      int posSpecial = 0;
-      while( posSpecial < text.length() )
+      new TextContentWriter(wrt).write(text);
+   }
+   
+   /**
+    * Helper method obtains the text content of an element from the element's text writer. Only the first {@link 
+    * #LONGTEXTLEN} characters or so are collected in memory. If the text content turns out to be longer than that, the
+    * specified prefix is written to the output, followed by the text content, which is streamed directly to the output
+    * as the text writer supplies it. Otherwise, nothing is written, and the caller writes the text content itself -- 
+    * so that short text content supplied by a text writer is formatted exactly like text content supplied as a string.
+    * 
+    * @param wrt The character stream writer.
+    * @param textWriter The element's text writer.
+    * @param longPrefix The characters to write before the text content if the text content is long.
+    * @return Null if the text content was long and has been written, else the (short, possibly empty) text content.
+    */
+   private String streamTextContent(Writer wrt, ISimpleXMLTextWriter textWriter, String longPrefix) throws IOException
+   {
+      HeadBufferingWriter hbw = new HeadBufferingWriter(wrt, longPrefix);
+      textWriter.writeTextContent(hbw);
+      return(hbw.getShortContent());
+   }
+   
+   /** Text content longer than this many characters is written on its own line(s) rather than inline. */
+   private static final int LONGTEXTLEN = 200;
+   
+   /**
+    * A character stream writer that collects the first {@link #LONGTEXTLEN} characters written to it. As soon as more 
+    * characters are written, it writes a prefix to the underlying writer, followed by all of the characters written 
+    * thus far and any subsequent characters, escaped by a {@link TextContentWriter}. See {@link 
+    * #streamTextContent(Writer, ISimpleXMLTextWriter, String)}.
+    */
+   private static class HeadBufferingWriter extends Writer
+   {
+      HeadBufferingWriter(Writer wrt, String prefix) 
       { 
-         char c = text.charAt(posSpecial);
-         if(c == 0 || c > 0x07F || c == '<' || c == '&')
+         this.wrt = wrt; 
+         this.prefix = prefix; 
+      }
+      
+      @Override public void write(char[] cbuf, int off, int len) throws IOException
+      {
+         if(out == null)
          {
-            if(pos < posSpecial) wrt.write(text.substring(pos, posSpecial));
-            pos = posSpecial + 1;
-            if(c == '<') wrt.write("&lt;");
-            else if(c == '&') wrt.write("&amp;");
-            else wrt.append("&#x").append(Integer.toHexString(c)).append(";");
+            int n = Math.min(len, LONGTEXTLEN + 1 - head.length());
+            head.append(cbuf, off, n);
+            if(head.length() <= LONGTEXTLEN) return;
+            startStreaming();
+            off += n;
+            len -= n;
          }
-         ++posSpecial;
+         out.write(cbuf, off, len);
       }
+      
+      @Override public void write(String str, int off, int len) throws IOException
+      {
+         if(out == null)
+         {
+            int n = Math.min(len, LONGTEXTLEN + 1 - head.length());
+            head.append(str, off, off + n);
+            if(head.length() <= LONGTEXTLEN) return;
+            startStreaming();
+            off += n;
+            len -= n;
+         }
+         out.write(str, off, len);
+      }
+      
+      @Override public void flush() {}
+      @Override public void close() {}
+      
+      /**
+       * Get the text content written to this writer, if it is short.
+       * @return The text content, or null if it was too long and has been streamed to the underlying writer.
+       */
+      String getShortContent() { return((out == null) ? head.toString() : null); }
+      
+      /** Write the prefix and the characters collected thus far, then stream all further characters. */
+      private void startStreaming() throws IOException
+      {
+         wrt.append(prefix);
+         out = new TextContentWriter(wrt);
+         out.write(head.toString());
+         head.setLength(0);
+      }
+      
+      /** The underlying character stream writer. */
+      private final Writer wrt;
+      /** The characters to write before the text content once it is known to be long. */
+      private final String prefix;
+      /** The first characters written, up to {@link #LONGTEXTLEN} + 1. */
+      private final StringBuilder head = new StringBuilder(LONGTEXTLEN + 1);
+      /** Escaping writer for the text content once it is known to be long; null until then. */
+      private TextContentWriter out = null;
+   }
    
-      if(pos < text.length()) wrt.write(text.substring(pos));
+   /**
+    * A filter for the character stream writer that performs the escaping of characters in an element's text content,
+    * as described in {@link #writeTextContent(Writer, String)}. It is passed to an element's {@link 
+    * ISimpleXMLTextWriter} so that it may stream its text content directly to the output. Flushing or closing this 
+    * writer has no effect on the underlying writer.
+    */
+   private static class TextContentWriter extends Writer
+   {
+      TextContentWriter(Writer wrt) { this.wrt = wrt; }
+      
+      @Override public void write(char[] cbuf, int off, int len) throws IOException
+      {
+         int pos = off;
+         int end = off + len;
+         for(int posSpecial = off; posSpecial < end; posSpecial++)
+         {
+            char c = cbuf[posSpecial];
+            if(c == 0 || c > 0x07F || c == '<' || c == '&')
+            {
+               if(pos < posSpecial) wrt.write(cbuf, pos, posSpecial - pos);
+               pos = posSpecial + 1;
+               if(c == '<') wrt.write("&lt;");
+               else if(c == '&') wrt.write("&amp;");
+               else wrt.append("&#x").append(Integer.toHexString(c)).append(";");
+            }
+         }
+         if(pos < end) wrt.write(cbuf, pos, end - pos);
+      }
+
+      @Override public void write(String str, int off, int len) throws IOException
+      {
+         int pos = off;
+         int end = off + len;
+         for(int posSpecial = off; posSpecial < end; posSpecial++)
+         {
+            char c = str.charAt(posSpecial);
+            if(c == 0 || c > 0x07F || c == '<' || c == '&')
+            {
+               if(pos < posSpecial) wrt.write(str, pos, posSpecial - pos);
+               pos = posSpecial + 1;
+               if(c == '<') wrt.write("&lt;");
+               else if(c == '&') wrt.write("&amp;");
+               else wrt.append("&#x").append(Integer.toHexString(c)).append(";");
+            }
+         }
+         if(pos < end) wrt.write(str, pos, end - pos);
+      }
+
+      @Override public void flush() {}
+      @Override public void close() {}
+      
+      /** The underlying character stream writer. */
+      private final Writer wrt;
    }
 }
@@ -0,0 +1,285 @@
+package com.srscicomp.common.g2dutil;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.Random;
+
+import com.srscicomp.common.ui.BkgFill;
+import com.srscicomp.common.ui.FontStyle;
+import com.srscicomp.common.ui.GenericFont;
+import com.srscicomp.common.util.MicroBench;
+
+/**
+ * Benchmark comparing the vector rendering of marker symbols by {@link ShapePainter} and {@link MultiShapePainter}
+ * against stamping the symbols from cached sprites (see {@link ShapePainter#setSpriteStamping(boolean)}). Each case
+ * renders many markers at random locations onto an 800x600 ARGB image with antialiasing on, as the figure canvas
+ * does when it renders a large scatter plot or the symbols of a large data trace. The cases cover filled and open
+ * markers, a translucent fill, a rotated marker, a gradient fill, and identical shapes painted by a multi-shape
+ * painter. A final case uses a marker too large to be stamped, so that both paths render vectors.
+ *
+ * <p>Before timing, the benchmark verifies that sprite stamping applies to the image's graphics context, and that
+ * the stamped rendering of each case matches the vector rendering within {@link #MAXCHANNELDIFF} per color channel.
+ * Stamped strokes match exactly; fills may differ slightly at some edge pixels, since a sprite is rendered at one of a
+ * small set of sub-pixel offsets rather than the exact offset of each marker. The number of differing pixels and the
+ * largest difference are reported for each case.</p>
+ *
+ * <p>Usage: <i>java com.srscicomp.common.g2dutil.SpriteStampingBenchmark [nMarkers]</i>. Default is 200000 markers.
+ * Run with a fixed heap, e.g. <i>-Xms512m -Xmx512m</i>.</p>
+ *
+ * @author sruffner
+ */
+public class SpriteStampingBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int n = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+      Points pts = new Points(n, 20260101L);
+
+      BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g2d = prepareGraphics(img);
+      check(SpriteStamper.isApplicable(g2d), "sprite stamping applies to an antialiased image buffer");
+      g2d.dispose();
+
+      MicroBench bench = new MicroBench(String.format("Marker symbols: %d markers on a %d x %d ARGB image", n, W, H),
+            1, 3);
+
+      ShapePainter circle = new ShapePainter(createStyle(10, Color.RED, Color.BLUE), pts, Marker.CIRCLE, 80f, null);
+      run(bench, "circle", circle);
+
+      ShapePainter box = new ShapePainter(createStyle(15, Color.BLACK, new Color(0, 128, 0, 100)), pts, Marker.BOX,
+            60f, null);
+      run(bench, "box, translucent fill", box);
+
+      ShapePainter star = new ShapePainter(createStyle(8, Color.BLACK, Color.ORANGE), pts, Marker.STAR, 100f, null);
+      star.setRotation(30);
+      run(bench, "star, rotated", star);
+
+      ShapePainter tri = new ShapePainter(createStyle(10, Color.BLACK, Color.WHITE), pts, Marker.UPTRIANGLE, 120f,
+            null);
+      tri.setBackgroundFill(BkgFill.createAxialGradientFill(45, Color.RED, Color.BLUE));
+      run(bench, "triangle, gradient fill", tri);
+
+      ShapePainter xhair = new ShapePainter(createStyle(5, Color.MAGENTA, Color.BLUE), pts, Marker.XHAIR, 50f, null);
+      run(bench, "crosshair (open)", xhair);
+
+      MultiShapePainter diamonds = new MultiShapePainter(new Diamonds(pts, createStyle(10, Color.BLACK, Color.CYAN)));
+      run(bench, "multi-shape diamond", diamonds);
+
+      ShapePainter big = new ShapePainter(createStyle(10, Color.RED, Color.BLUE), new Points(Math.min(n, 20000), 3L),
+            Marker.CIRCLE, 900f, null);
+      run(bench, "circle, too big to stamp", big);
+
+      System.out.println("(sink=" + bench.getSink() + ")");
+   }
+
+   /** Width of the rendered image in pixels. */
+   private final static int W = 800;
+   /** Height of the rendered image in pixels. */
+   private final static int H = 600;
+   /** Scale factor from logical units (milli-in) to image pixels: 100 pixels per inch. */
+   private final static double SCALE = 0.1;
+   /** Maximum allowed difference between the stamped and vector renderings in any color channel of any pixel. */
+   private final static int MAXCHANNELDIFF = 24;
+
+   /**
+    * Verify that the stamped and vector renderings of a painter match, then benchmark both.
+    * @param bench The benchmark harness.
+    * @param what Description of the case.
+    * @param p The painter.
+    */
+   private static void run(MicroBench bench, String what, Painter p) throws Exception
+   {
+      BufferedImage vector = render(p, false), stamped = render(p, true);
+      int nDiff = 0, maxDiff = 0;
+      for(int y=0; y<H; y++) for(int x=0; x<W; x++)
+      {
+         int u = vector.getRGB(x, y), v = stamped.getRGB(x, y);
+         if(u == v) continue;
+         ++nDiff;
+         for(int s=0; s<32; s+=8) maxDiff = Math.max(maxDiff, Math.abs(((u >> s) & 0xff) - ((v >> s) & 0xff)));
+      }
+      check(maxDiff <= MAXCHANNELDIFF, String.format("%s: stamped matches vector (%d pixels differ, max channel " +
+            "diff %d)", what, nDiff, maxDiff));
+
+      MicroBench.Result base = bench.run(what + ", vector", () -> render(p, false).getRGB(W/2, H/2));
+      MicroBench.Result cand = bench.run(what + ", stamped", () -> render(p, true).getRGB(W/2, H/2));
+      MicroBench.printSpeedup(base, cand);
+   }
+
+   /**
+    * Render a painter onto a new image, with sprite stamping enabled or disabled.
+    * @param p The painter: a {@link ShapePainter} or a {@link MultiShapePainter}.
+    * @param stamp True to enable sprite stamping.
+    * @return The rendered image.
+    */
+   private static BufferedImage render(Painter p, boolean stamp)
+   {
+      if(p instanceof ShapePainter) ((ShapePainter) p).setSpriteStamping(stamp);
+      else ((MultiShapePainter) p).setSpriteStamping(stamp);
+
+      BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g2d = prepareGraphics(img);
+      try
+      {
+         g2d.setColor(Color.WHITE);
+         g2d.fillRect(0, 0, W, H);
+         g2d.translate(0, H);
+         g2d.scale(SCALE, -SCALE);
+         if(!p.render(g2d, null)) throw new IllegalStateException("Rendering failed");
+      }
+      finally { g2d.dispose(); }
+      return(img);
+   }
+
+   /**
+    * Get a graphics context for the image, with the rendering hints installed by the figure canvas.
+    * @param img The image.
+    * @return The graphics context.
+    */
+   private static Graphics2D prepareGraphics(BufferedImage img)
+   {
+      Graphics2D g2d = img.createGraphics();
+      g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      return(g2d);
+   }
+
+   /**
+    * Create a painter style with the specified stroke and fill.
+    * @param strokeW Stroke width in logical units (milli-in).
+    * @param strokeC Stroke color.
+    * @param fillC Fill color.
+    * @return The painter style.
+    */
+   private static BasicPainterStyle createStyle(double strokeW, Color strokeC, Color fillC)
+   {
+      Font font = BasicPainterStyle.getFontForPainter("Arial", GenericFont.SANSERIF, FontStyle.PLAIN, 100);
+      return(BasicPainterStyle.createBasicPainterStyle(font, strokeW, null, strokeC, fillC));
+   }
+
+   /** Produces the same sequence of uniformly distributed random marker locations each time it is streamed. */
+   private static class Points implements PointProducer
+   {
+      /**
+       * Construct the point producer.
+       * @param n Number of points.
+       * @param seed Seed for the random location generator.
+       */
+      Points(int n, long seed) { this.n = n; this.seed = seed; }
+
+      @Override public PointStream openStream()
+      {
+         final Random rng = new Random(seed);
+         return(new PointStream()
+         {
+            @Override public int fill(double[] xy, int max)
+            {
+               int k = 0;
+               for(; k<max && i<n; k++, i++)
+               {
+                  xy[2*k] = rng.nextDouble() * W / SCALE;
+                  xy[2*k+1] = rng.nextDouble() * H / SCALE;
+               }
+               return(k);
+            }
+            private int i = 0;
+         });
+      }
+
+      /** Number of points. */
+      final int n;
+      /** Seed for the random location generator. */
+      private final long seed;
+   }
+
+   /**
+    * Produces identical filled diamonds for a multi-shape painter, one at each location in a point producer. The same
+    * painted shape object is returned each time, with its location updated.
+    */
+   private static class Diamonds implements Iterable<MultiShapePainter.PaintedShape>
+   {
+      /**
+       * Construct the painted shape producer.
+       * @param pts The diamond locations.
+       * @param style The painter style for the diamonds.
+       */
+      Diamonds(Points pts, PainterStyle style)
+      {
+         this.pts = pts;
+         this.style = style;
+         GeneralPath gp = new GeneralPath(Marker.DIAMOND.getDesignShape());
+         gp.transform(AffineTransform.getScaleInstance(70, 70));
+         shape = gp;
+      }
+
+      @Override public Iterator<MultiShapePainter.PaintedShape> iterator()
+      {
+         return(new Iterator<MultiShapePainter.PaintedShape>()
+         {
+            @Override public boolean hasNext() { return(i < pts.n); }
+            @Override public MultiShapePainter.PaintedShape next()
+            {
+               stream.fill(xy, 1);
+               ++i;
+               diamond.loc.setLocation(xy[0], xy[1]);
+               return(diamond);
+            }
+            private final PointStream stream = pts.openStream();
+            private final double[] xy = new double[2];
+            private final Diamond diamond = new Diamond();
+            private int i = 0;
+         });
+      }
+
+      /** A filled diamond at a given location. */
+      private class Diamond implements MultiShapePainter.PaintedShape
+      {
+         @Override public Shape getShape() { return(shape); }
+         @Override public Point2D getLocation() { return(loc); }
+         @Override public Point2D getStemEnd() { return(null); }
+         @Override public PainterStyle getStemPainterStyle() { return(null); }
+         @Override public Paint getFillPaint() { return(null); }
+         @Override public boolean isClosed() { return(true); }
+         @Override public Object getShapeKey() { return(Diamonds.this); }
+         @Override public Font getFont() { return(style.getFont()); }
+         @Override public Color getFillColor() { return(style.getFillColor()); }
+         @Override public Color getStrokeColor() { return(style.getStrokeColor()); }
+         @Override public Stroke getStroke(float dashPhase) { return(style.getStroke(dashPhase)); }
+         @Override public double getFontSize() { return(style.getFontSize()); }
+         @Override public double getStrokeWidth() { return(style.getStrokeWidth()); }
+         @Override public boolean isStrokeSolid() { return(style.isStrokeSolid()); }
+         @Override public boolean isStroked() { return(style.isStroked()); }
+
+         /** The diamond's location. */
+         final Point2D loc = new Point2D.Double();
+      }
+
+      /** The diamond locations. */
+      private final Points pts;
+      /** The painter style for the diamonds. */
+      private final PainterStyle style;
+      /** The diamond shape, centered at the origin. */
+      private final Shape shape;
+   }
+
+   /**
+    * Abort the benchmark if a check fails.
+    * @param ok True if the check passed.
+    * @param what Description of the check.
+    */
+   private static void check(boolean ok, String what)
+   {
+      if(!ok) throw new IllegalStateException("Check failed: " + what);
+      System.out.println("OK: " + what);
+   }
+}
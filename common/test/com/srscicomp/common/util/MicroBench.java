@@ -0,0 +1,187 @@
+package com.srscicomp.common.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * A minimal micro-benchmark harness for the benchmark programs in the test source trees. It follows the JMH recipe --
+ * untimed warmup iterations to let the JIT settle, followed by timed measurement iterations, with each operation's
+ * result consumed so that the work cannot be optimized away -- without requiring the JMH library on the class path.
+ * For each benchmark it reports the mean, minimum and maximum time per operation, the heap bytes allocated per
+ * operation by the benchmark thread (where the JVM supports allocation accounting), and the number of garbage
+ * collections and total collection time during the measurement iterations.
+ *
+ * <p>Usage: Construct a <b>MicroBench</b>, then call {@link #run(String, Op)} for each alternative being compared.
+ * The results are printed to standard output as they are obtained, and each is returned as a {@link Result} so that
+ * the caller can compute and report speedups. Run with a fixed heap size (<i>-Xms</i> == <i>-Xmx</i>) for stable
+ * GC figures.</p>
+ *
+ * @author sruffner
+ */
+public class MicroBench
+{
+   /** A benchmarked operation. */
+   @FunctionalInterface public interface Op
+   {
+      /**
+       * Perform the operation once.
+       * @return Any value derived from the operation's result. It is consumed by the harness so that the JIT cannot
+       * eliminate the operation as dead code.
+       * @throws Exception if the operation fails, which aborts the benchmark.
+       */
+      long run() throws Exception;
+   }
+
+   /** The measured performance of a benchmarked operation. */
+   public static class Result
+   {
+      Result(String name, double meanMS, double minMS, double maxMS, double allocMB, long nGC, long gcMS)
+      {
+         this.name = name;
+         this.meanMS = meanMS;
+         this.minMS = minMS;
+         this.maxMS = maxMS;
+         this.allocMB = allocMB;
+         this.nGC = nGC;
+         this.gcMS = gcMS;
+      }
+
+      /** The benchmark name. */
+      public final String name;
+      /** Mean elapsed time per operation, in milliseconds. */
+      public final double meanMS;
+      /** Minimum elapsed time per operation, in milliseconds. */
+      public final double minMS;
+      /** Maximum elapsed time per operation, in milliseconds. */
+      public final double maxMS;
+      /** Heap allocated per operation by the benchmark thread, in MB; negative if allocation is not tracked. */
+      public final double allocMB;
+      /** Number of garbage collections during the measurement iterations. */
+      public final long nGC;
+      /** Total time spent in garbage collection during the measurement iterations, in milliseconds. */
+      public final long gcMS;
+
+      @Override public String toString()
+      {
+         return(String.format("%-36s %10.3f %10.3f %10.3f %10s %6d %8d", name, meanMS, minMS, maxMS,
+               (allocMB < 0) ? "n/a" : String.format("%.3f", allocMB), nGC, gcMS));
+      }
+   }
+
+   /**
+    * Construct a benchmark harness and print the column headings for the results.
+    * @param title A title for the benchmark program, printed above the column headings.
+    * @param nWarmup Number of untimed warmup iterations before each benchmark. Minimum of 1.
+    * @param nMeasure Number of timed measurement iterations for each benchmark. Minimum of 1.
+    */
+   public MicroBench(String title, int nWarmup, int nMeasure)
+   {
+      this.nWarmup = Math.max(1, nWarmup);
+      this.nMeasure = Math.max(1, nMeasure);
+      System.out.println(title + String.format(" (warmup=%d, measure=%d, heap=%dMB, cpus=%d)", this.nWarmup,
+            this.nMeasure, Runtime.getRuntime().maxMemory() / (1024*1024),
+            Runtime.getRuntime().availableProcessors()));
+      System.out.println(String.format("%-36s %10s %10s %10s %10s %6s %8s", "Benchmark", "ms/op", "min", "max",
+            "MB/op", "GCs", "GC ms"));
+   }
+
+   /**
+    * Run a benchmark: the specified number of warmup iterations followed by the timed measurement iterations. The
+    * result is printed to standard output.
+    * @param name The benchmark name.
+    * @param op The operation to benchmark.
+    * @return The measured performance.
+    * @throws Exception if the operation throws an exception.
+    */
+   public Result run(String name, Op op) throws Exception
+   {
+      for(int i=0; i<nWarmup; i++) sink += op.run();
+      System.gc();
+
+      long gc0 = gcCount(), gcTime0 = gcTime(), alloc0 = allocatedBytes();
+      double total = 0, min = Double.MAX_VALUE, max = 0;
+      for(int i=0; i<nMeasure; i++)
+      {
+         long t0 = System.nanoTime();
+         sink += op.run();
+         double ms = (System.nanoTime() - t0) / 1.0e6;
+         total += ms;
+         min = Math.min(min, ms);
+         max = Math.max(max, ms);
+      }
+      long alloc1 = allocatedBytes();
+      double allocMB = (alloc0 < 0 || alloc1 < 0) ? -1 : (alloc1 - alloc0) / (1048576.0 * nMeasure);
+
+      Result res = new Result(name, total / nMeasure, min, max, allocMB, gcCount() - gc0, gcTime() - gcTime0);
+      System.out.println(res);
+      return(res);
+   }
+
+   /**
+    * Print the speedup of one benchmark result relative to another.
+    * @param baseline The baseline result.
+    * @param candidate The result being compared against the baseline.
+    */
+   public static void printSpeedup(Result baseline, Result candidate)
+   {
+      System.out.println(String.format("  %s vs %s: %.2fx", candidate.name, baseline.name,
+            baseline.meanMS / candidate.meanMS));
+   }
+
+   /**
+    * Get the value accumulated from the results of all benchmarked operations. Benchmark programs print it at exit so
+    * that the JIT cannot prove the results unused.
+    * @return The accumulated value.
+    */
+   public long getSink() { return(sink); }
+
+   /**
+    * Helper method gets the total number of garbage collections so far, over all collectors.
+    * @return The collection count.
+    */
+   private static long gcCount()
+   {
+      long n = 0;
+      for(GarbageCollectorMXBean gc : gcBeans) n += Math.max(0, gc.getCollectionCount());
+      return(n);
+   }
+
+   /**
+    * Helper method gets the approximate total time spent in garbage collection so far, over all collectors.
+    * @return The accumulated collection time in milliseconds.
+    */
+   private static long gcTime()
+   {
+      long n = 0;
+      for(GarbageCollectorMXBean gc : gcBeans) n += Math.max(0, gc.getCollectionTime());
+      return(n);
+   }
+
+   /**
+    * Helper method gets the total number of heap bytes allocated so far by the current thread.
+    * @return The allocated byte count; -1 if the JVM does not support thread allocation accounting.
+    */
+   private static long allocatedBytes()
+   {
+      ThreadMXBean tb = ManagementFactory.getThreadMXBean();
+      if(tb instanceof com.sun.management.ThreadMXBean)
+      {
+         com.sun.management.ThreadMXBean stb = (com.sun.management.ThreadMXBean) tb;
+         if(stb.isThreadAllocatedMemorySupported() && stb.isThreadAllocatedMemoryEnabled())
+            return(stb.getThreadAllocatedBytes(Thread.currentThread().getId()));
+      }
+      return(-1);
+   }
+
+   /** The garbage collectors in the JVM. */
+   private static final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+
+   /** Number of untimed warmup iterations before each benchmark. */
+   private final int nWarmup;
+   /** Number of timed measurement iterations for each benchmark. */
+   private final int nMeasure;
+   /** Accumulates the results of all benchmarked operations. */
+   private long sink = 0;
+}
@@ -1,7 +1,11 @@
 package com.srscicomp.fc.data;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -9,8 +13,13 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.zip.CRC32;
 
 import com.srscicomp.common.util.Utilities;
 
@@ -79,6 +88,16 @@ import com.srscicomp.common.util.Utilities;
  * fundamentally limit the universe of data that can be stored reasonably accurately in the text file. Undefined 
  * floating-point values should be stored as "NaN", and infinite values as "-Infinity" or "+Infinity".</p>
  * 
+ * <p>To avoid re-reading the file from the beginning every time a data set is retrieved, <b>AnnotatedTextSrc</b> 
+ * computes the byte offset of each data section's tag line by scanning the file once. With the offsets, a data section
+ * is read by seeking directly to it, and the write operations copy unaffected data sections as raw byte ranges rather 
+ * than line by line. Since the table of contents precedes the data, every write operation must still rewrite the 
+ * entire file. If a sidecar directory has been set (see {@link DataSrcFactory#setSidecarDirectory(File)}), the offsets
+ * are also saved in a small sidecar file in that directory, so the scan is skipped the next time the file is opened.
+ * The sidecar records the source file's size and modification time, plus a checksum of the header, the table of 
+ * contents and the first few bytes at each recorded offset. If any of these no longer match, the sidecar is ignored 
+ * and the file is scanned again.</p>
+ * 
  * <p>It should be apparent from the above description that a <i>DataNav</i> annotated-text data source file is not 
  * necessarily easy to read -- e.g., a data matrix with a relatively small number of columns will result in very long 
  * text lines when viewed in a text editor. Nevertheless, it will be far more readable than a binary source file!</p>
@@ -126,8 +145,26 @@ class AnnotatedTextSrc implements IDataSrc
    
    public File getSourceFile() { return(srcPath); }
    public String getLastError() { return(lastErrorMsg); }
+   
+   /**
+    * Get the reason why the data section most recently retrieved by {@link #getDataByID(String)} was not parsed in 
+    * parallel, even though it is large enough. In that case the section is parsed again, line by line, so that the 
+    * result -- data set or error message -- is the same regardless of the method used.
+    * @return A brief description of the problem encountered during parallel parsing. Null if the last data section 
+    * retrieved was parsed in parallel, or was not a candidate for parallel parsing.
+    */
+   String getParallelFallback() { return(parallelFallback); }
+   
+   /**
+    * Enable or disable parallel parsing of large data sections. It is enabled by default. This is intended only for
+    * testing and benchmarking.
+    * @param enable True to enable, false to disable parallel parsing.
+    */
+   void setParallelParsing(boolean enable) { parallelParsing = enable; }
    public boolean isUnusable() { return(srcPath==null || (!srcPath.isFile()) || tableOfContents == null); }
    public boolean isReadOnly() { return(false); }
+   public boolean open() { return(true); }
+   public void close() {}
 
    public DataSetInfo[] getSummaryInfo()
    {
@@ -159,34 +196,39 @@ class AnnotatedTextSrc implements IDataSrc
          return(null);
       }
       
-      // compute the number of lines that need to be read to get to the tag line of the requested data section. Each 
-      // RASTER1D section passed over has (1+M) lines in addition to the tag line, while all other data sections have 
-      // N lines in addition to the tag line -- where N is the data length and M is the data breadth.
-      int nSkip = 1 + tableOfContents.length;
-      for(int i=0; i<tocIndex; i++)
-      {
-         DataSetInfo info = tableOfContents[i];
-         if(info.getFormat() == DataSet.Fmt.RASTER1D) nSkip += 2 + info.getDataBreadth();
-         else nSkip += 1 + info.getDataLength();
-      }
+      // if the data set is in the cache, we're done
+      DataSet ds = dataCache.get(id);
+      if(ds != null) return(ds);
+      
+      // compute the number of lines preceding the tag line of the requested data section, so that line numbers in any
+      // error message are correct
+      long nSkip = 1 + tableOfContents.length;
+      for(int i=0; i<tocIndex; i++) nSkip += getSectionLineCount(tableOfContents[i]);
       
-      // open a buffered reader for the file, skip the number of lines computed above, check for the tag line of the 
-      // requested set, then read in and parse the required number of lines to obtain the requested data matrix
+      // a large data section is parsed in parallel if possible. Otherwise, open a buffered reader for the file, seek 
+      // directly to the tag line of the requested set, then read in and parse the required number of lines to obtain 
+      // the requested data matrix
       LineNumberReader rdr = null;
-      DataSet ds = null;
       try
       {
-         // create a buffered reader for reading the ascii text file one line at a time
-         rdr = new LineNumberReader( new InputStreamReader( new FileInputStream(srcPath), StandardCharsets.US_ASCII) );
+         long[] offsets = getSectionOffsets();
+         long size = offsets[tocIndex+1] - offsets[tocIndex];
+         parallelFallback = null;
+         if(parallelParsing && size >= PARALLELMINBYTES && 
+               tableOfContents[tocIndex].getFormat() != DataSet.Fmt.RASTER1D)
+            ds = getDataSetInParallel(offsets[tocIndex], size, tocIndex, tableOfContents[tocIndex]);
          
-         // skip to the beginning of the data section for the requested dataset
-         for(int i=0; i<nSkip; i++) 
-         { 
-            if(null == rdr.readLine()) throw new IOException("Unexpected EOF at line " + rdr.getLineNumber());
+         if(ds == null)
+         {
+            FileInputStream fis = new FileInputStream(srcPath);
+            rdr = new LineNumberReader( new InputStreamReader(fis, StandardCharsets.US_ASCII) );
+            fis.getChannel().position(offsets[tocIndex]);
+            rdr.setLineNumber((int) Math.min(Integer.MAX_VALUE, nSkip));
+            
+            // parse data section and create the DataSet object.
+            ds = getDataSet(rdr, tocIndex, tableOfContents[tocIndex]);
          }
-         
-         // parse data section and create the DataSet object.
-         ds = getDataSet(rdr, tocIndex, tableOfContents[tocIndex]);
+         dataCache.put(id, ds);
       }
       catch(IOException ioe) { lastErrorMsg = ioe.getMessage(); }
       finally
@@ -258,60 +300,34 @@ class AnnotatedTextSrc implements IDataSrc
          dstTOC[n-1] = set.getInfo();
       }
       
-      BufferedReader in = null;
+      FileInputStream in = null;
       BufferedWriter out = null;
+      long[] dstOffsets = new long[dstTOC.length + 1];
       boolean ok = true;
       try
       {
-         if(srcPath.isFile()) in = new BufferedReader( new InputStreamReader( new FileInputStream(srcPath), StandardCharsets.US_ASCII) );
-         out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dst), StandardCharsets.US_ASCII));
+         FileOutputStream fos = new FileOutputStream(dst);
+         out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.US_ASCII));
          
          // write the new header line and TOC
          putTOC(out, dstTOC);
          
          // copy all existing data sections directly, except the one replaced (if applicable)
-         if(in != null)
+         int n = 0;
+         if(srcPath.isFile() && tableOfContents != null && tableOfContents.length > 0)
          {
-            // first, skip over the header line and the TOC in the old file
-            for(int i=0; i<tableOfContents.length + 1; i++)
-            { 
-               if(null == in.readLine()) throw new IOException("Unexpected EOF while copying existing data");
-            }
-            
-            for(int i=0; i<tableOfContents.length; i++)
-            {
-               int nLines = 1;
-               nLines += (tableOfContents[i].getFormat() == DataSet.Fmt.RASTER1D) ? 
-                        (1+tableOfContents[i].getDataBreadth()) : tableOfContents[i].getDataLength();
-               
-               // if we're replacing a data set, we have to skip over the old data set, then fix the tag line for each
-               // dataset after it to ensure we get the index position right
-               if(replace && iMatch >= 0) 
-               {
-                  if(i==iMatch)
-                  {
-                     for(int k=0; k<nLines+1; k++) in.readLine();
-                     continue;
-                  }
-                  else if(i>iMatch)
-                  {
-                     in.readLine();
-                     out.write((i - 1) + ":" + CRLF);
-                  }
-               }
-                        
-               // NOTE: We have to add the CRLF back in b/c the readLine() removes it!
-               for(int j=0; j<nLines; j++)
-               {
-                  String line = in.readLine();
-                  if(line == null) throw new IOException("Unexpected EOF while copying existing data");
-                  out.write(line + CRLF);
-               }
-            }
+            long[] srcOffsets = getSectionOffsets();
+            in = new FileInputStream(srcPath);
+            n = copyDataSections(in.getChannel(), srcOffsets, (replace && iMatch >= 0) ? iMatch : -1, out, 
+                  fos.getChannel(), dstOffsets);
          }
          
          // now write the data section for the added data set
+         out.flush();
+         dstOffsets[n] = fos.getChannel().position();
          putDataSet(out, dstTOC.length - 1, set);
+         out.flush();
+         dstOffsets[n+1] = fos.getChannel().position();
       }
       catch(IOException ioe)
       {
@@ -351,16 +367,29 @@ class AnnotatedTextSrc implements IDataSrc
       }
       else dst.delete();
       
-      // if successful, update TOC cache
+      // if successful, update TOC cache and evict any stale copy of the data set from the data set cache. The set 
+      // written is NOT cached, since the text file retains only ~7 significant digits per sample; the set will be
+      // cached as parsed from the file when it is next retrieved.
       if(ok)
       {
          srcLastModified = srcPath.lastModified();
          tableOfContents = dstTOC;
+         dataCache.remove(set.getID());
+         saveSectionOffsets(dstOffsets);
       }
       
       return(ok);
    }
 
+   public boolean writeData(List<DataSet> sets, boolean replace)
+   {
+      if(sets != null) for(DataSet set : sets)
+      {
+         if(!writeData(set, replace)) return(false);
+      }
+      return(true);
+   }
+
    @SuppressWarnings("ResultOfMethodCallIgnored")
    public boolean changeID(String id, String idNew)
    {
@@ -414,37 +443,24 @@ class AnnotatedTextSrc implements IDataSrc
          else dstTOC[i] = tableOfContents[i];
       }
 
-      BufferedReader in = null;
+      FileInputStream in = null;
       BufferedWriter out = null;
+      long[] dstOffsets = new long[dstTOC.length + 1];
       boolean ok = true;
       try
       {
-         out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dst), StandardCharsets.US_ASCII));
-         in = new BufferedReader( new InputStreamReader( new FileInputStream(srcPath), StandardCharsets.US_ASCII) );
+         long[] srcOffsets = getSectionOffsets();
+         FileOutputStream fos = new FileOutputStream(dst);
+         out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.US_ASCII));
+         in = new FileInputStream(srcPath);
          
          // write the new header line and TOC
          putTOC(out, dstTOC);
          
-         // first, skip over the header line and the TOC in the old file
-         for(int i=0; i<tableOfContents.length + 1; i++)
-         { 
-            if(null == in.readLine()) throw new IOException("Unexpected EOF while copying existing data");
-         }
-         
          // copy all existing data sections directly
-         for(DataSetInfo tableOfContent : tableOfContents)
-         {
-            int nLines = 1;
-            nLines += (tableOfContent.getFormat() == DataSet.Fmt.RASTER1D) ?
-                  (1 + tableOfContent.getDataBreadth()) : tableOfContent.getDataLength();
-
-            for(int j = 0; j < nLines; j++)
-            {
-               String line = in.readLine();
-               if(line == null) throw new IOException("Unexpected EOF while copying existing data");
-               out.write(line);
-            }
-         }
+         copyDataSections(in.getChannel(), srcOffsets, -1, out, fos.getChannel(), dstOffsets);
+         out.flush();
+         dstOffsets[dstTOC.length] = fos.getChannel().position();
       }
       catch(IOException ioe)
       {
@@ -484,11 +500,14 @@ class AnnotatedTextSrc implements IDataSrc
       }
       else dst.delete();
       
-      // if successful, update TOC cache
+      // if successful, update TOC cache and data set cache
       if(ok)
       {
          srcLastModified = srcPath.lastModified();
          tableOfContents = dstTOC;
+         DataSet ds = dataCache.remove(id);
+         if(ds != null) dataCache.put(idNew, ds.changeID(idNew));
+         saveSectionOffsets(dstOffsets);
       }
       
       return(ok);
@@ -533,52 +552,24 @@ class AnnotatedTextSrc implements IDataSrc
          dstTOC[j++] = tableOfContents[i];
       }
       
-      BufferedReader in = null;
+      FileInputStream in = null;
       BufferedWriter out = null;
+      long[] dstOffsets = new long[dstTOC.length + 1];
       boolean ok = true;
       try
       {
-         out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dst), StandardCharsets.US_ASCII));
-         in = new BufferedReader( new InputStreamReader( new FileInputStream(srcPath), StandardCharsets.US_ASCII) );
+         long[] srcOffsets = getSectionOffsets();
+         FileOutputStream fos = new FileOutputStream(dst);
+         out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.US_ASCII));
+         in = new FileInputStream(srcPath);
          
          // write the new header line and TOC
          putTOC(out, dstTOC);
          
-         // first, skip over the TOC in the old file
-         for(int i=0; i<tableOfContents.length + 1; i++)
-         { 
-            if(null == in.readLine()) throw new IOException("Unexpected EOF while copying existing data");
-         }
-         
-         // copy all existing data sections, EXCEPT the one removed! We must revise the tag line for each section to
-         // ensure we get the index position right.
-         j = 0;
-         for(int i=0; i<tableOfContents.length; i++)
-         {
-            // number of lines for current data section, excluding tag line
-            int nLines = (tableOfContents[i].getFormat() == DataSet.Fmt.RASTER1D) ? 
-                  (1+tableOfContents[i].getDataBreadth()) : tableOfContents[i].getDataLength();
-         
-            if(i == iRemove) 
-            {
-               for(int k=0; k<nLines+1; k++) in.readLine();
-               continue;
-            }
-            
-            // we revise the tag line for each section to ensure we get the index position right
-            in.readLine();
-            out.write(j + ":" + CRLF);
-            
-            // NOTE: We have to add the CRLF back in b/c the readLine() removes it!
-            for(int k=0; k<nLines; k++)
-            {
-               String line = in.readLine();
-               if(line == null) throw new IOException("Unexpected EOF while copying existing data");
-               out.write(line + CRLF);
-            }
-            
-            ++j;
-         }
+         // copy all existing data sections, EXCEPT the one removed!
+         copyDataSections(in.getChannel(), srcOffsets, iRemove, out, fos.getChannel(), dstOffsets);
+         out.flush();
+         dstOffsets[dstTOC.length] = fos.getChannel().position();
       }
       catch(IOException ioe)
       {
@@ -618,11 +609,13 @@ class AnnotatedTextSrc implements IDataSrc
       }
       else dst.delete();
       
-      // if successful, update TOC cache
+      // if successful, update TOC cache and data set cache
       if(ok)
       {
          srcLastModified = srcPath.lastModified();
          tableOfContents = dstTOC;
+         dataCache.remove(id);
+         saveSectionOffsets(dstOffsets);
       }
       
       return(ok);
@@ -643,13 +636,17 @@ class AnnotatedTextSrc implements IDataSrc
       // write an empty TOC to the destination file.
       DataSetInfo[] dstTOC = new DataSetInfo[0];
       BufferedWriter out = null;
+      long[] dstOffsets = new long[1];
       boolean ok = true;
       try
       {
-         out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dst), StandardCharsets.US_ASCII));
+         FileOutputStream fos = new FileOutputStream(dst);
+         out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.US_ASCII));
          
          // write the new header line with an empty TOC
          putTOC(out, dstTOC);
+         out.flush();
+         dstOffsets[0] = fos.getChannel().position();
       }
       catch(IOException ioe)
       {
@@ -684,11 +681,13 @@ class AnnotatedTextSrc implements IDataSrc
       }
       else dst.delete();
       
-      // if successful, update TOC cache
+      // if successful, update TOC cache and empty the data set cache
       if(ok)
       {
          srcLastModified = srcPath.lastModified();
          tableOfContents = dstTOC;
+         dataCache.clear();
+         saveSectionOffsets(dstOffsets);
       }
       
       return(ok);
@@ -700,15 +699,50 @@ class AnnotatedTextSrc implements IDataSrc
    private final static String COMMA = ",";
    private final static String CRLF = "\r\n";
    
+   /** 
+    * Tag identifying a data section offset index file ("@DNP"). Older offset index files, tagged "@DNO", lack the 
+    * content checksum and are ignored.
+    */
+   private final static int OFSTAG = 0x40444E50;
+   
+   /** Number of bytes at each data section offset that are included in the offset index file's content checksum. */
+   private final static int OFSCHECKBYTES = 16;
+   
+   /** Data sections at least this large (in bytes) are parsed in parallel, if possible. */
+   private final static long PARALLELMINBYTES = 4L * 1024L * 1024L;
+   
+   /** A data section parsed in parallel is read into memory this many bytes at a time. */
+   private final static int PARALLELWINDOWBYTES = 16 * 1024 * 1024;
+   
    /** The abstract pathname for the data source file. */
    private final File srcPath;
    
+   /** True if large data sections are parsed in parallel, if possible. */
+   private boolean parallelParsing = true;
+   
+   /** Why the last data section retrieved was not parsed in parallel despite its size; null if not applicable. */
+   private String parallelFallback = null;
+   
    /** Source file's modification time the last time we cached TOC information extracted from it. */
    private long srcLastModified = -1;
    
    /** Cache of source file's table of contents. Will be null if it has not been cached, or an error occurred. */
    private DataSetInfo[] tableOfContents = null;
    
+   /** 
+    * Cache of the byte offsets of the data sections in the source file. Element I is the file offset of the tag line of
+    * the I-th data section, and the last element is the offset just past the end of the last data section. Will be null
+    * if the offsets have not been computed since the table of contents was last cached.
+    */
+   private long[] sectionOffsets = null;
+   
+   /** 
+    * Cache of data sets recently read from the source file, keyed by ID. Parsing a data section is slow,
+    * so this saves a great deal of time when the same set is retrieved repeatedly. It is emptied whenever the source 
+    * file is modified by other means.
+    */
+   private final IDataSetCache<String> dataCache = new DataSetCache<>();
+   
    /** Description of error that occurred during last operation, or empty string if operation was successful. */
    private String lastErrorMsg = "";
    
@@ -730,6 +764,8 @@ class AnnotatedTextSrc implements IDataSrc
       {
          srcLastModified = -1;
          tableOfContents = null;
+         sectionOffsets = null;
+         dataCache.clear();
       }
       if(tableOfContents != null) return;
       
@@ -755,7 +791,261 @@ class AnnotatedTextSrc implements IDataSrc
 
       srcLastModified = modT;
       tableOfContents = toc;
+      sectionOffsets = null;
    }   
+   
+   /**
+    * Helper method gets the byte offsets of the data sections in the source file. If they are not cached, they are read
+    * from the offset index file -- unless that file is missing or out of date, in which case the source file is scanned
+    * to compute the offsets, and the offset index file is updated. The table of contents must be cached already.
+    * @return The data section offsets. See {@link #sectionOffsets}.
+    * @throws IOException if an IO error occurs while scanning the source file, or if the file ends prematurely.
+    */
+   private long[] getSectionOffsets() throws IOException
+   {
+      if(sectionOffsets != null) return(sectionOffsets);
+      if(tableOfContents == null) throw new IOException("Invalid TOC. Not a DataNav annotated text data source.");
+      
+      long[] offsets = loadSectionOffsets();
+      if(offsets == null)
+      {
+         offsets = scanSectionOffsets();
+         saveSectionOffsets(offsets);
+      }
+      sectionOffsets = offsets;
+      return(offsets);
+   }
+   
+   /**
+    * Helper method reads the data section offsets from the offset index file. The file is ignored if no sidecar 
+    * directory is set, if the file does not exist, if it is malformed, if the source file size or modification time 
+    * does not match the values recorded in it, if it does not contain the number of offsets expected given the current
+    * table of contents, or if the content checksum does not match the source file.
+    * @return The data section offsets, or null if the offset index file is unavailable.
+    */
+   private long[] loadSectionOffsets()
+   {
+      File f = getOffsetIndexPath();
+      if(f == null || !f.isFile()) return(null);
+      try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f))))
+      {
+         if(in.readInt() != OFSTAG) return(null);
+         if(in.readLong() != srcPath.length() || in.readLong() != srcPath.lastModified()) return(null);
+         if(in.readInt() != tableOfContents.length) return(null);
+         long checksum = in.readLong();
+         long[] offsets = new long[tableOfContents.length + 1];
+         for(int i=0; i<offsets.length; i++) 
+         {
+            offsets[i] = in.readLong();
+            if(i > 0 && offsets[i] <= offsets[i-1]) return(null);
+         }
+         if(offsets[offsets.length-1] > srcPath.length() || checksum != computeOffsetsChecksum(offsets)) return(null);
+         return(offsets);
+      }
+      catch(IOException ioe) { return(null); }
+   }
+   
+   /**
+    * Helper method caches the data section offsets and writes them to the offset index file, along with the source 
+    * file's current size and modification time and the content checksum. Call this only after the source file has 
+    * been written. If no sidecar directory is set, the offsets are only cached in memory. The offset index file is 
+    * deleted if it cannot be written; that's not fatal, since the offsets can always be recomputed.
+    * @param offsets The data section offsets for the source file. See {@link #sectionOffsets}.
+    */
+   private void saveSectionOffsets(long[] offsets)
+   {
+      sectionOffsets = offsets;
+      File f = getOffsetIndexPath();
+      if(f == null) return;
+      try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f))))
+      {
+         out.writeInt(OFSTAG);
+         out.writeLong(srcPath.length());
+         out.writeLong(srcPath.lastModified());
+         out.writeInt(offsets.length - 1);
+         out.writeLong(computeOffsetsChecksum(offsets));
+         for(long offset : offsets) out.writeLong(offset);
+      }
+      catch(IOException ioe) { f.delete(); }
+   }
+   
+   /**
+    * Helper method computes the content checksum recorded in the offset index file: the CRC-32 of the source file's 
+    * header line and table of contents -- everything before the first data section -- plus the first few bytes at 
+    * each data section offset, which include the section's tag line. The checksum is computed from the source file as 
+    * it is now, so it will not match the recorded value if the file was replaced by another of the same size and 
+    * timestamp, or if any recorded offset no longer marks the start of a data section.
+    * @param offsets The data section offsets. See {@link #sectionOffsets}.
+    * @return The checksum.
+    * @throws IOException if an IO error occurs while reading the source file.
+    */
+   private long computeOffsetsChecksum(long[] offsets) throws IOException
+   {
+      CRC32 crc = new CRC32();
+      try(FileInputStream in = new FileInputStream(srcPath))
+      {
+         FileChannel fc = in.getChannel();
+         ByteBuffer bb = ByteBuffer.allocate(65536);
+         long pos = 0;
+         while(pos < offsets[0])
+         {
+            bb.clear();
+            bb.limit((int) Math.min(bb.capacity(), offsets[0] - pos));
+            int n = fc.read(bb, pos);
+            if(n <= 0) break;
+            crc.update(bb.array(), 0, n);
+            pos += n;
+         }
+         for(int i=0; i<offsets.length-1; i++)
+         {
+            bb.clear();
+            bb.limit(OFSCHECKBYTES);
+            int n = fc.read(bb, offsets[i]);
+            if(n > 0) crc.update(bb.array(), 0, n);
+         }
+      }
+      return(crc.getValue());
+   }
+   
+   /**
+    * Helper method computes the data section offsets by scanning the source file once, counting lines. The number of 
+    * lines in the header, the TOC, and each data section is known from the table of contents. A missing line 
+    * terminator at the very end of the file is tolerated.
+    * @return The data section offsets. See {@link #sectionOffsets}.
+    * @throws IOException if an IO error occurs, or if the file ends before the last data section is complete.
+    */
+   private long[] scanSectionOffsets() throws IOException
+   {
+      int n = tableOfContents.length;
+      long[] offsets = new long[n + 1];
+      int iSect = 0;
+      long nLeft = 1 + n;
+      long pos = 0;
+      long lineStart = 0;
+      try(FileInputStream in = new FileInputStream(srcPath))
+      {
+         byte[] buf = new byte[65536];
+         int nRead;
+         while(iSect <= n && (nRead = in.read(buf)) > 0)
+         {
+            for(int i=0; i<nRead && iSect <= n; i++) if(buf[i] == '\n')
+            {
+               lineStart = pos + i + 1;
+               if(--nLeft == 0)
+               {
+                  offsets[iSect] = lineStart;
+                  if(iSect < n) nLeft = getSectionLineCount(tableOfContents[iSect]);
+                  ++iSect;
+               }
+            }
+            pos += nRead;
+         }
+      }
+      if(iSect == n && nLeft == 1 && pos > lineStart) offsets[n] = pos;
+      else if(iSect <= n) throw new IOException("Unexpected EOF while scanning data sections");
+      return(offsets);
+   }
+   
+   /**
+    * Helper method copies the data sections in the source file to the output file, optionally omitting one of them. 
+    * Each section is copied as a raw byte range, without parsing. However, if a section is omitted, the tag line of
+    * each section after it is rewritten to reflect its new index position.
+    * @param in Channel for reading the source file.
+    * @param srcOffsets The data section offsets in the source file. See {@link #sectionOffsets}.
+    * @param iOmit Index of the data section to omit. If negative, all sections are copied.
+    * @param wrt Buffered writer for the output file. It is flushed before any bytes are copied.
+    * @param out Channel for the output stream wrapped by the buffered writer. 
+    * @param dstOffsets On return, the first N elements hold the offsets of the N data sections in the output file.
+    * @return The number of data sections copied, N.
+    * @throws IOException if an IO error occurs, or if a data section does not start with the expected tag line.
+    */
+   private static int copyDataSections(FileChannel in, long[] srcOffsets, int iOmit, BufferedWriter wrt, 
+         FileChannel out, long[] dstOffsets) throws IOException
+   {
+      wrt.flush();
+      int nSrc = srcOffsets.length - 1;
+      int start = (iOmit < 0) ? nSrc : iOmit;
+      
+      // copy all sections preceding the omitted one in one go
+      long delta = out.position() - srcOffsets[0];
+      for(int i=0; i<start; i++) dstOffsets[i] = srcOffsets[i] + delta;
+      copyBytes(in, srcOffsets[0], srcOffsets[start] - srcOffsets[0], out);
+      if(iOmit < 0) return(nSrc);
+      
+      // copy each section after the omitted one, with a revised tag line
+      int j = start;
+      for(int i=start+1; i<nSrc; i++)
+      {
+         dstOffsets[j] = out.position();
+         wrt.write(j + ":" + CRLF);
+         wrt.flush();
+         long body = skipTagLine(in, srcOffsets[i], i);
+         copyBytes(in, body, srcOffsets[i+1] - body, out);
+         ++j;
+      }
+      return(j);
+   }
+   
+   /**
+    * Helper method copies a range of bytes from one file channel to another.
+    * @param in The source channel.
+    * @param pos The file position of the first byte to copy.
+    * @param count The number of bytes to copy.
+    * @param out The destination channel. Bytes are written starting at its current position.
+    * @throws IOException if an IO error occurs, or if the source ends before the byte range does.
+    */
+   private static void copyBytes(FileChannel in, long pos, long count, FileChannel out) throws IOException
+   {
+      long nDone = 0;
+      while(nDone < count)
+      {
+         long n = in.transferTo(pos + nDone, count - nDone, out);
+         if(n <= 0) throw new IOException("Unexpected EOF while copying existing data");
+         nDone += n;
+      }
+   }
+   
+   /**
+    * Helper method verifies the tag line of a data section and finds the start of the line that follows it.
+    * @param in Channel for reading the source file.
+    * @param pos File offset of the tag line.
+    * @param idx The index position of the data section. The tag line must read "{idx}:".
+    * @return File offset of the line after the tag line.
+    * @throws IOException if an IO error occurs, or if the tag line is not as expected.
+    */
+   private static long skipTagLine(FileChannel in, long pos, int idx) throws IOException
+   {
+      ByteBuffer bb = ByteBuffer.allocate(32);
+      in.read(bb, pos);
+      bb.flip();
+      String tagLine = idx + ":";
+      int n = bb.remaining();
+      int i = 0;
+      while(i < n && bb.get(i) != '\n') ++i;
+      String line = new String(bb.array(), 0, i, StandardCharsets.US_ASCII).trim();
+      if(i == n || !tagLine.equals(line)) throw new IOException("Bad tag line for dataset at index " + idx);
+      return(pos + i + 1);
+   }
+   
+   /**
+    * Helper method gets the number of lines in a data section, including its tag line. A RASTER1D section has 1+M lines
+    * in addition to the tag line, while all other data sections have N lines in addition to the tag line -- where N is
+    * the data length and M is the data breadth.
+    * @param info Summary information for the data set stored in the section.
+    * @return Number of lines in the data section.
+    */
+   private static long getSectionLineCount(DataSetInfo info)
+   {
+      if(info.getFormat() == DataSet.Fmt.RASTER1D) return(2L + info.getDataBreadth());
+      return(1L + info.getDataLength());
+   }
+   
+   /**
+    * Helper method gets the abstract pathname of the offset index file, a sidecar file in the directory set by {@link
+    * DataSrcFactory#setSidecarDirectory(File)}.
+    * @return The offset index file path, or null if no sidecar directory is set.
+    */
+   private File getOffsetIndexPath() { return(DataSrcFactory.getSidecarFile(srcPath, ".ofs")); }
 
    /**
     * Helper method parses the header line and "table of contents" (TOC) section of the annotated-text data source. Each
@@ -898,15 +1188,14 @@ class AnnotatedTextSrc implements IDataSrc
             }
             if(sum != n) throw new IOException("Sum of raster lengths invalid at line " + rdr.getLineNumber());     
 
-            int k = m;
+            FloatTextParser parser = new FloatTextParser(n);
             for(int i=0; i<m; i++)
             {
-               tokenizer = new StringTokenizer(rdr.readLine());
-               if(tokenizer.countTokens() != (int) fData[i])
+               int len = parseLine(rdr, parser);
+               if(len != (int) fData[i])
                   throw new IOException("Unexpected #samples in raster " + i + " at line " + rdr.getLineNumber());
-               while(tokenizer.hasMoreTokens())
-                  fData[k++] = Float.parseFloat(tokenizer.nextToken());
             }
+            System.arraycopy(parser.getValueBuffer(), 0, fData, m, n);
          }
          catch(NumberFormatException nfe)
          {
@@ -919,23 +1208,13 @@ class AnnotatedTextSrc implements IDataSrc
          // N lines of M floating-pt tokens, and these tokens are parsed to floats and stored in the array in order,
          // one line ("row" in data matrix) at a time.
          
-         fData = new float[m*n];
-         try
-         {
-            int k = 0;
-            for(int i=0; i<n; i++)
-            {
-               StringTokenizer tokenizer = new StringTokenizer(rdr.readLine());
-               if(tokenizer.countTokens() != m)
-                  throw new IOException("Incorrect tuple length at line " + rdr.getLineNumber());
-               while(tokenizer.hasMoreTokens())
-                  fData[k++] = Float.parseFloat(tokenizer.nextToken());
-            }
-         }
-         catch(NumberFormatException nfe)
+         FloatTextParser parser = new FloatTextParser(m*n);
+         for(int i=0; i<n; i++)
          {
-            throw new IOException("Number parsing error on line " + rdr.getLineNumber());
+            if(parseLine(rdr, parser) != m)
+               throw new IOException("Incorrect tuple length at line " + rdr.getLineNumber());
          }
+         fData = parser.toArray();
       }
       
       // create the data set object
@@ -944,6 +1223,129 @@ class AnnotatedTextSrc implements IDataSrc
       return(ds);
    }
    
+   /**
+    * Helper method for {@link #getDataSet(LineNumberReader, int, DataSetInfo)}. It reads the next line from the data 
+    * section and parses it as a tuple of whitespace-separated floating-point tokens.
+    * @param rdr The line number reader for the source file.
+    * @param parser The parser to which the tuple is appended.
+    * @return The number of tokens in the tuple.
+    * @throws IOException if an IO error occurs, if the end of file is reached, or if a token cannot be parsed.
+    */
+   private static int parseLine(LineNumberReader rdr, FloatTextParser parser) throws IOException
+   {
+      String line = rdr.readLine();
+      if(line == null) throw new IOException("Unexpected EOF at line " + rdr.getLineNumber());
+      int n = parser.parseTuple(line, 0, line.length());
+      if(n < 0) throw new IOException("Number parsing error on line " + rdr.getLineNumber());
+      return(n);
+   }
+   
+   /**
+    * Helper method reads a data section into memory and parses it in parallel -- see {@link 
+    * FloatTextParser#parseParallel(CharSequence, String)}. This is supported for all data formats except RASTER1D. 
+    * 
+    * <p>The section is read through a window of {@link #PARALLELWINDOWBYTES} bytes, so the memory needed beyond the 
+    * data set itself does not grow with the size of the section. Each window is parsed in parallel up to the last line
+    * break in it, and the partial line that follows is carried over to the start of the next window. The window is 
+    * enlarged only if a single line does not fit in it.</p>
+    * 
+    * <p>This method does not report any format or parsing errors. Instead, it records the problem -- see {@link 
+    * #getParallelFallback()} -- and returns null so that the caller can parse the section again via {@link 
+    * #getDataSet(LineNumberReader, int, DataSetInfo)}. Thus, the result of parsing a section -- data set or error -- 
+    * is the same regardless of the method used.</p>
+    * @param offset File offset of the data section's tag line.
+    * @param size The size of the data section in bytes.
+    * @param pos The index position of the data set in the source file.
+    * @param info Summary information for the data set.
+    * @return The extracted data set, or null if the section could not be parsed in parallel for any reason.
+    * @throws IOException if an IO error occurs while reading the data section.
+    */
+   private DataSet getDataSetInParallel(long offset, long size, int pos, DataSetInfo info) throws IOException
+   {
+      int n = info.getDataLength();
+      int m = info.getDataBreadth();
+      if(((long) n) * m > Integer.MAX_VALUE - 8) 
+      {
+         parallelFallback = "Too many values in data section";
+         return(null);
+      }
+      
+      FloatTextParser parser = new FloatTextParser(n*m);
+      byte[] window = new byte[(int) Math.min(size, PARALLELWINDOWBYTES)];
+      int nKept = 0;
+      boolean gotTag = false;
+      try(FileInputStream fis = new FileInputStream(srcPath))
+      {
+         FileChannel fc = fis.getChannel();
+         long next = offset;
+         long end = offset + size;
+         while(next < end)
+         {
+            // fill the window after any bytes carried over from the previous window
+            ByteBuffer bb = ByteBuffer.wrap(window, nKept, (int) Math.min(window.length - nKept, end - next));
+            while(bb.hasRemaining())
+            {
+               if(fc.read(bb, next + bb.position() - nKept) < 0)
+               {
+                  parallelFallback = "Unexpected EOF in data section";
+                  return(null);
+               }
+            }
+            next += bb.position() - nKept;
+            int nBytes = bb.position();
+            
+            // parse up to the last line break in the window, unless this is the end of the section. Tuples are 
+            // separated by CR and/or LF, as with LineNumberReader. An empty line would be skipped, but then the tuple
+            // count will be wrong.
+            int stop = nBytes;
+            if(next < end) while(stop > 0 && window[stop-1] != '\r' && window[stop-1] != '\n') --stop;
+            if(stop == 0)
+            {
+               window = Arrays.copyOf(window, (int) Math.min(2L * window.length, Integer.MAX_VALUE - 8));
+               nKept = nBytes;
+               continue;
+            }
+            
+            // check the tag line at the start of the section
+            int start = 0;
+            if(!gotTag)
+            {
+               while(start < stop && window[start] != '\r' && window[start] != '\n') ++start;
+               if(!(pos + ":").equals(new String(window, 0, start, StandardCharsets.US_ASCII)))
+               {
+                  parallelFallback = "Bad tag line for data section";
+                  return(null);
+               }
+               gotTag = true;
+            }
+            
+            if(!parser.parseParallel(new FloatTextParser.AsciiText(window, start, stop - start), CRLF))
+            {
+               parallelFallback = "Number parsing error in tuple " + parser.getErrorTuple();
+               return(null);
+            }
+            
+            nKept = nBytes - stop;
+            System.arraycopy(window, stop, window, 0, nKept);
+         }
+      }
+      
+      if(parser.getTupleCount() != n)
+      {
+         parallelFallback = "Found " + parser.getTupleCount() + " tuples, expected " + n;
+         return(null);
+      }
+      for(int k=0; k<n; k++) if(parser.getTupleLength(k) != m)
+      {
+         parallelFallback = "Incorrect length for tuple " + k;
+         return(null);
+      }
+      
+      DataSet ds = DataSet.createDataSet(info, parser.toArray());
+      if(ds == null) parallelFallback = "Unable to create data set";
+      return(ds);
+   }
+   
    /**
     * Helper method that writes a data section conforming to the layout expected for an annotated-text data source. This 
     * method handles the process of writing the data as a series of whitespace-separated floating-point numbers on one 
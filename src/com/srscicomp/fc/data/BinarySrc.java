@@ -2,6 +2,11 @@ package com.srscicomp.fc.data;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.srscicomp.common.util.Utilities;
 
 /**
  * A {@link IDataSrc} implementation that reads and writes a file containing <i>FigureComposer</i>-compatible data sets
@@ -23,11 +28,34 @@ import java.util.HashMap;
  * <ul>
  *    <li>Since the file is modified in place, a catastrophic failure during file I/O can leave the file in a corrupted 
  *    state. If such a situation arises, this data source proxy is rendered unusable.</li>
- *    <li>After many additions and removals, the file may end up containing lots of wasted space. This can be addressed
- *    by compacting the file. But compacting is a relatively time-consuming process and is currently not exposed in the
- *    {@link IDataSrc} interface.</li>
+ *    <li>After many additions and removals, the file may end up containing lots of wasted space. Compacting the entire
+ *    file is a relatively time-consuming process and is not exposed in the {@link IDataSrc} interface. Instead, if 
+ *    automatic compaction is enabled via {@link #setAutoCompaction(double)}, the file is compacted incrementally on a 
+ *    background thread once a removal leaves more than the specified fraction of the file unused; see {@link 
+ *    DataSetRepository#startBackgroundCompaction(double)}. It is disabled by default.</li>
  * </ul>
  * </p>
+ * 
+ * <p>To enforce unique ID strings, <b>BinarySrc</b> must load the block index of every data section in the file, which
+ * can take a while for a large file. If a sidecar directory has been set (see {@link 
+ * DataSrcFactory#setSidecarDirectory(File)}), the repository instead maintains a persistent ID index in that directory
+ * (see {@link DataSetRepository#setIDIndexEnabled(boolean)}) that serves {@link #getDataByID(String)} and {@link 
+ * #getSummaryInfo()} until the source is first modified, so opening the source takes about the same time regardless 
+ * of its size. The ID index is validated against the repository file's size, timestamp and content fingerprint before
+ * it is used.</p>
+ * 
+ * <p>Between calls to {@link #open()} and {@link #close()}, the repository file is held open so that a sequence of 
+ * operations on the source does not incur the cost of opening and closing the file for each operation.</p>
+ * 
+ * <p>A sequence of write operations can be grouped into a single transaction via {@link #beginBatch()} and {@link 
+ * #commit()}, which rely on the repository's write-ahead journal. Either all of the operations in the batch take effect
+ * or none of them do, even if the application dies before the batch is fully committed. The bulk write operation 
+ * {@link #writeData(List, boolean)} is implemented as such a batch; if any write in the batch fails, the batch is 
+ * rolled back.</p>
+ * 
+ * <p>Like the underlying repository, <b>BinarySrc</b> is safe for use by multiple threads. Data sets may be retrieved
+ * concurrently, while all other operations have exclusive access to the source. Note, however, that {@link 
+ * #getLastError()} reflects the most recent operation on any thread.</p>
  * @author sruffner
  */
 class BinarySrc implements IDataSrc
@@ -46,149 +74,392 @@ class BinarySrc implements IDataSrc
     * Construct a binary data source proxy that reads/writes <i>DataNav</i> data sets from/to the specified file.
     * @param f The abstract pathname of the binary data source file. The file is not opened in this constructor. It 
     * may not exist, in which case only the write operations will be available initially.
+    * 
+    * <p>Data sets are retrieved from memory-mapped views of the repository file except on Windows, where a file 
+    * cannot be deleted while it is mapped -- which would break {@link #removeAll()}.</p>
     */
-   BinarySrc(File f) { repository = new DataSetRepository(f, false); }
+   BinarySrc(File f)
+   { 
+      repository = new DataSetRepository(f, false);
+      repository.setMappedReads(!Utilities.isWindows());
+      File idx = DataSrcFactory.getSidecarFile(f, ".idx");
+      if(idx != null)
+      {
+         repository.setIDIndexPath(idx);
+         repository.setIDIndexEnabled(true);
+      }
+   }
    
    public File getSourceFile() { return(repository.getFilePath()); }
    public String getLastError() { return(failureReason != null ? failureReason : lastError); }
    public boolean isUnusable() { return(failureReason != null);}
    public boolean isReadOnly() { return(false); }
+   
+   public boolean open()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(failureReason != null) return(false);
+         
+         // if the repository's ID index is available, the block index need not be loaded until the source is modified
+         if(dsid2uidMap == null && !repository.hasIDIndex() && !preload(false)) return(false);
+         if(!repository.open())
+         {
+            failureReason = repository.getFailureReason();
+            return(false);
+         }
+         return(true);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   public void close() 
+   { 
+      rwLock.writeLock().lock();
+      try { repository.close(); } 
+      finally { rwLock.writeLock().unlock(); }
+   }
 
    public DataSetInfo[] getSummaryInfo()
    {
-      lastError = "";
-      if(!preload(true)) return(null);
+      // if the source is not loaded yet, try the repository's ID index first
+      rwLock.readLock().lock();
+      try
+      {
+         if(failureReason == null && dsid2uidMap == null)
+         {
+            List<DataSetInfo> infos = repository.getIndexedDataSetInfo();
+            if(infos != null)
+            {
+               lastError = "";
+               return(infos.toArray(new DataSetInfo[0]));
+            }
+         }
+      }
+      finally { rwLock.readLock().unlock(); }
       
-      DataSetInfo[] info = new DataSetInfo[dsid2uidMap.size()];
-      int i=0;
-      for(String key : dsid2uidMap.keySet())
-         info[i++] = repository.getDataSetInfo(dsid2uidMap.get(key));
-      return(info);
+      boolean ok = lockForReading();
+      try
+      {
+         if(!ok) return(null);
+         lastError = "";
+      
+         DataSetInfo[] info = new DataSetInfo[dsid2uidMap.size()];
+         int i=0;
+         for(String key : dsid2uidMap.keySet())
+            info[i++] = repository.getDataSetInfo(dsid2uidMap.get(key));
+         return(info);
+      }
+      finally { rwLock.readLock().unlock(); }
    }
 
    public DataSet getDataByID(String id)
    {
-      lastError = "";
-      if(!preload(true)) return(null);
-            
-      Integer uid = dsid2uidMap.get(id);
-      if(uid == null)
+      // if the source is not loaded yet, try the repository's ID index first
+      rwLock.readLock().lock();
+      try
       {
-         lastError = "No such dataset exists";
-         return(null);
+         int uid = (failureReason == null && dsid2uidMap == null) ? repository.findUID(id) : -1;
+         if(uid == 0)
+         {
+            lastError = "No such dataset exists";
+            return(null);
+         }
+         else if(uid > 0)
+         {
+            lastError = "";
+            DataSet ds = repository.get(uid);
+            if(ds == null && repository.isUnusable())
+               failureReason = repository.getFailureReason();
+            return(ds);
+         }
       }
+      finally { rwLock.readLock().unlock(); }
       
-      DataSet ds = repository.get(uid);
-      if(ds == null && repository.isUnusable())
-         failureReason = repository.getFailureReason();
-      return(ds);
+      boolean ok = lockForReading();
+      try
+      {
+         if(!ok) return(null);
+         lastError = "";
+            
+         Integer uid = dsid2uidMap.get(id);
+         if(uid == null)
+         {
+            lastError = "No such dataset exists";
+            return(null);
+         }
+      
+         DataSet ds = repository.get(uid);
+         if(ds == null && repository.isUnusable())
+            failureReason = repository.getFailureReason();
+         return(ds);
+      }
+      finally { rwLock.readLock().unlock(); }
    }
 
    public boolean writeData(DataSet set, boolean replace)
    {
-      lastError = "";
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
       
-      // if no set is provided, return success
-      if(set == null) return(true); 
+         // if no set is provided, return success
+         if(set == null) return(true); 
       
-      if(!preload(false)) return(false);
+         if(!preload(false)) return(false);
       
-      // if there's already a dataset with the same ID, fail unless replace flag set, in which case remove it first.
-      Integer existingUID = dsid2uidMap.get(set.getID());
-      if(existingUID != null)
-      {
-         if(!replace)
+         // if there's already a dataset with the same ID, fail unless replace flag set, in which case remove it first.
+         Integer existingUID = dsid2uidMap.get(set.getID());
+         if(existingUID != null)
          {
-            lastError = "Source already contains a dataset with ID=" + set.getID() + ". Replace?";
-            return(false);
+            if(!replace)
+            {
+               lastError = "Source already contains a dataset with ID=" + set.getID() + ". Replace?";
+               return(false);
+            }
+            repository.remove(existingUID);
+            if(repository.isUnusable())
+            {
+               failureReason = repository.getFailureReason();
+               return(false);
+            }
+            dsid2uidMap.remove(set.getID());
          }
-         repository.remove(existingUID);
-         if(repository.isUnusable())
+      
+         // generate a unique positive integer ID for the data set to be added
+         int uid = -1; while(uid <= 0 || repository.contains(uid)) uid = (int) (Math.random() * Integer.MAX_VALUE);
+      
+         // add the dataset
+         if(!repository.put(uid, set))
          {
             failureReason = repository.getFailureReason();
             return(false);
          }
-         dsid2uidMap.remove(set.getID());
+         dsid2uidMap.put(set.getID(), uid);
+      
+         return(true);
       }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
+   public boolean writeData(List<DataSet> sets, boolean replace)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(sets == null || sets.isEmpty()) return(true);
+         if(!preload(false)) return(false);
       
-      // generate a unique positive integer ID for the data set to be added
-      int uid = -1; while(uid <= 0 || repository.contains(uid)) uid = (int) (Math.random() * Integer.MAX_VALUE);
+         // check for ID conflicts up front, so that the batch is not abandoned midway
+         HashSet<String> ids = new HashSet<>();
+         for(DataSet set : sets) if(set != null)
+         {
+            if(!ids.add(set.getID()))
+            {
+               lastError = "At least two datasets in the list have the same ID=" + set.getID();
+               return(false);
+            }
+            if(!replace && dsid2uidMap.containsKey(set.getID()))
+            {
+               lastError = "Source already contains a dataset with ID=" + set.getID() + ". Replace?";
+               return(false);
+            }
+         }
       
-      // add the dataset
-      if(!repository.put(uid, set))
-      {
-         failureReason = repository.getFailureReason();
-         return(false);
+         // store all of the data sets in a single batch -- unless the caller already started one
+         boolean inBatch = repository.isBatchActive();
+         if(!beginBatch()) return(false);
+         boolean ok = false;
+         try
+         {
+            for(DataSet set : sets)
+            {
+               if(!writeData(set, replace)) return(false);
+            }
+            ok = inBatch || commit();
+            return(ok);
+         }
+         finally
+         {
+            // abandon a partially written batch that we started, so that none of the data sets are stored. A batch
+            // started by the caller is left for the caller to commit or roll back.
+            if(!(ok || inBatch)) abandonBatch();
+         }
       }
-      dsid2uidMap.put(set.getID(), uid);
-      
-      return(true);
+      finally { rwLock.writeLock().unlock(); }
    }
 
    public boolean changeID(String id, String idNew)
    {
-      lastError = "";
-      if(!preload(true)) return(false);
-
-      if(id == null || !dsid2uidMap.containsKey(id))
+      rwLock.writeLock().lock();
+      try
       {
-         lastError = "Dataset ID not found!";
-         return(false);
-      }
-      if(id.equals(idNew)) return(true);
+         lastError = "";
+         if(!preload(true)) return(false);
+
+         if(id == null || !dsid2uidMap.containsKey(id))
+         {
+            lastError = "Dataset ID not found!";
+            return(false);
+         }
+         if(id.equals(idNew)) return(true);
       
-      if(!DataSet.isValidIDString(idNew))
-      {
-         lastError = "Candidate ID is not a valid DataNav dataset identifier!";
-         return(false);
-      }
-      if(dsid2uidMap.containsKey(idNew))
-      {
-         lastError = "Candidate ID duplicates that of an existing dataset!";
-         return(false);
-      }
+         if(!DataSet.isValidIDString(idNew))
+         {
+            lastError = "Candidate ID is not a valid DataNav dataset identifier!";
+            return(false);
+         }
+         if(dsid2uidMap.containsKey(idNew))
+         {
+            lastError = "Candidate ID duplicates that of an existing dataset!";
+            return(false);
+         }
       
-      boolean ok = repository.changeDataSetIDString(dsid2uidMap.get(id), idNew);
-      if(ok)
-      {
-         Integer uid = dsid2uidMap.remove(id);
-         dsid2uidMap.put(idNew, uid);
-      }
-      else if(repository.isUnusable()) failureReason = repository.getFailureReason();
-      else lastError = "Data set ID change failed";
+         boolean ok = repository.changeDataSetIDString(dsid2uidMap.get(id), idNew);
+         if(ok)
+         {
+            Integer uid = dsid2uidMap.remove(id);
+            dsid2uidMap.put(idNew, uid);
+         }
+         else if(repository.isUnusable()) failureReason = repository.getFailureReason();
+         else lastError = "Data set ID change failed";
 
-      return(ok);
+         return(ok);
+      }
+      finally { rwLock.writeLock().unlock(); }
    }
 
    public boolean removeData(String id)
    {
-      lastError = "";
-      if(!preload(false)) return(false);
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(!preload(false)) return(false);
 
-      Integer uid = dsid2uidMap.remove(id);
-      if(uid == null) return(true);
+         Integer uid = dsid2uidMap.remove(id);
+         if(uid == null) return(true);
       
-      boolean ok = repository.remove(uid);
-      if(!ok)
-      {
-         if(repository.isUnusable()) failureReason = repository.getFailureReason();
-         else lastError = "Data set removal failed";
-      }
+         boolean ok = repository.remove(uid);
+         if(!ok)
+         {
+            if(repository.isUnusable()) failureReason = repository.getFailureReason();
+            else lastError = "Data set removal failed";
+         }
       
-      return(ok);
+         return(ok);
+      }
+      finally { rwLock.writeLock().unlock(); }
    }
 
    public boolean removeAll()
    {
-      lastError = "";
-      if(!preload(false)) return(false);
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(!preload(false)) return(false);
       
-      dsid2uidMap.clear();
-      boolean ok = repository.removeAll();
-      if((!ok) && repository.isUnusable()) failureReason = repository.getFailureReason();
-      return(ok);
+         dsid2uidMap.clear();
+         boolean ok = repository.removeAll();
+         if((!ok) && repository.isUnusable()) failureReason = repository.getFailureReason();
+         return(ok);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Begin a batch of write operations on this data source. Until {@link #commit()} or {@link #rollback()} is called,
+    * all changes are collected in the underlying repository's write-ahead journal rather than written directly to the
+    * repository file. See {@link DataSetRepository#beginBatch()}.
+    * @return True if successful or if a batch is already in progress; false if the batch could not be started, or if
+    * source was rendered unusable by a previous catastrophic error.
+    */
+   boolean beginBatch()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(!preload(false)) return(false);
+         if(!repository.beginBatch())
+         {
+            failureReason = repository.getFailureReason();
+            return(false);
+         }
+         return(true);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Commit the batch of write operations in progress. If no batch is in progress, no action is taken. See {@link 
+    * DataSetRepository#commit()}.
+    * @return True if successful or if no batch was in progress; false if the commit failed, or if the source was 
+    * rendered unusable by a catastrophic error.
+    */
+   boolean commit()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(failureReason != null) return(false);
+         if(!repository.commit())
+         {
+            failureReason = repository.getFailureReason();
+            return(false);
+         }
+         return(true);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Abandon the batch of write operations in progress, if any, leaving the source as it was before the batch began.
+    * See {@link DataSetRepository#rollback()}.
+    */
+   void rollback()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(!repository.isBatchActive()) return;
+         repository.rollback();
+         dsid2uidMap = null;
+         if(repository.isUnusable()) failureReason = repository.getFailureReason();
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Helper method for {@link #writeData(List, boolean)}: Roll back the batch in progress after one of its operations
+    * failed, preserving the description of that failure.
+    */
+   private void abandonBatch()
+   {
+      String err = lastError;
+      rollback();
+      if(failureReason == null) lastError = err;
    }
    
+   /**
+    * Enable or disable automatic background compaction of the underlying repository file. When enabled, a background 
+    * thread compacts the file incrementally whenever a data set removal pushes the file's fragmentation to or above the
+    * specified threshold. Disabled by default. See {@link DataSetRepository#setAutoCompaction(double)}.
+    * @param threshold The fragmentation threshold in (0..1] at which background compaction is triggered -- typically
+    * {@link #AUTOCOMPACT_THRESHOLD}. If zero or negative, automatic compaction is disabled.
+    */
+   void setAutoCompaction(double threshold) { repository.setAutoCompaction(threshold); }
+   
+   /** Recommended fragmentation threshold for automatic background compaction. See {@link #setAutoCompaction}. */
+   final static double AUTOCOMPACT_THRESHOLD = 0.25;
+   
    /** Delegate object that handles all file I/O with the underlying data set repository file. */
    private final DataSetRepository repository;
    
@@ -196,10 +467,39 @@ class BinarySrc implements IDataSrc
    private HashMap<String, Integer> dsid2uidMap = null;
    
    /** Description of error that occurred during last operation; empty string if that operation was successful. */
-   private String lastError = "";
+   private volatile String lastError = "";
    
    /** Description of why data set source has been rendered unusable; null otherwise. */
-   private String failureReason = null;
+   private volatile String failureReason = null;
+   
+   /** 
+    * Guards the ID-to-UID map. The data retrieval operations hold the read lock and may proceed concurrently; all other
+    * operations hold the write lock.
+    */
+   private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+   
+   /**
+    * Helper method acquires the read lock on behalf of a data retrieval operation. If the underlying repository has not
+    * been loaded yet, it is loaded first under the write lock, which is then downgraded to the read lock. The caller 
+    * must release the read lock when done, regardless of the return value.
+    * @return True if the source is loaded and usable; false if it could not be loaded (or the file does not exist).
+    */
+   private boolean lockForReading()
+   {
+      rwLock.readLock().lock();
+      if(failureReason != null || dsid2uidMap != null) return(failureReason == null);
+      
+      rwLock.readLock().unlock();
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         preload(true);
+         rwLock.readLock().lock();
+      }
+      finally { rwLock.writeLock().unlock(); }
+      return(failureReason == null && dsid2uidMap != null);
+   }
    
    /**
     * Helper method loads the underlying data set repository file and verifies that all data sets contained therein
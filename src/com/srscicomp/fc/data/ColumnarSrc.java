@@ -0,0 +1,945 @@
+package com.srscicomp.fc.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import com.srscicomp.common.util.Utilities;
+import com.srscicomp.fc.data.DataSet.Fmt;
+
+/**
+ * A {@link IDataSrc} implementation that reads and writes a file containing <i>FigureComposer</i>-compatible data sets
+ * stored in a columnar binary format designed for very large data sets (preferred extension ".dnc"). Unlike {@link
+ * BinarySrc}, which interleaves the elements of each datum tuple and splits a data set across a chain of fixed-size
+ * blocks, each data set is stored as one contiguous data section in which every column of the data matrix is itself
+ * contiguous. A data section can therefore be memory-mapped and read in large bulk transfers, and loading a data set
+ * of several hundred megabytes is limited only by the speed of the file system.
+ *
+ * <h2>Format description</h2>
+ * <p>All multi-byte values in the file are little-endian, matching the native byte order of all platforms on which
+ * <i>FigureComposer</i> runs. The file begins with a 32-byte <i>header</i>:
+ * <ul>
+ *    <li>[0] The 4-byte tag "DNC1".</li>
+ *    <li>[4] Integer file version number. The current version is {@link #VERSION}.</li>
+ *    <li>[8] Integer number of data sets <i>N</i> in the file.</li>
+ *    <li>[12] Integer length in bytes of the table of contents (TOC).</li>
+ *    <li>[16] Long integer file offset of the TOC.</li>
+ *    <li>[24] CRC-32 checksum of the TOC, stored as an integer.</li>
+ *    <li>[28] Reserved. Always 0.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>The TOC is a sequence of <i>N</i> variable-length entries, one per data set: a short integer <i>L</i> giving the
+ * length of the data set ID, the <i>L</i> US-ASCII characters of the ID, the integer format code, the integer number
+ * of rows and columns in the data matrix (see {@link DataSetInfo}), four floating-point defining parameters (unused
+ * parameters are NaN), nine floating-point values specifying the coordinate ranges spanned by the data (as described
+ * in {@link DataSet#createDataSet(DataSetInfo, float[], float[])}), and the long integer file offset of the data set's
+ * data section. Storing the coordinate ranges in the TOC spares a full scan of the data each time a data set is
+ * loaded.</p>
+ *
+ * <p>Each data section starts on a {@link #ALIGN}-byte boundary and contains the raw data of one set as single-
+ * precision floating-point values. For the tuple-based formats, the <i>M</i> columns of the <i>NxM</i> data matrix are
+ * stored one after the other, so that column <i>j</i> starts at byte <i>4*j*N</i> of the data section. An {@link
+ * Fmt#XYZIMG} image and a {@link Fmt#RASTER1D} raster collection are each stored as a single column, in the same
+ * order as the raw data array of the corresponding {@link DataSet}. An empty data set has an empty data section.</p>
+ *
+ * <h2>Updating the file</h2>
+ * <p>The file is never modified in place. Data sections added by a write operation are appended to the end of the
+ * file, followed by a new TOC; the header is rewritten only after all of that has been forced to disk. Since the header
+ * is the commit point, a catastrophic failure during a write leaves the file in its previous state, apart from some
+ * unreferenced bytes at the end of the file. For the same reason, the bulk write operation {@link #writeData(List,
+ * boolean)} is transactional. Removing or renaming a data set simply writes a new TOC. Once more than half of the file
+ * is unreferenced, it is compacted by copying the live data sections to a temporary file, which then replaces the
+ * original.</p>
+ *
+ * <p>Since existing bytes are never overwritten, data sections may be memory-mapped without any risk of their content
+ * changing underneath a reader. Data sections are read from memory-mapped views of the file except on Windows, where
+ * a file cannot be replaced while it is mapped -- which would break compaction and {@link #removeAll()}. A data set at
+ * least {@link DataSet#OFFHEAPMINBYTES} in size is not copied onto the Java heap at all: its columns are wrapped as an
+ * off-heap {@link FloatStore}, backed by the mapped views themselves or, on Windows, by direct buffers.</p>
+ *
+ * <p>Between calls to {@link #open()} and {@link #close()}, the file is held open so that a sequence of operations on
+ * the source does not incur the cost of opening and closing the file for each operation. Like {@link BinarySrc}, this
+ * source is safe for use by multiple threads: data sets may be retrieved concurrently, while all other operations have
+ * exclusive access to the source.</p>
+ *
+ * @author sruffner
+ */
+class ColumnarSrc implements IDataSrc
+{
+   /**
+    * Is the content of the specified file consistent with the expected format of a columnar binary data source file?
+    * The method checks the file header, then reads the table of contents and verifies its checksum and content.
+    * @param f The file to test.
+    * @return True if file content is consistent with the expected format. Returns false if argument is null, if file
+    * does not exist, or if it does not pass the consistency check.
+    */
+   static boolean checkFile(File f)
+   {
+      if(f == null || !f.isFile()) return(false);
+      try(FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ))
+      {
+         return(readTOC(ch) != null);
+      }
+      catch(IOException ioe) { return(false); }
+   }
+
+   /**
+    * Construct a columnar binary data source proxy that reads/writes data sets from/to the specified file.
+    * @param f The abstract pathname of the columnar data source file. The file is not opened in this constructor. It
+    * may not exist, in which case only the write operations will be available initially.
+    */
+   ColumnarSrc(File f)
+   {
+      if(f == null) throw new IllegalArgumentException("Null argument!");
+      srcPath = f.getAbsoluteFile();
+      mappedReads = !Utilities.isWindows();
+   }
+
+   public File getSourceFile() { return(srcPath); }
+   public String getLastError() { return(lastError); }
+   public boolean isUnusable() { return(badFormat); }
+   public boolean isReadOnly() { return(false); }
+
+   public boolean open()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(keepOpen) return(true);
+         if(srcPath.isFile() && !loadTOC()) return(false);
+         keepOpen = true;
+         return(true);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
+   public void close()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         keepOpen = false;
+         closeHeldChannel();
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
+   public DataSetInfo[] getSummaryInfo()
+   {
+      Entry[] entries = lockForReading();
+      try
+      {
+         if(entries == null) return(null);
+         DataSetInfo[] info = new DataSetInfo[entries.length];
+         for(int i=0; i<entries.length; i++) info[i] = entries[i].info;
+         return(info);
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
+
+   public DataSet getDataByID(String id)
+   {
+      Entry[] entries = lockForReading();
+      try
+      {
+         if(entries == null) return(null);
+         int idx = findEntry(entries, id);
+         if(idx < 0)
+         {
+            lastError = "No such dataset exists";
+            return(null);
+         }
+
+         Entry e = entries[idx];
+         FileChannel ch = null;
+         try
+         {
+            ch = acquireChannel(false);
+            DataSet ds = DataSet.createDataSet(e.info, readSection(ch, e), e.ranges);
+            if(ds == null) lastError = "Bad file format: Data section inconsistent with TOC entry for ID=" + id;
+            return(ds);
+         }
+         catch(IOException ioe)
+         {
+            lastError = "Failed to read data set: " + ioe.getMessage();
+            return(null);
+         }
+         finally { releaseChannel(ch); }
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
+
+   public boolean writeData(DataSet set, boolean replace)
+   {
+      return(set == null || writeData(List.of(set), replace));
+   }
+
+   public boolean writeData(List<DataSet> sets, boolean replace)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(sets == null || sets.isEmpty()) return(true);
+         Entry[] entries = getCurrentTOC();
+         if(entries == null) return(false);
+
+         // check for ID conflicts up front. Existing sets with the same ID as a set in the list are dropped from TOC
+         HashSet<String> ids = new HashSet<>();
+         List<DataSet> added = new ArrayList<>();
+         for(DataSet set : sets) if(set != null)
+         {
+            if(!ids.add(set.getID()))
+            {
+               lastError = "At least two datasets in the list have the same ID=" + set.getID();
+               return(false);
+            }
+            if(!replace && findEntry(entries, set.getID()) >= 0)
+            {
+               lastError = "Source already contains a dataset with ID=" + set.getID() + ". Replace?";
+               return(false);
+            }
+            added.add(set);
+         }
+         if(added.isEmpty()) return(true);
+
+         List<Entry> kept = new ArrayList<>();
+         for(Entry e : entries) if(!ids.contains(e.info.getID())) kept.add(e);
+         return(commit(kept, added));
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
+   public boolean changeID(String id, String idNew)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(!srcPath.isFile())
+         {
+            lastError = "File not found!";
+            return(false);
+         }
+         Entry[] entries = getCurrentTOC();
+         if(entries == null) return(false);
+
+         int idx = findEntry(entries, id);
+         if(idx < 0)
+         {
+            lastError = "Dataset ID not found!";
+            return(false);
+         }
+         if(id.equals(idNew)) return(true);
+         if(!DataSet.isValidIDString(idNew))
+         {
+            lastError = "Candidate ID is not a valid DataNav dataset identifier!";
+            return(false);
+         }
+         if(findEntry(entries, idNew) >= 0)
+         {
+            lastError = "Candidate ID duplicates that of an existing dataset!";
+            return(false);
+         }
+
+         List<Entry> kept = new ArrayList<>(List.of(entries));
+         Entry e = entries[idx];
+         kept.set(idx, new Entry(DataSetInfo.changeID(e.info, idNew), e.ranges, e.offset));
+         return(commit(kept, null));
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
+   public boolean removeData(String id)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+         if(!srcPath.isFile()) return(true);
+         Entry[] entries = getCurrentTOC();
+         if(entries == null) return(false);
+
+         int idx = findEntry(entries, id);
+         if(idx < 0) return(true);
+         List<Entry> kept = new ArrayList<>(List.of(entries));
+         kept.remove(idx);
+         return(commit(kept, null));
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
+   public boolean removeAll()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         lastError = "";
+
+         // the file is replaced by an empty one -- unless it does not exist yet
+         if(!srcPath.isFile()) return(commit(new ArrayList<>(), null));
+         return(rewrite(new Entry[0]));
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
+
+   /** The tag identifying a columnar binary data source file: the characters "DNC1" as a little-endian integer. */
+   private final static int MAGIC = 0x31434E44;
+
+   /** Current version number of the columnar binary data source file format. */
+   final static int VERSION = 0;
+
+   /** Size of the file header in bytes. */
+   private final static int HDRSIZE = 32;
+
+   /** Each data section starts at a file offset that is a multiple of this many bytes. */
+   final static int ALIGN = 64;
+
+   /** Maximum number of floating-point values in a single bulk transfer to or from the file. */
+   private final static int CHUNKSZ = 1 << 20;
+
+   /** The file is compacted once the fraction of its length that is unreferenced by the TOC exceeds this threshold. */
+   final static double COMPACT_THRESHOLD = 0.5;
+
+   /** An entry in the table of contents of a columnar binary data source file. */
+   private static class Entry
+   {
+      Entry(DataSetInfo info, float[] ranges, long offset)
+      {
+         this.info = info;
+         this.ranges = ranges;
+         this.offset = offset;
+      }
+
+      /** Length of the data section in bytes. */
+      long size() { return(4L * info.getDataArraySize()); }
+
+      /** Summary information for the data set. */
+      final DataSetInfo info;
+      /** Coordinate ranges spanned by the data: <i>[x0 x1 y0 y1 z0 z1 a b hasError]</i>. */
+      final float[] ranges;
+      /** File offset of the data section. */
+      final long offset;
+   }
+
+   /** Absolute path of the source file. */
+   private final File srcPath;
+
+   /** If set, data sections are read from memory-mapped views of the source file. */
+   private final boolean mappedReads;
+
+   /** Cached table of contents of the source file. Null if not yet loaded, or if the file has changed since. */
+   private Entry[] toc = null;
+
+   /** Source file length when the TOC was cached. */
+   private long tocFileLength = -1;
+
+   /** Source file modification time when the TOC was cached. */
+   private long tocLastModified = -1;
+
+   /** Set if the source file exists but is not a valid columnar binary data source file. */
+   private volatile boolean badFormat = false;
+
+   /** Description of error that occurred during last operation; empty string if that operation was successful. */
+   private volatile String lastError = "";
+
+   /** Set between calls to {@link #open()} and {@link #close()}. */
+   private boolean keepOpen = false;
+
+   /** The file channel held open between calls to {@link #open()} and {@link #close()}; null if none is held. */
+   private FileChannel heldChannel = null;
+
+   /** Set if the file channel held open supports writing. */
+   private boolean heldWritable = false;
+
+   /** Guards the held file channel, which may be created on demand by concurrent data retrieval operations. */
+   private final Object channelLock = new Object();
+
+   /**
+    * Guards the cached TOC and the source file. The data retrieval operations hold the read lock and may proceed
+    * concurrently; all other operations hold the write lock.
+    */
+   private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+   /**
+    * Helper method acquires the read lock on behalf of a data retrieval operation. If the TOC has not been loaded yet 
+    * or the source file has changed since, it is loaded under the write lock, which is then downgraded to the read 
+    * lock.
+    * The caller must release the read lock when done, regardless of the return value.
+    * @return The current table of contents, or null if it could not be loaded (or the file does not exist).
+    */
+   private Entry[] lockForReading()
+   {
+      rwLock.readLock().lock();
+      if(isTOCCurrent())
+      {
+         lastError = "";
+         return(toc);
+      }
+
+      rwLock.readLock().unlock();
+      rwLock.writeLock().lock();
+      Entry[] entries;
+      try
+      {
+         lastError = "";
+         if(!srcPath.isFile())
+         {
+            lastError = "File not found!";
+            entries = null;
+         }
+         else entries = getCurrentTOC();
+         rwLock.readLock().lock();
+      }
+      finally { rwLock.writeLock().unlock(); }
+      return(entries);
+   }
+
+   /**
+    * Helper method checks whether the cached table of contents reflects the current content of the source file.
+    * @return True if the TOC is cached and the source file's length and modification time have not changed since.
+    */
+   private boolean isTOCCurrent()
+   {
+      return(toc != null && srcPath.length() == tocFileLength && srcPath.lastModified() == tocLastModified);
+   }
+
+   /**
+    * Helper method gets the current table of contents of the source file, loading it if necessary. If the source file
+    * does not exist yet, the TOC is empty. The caller must hold the write lock.
+    * @return The table of contents, or null if it could not be loaded.
+    */
+   private Entry[] getCurrentTOC()
+   {
+      if(isTOCCurrent()) return(toc);
+      if(!srcPath.isFile())
+      {
+         toc = null;
+         return(new Entry[0]);
+      }
+      return(loadTOC() ? toc : null);
+   }
+
+   /**
+    * Helper method loads the table of contents from the source file. The caller must hold the write lock.
+    * @return True if successful; false if the file could not be read or is not a valid columnar data source file.
+    */
+   private boolean loadTOC()
+   {
+      toc = null;
+      FileChannel ch = null;
+      try
+      {
+         long len = srcPath.length();
+         long modT = srcPath.lastModified();
+         ch = acquireChannel(false);
+         Entry[] entries = readTOC(ch);
+         badFormat = (entries == null);
+         if(badFormat)
+         {
+            lastError = "Bad file format: Not a valid columnar binary data source file.";
+            return(false);
+         }
+         toc = entries;
+         tocFileLength = len;
+         tocLastModified = modT;
+         return(true);
+      }
+      catch(IOException ioe)
+      {
+         lastError = "Failed to read table of contents: " + ioe.getMessage();
+         return(false);
+      }
+      finally { releaseChannel(ch); }
+   }
+
+   /**
+    * Helper method gets a channel on the source file. If the source is open, the file channel held open for the
+    * duration is returned, creating it if necessary; else a new channel is opened, which must be closed by the caller
+    * via {@link #releaseChannel(FileChannel)}.
+    * @param write If set, the channel must support writing, and the file is created if it does not exist.
+    * @return The file channel.
+    * @throws IOException if the channel could not be opened.
+    */
+   private FileChannel acquireChannel(boolean write) throws IOException
+   {
+      synchronized(channelLock)
+      {
+         if(heldChannel != null)
+         {
+            if(heldWritable || !write) return(heldChannel);
+            closeHeldChannel();
+         }
+
+         FileChannel ch;
+         if(write) ch = FileChannel.open(srcPath.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+               StandardOpenOption.CREATE);
+         else ch = FileChannel.open(srcPath.toPath(), StandardOpenOption.READ);
+         if(keepOpen)
+         {
+            heldChannel = ch;
+            heldWritable = write;
+         }
+         return(ch);
+      }
+   }
+
+   /**
+    * Helper method closes a file channel obtained by {@link #acquireChannel(boolean)}, unless it is the channel held
+    * open while the source is open.
+    * @param ch The file channel. If null, no action is taken.
+    */
+   private void releaseChannel(FileChannel ch)
+   {
+      synchronized(channelLock)
+      {
+         if(ch == null || ch == heldChannel) return;
+         try { ch.close(); } catch(IOException ignored) {}
+      }
+   }
+
+   /** Helper method closes the file channel held open while the source is open, if any. */
+   private void closeHeldChannel()
+   {
+      synchronized(channelLock)
+      {
+         if(heldChannel == null) return;
+         try { heldChannel.close(); } catch(IOException ignored) {}
+         heldChannel = null;
+      }
+   }
+
+   /**
+    * Helper method finds the TOC entry for the data set with the specified ID.
+    * @param entries The table of contents.
+    * @param id The data set ID.
+    * @return Index of the matching TOC entry, or -1 if not found.
+    */
+   private static int findEntry(Entry[] entries, String id)
+   {
+      for(int i=0; i<entries.length; i++) if(entries[i].info.getID().equals(id)) return(i);
+      return(-1);
+   }
+
+   /**
+    * Helper method commits a modification of the source file. Any new data sets are appended to the file, followed by
+    * the new table of contents. The header is rewritten to point to the new TOC only after both are forced to disk, so
+    * the modification takes effect entirely or not at all. If the file then contains too much unreferenced space, it
+    * is compacted. The caller must hold the write lock.
+    * @param kept The TOC entries of existing data sets that are retained in the new TOC.
+    * @param added The data sets to be added to the file. May be null.
+    * @return True if successful; else false.
+    */
+   private boolean commit(List<Entry> kept, List<DataSet> added)
+   {
+      FileChannel ch = null;
+      Entry[] entries = null;
+      try
+      {
+         ch = acquireChannel(true);
+         long pos = Math.max(HDRSIZE, ch.size());
+
+         List<Entry> all = new ArrayList<>(kept);
+         if(added != null) for(DataSet ds : added)
+         {
+            Entry e = new Entry(ds.getInfo(), ds.getRanges(), align(pos));
+            writeSection(ch, e, ds);
+            all.add(e);
+            pos = e.offset + e.size();
+         }
+         entries = all.toArray(new Entry[0]);
+
+         writeTOCAndHeader(ch, entries, pos);
+      }
+      catch(IOException ioe)
+      {
+         lastError = "Failed to write data source file: " + ioe.getMessage();
+         toc = null;
+         return(false);
+      }
+      finally { releaseChannel(ch); }
+
+      toc = entries;
+      tocFileLength = srcPath.length();
+      tocLastModified = srcPath.lastModified();
+      badFormat = false;
+
+      // compact the file if necessary. The modification has already taken effect, so a failure here is not an error.
+      long live = HDRSIZE;
+      for(Entry e : entries) live += align(e.size());
+      if(live < (1.0 - COMPACT_THRESHOLD) * tocFileLength && !rewrite(entries)) lastError = "";
+      return(true);
+   }
+
+   /**
+    * Helper method rewrites the source file so that it contains only the specified data sets, with no unreferenced
+    * space. The new file is written to a temporary location first, then moved into place, so the source file is never
+    * left in an inconsistent state. This is how the source file is compacted. The caller must hold the write lock.
+    * @param entries The TOC entries of the data sets to be retained. Must be a subset of the current TOC.
+    * @return True if successful; else false.
+    */
+   private boolean rewrite(Entry[] entries)
+   {
+      File dst = DataSrcFactory.getTempFilePath(srcPath);
+      if(dst == null)
+      {
+         lastError = "Unable to generate a temp file name (bad source file path?). Write failed!";
+         return(false);
+      }
+
+      Entry[] dstEntries = new Entry[entries.length];
+      FileChannel in = null;
+      try(FileChannel out = FileChannel.open(dst.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW))
+      {
+         long pos = HDRSIZE;
+         if(entries.length > 0) in = acquireChannel(false);
+         for(int i=0; i<entries.length; i++)
+         {
+            Entry e = entries[i];
+            pos = align(pos);
+            dstEntries[i] = new Entry(e.info, e.ranges, pos);
+            long n = e.size();
+            long done = 0;
+            while(done < n) done += in.transferTo(e.offset + done, n - done, out.position(pos + done));
+            pos += n;
+         }
+         writeTOCAndHeader(out, dstEntries, pos);
+      }
+      catch(IOException ioe)
+      {
+         releaseChannel(in);
+         //noinspection ResultOfMethodCallIgnored
+         dst.delete();
+         lastError = "Failed to rewrite data source file: " + ioe.getMessage();
+         return(false);
+      }
+      releaseChannel(in);
+
+      // replace the source file. Any channel held open refers to the old file, so it is closed first.
+      closeHeldChannel();
+      try
+      {
+         Files.move(dst.toPath(), srcPath.toPath(), StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch(IOException ioe)
+      {
+         //noinspection ResultOfMethodCallIgnored
+         dst.delete();
+         lastError = "Unable to replace source file. Contents unchanged.";
+         return(false);
+      }
+
+      toc = dstEntries;
+      tocFileLength = srcPath.length();
+      tocLastModified = srcPath.lastModified();
+      badFormat = false;
+      return(true);
+   }
+
+   /**
+    * Helper method writes the table of contents at the specified file position, forces all changes to disk, then
+    * updates the file header to point to the new TOC and forces that change to disk.
+    * @param ch The file channel.
+    * @param entries The table of contents.
+    * @param pos File position at which TOC is written.
+    * @throws IOException if an IO error occurs.
+    */
+   private static void writeTOCAndHeader(FileChannel ch, Entry[] entries, long pos) throws IOException
+   {
+      ByteBuffer tocBuf = encodeTOC(entries);
+      int tocLen = tocBuf.remaining();
+      CRC32 crc = new CRC32();
+      crc.update(tocBuf.duplicate());
+      writeFully(ch, tocBuf, pos);
+      ch.force(false);
+
+      ByteBuffer hdr = ByteBuffer.allocate(HDRSIZE).order(ByteOrder.LITTLE_ENDIAN);
+      hdr.putInt(MAGIC).putInt(VERSION).putInt(entries.length).putInt(tocLen).putLong(pos).putInt((int) crc.getValue());
+      hdr.putInt(0).flip();
+      writeFully(ch, hdr, 0);
+      ch.force(false);
+   }
+
+   /**
+    * Helper method encodes the table of contents for writing to the source file.
+    * @param entries The table of contents.
+    * @return A buffer containing the encoded TOC, ready for reading.
+    */
+   private static ByteBuffer encodeTOC(Entry[] entries)
+   {
+      int len = 0;
+      byte[][] ids = new byte[entries.length][];
+      for(int i=0; i<entries.length; i++)
+      {
+         ids[i] = entries[i].info.getID().getBytes(StandardCharsets.US_ASCII);
+         len += 2 + ids[i].length + 12 + 16 + 36 + 8;
+      }
+
+      ByteBuffer buf = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+      for(int i=0; i<entries.length; i++)
+      {
+         DataSetInfo info = entries[i].info;
+         buf.putShort((short) ids[i].length).put(ids[i]);
+         buf.putInt(info.getFormat().getIntCode()).putInt(info.getDataLength()).putInt(info.getDataBreadth());
+         for(int j=0; j<4; j++) buf.putFloat(info.getParam(j));
+         for(int j=0; j<9; j++) buf.putFloat(entries[i].ranges[j]);
+         buf.putLong(entries[i].offset);
+      }
+      return(buf.flip());
+   }
+
+   /**
+    * Helper method reads and validates the header and table of contents of a columnar binary data source file.
+    * @param ch Channel on the source file.
+    * @return The table of contents, or null if the file is not a valid columnar binary data source file.
+    * @throws IOException if an IO error occurs.
+    */
+   private static Entry[] readTOC(FileChannel ch) throws IOException
+   {
+      long fileLen = ch.size();
+      if(fileLen < HDRSIZE) return(null);
+      ByteBuffer hdr = ByteBuffer.allocate(HDRSIZE).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(ch, hdr, 0);
+      hdr.flip();
+      if(hdr.getInt() != MAGIC || hdr.getInt() != VERSION) return(null);
+      int n = hdr.getInt();
+      int tocLen = hdr.getInt();
+      long tocOfs = hdr.getLong();
+      int tocCRC = hdr.getInt();
+      if(n < 0 || tocLen < 0 || tocOfs < HDRSIZE || tocOfs + tocLen > fileLen) return(null);
+
+      ByteBuffer buf = ByteBuffer.allocate(tocLen).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(ch, buf, tocOfs);
+      buf.flip();
+      CRC32 crc = new CRC32();
+      crc.update(buf.duplicate());
+      if((int) crc.getValue() != tocCRC) return(null);
+
+      Entry[] entries = new Entry[n];
+      HashSet<String> ids = new HashSet<>();
+      try
+      {
+         for(int i=0; i<n; i++)
+         {
+            byte[] idBytes = new byte[buf.getShort()];
+            buf.get(idBytes);
+            String id = new String(idBytes, StandardCharsets.US_ASCII);
+            int fmtCode = buf.getInt();
+            int nrows = buf.getInt();
+            int ncols = buf.getInt();
+            float[] params = new float[4];
+            for(int j=0; j<4; j++) params[j] = buf.getFloat();
+            float[] ranges = new float[9];
+            for(int j=0; j<9; j++) ranges[j] = buf.getFloat();
+            long ofs = buf.getLong();
+
+            DataSetInfo info = DataSetInfo.createDataSetInfo(id, fmtCode, nrows, ncols, params);
+            if(info == null || !ids.add(id)) return(null);
+            entries[i] = new Entry(info, ranges, ofs);
+            if(ofs < HDRSIZE || ofs + entries[i].size() > fileLen) return(null);
+         }
+      }
+      catch(BufferUnderflowException | NegativeArraySizeException e) { return(null); }
+
+      return(buf.hasRemaining() ? null : entries);
+   }
+
+   /**
+    * Helper method gets the number of contiguous columns into which the raw data of a data set is split in its data
+    * section: one for the {@link Fmt#RASTER1D} and {@link Fmt#XYZIMG} formats, else the tuple length.
+    * @param info The data set summary information.
+    * @return Number of columns in data section.
+    */
+   private static int getColumnCount(DataSetInfo info)
+   {
+      Fmt fmt = info.getFormat();
+      return((fmt == Fmt.RASTER1D || fmt == Fmt.XYZIMG) ? 1 : info.getDataBreadth());
+   }
+
+   /**
+    * Helper method writes the raw data of a data set to its data section in the source file, one column at a time.
+    * The data is transferred in chunks so that the amount of scratch memory needed is bounded.
+    * @param ch The file channel.
+    * @param e TOC entry for the data set, specifying the offset of the data section.
+    * @param ds The data set.
+    * @throws IOException if an IO error occurs.
+    */
+   private static void writeSection(FileChannel ch, Entry e, DataSet ds) throws IOException
+   {
+      int n = e.info.getDataArraySize();
+      if(n == 0) return;
+      int nCols = getColumnCount(e.info);
+      int colLen = n / nCols;
+
+      int chunkRows = Math.max(1, Math.min(colLen, CHUNKSZ / nCols));
+      float[] chunk = new float[chunkRows*nCols];
+      float[] col = (nCols == 1) ? chunk : new float[chunkRows];
+      ByteBuffer buf = ByteBuffer.allocate(4*chunkRows).order(ByteOrder.LITTLE_ENDIAN);
+      for(int r0=0; r0<colLen; r0+=chunkRows)
+      {
+         int k = Math.min(chunkRows, colLen - r0);
+         ds.copyRawData(r0*nCols, k*nCols, FloatBuffer.wrap(chunk));
+         for(int c=0; c<nCols; c++)
+         {
+            if(nCols > 1) for(int r=0; r<k; r++) col[r] = chunk[r*nCols + c];
+            buf.clear();
+            buf.asFloatBuffer().put(col, 0, k);
+            buf.limit(4*k);
+            writeFully(ch, buf, e.offset + 4L*((long) c*colLen + r0));
+         }
+      }
+   }
+
+   /**
+    * Helper method reads the data section of a data set into a store holding the raw data array, as described in
+    * {@link DataSet#createDataSet(String, Fmt, float[], int, int, float[])}. If the raw data array is smaller than
+    * {@link DataSet#OFFHEAPMINBYTES}, each column is read in bulk from a memory-mapped view of the file -- unless 
+    * mapped reads are disabled -- then scattered into a Java array. Otherwise, the data is kept outside the Java heap;
+    * see {@link #readSectionOffHeap(FileChannel, Entry)}.
+    * @param ch The file channel.
+    * @param e TOC entry for the data set.
+    * @return The store holding the raw data array.
+    * @throws IOException if an IO error occurs.
+    */
+   private FloatStore readSection(FileChannel ch, Entry e) throws IOException
+   {
+      int n = e.info.getDataArraySize();
+      if(4L*n >= DataSet.OFFHEAPMINBYTES)
+      {
+         FloatStore store = readSectionOffHeap(ch, e);
+         if(store != null) return(store);
+      }
+
+      float[] fData = new float[n];
+      if(n == 0) return(FloatStore.wrap(fData));
+      int nCols = getColumnCount(e.info);
+      int colLen = n / nCols;
+
+      ByteBuffer buf = mappedReads ? null : ByteBuffer.allocate(4*Math.min(colLen, CHUNKSZ));
+      float[] col = (nCols == 1) ? null : new float[Math.min(colLen, CHUNKSZ)];
+      for(int c=0; c<nCols; c++)
+      {
+         long colOfs = e.offset + 4L*c*colLen;
+         for(int r0=0; r0<colLen; r0+=CHUNKSZ)
+         {
+            int k = Math.min(CHUNKSZ, colLen - r0);
+            long pos = colOfs + 4L*r0;
+            if(mappedReads) buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, 4L*k);
+            else
+            {
+               buf.clear().limit(4*k);
+               readFully(ch, buf, pos);
+               buf.flip();
+            }
+            FloatBuffer fb = buf.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            if(nCols == 1) fb.get(fData, r0, k);
+            else
+            {
+               fb.get(col, 0, k);
+               for(int r=0, i=r0*nCols + c; r<k; r++, i+=nCols) fData[i] = col[r];
+            }
+         }
+      }
+      return(FloatStore.wrap(fData));
+   }
+
+   /**
+    * Helper method reads the data section of a very large data set into a store outside the Java heap. Each column of
+    * the data section is wrapped as a separate store, and the column stores are then interleaved to present the raw
+    * data array in the row-major order expected by {@link DataSet}. If mapped reads are enabled, each column store is
+    * backed directly by memory-mapped views of the file, so no data is copied at all and pages are loaded only when
+    * accessed. Otherwise, each column is read into direct buffers.
+    * @param ch The file channel.
+    * @param e TOC entry for the data set.
+    * @return The off-heap store holding the raw data array, or null if there is not enough direct memory available.
+    * @throws IOException if an IO error occurs.
+    */
+   private FloatStore readSectionOffHeap(FileChannel ch, Entry e) throws IOException
+   {
+      int nCols = getColumnCount(e.info);
+      int colLen = e.info.getDataArraySize() / nCols;
+
+      FloatStore[] columns = new FloatStore[nCols];
+      for(int c=0; c<nCols; c++)
+      {
+         long colOfs = e.offset + 4L*c*colLen;
+         ByteBuffer[] segments;
+         if(mappedReads)
+         {
+            segments = new ByteBuffer[(int) ((colLen + (long) FloatStore.SEGLEN - 1) >> FloatStore.SEGSHIFT)];
+            for(int i=0; i<segments.length; i++)
+            {
+               int k = Math.min(FloatStore.SEGLEN, colLen - i*FloatStore.SEGLEN);
+               segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, colOfs + 4L*i*FloatStore.SEGLEN, 4L*k);
+            }
+         }
+         else
+         {
+            segments = FloatStore.allocateDirect(colLen);
+            if(segments == null) return(null);
+            long pos = colOfs;
+            for(ByteBuffer seg : segments)
+            {
+               readFully(ch, seg, pos);
+               pos += seg.flip().remaining();
+            }
+         }
+         for(ByteBuffer seg : segments) seg.order(ByteOrder.LITTLE_ENDIAN);
+         columns[c] = FloatStore.wrap(segments);
+      }
+      return(FloatStore.interleave(columns));
+   }
+
+   /**
+    * Helper method rounds a file position up to the next multiple of {@link #ALIGN}.
+    * @param pos The file position.
+    * @return The aligned file position.
+    */
+   private static long align(long pos) { return((pos + ALIGN - 1) & ~((long) ALIGN - 1)); }
+
+   /**
+    * Helper method writes the remaining content of a buffer to the specified position in the file.
+    * @param ch The file channel.
+    * @param buf The buffer.
+    * @param pos The file position.
+    * @throws IOException if an IO error occurs.
+    */
+   private static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException
+   {
+      while(buf.hasRemaining()) pos += ch.write(buf, pos);
+   }
+
+   /**
+    * Helper method fills the remaining space in a buffer with bytes read from the specified position in the file.
+    * @param ch The file channel.
+    * @param buf The buffer.
+    * @param pos The file position.
+    * @throws IOException if an IO error occurs, or if the end of file is reached before the buffer is filled.
+    */
+   private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException
+   {
+      while(buf.hasRemaining())
+      {
+         int n = ch.read(buf, pos);
+         if(n < 0) throw new IOException("Unexpected end of file");
+         pos += n;
+      }
+   }
+}
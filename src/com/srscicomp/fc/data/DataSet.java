@@ -1,12 +1,20 @@
 package com.srscicomp.fc.data;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.nio.FloatBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -16,7 +24,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -445,9 +456,9 @@ public class DataSet implements Cloneable
    
    /**
     * Construct a data set object. This version includes a means of specifying the coordinate range spanned by the raw 
-    * data along the X, Y, and Z axes as applicable. This information is normally calculated from the raw data during 
-    * construction, but that computation can be bypassed if the information is already known -- a possible time-saver 
-    * for very large data sets.
+    * data along the X, Y, and Z axes as applicable. This information is normally calculated from the raw data the 
+    * first time it is needed, but that computation can be bypassed if the information is already known -- a possible 
+    * time-saver for very large data sets.
     * 
     * @param info Data set information other than the raw data array.
     * @param fData The raw data array, as described in {@link #createDataSet(String, Fmt, float[], int, int, float[])}.
@@ -465,20 +476,39 @@ public class DataSet implements Cloneable
     * array contents are otherwise inconsistent with the specified format.
     */
    public static DataSet createDataSet(DataSetInfo info, float[] fData, float[] ranges)
+   {
+      if(fData == null) return(null);
+      return(DataSet.createDataSet(info, FloatStore.wrap(fData), ranges));
+   }
+   
+   /**
+    * Construct a data set object backed by the specified data store, which may reside outside the Java heap. This 
+    * package-private method is intended for data source implementations that load very large data sets. See {@link 
+    * #OFFHEAPMINBYTES}.
+    * 
+    * @param info Data set information other than the raw data array.
+    * @param store The store holding the raw data array, as described in {@link #createDataSet(String, Fmt, float[], 
+    * int, int, float[])}. <b>It must not be modified afterwards.</b>
+    * @param ranges Coordinate range information. See {@link #createDataSet(DataSetInfo, float[], float[])}.
+    * @return A data set object wrapping the data store and accompanying information. Returns null if either of the 
+    * first two arguments is null, if the store length does not match the dimensions provided in the <b>info</b> 
+    * argument, or if the store contents are otherwise inconsistent with the specified format.
+    */
+   static DataSet createDataSet(DataSetInfo info, FloatStore store, float[] ranges)
    {
       // check for reasonable arguments
-      if(info == null || fData == null) return(null);
+      if(info == null || store == null) return(null);
       Fmt fmt = info.getFormat();
       int nLen = info.getDataLength();
       int nBreadth = info.getDataBreadth();
       int n = (fmt == Fmt.RASTER1D) ? (nLen + nBreadth) : (nLen * nBreadth);
-      if(fData.length != n) return(null);
+      if(store.length() != n) return(null);
       
       // for RASTER1D, verify that the sum of the individual raster lengths = total number of samples
       if(fmt == Fmt.RASTER1D && nBreadth > 0)
       {
          int nSamp = 0;
-         for(int i=0; i<nBreadth; i++) nSamp += (int) fData[i];
+         for(int i=0; i<nBreadth; i++) nSamp += (int) store.get(i);
          if(nSamp != nLen) return(null);
       }
       
@@ -487,7 +517,7 @@ public class DataSet implements Cloneable
       ds.format = fmt;
       ds.width = nBreadth;
       ds.height = nLen;
-      ds.fData = (fData.length > 0) ? fData : new float[0];
+      ds.fData = (n > 0) ? store : EMPTYSTORE;
      
       if(fmt == Fmt.SERIES || fmt == Fmt.MSERIES)
       {
@@ -495,18 +525,22 @@ public class DataSet implements Cloneable
          ds.x0 = info.getParam(1);
       }
       
+      if(fmt == Fmt.XYZIMG)
+      {
+         ds.imgRange = new float[4];
+         for(int i=0; i<4; i++) ds.imgRange[i] = info.getParam(i);
+      }
+      
+      // if the coordinate range information is provided, there's no need to compute it from the data
       if(ranges != null && ranges.length == 9 && ranges[0] <= ranges[1] && ranges[2] <= ranges[3] &&
             ranges[4] <= ranges[5] && ranges[6] <= ranges[7])
       {
-         ds.hasErrorData = ranges[8] > 0;
-         ds.coordRanges = new float[8];
-         System.arraycopy(ranges, 0, ds.coordRanges, 0, 8);
+         float[] stats = new float[NSTATS];
+         System.arraycopy(ranges, 0, stats, 0, 8);
+         stats[8] = (ranges[8] > 0) ? 1 : -1;
+         if(fmt == Fmt.XYZIMG) System.arraycopy(ds.imgRange, 0, stats, 0, 4);
+         ds.stats.values = stats;
       }
-      else
-         ds.computeStats();
-
-      if(fmt == Fmt.XYZIMG)
-         for(int i=0; i<4; i++) ds.coordRanges[i] = info.getParam(i);
 
       return(ds);
    }
@@ -548,7 +582,7 @@ public class DataSet implements Cloneable
       ds.format = fmt;
       ds.width = 0;
       ds.height = 0;
-      ds.fData = new float[0];
+      ds.fData = EMPTYSTORE;
       
       if(fmt == Fmt.SERIES || fmt == Fmt.MSERIES)
       {
@@ -561,18 +595,12 @@ public class DataSet implements Cloneable
          }
       }
       
-      ds.computeStats();
-      
       if(fmt == Fmt.XYZIMG)
       {
-         ds.coordRanges[0] = 0;
-         ds.coordRanges[1] = 10;
-         ds.coordRanges[2] = 0;
-         ds.coordRanges[3] = 10;
-         
+         ds.imgRange = new float[] {0, 10, 0, 10};
          if(Utilities.isWellDefined(params) && (params.length>=4) && (params[0]<params[1]) && (params[2]<params[3]))
          {
-            System.arraycopy(params, 0, ds.coordRanges, 0, 4);
+            System.arraycopy(params, 0, ds.imgRange, 0, 4);
          }
       }
 
@@ -591,7 +619,8 @@ public class DataSet implements Cloneable
     * @return If either argument is null, method returns false; else if <b>ds1==ds2</b>, method returns true. Otherwise,
     * the method returns true only if the two data sets have the same definition and <b>share a reference to the same 
     * raw data array</b>. Note that two data sets which are backed by the same raw data array but have different 
-    * additional defining parameters (if the format requires any) are NOT identical.
+    * additional defining parameters (if the format requires any) are NOT identical. Likewise, two views into different
+    * portions of the same backing array are not identical.
     */
    public static boolean areIdenticalSets(DataSet ds1, DataSet ds2, boolean ignoreID)
    {
@@ -604,14 +633,15 @@ public class DataSet implements Cloneable
       if(same && ds1.format == Fmt.XYZIMG)
       {
          // here we're ensuring that [x0 x1 y0 y1] is the same for both XYZIMG sets
-         same = (ds1.coordRanges == ds2.coordRanges);
+         same = (ds1.imgRange == ds2.imgRange);
          if(!same)
          {
             same = true;
-            for(int i=0; same && i<4; i++) same = (ds1.coordRanges[i] == ds2.coordRanges[i]);
+            for(int i=0; same && i<4; i++) same = (ds1.imgRange[i] == ds2.imgRange[i]);
          }
       }
-      if(same) same = (ds1.isEmpty() && ds2.isEmpty()) || (ds1.fData == ds2.fData);
+      if(same) same = (ds1.isEmpty() && ds2.isEmpty()) || (ds1.fData.shares(ds2.fData) && 
+            (ds1.dataOfs == ds2.dataOfs) && (ds1.rowStride == ds2.rowStride) && (ds1.colGap == ds2.colGap));
       
       return(same);
    }
@@ -631,7 +661,8 @@ public class DataSet implements Cloneable
     * @return True if specified object is an instance of <b>DataSet</b> and: (1) contains a reference to the 
     * same raw data array, or has a data array with the same length and content as this one; (2) has the same data
     * format and size as this data set; (3) has the same values for any additional data set parameters; and (4) if
-    * <b>ignoreID==false</b>, has the same ID string.
+    * <b>ignoreID==false</b>, has the same ID string. If the two data sets have different content digests (see {@link 
+    * #getContentDigest()}), the raw data arrays are not compared element by element.
     */
    public boolean equals(Object obj, boolean ignoreID)
    {
@@ -647,20 +678,35 @@ public class DataSet implements Cloneable
       }
       else if(format == Fmt.XYZIMG)
       {
-         for(int i=0; i<4; i++) if(coordRanges[i] != other.coordRanges[i]) return(false);
+         for(int i=0; i<4; i++) if(imgRange[i] != other.imgRange[i]) return(false);
       }
       if(!ignoreID)
       { 
          if(!id.equals(other.id)) return(false);
       }
-      return Arrays.equals(fData, other.fData);
+      if(fData.shares(other.fData) && dataOfs == other.dataOfs && rowStride == other.rowStride && 
+            colGap == other.colGap) 
+         return(true);
+      if(getContentDigest() != other.getContentDigest()) return(false);
+      if(rowStride == 0 && other.rowStride == 0 && fData.array() != null && other.fData.array() != null) 
+         return Arrays.equals(fData.array(), other.fData.array());
+      
+      // at least one is a view into a larger backing array or resides off-heap: compare element by element
+      for(int i=0; i<getRawDataSize(); i++)
+      {
+         if(Float.floatToIntBits(getRawDatum(i)) != Float.floatToIntBits(other.getRawDatum(i))) return(false);
+      }
+      return(true);
    }
    
    /** 
     * Compute the 32-bit integer hash code for this data set, optionally excluding the ID string from the computation. 
-    * The implementation relies on {@link Arrays#hashCode(float[])} to compute the hash for the raw data array itself, 
-    * {@link String#hashCode()} to compute the hash code for the ID, combining these with the other parameters of the 
-    * data set's definition to form the hash code of the data set object itself. 
+    * The hash for the raw data array itself is the same as that computed by {@link Arrays#hashCode(float[])}; it is 
+    * taken from the cached content digest (see {@link #getContentDigest()}), so the raw data is scanned only once. It 
+    * is combined with {@link String#hashCode()} for the ID and with the other parameters of the data set's definition 
+    * to form the hash code of the data set object itself. For a view into a larger backing array, the raw data hash is
+    * computed in the same manner, but over the view's elements only -- so a view and an independent copy of the same 
+    * data have the same hash code. 
     * 
     * @param ignoreID If true, the data set ID string is omitted from the hash code calculation. <i>Calling this
     * method with <i>ignoreID==false</i> is equivalent to calling {@link #hashCode()}</i>.
@@ -668,7 +714,7 @@ public class DataSet implements Cloneable
     */
    public int hashCode(boolean ignoreID)
    {
-      int res = Arrays.hashCode(fData);
+      int res = (int) (getContentDigest() >>> 32);
       res = res * 31 + width;
       res = res * 31 + height;
       res = res * 31 + format.getIntCode();
@@ -679,7 +725,7 @@ public class DataSet implements Cloneable
       }
       else if(format == Fmt.XYZIMG)
       {
-         for(int i=0; i<4; i++) res = res * 31 + Float.floatToIntBits(coordRanges[i]);
+         for(int i=0; i<4; i++) res = res * 31 + Float.floatToIntBits(imgRange[i]);
       }
       
       if(!ignoreID) res = res * 31 + id.hashCode();
@@ -688,6 +734,144 @@ public class DataSet implements Cloneable
    }
    
    
+   /**
+    * Get the 64-bit digest of this data set's raw data content. The upper 32 bits are the hash code that {@link 
+    * Arrays#hashCode(float[])} would compute for the raw data array (see {@link #copyRawData()}); the lower 32 bits 
+    * are a second polynomial hash of the same elements using a different multiplier. Only the raw data contributes to 
+    * the digest, not the ID or any other part of the data set's definition.
+    * 
+    * <p>Since a data set is immutable, the digest is computed once, when first needed, and then cached. Data set 
+    * instances that share the same raw data -- such as a copy made by {@link #changeID(String)} -- share the digest. 
+    * Two data sets with different digests cannot have the same content, so {@link #equals(Object, boolean)} can reject
+    * them without comparing their raw data. The converse is not true: equal digests do not guarantee equal content.</p>
+    * 
+    * @return The content digest.
+    */
+   public long getContentDigest()
+   {
+      if(!digest.computed)
+      {
+         synchronized(digest)
+         {
+            if(!digest.computed)
+            {
+               digest.value = computeDigest();
+               digest.computed = true;
+            }
+         }
+      }
+      return(digest.value);
+   }
+   
+   /**
+    * Get the canonical instance of a data set with the same definition (apart from its ID) and the same raw data as
+    * the data set specified. When several identical data sets are loaded -- for example, from different figures 
+    * opened during the same session -- this method ensures that they share a single raw data array rather than each 
+    * holding its own copy, and that statistics and other information computed from the raw data are computed only 
+    * once for all of them. It also makes subsequent comparisons among them trivial, since {@link #areIdenticalSets
+    * (DataSet, DataSet, boolean)} will return true.
+    * 
+    * <p>The canonical instances are held in a registry keyed by content digest (see {@link #getContentDigest()}). The 
+    * registry holds only weak references, so a canonical instance is discarded once no longer in use elsewhere. It is
+    * safe to call this method from multiple threads.</p>
+    * 
+    * <p>A data set that is a view into a larger backing array (see {@link #extractBlock(int, int)}) is never made a 
+    * canonical instance as is, since that would keep the entire backing array alive for as long as the view's data is
+    * in use anywhere. Instead, a compact copy of the view is made canonical and returned.</p>
+    * 
+    * @param ds A data set.
+    * @return If the registry contains a data set identical to the one specified (ignoring the ID), the method returns
+    * that canonical instance -- or, if its ID differs, a copy with the specified set's ID that shares the canonical 
+    * instance's raw data. Otherwise the specified data set -- or its compact copy, if it is a view -- becomes the 
+    * canonical instance and is returned. Returns null if argument is null. An empty data set is always returned 
+    * unchanged.
+    */
+   public static DataSet intern(DataSet ds)
+   {
+      if(ds == null || ds.isEmpty()) return(ds);
+      Long key = ds.getContentDigest();
+      
+      // collect the candidates under the lock, but compare the raw data outside of it
+      List<DataSet> candidates = new ArrayList<>();
+      synchronized(internedSets)
+      {
+         purgeInternedSets();
+         List<InternedRef> refs = internedSets.get(key);
+         if(refs != null) for(InternedRef ref : refs)
+         {
+            DataSet canon = ref.get();
+            if(canon != null) candidates.add(canon);
+         }
+      }
+      for(DataSet canon : candidates) if(canon == ds || canon.equals(ds, true)) return(canon.changeID(ds.id));
+      
+      DataSet canon = ds.compact();
+      synchronized(internedSets)
+      {
+         internedSets.computeIfAbsent(key, k -> new ArrayList<>()).add(new InternedRef(canon, internedQueue));
+      }
+      return(canon);
+   }
+   
+   /**
+    * Helper method gets a data set that is identical to this one, but is not a view into a larger backing array. 
+    * @return This data set, if it is not a view. Otherwise, a copy backed by an array holding only the view's raw 
+    * data. It shares this view's statistics, content digest and decimation pyramid, which are computed from the view's 
+    * elements only.
+    */
+   private DataSet compact()
+   {
+      if(rowStride == 0) return(this);
+      DataSet ds = null;
+      try { ds = (DataSet) this.clone(); } catch(CloneNotSupportedException cnse) { assert(false); }
+      ds.fData = FloatStore.wrap(copyRawData());
+      ds.dataOfs = 0;
+      ds.rowStride = 0;
+      ds.colGap = 0;
+      return(ds);
+   }
+   
+   /** 
+    * Registry of canonical data set instances, keyed by content digest. Only weak references to the data sets are 
+    * held. See {@link #intern(DataSet)}.
+    */
+   private final static HashMap<Long, List<InternedRef>> internedSets = new HashMap<>();
+   
+   /** Queue on which weak references in the interned data set registry are enqueued once they are cleared. */
+   private final static ReferenceQueue<DataSet> internedQueue = new ReferenceQueue<>();
+   
+   /** A weak reference to a canonical data set in the interned data set registry. */
+   private static class InternedRef extends WeakReference<DataSet>
+   {
+      InternedRef(DataSet ds, ReferenceQueue<DataSet> q)
+      {
+         super(ds, q);
+         key = ds.getContentDigest();
+      }
+      
+      /** The content digest of the referenced data set, which is its key in the registry. */
+      private final Long key;
+   }
+   
+   /**
+    * Helper method removes all cleared references from the interned data set registry, along with any registry entries
+    * that are left empty as a result. The caller must hold the registry lock.
+    */
+   private static void purgeInternedSets()
+   {
+      InternedRef ref;
+      while((ref = (InternedRef) internedQueue.poll()) != null)
+      {
+         List<InternedRef> refs = internedSets.get(ref.key);
+         if(refs != null)
+         {
+            refs.remove(ref);
+            if(refs.isEmpty()) internedSets.remove(ref.key);
+         }
+      }
+   }
+   
+   
    // 
    // Support for plain-text editing of DataSet
    //
@@ -756,24 +940,22 @@ public class DataSet implements Cloneable
       if(format == Fmt.RASTER1D) 
       {
          int k = width;
-         for(int i=0; i<start; i++) k += (int) fData[i];
+         for(int i=0; i<start; i++) k += (int) fData.get(i);
          for(int i=start; i<start+n; i++)
          {
-            int nSamples = (int) fData[i];
+            int nSamples = (int) fData.get(i);
             for(int j=0; j<nSamples; j++)
-               buf.append(Utilities.toString(fData[k + j], nSig, -1)).append(" ");
+               buf.append(Utilities.toString(fData.get(k + j), nSig, -1)).append(" ");
             k += nSamples;
             if(i < start+n-1) buf.append("\r\n");
          }
       }
       else
       {
-         int first = start*width;
-         int last = first + n*width - 1;
-         for(int i=first; i<=last; i++)
+         for(int i=start; i<start+n; i++)
          {
-            if(i > first && (i % width == 0)) buf.append("\r\n");
-            buf.append(Utilities.toString(fData[i], nSig, -1)).append(" ");
+            if(i > start) buf.append("\r\n");
+            for(int j=0; j<width; j++) buf.append(Utilities.toString(fData.get(at(i, j)), nSig, -1)).append(" ");
          }
       }
       return(buf.toString());
@@ -814,35 +996,23 @@ public class DataSet implements Cloneable
       if(text == null || text.isEmpty())
          return(DataSet.createEmptySet(format, id, getParams()));
 
-      // parse the tuples. If a parsing error occurs, abort.
-      StringTokenizer st = new StringTokenizer(text, "\n");
-      int nTuples = st.countTokens();
-      ArrayList<float[]> tuples = new ArrayList<>(nTuples);
+      // parse the tuples, one per line. If a parsing error occurs, abort.
+      FloatTextParser parser = new FloatTextParser();
+      if(!parser.parse(text, "\n"))
+      { 
+         errMsg.append("Illegal character or token on line ").append(parser.getErrorTuple() + 1);
+         return(null); 
+      }
+      int nTuples = parser.getTupleCount();
       int minLen = Integer.MAX_VALUE;
       int maxLen = Integer.MIN_VALUE;
-      int lineNo = 1;
-      try
+      for(int i=0; i<nTuples; i++)
       {
-         while(st.hasMoreTokens())
-         {
-            StringTokenizer tupleTokenizer = new StringTokenizer(st.nextToken().trim());
-            int n = tupleTokenizer.countTokens();
-            if(n < minLen) minLen = n;
-            if(n > maxLen) maxLen = n;
-            
-            float[] tuple = new float[n];
-            n = 0;
-            while(tupleTokenizer.hasMoreTokens()) 
-               tuple[n++] = Float.parseFloat(tupleTokenizer.nextToken());
-            tuples.add(tuple);
-            ++lineNo;
-         }
-      } 
-      catch(Throwable t) 
-      { 
-         errMsg.append("Illegal character or token on line ").append(lineNo);
-         return(null); 
+         int n = parser.getTupleLength(i);
+         if(n < minLen) minLen = n;
+         if(n > maxLen) maxLen = n;
       }
+      float[] values = parser.getValueBuffer();
 
       // check tuple lengths IAW expected data format
       if(format == Fmt.XYZIMG && minLen != maxLen)
@@ -879,34 +1049,30 @@ public class DataSet implements Cloneable
       float[] fData;
       if(format == Fmt.RASTER1D)
       {
-         ncols = tuples.size();
-         nrows = 0;
-         for(int i=0; i<ncols; i++) nrows += tuples.get(i).length;
+         ncols = nTuples;
+         nrows = parser.getValueCount();
          
          fData = new float[ncols+nrows];
-         int k = ncols;
-         for(int i=0; i<ncols; i++)
-         {
-            float[] tuple = tuples.get(i);
-            fData[i] = tuple.length;
-            for(float v : tuple) fData[k++] = v;
-         }
+         for(int i=0; i<ncols; i++) fData[i] = parser.getTupleLength(i);
+         System.arraycopy(values, 0, fData, ncols, nrows);
       }
       else
       {
-         nrows = tuples.size();
+         nrows = nTuples;
          ncols = (format == Fmt.PTSET || format == Fmt.SERIES) ? Math.min((format==Fmt.PTSET ? 6 : 3), maxLen) : minLen;
          if(format == Fmt.XYZSET) ncols = 3;
          if(format == Fmt.XYZWSET) ncols = 4;
          
          fData = new float[nrows*ncols];
          int k = 0;
+         int src = 0;
          for(int i=0; i<nrows; i++)
          {
-            float[] tuple = tuples.get(i);
+            int len = parser.getTupleLength(i);
             int j = 0;
-            while(j < tuple.length && j < ncols) fData[k++] = tuple[j++];
+            while(j < len && j < ncols) fData[k++] = values[src + j++];
             while(j < ncols) { fData[k++] = 0; j++; }
+            src += len;
          }
       }
 
@@ -958,59 +1124,48 @@ public class DataSet implements Cloneable
       }
 
       // parse the tuples. If a parsing error occurs, abort.
-      StringTokenizer st = new StringTokenizer(text, ",");
-      int nSamp = st.countTokens();
-      ArrayList<float[]> tuples = new ArrayList<>(nSamp);
+      FloatTextParser parser = new FloatTextParser();
+      if(!parser.parse(text, ",")) return(null);
+      int nTuples = parser.getTupleCount();
       int minLen = Integer.MAX_VALUE;
       int maxLen = Integer.MIN_VALUE;
-      try
+      for(int i=0; i<nTuples; i++)
       {
-         while(st.hasMoreTokens())
+         // 29apr2014: Allow for possibility that text content ENDS with a comma followed only by whitespace, in
+         // which case we might get a zero-length tuple here.
+         int n = parser.getTupleLength(i);
+         if(n < 1)
          {
-            // 29apr2014: Allow for possibility that text content ENDS with a comma followed only by whitespace, in
-            // which case we might get a zero-length tuple here.
-            String strTuple = st.nextToken().trim();
-            if(strTuple.isEmpty())
-            {
-               if(!st.hasMoreTokens()) break;
-            }
-
-            StringTokenizer tupleTokenizer = new StringTokenizer(strTuple);
-            int n = tupleTokenizer.countTokens();
-            if(n < 1) throw new Throwable();
-            if(n < minLen) minLen = n;
-            if(n > maxLen) maxLen = n;
-            
-            float[] tuple = new float[n];
-            n = 0;
-            while(tupleTokenizer.hasMoreTokens()) 
-               tuple[n++] = Float.parseFloat(tupleTokenizer.nextToken());
-            tuples.add(tuple);
+            if(i < nTuples-1) return(null);
+            --nTuples;
+            break;
          }
-      } 
-      catch(Throwable t) 
-      { 
-         return(null); 
+         if(n < minLen) minLen = n;
+         if(n > maxLen) maxLen = n;
       }
+      float[] values = parser.getValueBuffer();
       
       // load the tuples into a 1D array in the proper order for the specified format. If the minimum tuple length is 
       // invalid for the specified format, abort. For the collection formats, ignore extra elements in tuples that are 
       // longer then the min observed tuple length. For the other two, we pad missing values with 0.
       if(minLen < ((fmt==Fmt.PTSET || fmt==Fmt.MSET) ? 2 : 1)) return(null);
-      int nrows = tuples.size(); 
+      int nrows = nTuples; 
       int ncols = (fmt == Fmt.PTSET || fmt == Fmt.SERIES) ? Math.min((fmt==Fmt.PTSET ? 6 : 3), maxLen) : minLen;
       
       float[] fData = new float[nrows*ncols];
       int k = 0;
-      for(float[] tuple : tuples)
+      int src = 0;
+      for(int i=0; i<nrows; i++)
       {
+         int len = parser.getTupleLength(i);
          int j = 0;
-         while(j < tuple.length && j < ncols) fData[k++] = tuple[j++];
+         while(j < len && j < ncols) fData[k++] = values[src + j++];
          while(j < ncols)
          {
             fData[k++] = 0;
             j++;
          }
+         src += len;
       }
 
       // create the data set
@@ -1097,19 +1252,306 @@ public class DataSet implements Cloneable
    public static DataSet fromOldPlainTextSrcFileFormat(
             List<String> lines, int start, String defID, Fmt[] preferredFmts, StringBuffer errMsg)
    {
+      // parse the annotation header, if there is one. Abort if it is incorrectly formatted or the ID is invalid.
+      OldPlainTextHeader hdr = parseOldPlainTextHeader(lines.get(0), start, defID, errMsg);
+      if(hdr == null) return(null);
+      boolean isAnnotated = hdr.isAnnotated;
+      int minAllowedLen = hdr.minAllowedLen;
+      int maxAllowedLen = hdr.maxAllowedLen;
+
+      // parse all (or all remaining lines) as datum tuples. If annotation header provided, then enforce allowed range 
+      // for individual tuple lengths. Abort immediately if parsing error occurs.
+      FloatTextParser parser = new FloatTextParser();
+      int minLen = Integer.MAX_VALUE;
+      int maxLen = 0;
+      for(int i = (isAnnotated ? 1:0); i < lines.size(); i++)
+      {
+         String line = lines.get(i);
+         int n = parser.parseTuple(line, 0, line.length());
+         if(n < 0)
+         {
+            if(errMsg != null) errMsg.append("Parsing error at line ").append(start + i);
+            return(null);
+         }
+         if(n < 1 || (isAnnotated && (n < minAllowedLen || n > maxAllowedLen)))
+         {
+            if(errMsg != null) errMsg.append("Invalid tuple length ").append(n).append(" on line ").append(start + i);
+            return(null);
+         }
+         
+         if(n < minLen) minLen = n;
+         if(n > maxLen) maxLen = n;
+      }
+      return(assembleOldPlainTextDataSet(hdr, parser, minLen, maxLen, preferredFmts));
+   }
+   
+   /**
+    * Create and initialize a data set object consistent with content extracted from a plain-text data set source file 
+    * supported in <i>FigureComposer</i>'s predecessor, <i>Phyplot</i>. This version is the same as {@link 
+    * #fromOldPlainTextSrcFileFormat(List, int, String, Fmt[], StringBuffer)}, except that the data set definition is 
+    * supplied as a single block of text, which must not contain any blank lines. The datum tuples are parsed by
+    * {@link FloatTextParser#parseParallel(CharSequence, String)}, so a very large data set definition is parsed 
+    * concurrently. The result is identical in all cases, including the error message if the definition is invalid.
+    * 
+    * @param text The text of the data set definition in "numbers-only" or "annotated" form. Lines may be terminated 
+    * by "\r", "\n", or "\r\n".
+    * @param start Line number in file at which the data set definition began.
+    * @param defID Default ID for the new data set, if the format is "numbers-only".
+    * @param preferredFmts A list of preferred data set formats. Can be null or empty. 
+    * @param errMsg Optional error message buffer. If not null and a parsing error occurs, this buffer is initialized 
+    * with an explanatory message, including the file line number at which the error was detected.
+    * @return If parsing succeeded, return a new data set initialized IAW the text provided. Else, return null.
+    */
+   public static DataSet fromOldPlainTextSrcFileFormat(
+            CharSequence text, int start, String defID, Fmt[] preferredFmts, StringBuffer errMsg)
+   {
+      // parse the first line, which may be the annotation header
+      int len = text.length();
+      int iEOL = 0;
+      while(iEOL < len && text.charAt(iEOL) != '\r' && text.charAt(iEOL) != '\n') ++iEOL;
+      OldPlainTextHeader hdr = parseOldPlainTextHeader(text.subSequence(0, iEOL).toString().trim(), start, defID, 
+            errMsg);
+      if(hdr == null) return(null);
+      
+      // parse the datum tuples. If there's a parsing error or a tuple length is invalid, parse the definition again
+      // one line at a time to obtain the exact error message.
+      FloatTextParser parser = new FloatTextParser();
+      boolean ok = parser.parseParallel(hdr.isAnnotated ? text.subSequence(iEOL, len) : text, "\r\n");
+      int minLen = Integer.MAX_VALUE;
+      int maxLen = 0;
+      for(int i=0; ok && i<parser.getTupleCount(); i++)
+      {
+         int n = parser.getTupleLength(i);
+         if(n < 1 || (hdr.isAnnotated && (n < hdr.minAllowedLen || n > hdr.maxAllowedLen))) ok = false;
+         if(n < minLen) minLen = n;
+         if(n > maxLen) maxLen = n;
+      }
+      if(!ok)
+      {
+         List<String> lines = new ArrayList<>();
+         try(BufferedReader rdr = new BufferedReader(new StringReader(text.toString())))
+         {
+            String line;
+            while((line = rdr.readLine()) != null) lines.add(line.trim());
+         }
+         catch(IOException ioe) { throw new NeverOccursException(ioe); }
+         return(fromOldPlainTextSrcFileFormat(lines, start, defID, preferredFmts, errMsg));
+      }
+      
+      return(assembleOldPlainTextDataSet(hdr, parser, minLen, maxLen, preferredFmts));
+   }
+   
+   /**
+    * Helper method for {@link #fromOldPlainTextSrcFileFormat(List, int, String, Fmt[], StringBuffer)} creates the data
+    * set once its definition has been parsed and validated.
+    * @param hdr Information extracted from the first line of the data set definition.
+    * @param parser The parsed datum tuples (excluding the annotation header, if any).
+    * @param minLen The minimum observed tuple length.
+    * @param maxLen The maximum observed tuple length.
+    * @param preferredFmts A list of preferred data set formats. Can be null or empty.
+    * @return The data set, or null if it could not be created.
+    */
+   private static DataSet assembleOldPlainTextDataSet(OldPlainTextHeader hdr, FloatTextParser parser, int minLen, 
+         int maxLen, Fmt[] preferredFmts)
+   {
+      Fmt fmt = hdr.fmt;
+      float[] params = hdr.params;
+      boolean isAnnotated = hdr.isAnnotated;
+      int nTuples = parser.getTupleCount();
+      float[] values = parser.getValueBuffer();
+
+      // if there was no annotation header, guess set format
+      if(!isAnnotated) fmt = guessOldPlainTextFormat(preferredFmts, nTuples, minLen, maxLen);
+      
+      
+      // load the tuples into a 1D array in the proper order for the specified format. For the 2D collection formats, 
+      // ignore extra elements in tuples that are longer than the min observed tuple length. For the other 2D formats, 
+      // we pad missing values with 0. For RASTER1D, we store the N tuple lengths, then the tuples themselves in order.
+      // For XYZIMG, all tuple lengths should be the same. If not, shorter tuples are padded with Float.NaN out to the
+      // max observed tuple length. For XYZSET or XYZWSET, all tuples must have length 3 or 4, resp.
+      int nrows;
+      int ncols;
+      float[] fData;
+      if(fmt == Fmt.RASTER1D)
+      {
+         ncols = nTuples;
+         nrows = parser.getValueCount();
+         fData = new float[ncols + nrows];
+         for(int i=0;i<ncols; i++) fData[i] = parser.getTupleLength(i);
+         System.arraycopy(values, 0, fData, ncols, nrows);
+      }
+      else if(fmt == Fmt.XYZIMG)
+      {
+         nrows = nTuples;
+         ncols = maxLen;
+         fData = new float[nrows*ncols];
+         int k = 0;
+         int src = 0;
+         for(int i=0; i<nrows; i++)
+         {
+            int len = parser.getTupleLength(i);
+            System.arraycopy(values, src, fData, k, len);
+            k += len;
+            src += len;
+            for(int j=len; j<maxLen; j++)
+               fData[k++] = Float.NaN;
+         }
+      }
+      else if(fmt == Fmt.XYZSET || fmt == Fmt.XYZWSET)
+      {
+         nrows = nTuples;
+         ncols = (fmt == Fmt.XYZSET) ? 3 : 4;
+         fData = new float[nrows*ncols];
+         int k = 0;
+         int src = 0;
+         for(int i=0; i<nrows; i++)
+         {
+            System.arraycopy(values, src, fData, k, ncols);
+            k += ncols;
+            src += parser.getTupleLength(i);
+         }
+      }
+      else
+      {
+         nrows = nTuples; 
+         ncols = (fmt == Fmt.PTSET || fmt == Fmt.SERIES) ? Math.min((fmt==Fmt.PTSET ? 6 : 3), maxLen) : minLen;
+         
+         fData = new float[nrows*ncols];
+         int k = 0;
+         int src = 0;
+         for(int i=0; i<nrows; i++)
+         {
+            int len = parser.getTupleLength(i);
+            int j = 0;
+            while(j < len && j < ncols) fData[k++] = values[src + j++];
+            while(j < ncols) { fData[k++] = 0; j++; }
+            src += len;
+         }
+      }
+
+      // if not annotated, we have to set default values for additional parameters assoc with certain formats
+      if(!isAnnotated) params = getOldPlainTextDefaultParams(fmt);
+
+      return(DataSet.createDataSet(hdr.id, fmt, params, nrows, ncols, fData));      
+   }
+   
+   /**
+    * Get the summary information for a data set defined in a plain-text data set source file supported in 
+    * <i>FigureComposer</i>'s predecessor, <i>Phyplot</i>, without parsing the data set's datum tuples.
+    * 
+    * <p>The data set's format, dimensions and defining parameters depend only on the annotation header (if present), 
+    * the number of datum tuples, and the minimum and maximum observed tuple lengths -- not on the tuple values 
+    * themselves. Thus, a caller can obtain the same summary information that {@link #fromOldPlainTextSrcFileFormat(
+    * List, int, String, Fmt[], StringBuffer)} would produce by merely counting the whitespace-separated tokens on each 
+    * line. However, since the tokens are not parsed, a malformed floating-point token is not detected here.</p>
+    * 
+    * @param firstLine The first (trimmed, non-blank) line of the data set definition. It is the annotation header if it
+    * starts with a colon; else it is the first datum tuple.
+    * @param nTuples The number of datum tuples in the data set definition (excluding the annotation header, if any).
+    * @param minLen The minimum observed tuple length. Ignored if there are no tuples.
+    * @param maxLen The maximum observed tuple length. Ignored if there are no tuples.
+    * @param nTokens The total number of tokens in all datum tuples.
+    * @param start Line number in file at which the data set definition began.
+    * @param defID Default ID for the data set, if the format is "numbers-only". If null, "set" is assumed.
+    * @param preferredFmts A list of preferred data set formats, as in {@link #fromOldPlainTextSrcFileFormat(List, int, 
+    * String, Fmt[], StringBuffer)}. Can be null or empty.
+    * @param errMsg Optional error message buffer. If not null and the data set definition is invalid, this buffer is 
+    * initialized with an explanatory message, including the file line number at which the data set began.
+    * @return The data set summary information, or null if the data set definition is invalid.
+    */
+   public static DataSetInfo getInfoForOldPlainTextSrcFileFormat(String firstLine, int nTuples, int minLen, 
+         int maxLen, long nTokens, int start, String defID, Fmt[] preferredFmts, StringBuffer errMsg)
+   {
+      OldPlainTextHeader hdr = parseOldPlainTextHeader(firstLine, start, defID, errMsg);
+      if(hdr == null) return(null);
+      
+      if(nTuples == 0)
+      {
+         minLen = Integer.MAX_VALUE;
+         maxLen = 0;
+      }
+      else if(hdr.isAnnotated && (minLen < hdr.minAllowedLen || maxLen > hdr.maxAllowedLen))
+      {
+         if(errMsg != null) 
+            errMsg.append("Invalid tuple length in dataset starting at line ").append(start);
+         return(null);
+      }
+      
+      Fmt fmt = hdr.isAnnotated ? hdr.fmt : guessOldPlainTextFormat(preferredFmts, nTuples, minLen, maxLen);
+      float[] params = hdr.isAnnotated ? hdr.params : getOldPlainTextDefaultParams(fmt);
+      
+      // the data dimensions, exactly as computed when the tuples are loaded into the raw data array
+      long nrows;
+      int ncols;
+      if(fmt == Fmt.RASTER1D)
+      {
+         nrows = nTokens;
+         ncols = nTuples;
+      }
+      else if(fmt == Fmt.XYZIMG)
+      {
+         nrows = nTuples;
+         ncols = maxLen;
+      }
+      else if(fmt == Fmt.XYZSET || fmt == Fmt.XYZWSET)
+      {
+         nrows = nTuples;
+         ncols = (fmt == Fmt.XYZSET) ? 3 : 4;
+      }
+      else
+      {
+         nrows = nTuples; 
+         ncols = (fmt == Fmt.PTSET || fmt == Fmt.SERIES) ? Math.min((fmt==Fmt.PTSET ? 6 : 3), maxLen) : minLen;
+      }
+      
+      DataSetInfo info = (nrows > Integer.MAX_VALUE) ? null : 
+         DataSetInfo.createDataSetInfo(hdr.id, fmt, (int) nrows, ncols, params);
+      if(info == null && errMsg != null) errMsg.append("Invalid dataset definition starting at line ").append(start);
+      return(info);
+   }
+   
+   /** 
+    * The information extracted from the first line of a data set definition in a <i>Phyplot</i>-era plain-text data 
+    * set source file. See {@link #parseOldPlainTextHeader}.
+    */
+   private static class OldPlainTextHeader
+   {
+      /** The data set ID. */
+      String id;
+      /** The data set format. Null if the set is not annotated, in which case the format must be guessed. */
       Fmt fmt = null;
+      /** Additional defining parameters for the data set format. May be null. */
       float[] params = null;
-      String id = (defID == null) ? "set" : defID;
-      
-      // if the first line starts with a colon, parse it as the annotation header and from it get the ID, set 
-      // format, and additional definition parameters (if any). Abort if it is incorrectly formatted.
+      /** True if the first line is an annotation header; false if it is the first datum tuple. */
       boolean isAnnotated = false;
+      /** The minimum allowed tuple length. */
       int minAllowedLen = 1;
+      /** The maximum allowed tuple length. */
       int maxAllowedLen = Integer.MAX_VALUE;
-      String firstLine = lines.get(0);
+   }
+   
+   /**
+    * Helper method for {@link #fromOldPlainTextSrcFileFormat(List, int, String, Fmt[], StringBuffer)}. If the first
+    * line of the data set definition starts with a colon, it is parsed as the annotation header, from which the ID, set
+    * format, and additional definition parameters (if any) are obtained. Otherwise, the set is "numbers-only" and is 
+    * assigned the default ID.
+    * @param firstLine The first line of the data set definition.
+    * @param start Line number in file at which the data set definition began.
+    * @param defID Default ID for the data set, if the format is "numbers-only". If null, "set" is assumed.
+    * @param errMsg Optional error message buffer. If not null and a parsing error occurs, this buffer is initialized 
+    * with an explanatory message.
+    * @return The information extracted from the first line, or null if the annotation header is incorrectly formatted
+    * or the data set ID is invalid.
+    */
+   private static OldPlainTextHeader parseOldPlainTextHeader(String firstLine, int start, String defID, 
+         StringBuffer errMsg)
+   {
+      OldPlainTextHeader hdr = new OldPlainTextHeader();
+      hdr.id = (defID == null) ? "set" : defID;
+      
       if(firstLine.startsWith(":"))
       {
-         isAnnotated = true;
+         hdr.isAnnotated = true;
          
          StringTokenizer st = new StringTokenizer(firstLine.substring(1));
          int nTokens = st.countTokens();
@@ -1119,17 +1561,17 @@ public class DataSet implements Cloneable
             return(null);
          }
 
-         id = st.nextToken();
+         hdr.id = st.nextToken();
          
          if(nTokens == 1)
-            fmt = Fmt.RASTER1D;
+            hdr.fmt = Fmt.RASTER1D;
          else if(nTokens == 5)
          {
-            fmt = Fmt.XYZIMG;
-            params = new float[4];
+            hdr.fmt = Fmt.XYZIMG;
+            hdr.params = new float[4];
             try
             {
-               for(int i=0; i<4; i++) params[i] = Float.parseFloat(st.nextToken());
+               for(int i=0; i<4; i++) hdr.params[i] = Float.parseFloat(st.nextToken());
             }
             catch(NumberFormatException nfe)
             {
@@ -1145,40 +1587,40 @@ public class DataSet implements Cloneable
             if(token.equals("2"))
             {
                isSampled = false;  // in case a third token is there, ignore it
-               fmt = Fmt.XYZSET;
-               minAllowedLen = maxAllowedLen = 3;
+               hdr.fmt = Fmt.XYZSET;
+               hdr.minAllowedLen = hdr.maxAllowedLen = 3;
             }
             else if(token.equals("3"))
             {
                isSampled = false;
-               fmt = Fmt.XYZWSET;
-               minAllowedLen = maxAllowedLen = 4;
+               hdr.fmt = Fmt.XYZWSET;
+               hdr.minAllowedLen = hdr.maxAllowedLen = 4;
             }
             else if(!(isSampled || isMulti))
             {
-               fmt = Fmt.PTSET;
-               minAllowedLen = 2;
-               maxAllowedLen = 6;
+               hdr.fmt = Fmt.PTSET;
+               hdr.minAllowedLen = 2;
+               hdr.maxAllowedLen = 6;
             }
             else if(isSampled && !isMulti)
             {
-               fmt = Fmt.SERIES;
-               maxAllowedLen = 3;
+               hdr.fmt = Fmt.SERIES;
+               hdr.maxAllowedLen = 3;
             }
             else if(!isSampled)
             {
-               fmt = Fmt.MSET;
-               minAllowedLen = 2;
+               hdr.fmt = Fmt.MSET;
+               hdr.minAllowedLen = 2;
             }
             else
-               fmt = Fmt.MSERIES;
+               hdr.fmt = Fmt.MSERIES;
 
             if(isSampled)
             {
                token = st.nextToken();
-               params = new float[2];
-               params[1] = 0;
-               try { params[0] = Float.parseFloat(token);}
+               hdr.params = new float[2];
+               hdr.params[1] = 0;
+               try { hdr.params[0] = Float.parseFloat(token);}
                catch(NumberFormatException nfe) 
                {
                   if(errMsg != null) errMsg.append("Bad annotation header at line ").append(start);
@@ -1189,166 +1631,84 @@ public class DataSet implements Cloneable
       }
       
       // abort if ID (either default ID or the one taken from annotation header) is invalid
-      if(!isValidIDString(id)) 
+      if(!isValidIDString(hdr.id)) 
       {
          if(errMsg != null)
-            errMsg.append("Invalid dataset ID (").append(id).append(") for dataset starting at line ").append(start);
+            errMsg.append("Invalid dataset ID (").append(hdr.id).append(") for dataset starting at line ")
+                  .append(start);
          return(null);
       }
-
-
-      // parse all (or all remaining lines) as datum tuples. If annotation header provided, then enforce allowed range 
-      // for individual tuple lengths. Abort immediately if parsing error occurs.
-      ArrayList<float[]> tuples = new ArrayList<>(lines.size());
-      int minLen = Integer.MAX_VALUE;
-      int maxLen = 0;
-      for(int i = (isAnnotated ? 1:0); i < lines.size(); i++)
-      {
-         try
-         {
-            StringTokenizer tupleTokenizer = new StringTokenizer(lines.get(i));
-            int n = tupleTokenizer.countTokens();
-            if(n < 1 || (isAnnotated && (n < minAllowedLen || n > maxAllowedLen)))
-            {
-               if(errMsg != null) errMsg.append("Invalid tuple length ").append(n).append(" on line ").append(start + i);
-               return(null);
-            }
-            
-            if(n < minLen) minLen = n;
-            if(n > maxLen) maxLen = n;
-         
-            float[] tuple = new float[n];
-            n = 0;
-            while(tupleTokenizer.hasMoreTokens()) 
-               tuple[n++] = Float.parseFloat(tupleTokenizer.nextToken());
-            tuples.add(tuple);
-         }
-         catch(Throwable t)
-         {
-            if(errMsg != null) errMsg.append("Parsing error at line ").append(start + i);
-            return(null);
-         }
-      }
-
-      // if there was no annotation header, guess set format. If a preferred list of data set formats is provided, we 
-      // choose the FIRST format in the list that is compatible with the observed min and max tuple lengths. If no list
-      // is provided or if no match was found in that list, then we guess based on minimum observed tuple length.
-      if(!isAnnotated)
+      return(hdr);
+   }
+   
+   /**
+    * Helper method for {@link #fromOldPlainTextSrcFileFormat(List, int, String, Fmt[], StringBuffer)} guesses the 
+    * format of a "numbers-only" data set. If a preferred list of data set formats is provided, we choose the FIRST 
+    * format in the list that is compatible with the observed min and max tuple lengths. If no list is provided or if no
+    * match was found in that list, then we guess based on minimum observed tuple length.
+    * @param preferredFmts A list of preferred data set formats. Can be null or empty.
+    * @param nTuples The number of datum tuples parsed.
+    * @param minLen The minimum observed tuple length.
+    * @param maxLen The maximum observed tuple length.
+    * @return The data set format chosen.
+    */
+   private static Fmt guessOldPlainTextFormat(Fmt[] preferredFmts, int nTuples, int minLen, int maxLen)
+   {
+      Fmt fmt = null;
+      if(preferredFmts != null) for(int i=0; i<preferredFmts.length; i++)
       {
-         fmt = null;
-         if(preferredFmts != null) for(int i=0; i<preferredFmts.length; i++)
+         switch(preferredFmts[i])
          {
-            switch(preferredFmts[i])
-            {
-               case PTSET:
-                  if(minLen >= 2 && maxLen <= 6) {fmt = preferredFmts[i]; i = preferredFmts.length; }
-                  break;
-               case SERIES:
-                  if(maxLen <= 3) {fmt = preferredFmts[i]; i = preferredFmts.length; }
-                  break;
-               case MSET:
-                  if(minLen >= 2) {fmt = preferredFmts[i]; i = preferredFmts.length; }
-                  break;
-               case MSERIES:
-               case RASTER1D:
-                  fmt = preferredFmts[i]; i = preferredFmts.length;
-                  break;
-               case XYZIMG:
-                  if(minLen == maxLen) { fmt = preferredFmts[i]; i = preferredFmts.length; }
-                  break;
-               case XYZSET:
-                  if(minLen == 3 && maxLen == 3) { fmt = preferredFmts[i]; i = preferredFmts.length; }
-               case XYZWSET:
-                  if(minLen == 4 && maxLen == 4) { fmt = preferredFmts[i]; i = preferredFmts.length; }
-                  break;
-            }
-         }
-         
-         if(fmt == null)
-         {
-            double ratio = ((double)tuples.size()) / ((double)maxLen);
-            
-            if(minLen >= 2 && maxLen <= 3) fmt = Fmt.PTSET;
-            else if(minLen <= 3 && maxLen >= 1 && maxLen <= 3) fmt = Fmt.SERIES;
-            else if(minLen >= 2 && minLen <= 6 && maxLen <= 6) fmt = Fmt.PTSET;
-            else if(minLen == maxLen && 0.5 <= ratio && ratio <= 2) fmt = Fmt.XYZIMG;
-            else if(minLen != maxLen && ratio <= 0.5) fmt = Fmt.RASTER1D;
-            else if(minLen == 1) fmt = Fmt.MSERIES;
-            else fmt = Fmt.MSET;
+            case PTSET:
+               if(minLen >= 2 && maxLen <= 6) {fmt = preferredFmts[i]; i = preferredFmts.length; }
+               break;
+            case SERIES:
+               if(maxLen <= 3) {fmt = preferredFmts[i]; i = preferredFmts.length; }
+               break;
+            case MSET:
+               if(minLen >= 2) {fmt = preferredFmts[i]; i = preferredFmts.length; }
+               break;
+            case MSERIES:
+            case RASTER1D:
+               fmt = preferredFmts[i]; i = preferredFmts.length;
+               break;
+            case XYZIMG:
+               if(minLen == maxLen) { fmt = preferredFmts[i]; i = preferredFmts.length; }
+               break;
+            case XYZSET:
+               if(minLen == 3 && maxLen == 3) { fmt = preferredFmts[i]; i = preferredFmts.length; }
+            case XYZWSET:
+               if(minLen == 4 && maxLen == 4) { fmt = preferredFmts[i]; i = preferredFmts.length; }
+               break;
          }
       }
       
-      
-      // load the tuples into a 1D array in the proper order for the specified format. For the 2D collection formats, 
-      // ignore extra elements in tuples that are longer than the min observed tuple length. For the other 2D formats, 
-      // we pad missing values with 0. For RASTER1D, we store the N tuple lengths, then the tuples themselves in order.
-      // For XYZIMG, all tuple lengths should be the same. If not, shorter tuples are padded with Float.NaN out to the
-      // max observed tuple length. For XYZSET or XYZWSET, all tuples must have length 3 or 4, resp.
-      int nrows = 0;
-      int ncols;
-      float[] fData;
-      if(fmt == Fmt.RASTER1D)
-      {
-         ncols = tuples.size();
-         for(int i=0;i<ncols; i++) nrows += tuples.get(i).length;
-         fData = new float[ncols + nrows];
-         for(int i=0;i<ncols; i++) fData[i] = tuples.get(i).length;
-         int i=ncols;
-         for(float[] tuple : tuples)
-         {
-            for(float v : tuple) fData[i++] = v;
-         }
-      }
-      else if(fmt == Fmt.XYZIMG)
-      {
-         nrows = tuples.size();
-         ncols = maxLen;
-         fData = new float[nrows*ncols];
-         int i = 0;
-         for(float[] tuple : tuples)
-         {
-            for(float v : tuple) fData[i++] = v;
-            for(int j=tuple.length; j<maxLen; j++)
-               fData[i++] = Float.NaN;
-         }
-      }
-      else if(fmt == Fmt.XYZSET || fmt == Fmt.XYZWSET)
-      {
-         nrows = tuples.size();
-         ncols = (fmt == Fmt.XYZSET) ? 3 : 4;
-         fData = new float[nrows*ncols];
-         int i = 0;
-         for(float[] tuple : tuples)
-         {
-            for(int j=0; j<ncols; j++) fData[i++] = tuple[j];
-         }
-      }
-      else
+      if(fmt == null)
       {
-         nrows = tuples.size(); 
-         ncols = (fmt == Fmt.PTSET || fmt == Fmt.SERIES) ? Math.min((fmt==Fmt.PTSET ? 6 : 3), maxLen) : minLen;
+         double ratio = ((double)nTuples) / ((double)maxLen);
          
-         fData = new float[nrows*ncols];
-         int k = 0;
-         for(int i=0; i<nrows; i++)
-         {
-            float[] tuple = tuples.get(i);
-            int j = 0;
-            while(j < tuple.length && j < ncols) fData[k++] = tuple[j++];
-            while(j < ncols) { fData[k++] = 0; j++; }
-         }
-      }
-
-      // if not annotated, we have to set default values for additional parameters assoc with certain formats
-      if(!isAnnotated)
-      {
-         if(fmt == Fmt.SERIES || fmt == Fmt.MSERIES) 
-            params = new float[] {1, 0};
-         else if(fmt == Fmt.XYZIMG)
-            params = new float[] {-1, 1, -1, 1};
-      }
-
-      return(DataSet.createDataSet(id, fmt, params, nrows, ncols, fData));      
+         if(minLen >= 2 && maxLen <= 3) fmt = Fmt.PTSET;
+         else if(minLen <= 3 && maxLen >= 1 && maxLen <= 3) fmt = Fmt.SERIES;
+         else if(minLen >= 2 && minLen <= 6 && maxLen <= 6) fmt = Fmt.PTSET;
+         else if(minLen == maxLen && 0.5 <= ratio && ratio <= 2) fmt = Fmt.XYZIMG;
+         else if(minLen != maxLen && ratio <= 0.5) fmt = Fmt.RASTER1D;
+         else if(minLen == 1) fmt = Fmt.MSERIES;
+         else fmt = Fmt.MSET;
+      }
+      return(fmt);
+   }
+   
+   /**
+    * Helper method supplies default values for the additional defining parameters of a "numbers-only" data set read
+    * from a <i>Phyplot</i>-era plain-text data set source file.
+    * @param fmt The data set format.
+    * @return The default parameters, or null if the format requires none.
+    */
+   private static float[] getOldPlainTextDefaultParams(Fmt fmt)
+   {
+      if(fmt == Fmt.SERIES || fmt == Fmt.MSERIES) return(new float[] {1, 0});
+      else if(fmt == Fmt.XYZIMG) return(new float[] {-1, 1, -1, 1});
+      return(null);
    }
    
    /**
@@ -1360,16 +1720,19 @@ public class DataSet implements Cloneable
     * The rest of the data set follows, beginning with the ID string. Otherwise, that first integer is the number of 
     * bytes in the ID string, and decoding proceeds immediately with that string.</p>
     * 
-    * @param text A string containing the entire contents of a data set encoded in base-64 exactly as described in 
-    * {@link #toBase64(DataSet, boolean)}.
-    * @return A data set object as reconstituted from the source string; null if decoding fails.
+    * <p>The text is decoded as it is read, directly into the raw data array of the data set, so that decoding a very 
+    * large data set does not require a full-size intermediate copy of the decoded binary content.</p>
+    * 
+    * @param text A character sequence containing the entire contents of a data set encoded in base-64 exactly as 
+    * described in {@link #toBase64(DataSet, boolean)}.
+    * @return A data set object as reconstituted from the source text; null if decoding fails.
     */
-   public static DataSet fromBase64(String text)
+   public static DataSet fromBase64(CharSequence text)
    {
-      if(text == null || text.isEmpty()) return(null);
+      if(text == null || text.length() == 0) return(null);
       
-      ByteArrayInputStream bis = new ByteArrayInputStream(Base64.getMimeDecoder().decode(text));
-      DataInputStream dis = new DataInputStream(bis);
+      DataInputStream dis = new DataInputStream(new BufferedInputStream(
+            Base64.getMimeDecoder().wrap(new AsciiCharsInputStream(text)), STREAMBUFSZ));
 
       DataSet ds = null;
       try
@@ -1492,18 +1855,52 @@ public class DataSet implements Cloneable
    {
       if(ds == null) throw new IllegalArgumentException("Null argument");
       
-      ByteArrayOutputStream bos = new ByteArrayOutputStream(ds.getRawDataSize()*4);
+      StringWriter sw = new StringWriter(ds.getRawDataSize()*6);
+      try
+      {
+         writeBase64(ds, includeRangeInfo, lineBreaks, sw);
+      } catch(IOException ioe)
+      {
+         // since the underlying writer is a string writer, we will not get any IOException
+         throw new NeverOccursException(ioe);
+      }
+      return(sw.toString());
+   }
+   
+   /**
+    * Encode the contents of a data set object in base-64 binary format and write the encoded text directly to the 
+    * specified character stream, which is NOT closed by this method. The encoding is exactly as described in {@link 
+    * #toBase64(DataSet, boolean, boolean)}, but it is streamed to the writer in small chunks as the data set's raw data
+    * is encoded. Use this method to serialize a very large data set without building the entire base-64 encoding in 
+    * memory.
+    * 
+    * @param ds The data set to be encoded in base-64.
+    * @param includeRangeInfo If set, the data set's coordinate range information will be included at the beginning of
+    * the base-64 text.
+    * @param lineBreaks If set, a line break (carriage-return line-feed pair) is written after every 76 characters.
+    * @param wrt The character stream writer to which the base-64 encoding is written.
+    * @throws IOException if an IO error occurs while writing to the character stream.
+    */
+   public static void writeBase64(DataSet ds, boolean includeRangeInfo, boolean lineBreaks, Writer wrt) 
+         throws IOException
+   {
+      if(ds == null || wrt == null) throw new IllegalArgumentException("Null argument");
+      
       Base64.Encoder enc = lineBreaks ? Base64.getMimeEncoder() : Base64.getEncoder();
 
-      try(DataOutputStream dos = new DataOutputStream(enc.wrap(bos)))
+      // NOTE: Closing the data output stream closes the encoder stream (which writes any final padding) and the ASCII
+      // output stream that wraps the writer; but the latter does not close the writer itself.
+      try(DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+            enc.wrap(new AsciiCharsOutputStream(wrt)), STREAMBUFSZ)))
       {
          // include coordinate range information first, if requested. Tag with integer -1 so decoder can distinguish it
          // from the integer length of the ID string.
          if(includeRangeInfo)
          {
             dos.writeInt(-1);
-            for(int i = 0; i < ds.coordRanges.length; i++) dos.writeFloat(ds.coordRanges[i]);
-            dos.writeFloat(ds.hasErrorData ? 1.0f : -1.0f);
+            float[] stats = ds.getStats();
+            for(int i = 0; i < 8; i++) dos.writeFloat(stats[i]);
+            dos.writeFloat(stats[8] > 0 ? 1.0f : -1.0f);
          }
 
          try
@@ -1523,20 +1920,14 @@ public class DataSet implements Cloneable
             dos.writeFloat(ds.x0);
          } else if(ds.format == Fmt.XYZIMG)
          {
-            for(int i = 0; i < 4; i++) dos.writeFloat(ds.coordRanges[i]);
+            for(int i = 0; i < 4; i++) dos.writeFloat(ds.imgRange[i]);
          }
 
          dos.writeInt(ds.width);
          dos.writeInt(ds.height);
-         for(int i = 0; i < ds.fData.length; i++) dos.writeFloat(ds.fData[i]);
-
-      } catch(IOException ioe)
-      {
-         // since the underlying stream wraps a byte array, we will not get any IOException
-         throw new NeverOccursException(ioe);
-      }
+         for(int i = 0; i < ds.getRawDataSize(); i++) dos.writeFloat(ds.getRawDatum(i));
 
-      return(bos.toString());
+      }
    }
    
    
@@ -1588,6 +1979,13 @@ public class DataSet implements Cloneable
     * member is extracted. The ID and any defined parameters of the extracted set will match this set's ID and 
     * parameters.</p>
     * 
+    * <p>For the <b>MSET</b> and <b>MSERIES</b> formats, the extracted set is a read-only <i>view</i> that shares this 
+    * set's raw data array rather than a copy of the selected columns, so splitting a large collection into its members
+    * does not duplicate the data in memory. Since the member columns are not contiguous in the backing array, the view
+    * locates its elements by offset and row stride. It otherwise behaves exactly like a data set backed by its own 
+    * array; its statistics are computed lazily from the view's elements only. For <b>RASTER1D</b>, the selected rasters
+    * are contiguous, and they are simply copied into a new array.</p>
+    * 
     * @param start The index position of the first member set in the block to be extracted.
     * @param n The number of sets to extract. The actual size of the block will be less than <i>n</i> if <i>start + n 
     * &gt; {@link #getNumberOfSets()}</i>. If less than 1, 1 is assumed.
@@ -1604,65 +2002,50 @@ public class DataSet implements Cloneable
       int end = start + n - 1;
       if(end >= getNumberOfSets()) end = getNumberOfSets() - 1;
       
-      int w = 0;
-      int h = 0;
-      Fmt dstFmt = null;
-      float[] extractedData = null;
-      switch(format)
+      if(format == Fmt.RASTER1D)
       {
-      case MSET:
-         w = end - start + 2;
-         h = height;
-         dstFmt = (start==end) ? Fmt.PTSET : Fmt.MSET;
-         extractedData = new float[w*h];
-         if(start == end)
-         {
-            for(int i=0; i<h; i++)
-            {
-               extractedData[i*w] = fData[i*width];
-               extractedData[i*w + 1] = fData[i*width + start + 1];
-            }
-         }
-         else for(int i=0; i<h; i++)
-         {
-            extractedData[i*w] = fData[i*width];
-            for(int j=1; j<w; j++)
-               extractedData[i*w + j] = fData[i*width + start + j];
-         }
-         break;
-      case MSERIES:
-         w = end - start + 1; 
-         h = height;
-         dstFmt = (start==end) ? Fmt.SERIES : Fmt.MSERIES;
-         extractedData = new float[w*h];
-         if(w == 1) 
-         {
-            for(int i=0; i<h; i++) extractedData[i] = fData[i*width + start];
-         }
-         else for(int i=0; i<h; i++)
-         {
-            for(int j=0; j<w; j++)
-               extractedData[i*w + j] = fData[i*width + start+j];
-         }
-         break;
-      case RASTER1D:
-         w = end - start + 1;
-         for(int i=start; i<= end; i++) h += (int) fData[i];
+         int w = end - start + 1;
+         int h = 0;
+         for(int i=start; i<= end; i++) h += (int) fData.get(i);
 
-         dstFmt = Fmt.RASTER1D;
-         extractedData = new float[w+h];
-         if(end + 1 - start >= 0) System.arraycopy(fData, start, extractedData, 0, end + 1 - start);
+         float[] extractedData = new float[w+h];
+         fData.get(start, extractedData, 0, w);
          if(h > 0)
          {
-            int ofs = width; for(int i=0; i<start; i++) ofs += (int) fData[i];
-            System.arraycopy(fData, ofs, extractedData, w, h); 
+            int ofs = width; for(int i=0; i<start; i++) ofs += (int) fData.get(i);
+            fData.get(ofs, extractedData, w, h); 
          }
-         break;
-      default:
-         break;
+         return(DataSet.createDataSet(this.id, format, this.getParams(), h, w, extractedData));
       }
-
-      return(DataSet.createDataSet(this.id, dstFmt, this.getParams(), h, w, extractedData));
+      
+      // MSET, MSERIES: the block is a view into this set's backing array. If this set is itself a view, the view's
+      // mapping is composed with this one.
+      DataSet ds = new DataSet();
+      ds.id = id;
+      ds.height = height;
+      ds.dx = dx;
+      ds.x0 = x0;
+      ds.fData = fData;
+      ds.dataOfs = dataOfs;
+      ds.rowStride = (rowStride == 0) ? width : rowStride;
+      ds.colGap = colGap;
+      if(format == Fmt.MSET)
+      {
+         ds.format = (start == end) ? Fmt.PTSET : Fmt.MSET;
+         ds.width = end - start + 2;
+         ds.colGap += start;
+      }
+      else
+      {
+         ds.format = (start == end) ? Fmt.SERIES : Fmt.MSERIES;
+         ds.width = end - start + 1;
+         ds.dataOfs += start;
+      }
+      
+      // if the block spans the entire backing array, it is not really a view
+      if(ds.dataOfs == 0 && ds.colGap == 0 && ds.rowStride == ds.width) ds.rowStride = 0;
+      
+      return(ds);
    }
    
    /**
@@ -1679,26 +2062,26 @@ public class DataSet implements Cloneable
       if(format != Fmt.RASTER1D || pos<0 || pos>=getNumberOfSets()) return(null);
       
       int ofs = width;
-      for(int i=0; i<pos; i++) ofs += (int) fData[i];
-      int nSamples = (int) fData[pos];
+      for(int i=0; i<pos; i++) ofs += (int) fData.get(i);
+      int nSamples = (int) fData.get(pos);
       if(nSamples == 0) return new float[0];
       
       // if we're omitting ill-defined samples, count them
       int nBad = 0;
       if(omitNaN)
       {
-         for(int i=0; i<nSamples; i++) if(!Utilities.isWellDefined(fData[ofs+i])) ++nBad;
+         for(int i=0; i<nSamples; i++) if(!Utilities.isWellDefined(fData.get(ofs+i))) ++nBad;
       }
       
       float[] out = new float[nSamples-nBad];
       if(nBad == 0)
-         System.arraycopy(fData, ofs, out, 0, nSamples);
+         fData.get(ofs, out, 0, nSamples);
       else
       {
          int n = 0;
-         for(int i=0; i<nSamples; i++) if(Utilities.isWellDefined(fData[ofs+i]))
+         for(int i=0; i<nSamples; i++) if(Utilities.isWellDefined(fData.get(ofs+i)))
          {
-            out[n++] = fData[ofs+i];
+            out[n++] = fData.get(ofs+i);
          }
       }
       return(out);
@@ -1772,18 +2155,79 @@ public class DataSet implements Cloneable
     * preceded by a list of the individual raster lengths: <i>[n1 .. nM x1(1..n1) x2(1..n2) .. xM(1..nM)]</i>; the total
     * array length is N+M. For XYZIMG, this holds the values {z=f(x,y)}, which may be interpreted as an intensity image;
     * the array is populated row-wise and contains WxH entries, where W is width of the image and H is its height.
+    * 
+    * <p>The array is held in a {@link FloatStore}, which is normally backed by a Java array. A very large data set
+    * loaded from a data source file may instead be backed by direct or memory-mapped buffers outside the Java heap.</p>
+    */
+   private FloatStore fData = null;
+   
+   /** The store backing every empty data set. */
+   private final static FloatStore EMPTYSTORE = FloatStore.wrap(new float[0]);
+   
+   /**
+    * Data source implementations should load a data set into a store outside the Java heap (see {@link FloatStore})
+    * if its raw data array occupies at least this many bytes. Keeping a few very large data sets -- typically 
+    * {@link Fmt#XYZIMG} images -- off the heap avoids inflating the heap and lengthening garbage collection pauses.
+    */
+   final static long OFFHEAPMINBYTES = 64L * 1024L * 1024L;
+   
+   /** 
+    * For a view into a larger backing array (see {@link #extractBlock(int, int)}), the index of the first element of 
+    * the view's first tuple in {@link #fData}. Always 0 if this data set is not a view.
+    */
+   private int dataOfs = 0;
+   
+   /** 
+    * For a view into a larger backing array, the distance between the starts of consecutive tuples in {@link #fData}.
+    * It is 0 if this data set is not a view, in which case the tuples are packed and the stride is the data breadth.
     */
-   private float[] fData = null;
+   private int rowStride = 0;
+   
+   /** 
+    * For a view into a larger backing array, the number of elements in each backing tuple that are skipped between 
+    * the first element of a view tuple and the rest. This allows a view to select the x-coordinate and a contiguous 
+    * block of y-coordinate columns from an {@link Fmt#MSET} collection. Always 0 if this data set is not a view.
+    */
+   private int colGap = 0;
+   
+   /**
+    * Helper method computes the index in the backing array of the specified element of a datum tuple. Applicable 
+    * to the formats that store N M-tuples in the raw data array, which are the only formats for which a data set can 
+    * be a view into a larger backing array.
+    * @param row Index of the datum tuple.
+    * @param col Index of the element within the tuple.
+    * @return Index of the element in the backing array.
+    */
+   private int at(int row, int col) 
+   { 
+      if(rowStride == 0) return(row*width + col);
+      return(dataOfs + row*rowStride + col + ((col > 0) ? colGap : 0));
+   }
    
    /**
     * This package-private method provides direct access to the single-precision floating-pt data array that backs this 
     * data set. It avoids the possibly significant memory cost of retrieving an independent copy of the data through
     * {@link #copyRawData()}. It is intended only for use when writing a data set to a data source file or stream. 
     * <i><b>It is VITAL that callers make NO CHANGES to the array contents, nor pass the array reference to untrusted 
-    * code!</b></i>
+    * code!</b></i> If this data set is a view into a larger backing array, the backing array cannot be exposed; an 
+    * independent copy of the view's raw data is returned instead.
     * @return The raw data array, possibly empty.
     */
-   float[] getRawDataArray() { return(fData); }
+   float[] getRawDataArray() { return((rowStride == 0 && fData.array() != null) ? fData.array() : copyRawData()); }
+   
+   /**
+    * Is this data set backed by a store outside the Java heap?
+    * @return True if the raw data array resides in direct or memory-mapped buffers rather than a Java array.
+    */
+   boolean isOffHeap() { return(fData.array() == null); }
+   
+   /**
+    * Helper method gets the specified element of this data set's raw data array, as described in {@link 
+    * #copyRawData()}. If this data set is a view into a larger backing array, the index is mapped accordingly.
+    * @param i Index into the raw data array.
+    * @return The raw data array element.
+    */
+   private float getRawDatum(int i) { return(fData.get((rowStride == 0) ? i : at(i / width, i % width))); }
    
    /**
     * Make an independent copy of the single-precision floating-point data array that backs this data set.
@@ -1799,8 +2243,23 @@ public class DataSet implements Cloneable
     */
    public float[] copyRawData()
    {
-      float[] raw = new float[fData.length];
-      System.arraycopy(fData, 0, raw, 0, fData.length);
+      if(rowStride == 0)
+      {
+         float[] raw = new float[fData.length()];
+         fData.get(0, raw, 0, raw.length);
+         return(raw);
+      }
+
+      float[] raw = new float[width*height];
+      for(int i=0; i<height; i++)
+      {
+         if(colGap == 0) fData.get(at(i, 0), raw, i*width, width);
+         else
+         {
+            raw[i*width] = fData.get(at(i, 0));
+            fData.get(at(i, 1), raw, i*width + 1, width - 1);
+         }
+      }
       return(raw);
    }
    
@@ -1815,78 +2274,144 @@ public class DataSet implements Cloneable
     */
    public void copyRawData(int offset, int length, FloatBuffer fbuf)
    { 
-      if(offset < 0 || length < 0 || offset+length > fData.length) throw new IndexOutOfBoundsException();
-      fbuf.put(fData, offset, length); 
+      if(offset < 0 || length < 0 || offset+length > getRawDataSize()) throw new IndexOutOfBoundsException();
+      if(rowStride == 0 && fData.array() != null) fbuf.put(fData.array(), offset, length); 
+      else for(int i=offset; i<offset+length; i++) fbuf.put(getRawDatum(i));
    }
       
    /** 
-    * Coordinate ranges spanned by data along X, Y, Z and W dimensions: <i>[x0 x1 y0 y1 z0 z1 w0 w1]</i>. Depending on 
-    * the dimensionality of the data, irrelevant entries are set to zero. For the 2D data sets only, <i>w0=y0_noStd</i> 
-    * and <i>w1=y1_noStd</i> -- i.e., the Y-coordinate range NOT accounting for any standard deviation data in Y.
+    * Statistics computed from the raw data: the coordinate ranges spanned by data along X, Y, Z and W dimensions, 
+    * <i>[x0 x1 y0 y1 z0 z1 w0 w1]</i>, followed by a flag that is positive if the set contains nonzero standard 
+    * deviation data. Depending on the dimensionality of the data, irrelevant ranges are set to zero. For the 2D data 
+    * sets only, <i>w0=y0_noStd</i> and <i>w1=y1_noStd</i> -- i.e., the Y-coordinate range NOT accounting for any 
+    * standard deviation data in Y. 
+    * 
+    * <p>The statistics are computed when first needed rather than at construction time, since many data sets are 
+    * created, renamed or extracted without ever being rendered. Data set instances that share the same raw data array 
+    * and definition -- such as a copy made by {@link #changeID(String)} -- share the same holder, so the statistics 
+    * are computed at most once for all of them.</p>
+    */
+   private StatsHolder stats = new StatsHolder();
+   
+   /** 
+    * For the {@link Fmt#XYZIMG} format only, the x- and y-coordinate ranges spanned by the data: <i>[x0 x1 y0 y1]</i>.
+    * These are defining parameters of the data set rather than statistics computed from the data. Null otherwise.
+    */
+   private float[] imgRange = null;
+   
+   /** Length of the array of statistics computed from the raw data. See {@link #stats}. */
+   private final static int NSTATS = 9;
+   
+   /** 
+    * Holder for the lazily computed statistics of a data set. Once computed, the statistics array is never modified.
+    * It is published via a volatile field, so it is safe for multiple threads to query the statistics concurrently.
+    */
+   private static class StatsHolder
+   {
+      /** The statistics array, or null if not yet computed. */
+      private volatile float[] values = null;
+   }
+   
+   /**
+    * Get the statistics computed from this data set's raw data, computing them if this has not been done already. The
+    * computation is performed only once, even if several threads request the statistics at the same time.
+    * @return The statistics array, as described in {@link #stats}. <b>Do not modify</b>.
+    */
+   private float[] getStats()
+   {
+      float[] values = stats.values;
+      if(values == null)
+      {
+         synchronized(stats)
+         {
+            values = stats.values;
+            if(values == null)
+            {
+               values = computeStats();
+               stats.values = values;
+            }
+         }
+      }
+      return(values);
+   }
+   
+   /**
+    * Get the coordinate range information for this data set in the form accepted by {@link #createDataSet(DataSetInfo,
+    * float[], float[])}, computing the statistics if necessary. It is intended for data source implementations that
+    * store this information alongside the raw data, so that it need not be recomputed when the data set is loaded.
+    * @return A new array <i>[x0 x1 y0 y1 z0 z1 a b hasError]</i>, where <i>hasError</i> is 1 if the set contains
+    * nonzero standard deviation data, else -1.
     */
-   private float[] coordRanges = null;
+   float[] getRanges()
+   {
+      float[] ranges = new float[9];
+      float[] values = getStats();
+      System.arraycopy(values, 0, ranges, 0, 8);
+      ranges[8] = (values[8] > 0) ? 1 : -1;
+      return(ranges);
+   }
    
    /** 
     * Get the minimum of the x-coordinate range spanned by data set (accounts for standard deviation data!).
     * @return Minimum x-coordinate. 
     */
-   public float getXMin() { return(coordRanges[0]); }
+   public float getXMin() { return(getStats()[0]); }
 
    /** 
     * Get the maximum of the x-coordinate range spanned by data set (accounts for standard deviation data!).
     * @return Maximum x-coordinate. 
     */
-   public float getXMax() { return(coordRanges[1]); }
+   public float getXMax() { return(getStats()[1]); }
 
    /** 
     * Get the minimum of the y-coordinate range spanned by data set (accounts for standard deviation data!).
     * @return Minimum y-coordinate. Returns 0 always for a 1D data set.
     */
-   public float getYMin() { return(coordRanges[2]); }
+   public float getYMin() { return(getStats()[2]); }
 
    /** 
     * Get the maximum of the y-coordinate range spanned by data set (accounts for standard deviation data!).
     * @return Maximum y-coordinate. Returns 0 always for a 1D data set.
     */
-   public float getYMax() { return(coordRanges[3]); }
+   public float getYMax() { return(getStats()[3]); }
 
    /**
     * Get the minimum of the y-coordinate range spanned by data set, NOT accounting for any standard deviation data.
     * @return Minimum y-coordinate, standard deviation data excluded. Applicable only to 2D data set formats; returns 0
     * always for non-2D formats.
     */
-   public float getYMin_IgnoreStd() { return(format.is2D() ? coordRanges[6] : 0); }
+   public float getYMin_IgnoreStd() { return(format.is2D() ? getStats()[6] : 0); }
    
    /**
     * Get the maximum of the y-coordinate range spanned by data set, NOT accounting for any standard deviation data.
     * @return Maximum y-coordinate, standard deviation data excluded. Applicable only to 2D data set formats; returns 0
     * always for non-2D formats.
     */
-   public float getYMax_IgnoreStd() { return(format.is2D() ? coordRanges[7] : 0); }
+   public float getYMax_IgnoreStd() { return(format.is2D() ? getStats()[7] : 0); }
    
    /** 
     * Get smallest z-coordinate value observed across data set -- for 3D,4D formats only.
     * @return Minimum z-coordinate. Returns 0 always for 1D,2D data formats.
     */
-   public float getZMin() { return(coordRanges[4]); }
+   public float getZMin() { return(getStats()[4]); }
 
    /** 
     * Get largest z-coordinate value observed across data set -- for 3D,4D formats only.
     * @return Maximum z-coordinate. Returns 0 always for 1D,2D data formats.
     */
-   public float getZMax() { return(coordRanges[5]); }
+   public float getZMax() { return(getStats()[5]); }
    
    /** 
     * Get smallest w-coordinate value observed across data set -- for the 4D format only.
     * @return Minimum w-coordinate. Returns 0 always for non-4D data formats.
     */
-   public float getWMin() { return((format==Fmt.XYZWSET) ? coordRanges[6] : 0); }
+   public float getWMin() { return((format==Fmt.XYZWSET) ? getStats()[6] : 0); }
 
    /** 
     * Get largest w-coordinate value observed across data set -- for the 4D format only.
     * @return Maximum w-coordinate. Returns 0 always for non-4D data formats.
     */
-   public float getWMax() { return((format==Fmt.XYZWSET) ? coordRanges[7] : 0); }
+   public float getWMax() { return((format==Fmt.XYZWSET) ? getStats()[7] : 0); }
    
    /**
     * Get the additional defining parameters for this data set.
@@ -1900,7 +2425,7 @@ public class DataSet implements Cloneable
       if(format == Fmt.SERIES || format == Fmt.MSERIES)
          params = new float[] {dx, x0};
       else if(format == Fmt.XYZIMG)
-         params = new float[] {coordRanges[0], coordRanges[1], coordRanges[2], coordRanges[3]};
+         params = new float[] {imgRange[0], imgRange[1], imgRange[2], imgRange[3]};
       else 
          params = new float[0];
       return(params);
@@ -1928,7 +2453,23 @@ public class DataSet implements Cloneable
    public DataSet changeParams(float[] params) 
    { 
       if(format.getNumberOfParams() == 0) return(this);
-      return(DataSet.createDataSet(id, format, params, height, width, fData));
+      if(rowStride == 0) 
+      {
+         DataSet ds = DataSet.createDataSet(DataSetInfo.createDataSetInfo(id, format, height, width, params), fData, 
+               null);
+         if(ds != null) ds.digest = digest;
+         return(ds);
+      }
+      
+      // a view (SERIES or MSERIES only) keeps sharing the backing array
+      DataSetInfo info = DataSetInfo.createDataSetInfo(id, format, height, width, params);
+      if(info == null) return(null);
+      DataSet ds = null;
+      try { ds = (DataSet) this.clone(); } catch(CloneNotSupportedException cnse) { assert(false); }
+      ds.dx = info.getParam(0);
+      ds.x0 = info.getParam(1);
+      ds.stats = new StatsHolder();
+      return(ds);
    }
    
    /**
@@ -1938,123 +2479,152 @@ public class DataSet implements Cloneable
     */
    public DataSetInfo getInfo() { return(DataSetInfo.createDataSetInfo(id, format, height, width, getParams())); }
    
-   /** Flag set if there's any nonzero standard deviation data in the set (2D data formats only). */
-   private boolean hasErrorData = false;
-   
    /** 
     * Does this data set contain any data points with nonzero standard deviations (in x- or y-coord)? (Since the 
-    * presence or absence of error data is cached internally at construction time, this method returns quickly.) 
+    * presence or absence of error data is cached internally once computed, this method usually returns quickly.) 
     * @return True only if at least one point in the set includes a nonzero standard deviation. Applicable to the 
     * 2D data formats only. For all other data set formats, the method returns false always.
     */
-   public boolean hasErrorData() { return(hasErrorData); }
+   public boolean hasErrorData() { return(getStats()[8] > 0); }
    
    /**
-    * Helper method scans the data set and caches several statistics:
+    * Helper method scans the data set and computes several statistics:
     * <ul>
     * <li>The coordinate range spanned along the cardinal directions X, Y, Z and W -- as applicable for the data set 
     * format. If a coordinate range pair is irrelevant to the data format, it is set to [0..0]. For the 2D data formats
     * only, the computed X- and Y-coordinate ranges include the effects of any non-zero standard deviations in the data 
     * set, while [w0 w1] = [y0_noStd y1_noStd] -- i.e., the Y-coordinate range NOT accounting for standard deviation 
-    * data. For empty sets, all coordinate ranges are set to [0..0].</li>
+    * data. For empty sets, all coordinate ranges are set to [0..0]. For the {@link Fmt#XYZIMG} format, [x0 x1 y0 y1]
+    * is the coordinate range specified when the data set was created.</li>
     * <li>Whether or not the data set includes any non-zero standard deviation data (2D data formats only).</li>
     * </ul>
+    * 
+    * <p>For a large data set, the data is split into contiguous blocks that are scanned in parallel on the common 
+    * fork-join pool, and the partial results are then merged in order. Since both the sequential scan and the merge
+    * keep the first of any tied extrema, the result is identical to that of a single sequential scan.</p>
+    * 
+    * @return The statistics array, as described in {@link #stats}.
     */
-   private void computeStats()
+   private float[] computeStats()
    {
-      hasErrorData = false;
-      coordRanges = new float[8];
-      for(int i=0; i<8; i++) coordRanges[i] = 0;
-
+      float[] res;
+      
+      // number of data points (or raster samples, or image pixels) to scan
+      int n = (format == Fmt.XYZIMG) ? width*height : height;
+      int nChunks = Math.min(n / MINSTATSCHUNK, 4 * ForkJoinPool.getCommonPoolParallelism());
+      if(isEmpty() || n == 0)
+      {
+         res = new float[NSTATS];
+         res[8] = -1;
+      }
+      else if(nChunks < 2)
+         res = scanStats(0, n);
+      else
+      {
+         List<ForkJoinTask<float[]>> tasks = new ArrayList<>(nChunks);
+         for(int i=0; i<nChunks; i++)
+         {
+            final int start = (int) (((long) n) * i / nChunks);
+            final int end = (int) (((long) n) * (i+1) / nChunks);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> scanStats(start, end)));
+         }
+         res = tasks.get(0).join();
+         for(int i=1; i<nChunks; i++)
+         {
+            float[] partial = tasks.get(i).join();
+            for(int k=0; k<8; k+=2)
+            {
+               if(partial[k] < res[k]) res[k] = partial[k];
+               if(partial[k+1] > res[k+1]) res[k+1] = partial[k+1];
+            }
+            if(partial[8] > 0) res[8] = 1;
+         }
+      }
+      
+      // for a 2D collection, [w0 w1] is the same as the Y-coordinate range, since there's no standard deviation data
+      if(format.is2D() && getNumberOfSets() > 1)
+      {
+         res[6] = res[2];
+         res[7] = res[3];
+      }
+      
+      // make sure all the ranges at least make sense
+      for(int i=0; i<8; i+=2) if(res[i] > res[i+1])
+      {
+         res[i] = 0;
+         res[i+1] = 0;
+      }
       
-      if(isEmpty()) return;
+      if(format == Fmt.XYZIMG) System.arraycopy(imgRange, 0, res, 0, 4);
+      return(res);
+   }
+   
+   /**
+    * Helper method for {@link #computeStats()} scans a contiguous block of the data set. Coordinate ranges that are
+    * relevant to the data format are initialized to [+inf -inf] and updated as the block is scanned; the rest are set
+    * to [0 0]. The final sanity checks are left to the caller.
+    * 
+    * @param start Index of the first data point to scan. For {@link Fmt#RASTER1D}, this is an index into the 
+    * concatenated raster samples; for {@link Fmt#XYZIMG}, an index into the image data.
+    * @param end Index of the data point after the last one to scan.
+    * @return The statistics for the block scanned, in the form described in {@link #stats}.
+    */
+   private float[] scanStats(int start, int end)
+   {
+      float[] res = new float[NSTATS];
+      res[8] = -1;
       
       if(format == Fmt.RASTER1D)
       {
-         if(height == 0) return;    // special case: a collection of 1+ rasters, all of which are EMPTY!
-         coordRanges[0] = Float.POSITIVE_INFINITY;
-         coordRanges[1] = Float.NEGATIVE_INFINITY;
-         for(int i=width; i<fData.length; i++)
+         res[0] = Float.POSITIVE_INFINITY;
+         res[1] = Float.NEGATIVE_INFINITY;
+         for(int i=width+start; i<width+end; i++)
          {
-            if(fData[i] < coordRanges[0]) coordRanges[0] = fData[i];
-            if(fData[i] > coordRanges[1]) coordRanges[1] = fData[i];
+            if(fData.get(i) < res[0]) res[0] = fData.get(i);
+            if(fData.get(i) > res[1]) res[1] = fData.get(i);
          }
       }
       else if(format == Fmt.XYZIMG)
       {
-         coordRanges[4] = Float.POSITIVE_INFINITY;
-         coordRanges[5] = Float.NEGATIVE_INFINITY;
-         for(float f : fData)
+         res[4] = Float.POSITIVE_INFINITY;
+         res[5] = Float.NEGATIVE_INFINITY;
+         for(int i=start; i<end; i++)
          {
-            if(f < coordRanges[4]) coordRanges[4] = f;
-            if(f > coordRanges[5]) coordRanges[5] = f;
+            float f = fData.get(i);
+            if(f < res[4]) res[4] = f;
+            if(f > res[5]) res[5] = f;
          }
       }
-      else if(format == Fmt.XYZSET)
+      else if(format == Fmt.XYZSET || format == Fmt.XYZWSET)
       {
-         coordRanges[0] = Float.POSITIVE_INFINITY;
-         coordRanges[1] = Float.NEGATIVE_INFINITY;
-         coordRanges[2] = Float.POSITIVE_INFINITY;
-         coordRanges[3] = Float.NEGATIVE_INFINITY;
-         coordRanges[4] = Float.POSITIVE_INFINITY;
-         coordRanges[5] = Float.NEGATIVE_INFINITY;
-         for(int i=0; i<fData.length; i+=3)
+         int nDim = (format == Fmt.XYZSET) ? 3 : 4;
+         for(int k=0; k<2*nDim; k+=2)
          {
-            float f = fData[i]; 
-            if(f < coordRanges[0]) coordRanges[0] = f;
-            if(f > coordRanges[1]) coordRanges[1] = f;
-            
-            f = fData[i+1];
-            if(f < coordRanges[2]) coordRanges[2] = f;
-            if(f > coordRanges[3]) coordRanges[3] = f;
-
-            f = fData[i+2];
-            if(f < coordRanges[4]) coordRanges[4] = f;
-            if(f > coordRanges[5]) coordRanges[5] = f;
+            res[k] = Float.POSITIVE_INFINITY;
+            res[k+1] = Float.NEGATIVE_INFINITY;
          }
-      }
-      else if(format == Fmt.XYZWSET)
-      {
-         coordRanges[0] = Float.POSITIVE_INFINITY;
-         coordRanges[1] = Float.NEGATIVE_INFINITY;
-         coordRanges[2] = Float.POSITIVE_INFINITY;
-         coordRanges[3] = Float.NEGATIVE_INFINITY;
-         coordRanges[4] = Float.POSITIVE_INFINITY;
-         coordRanges[5] = Float.NEGATIVE_INFINITY;
-         coordRanges[6] = Float.POSITIVE_INFINITY;
-         coordRanges[7] = Float.NEGATIVE_INFINITY;
-         for(int i=0; i<fData.length; i+=4)
+         for(int i=start*nDim; i<end*nDim; i+=nDim)
          {
-            float f = fData[i]; 
-            if(f < coordRanges[0]) coordRanges[0] = f;
-            if(f > coordRanges[1]) coordRanges[1] = f;
-            
-            f = fData[i+1];
-            if(f < coordRanges[2]) coordRanges[2] = f;
-            if(f > coordRanges[3]) coordRanges[3] = f;
-
-            f = fData[i+2];
-            if(f < coordRanges[4]) coordRanges[4] = f;
-            if(f > coordRanges[5]) coordRanges[5] = f;
-            
-            f = fData[i+3];
-            if(f < coordRanges[6]) coordRanges[6] = f;
-            if(f > coordRanges[7]) coordRanges[7] = f;
+            for(int k=0; k<nDim; k++)
+            {
+               float f = fData.get(i+k);
+               if(f < res[2*k]) res[2*k] = f;
+               if(f > res[2*k+1]) res[2*k+1] = f;
+            }
          }
       }
       else 
       {
-         coordRanges[0] = Float.POSITIVE_INFINITY;
-         coordRanges[1] = Float.NEGATIVE_INFINITY;
-         coordRanges[2] = Float.POSITIVE_INFINITY;
-         coordRanges[3] = Float.NEGATIVE_INFINITY;
-         coordRanges[6] = Float.POSITIVE_INFINITY;
-         coordRanges[7] = Float.NEGATIVE_INFINITY;
+         res[0] = Float.POSITIVE_INFINITY;
+         res[1] = Float.NEGATIVE_INFINITY;
+         res[2] = Float.POSITIVE_INFINITY;
+         res[3] = Float.NEGATIVE_INFINITY;
+         res[6] = Float.POSITIVE_INFINITY;
+         res[7] = Float.NEGATIVE_INFINITY;
          
-         int n = getDataSize(0);
          int nSets = getNumberOfSets();
-
-         for(int i = 0; i < n; i++)
+         boolean hasErrorData = false;
+         for(int i = start; i < end; i++)
          {
             float xStd = getXStdDev(i);
             xStd = (xStd != 0 && Utilities.isWellDefined(xStd)) ? Math.abs(xStd) : 0;
@@ -2064,36 +2634,303 @@ public class DataSet implements Cloneable
             if(!hasErrorData) hasErrorData = (xStd != 0) || (yStd != 0);
             
             float x = getX(i, 0);
-            if((x-xStd) < coordRanges[0]) coordRanges[0] = x-xStd;
-            if((x+xStd) > coordRanges[1]) coordRanges[1] = x+xStd;
+            if((x-xStd) < res[0]) res[0] = x-xStd;
+            if((x+xStd) > res[1]) res[1] = x+xStd;
             if(nSets > 1)
             {
                for(int j = 0; j < nSets; j++)
                {
                   float y = getY(i,j);
-                  if(y < coordRanges[2]) coordRanges[2] = y;
-                  if(y > coordRanges[3]) coordRanges[3] = y;
+                  if(y < res[2]) res[2] = y;
+                  if(y > res[3]) res[3] = y;
                }
-               coordRanges[6] = coordRanges[2];
-               coordRanges[7] = coordRanges[3];
             }
             else
             {
                float y = getY(i, 0);
-               if(y < coordRanges[6]) coordRanges[6] = y;
-               if(y > coordRanges[7]) coordRanges[7] = y;
-               if((y-yStd) < coordRanges[2]) coordRanges[2] = y-yStd;
-               if((y+yStd) > coordRanges[3]) coordRanges[3] = y+yStd;
+               if(y < res[6]) res[6] = y;
+               if(y > res[7]) res[7] = y;
+               if((y-yStd) < res[2]) res[2] = y-yStd;
+               if((y+yStd) > res[3]) res[3] = y+yStd;
             }
          }
+         if(hasErrorData) res[8] = 1;
       }
       
-      // make sure all the ranges at least make sense
-      for(int i=0; i<8; i+=2) if(coordRanges[i] > coordRanges[i+1])
+      return(res);
+   }
+   
+   /** 
+    * Minimum number of data points per block when the statistics for a data set are computed in parallel. Data sets 
+    * with fewer than twice this many points are scanned sequentially on the calling thread.
+    */
+   private final static int MINSTATSCHUNK = 1 << 18;
+   
+   /** 
+    * The finest level of the min/max decimation pyramid. At level <i>L</i>, the data points are grouped in consecutive
+    * bins of <i>2^L</i> points each (the last bin may be partial). Finer levels are not worth the memory they would 
+    * consume, since up to four points are needed to represent each bin faithfully when the data is rendered.
+    */
+   public final static int MINDECIMATIONLEVEL = 4;
+   
+   /**
+    * Holder for the lazily computed min/max decimation pyramid of a {@link Fmt#SERIES} or {@link Fmt#PTSET} data set.
+    * Element <i>k</i> of the pyramid holds the bins at decimation level <i>L = {@link #MINDECIMATIONLEVEL} + k</i>: 
+    * for each bin <i>b</i>, elements <i>2b</i> and <i>2b+1</i> are the indices of the points with the minimum and 
+    * maximum y-coordinate in that bin. If the bin contains any ill-defined point, both indices are -1. The pyramid is 
+    * empty if the data set does not support decimation. Like the statistics, it is never modified once computed and is 
+    * shared by data set instances backed by the same raw data.
+    */
+   private static class DecimationHolder
+   {
+      /** The decimation pyramid, or null if not yet computed. */
+      private volatile int[][] levels = null;
+   }
+   
+   /** The min/max decimation pyramid for this data set, computed on first use. See {@link DecimationHolder}. */
+   private DecimationHolder decimation = new DecimationHolder();
+   
+   /** Multiplier for the polynomial hash that forms the lower 32 bits of the content digest. */
+   private final static int DIGESTMULT = 0x01000193;
+   
+   /**
+    * Holder for the lazily computed content digest of a data set. Once computed, the digest never changes; it is 
+    * published via a volatile flag, so it is safe for multiple threads to query the digest concurrently. Like the 
+    * statistics, it is shared by data set instances backed by the same raw data.
+    */
+   private static class DigestHolder
+   {
+      /** Flag set once the digest has been computed. */
+      private volatile boolean computed = false;
+      /** The content digest. Valid only if the flag is set. */
+      private long value = 0;
+   }
+   
+   /** The content digest for this data set, computed on first use. See {@link #getContentDigest()}. */
+   private DigestHolder digest = new DigestHolder();
+   
+   /**
+    * Helper method computes the content digest for {@link #getContentDigest()}. Like {@link #computeStats()}, it scans
+    * a large data set in parallel chunks on the common fork-join pool. Each chunk yields a pair of polynomial hashes 
+    * <i>H(chunk)</i> computed with zero seed; these are combined as <i>h = h*m^len(chunk) + H(chunk)</i>, where 
+    * <i>m</i> is the hash multiplier, which gives the same result as a sequential scan.
+    * @return The content digest.
+    */
+   private long computeDigest()
+   {
+      int n = getRawDataSize();
+      int nChunks = Math.max(1, Math.min(n / MINSTATSCHUNK, 4 * ForkJoinPool.getCommonPoolParallelism()));
+      List<ForkJoinTask<Long>> tasks = new ArrayList<>(nChunks);
+      if(nChunks > 1) for(int i=0; i<nChunks; i++)
+      {
+         final int start = (int) (((long) n) * i / nChunks);
+         final int end = (int) (((long) n) * (i+1) / nChunks);
+         tasks.add(ForkJoinPool.commonPool().submit(() -> scanDigest(start, end)));
+      }
+      
+      int h1 = 1;
+      int h2 = 1;
+      for(int i=0; i<nChunks; i++)
+      {
+         long partial = (nChunks == 1) ? scanDigest(0, n) : tasks.get(i).join();
+         int len = (int) (((long) n) * (i+1) / nChunks) - (int) (((long) n) * i / nChunks);
+         h1 = h1 * powerOf(31, len) + (int) (partial >>> 32);
+         h2 = h2 * powerOf(DIGESTMULT, len) + (int) partial;
+      }
+      return((((long) h1) << 32) | (h2 & 0xFFFFFFFFL));
+   }
+   
+   /**
+    * Helper method for {@link #computeDigest()} computes the pair of polynomial hashes, with zero seed, over a 
+    * contiguous range of elements in this data set's raw data array (see {@link #copyRawData()}).
+    * @param start Index of the first element.
+    * @param end Index of the element after the last one in the range.
+    * @return The hash for multiplier 31 in the upper 32 bits, and for multiplier {@link #DIGESTMULT} in the lower 32.
+    */
+   private long scanDigest(int start, int end)
+   {
+      int h1 = 0;
+      int h2 = 0;
+      float[] data = (rowStride == 0) ? fData.array() : null;
+      for(int i=start; i<end; i++)
+      {
+         int bits = Float.floatToIntBits((data != null) ? data[i] : getRawDatum(i));
+         h1 = 31 * h1 + bits;
+         h2 = DIGESTMULT * h2 + bits;
+      }
+      return((((long) h1) << 32) | (h2 & 0xFFFFFFFFL));
+   }
+   
+   /**
+    * Helper method computes an integer power, modulo 2^32.
+    * @param base The base.
+    * @param exp The exponent. Must be non-negative.
+    * @return The base raised to the specified power, modulo 2^32.
+    */
+   private static int powerOf(int base, int exp)
+   {
+      int res = 1;
+      while(exp > 0)
+      {
+         if((exp & 1) != 0) res *= base;
+         base *= base;
+         exp >>>= 1;
+      }
+      return(res);
+   }
+   
+   /**
+    * Helper method gets this data set's min/max decimation pyramid, computing it if this has not been done already. 
+    * @return The pyramid, as described in {@link DecimationHolder}. <b>Do not modify</b>.
+    */
+   private int[][] getDecimationPyramid()
+   {
+      int[][] levels = decimation.levels;
+      if(levels == null)
+      {
+         synchronized(decimation)
+         {
+            levels = decimation.levels;
+            if(levels == null)
+            {
+               levels = computeDecimationPyramid();
+               decimation.levels = levels;
+            }
+         }
+      }
+      return(levels);
+   }
+   
+   /**
+    * Get the coarsest level of this data set's min/max decimation pyramid. The pyramid is intended to speed up the 
+    * rendering of a very large data set as a polyline: when many consecutive points fall within the width of a single
+    * device pixel, the polyline through those points can be replaced by the polyline through the first point, the 
+    * points with minimum and maximum y-coordinate, and the last point -- without any visible difference. The pyramid 
+    * holds the indices of the min and max points for bins of <i>2^L</i> points, at every level <i>L</i> from {@link 
+    * #MINDECIMATIONLEVEL} up to the coarsest level returned here. It is computed on the first call to this method.
+    * 
+    * <p>Decimation is supported only for a {@link Fmt#SERIES} or {@link Fmt#PTSET} data set with at least <i>2^(L+1)
+    * </i> points, where <i>L = {@link #MINDECIMATIONLEVEL}</i>. For a point set, the well-defined x-coordinates must 
+    * be monotonic (either non-decreasing or non-increasing); else the bins would not correspond to contiguous spans 
+    * along the x-axis.</p>
+    * 
+    * @return The coarsest decimation level available, or 0 if decimation is not supported for this data set.
+    */
+   public int getMaxDecimationLevel()
+   {
+      int[][] levels = getDecimationPyramid();
+      return((levels.length == 0) ? 0 : MINDECIMATIONLEVEL + levels.length - 1);
+   }
+   
+   /**
+    * Get the indices of the points with the minimum and maximum y-coordinate in a bin of this data set's min/max 
+    * decimation pyramid. See {@link #getMaxDecimationLevel()}. Bin <i>b</i> at level <i>L</i> contains the points at
+    * indices <i>[b*2^L .. min((b+1)*2^L, N) - 1]</i>, where <i>N</i> is the number of points in the data set. Ties 
+    * are resolved in favor of the first occurrence.
+    * 
+    * @param level The decimation level <i>L</i>.
+    * @param bin The bin index <i>b</i>.
+    * @param indices A two-element array to receive the indices of the min and max points in the bin, in that order.
+    * @return False if the bin contains any ill-defined data point, in which case it cannot be decimated and the 
+    * <i>indices</i> array is not modified; else true.
+    * @throws IndexOutOfBoundsException if the decimation level or bin index is invalid, including when decimation is
+    * not supported for this data set.
+    */
+   public boolean getDecimatedMinMax(int level, int bin, int[] indices)
+   {
+      int[] bins = getDecimationPyramid()[level - MINDECIMATIONLEVEL];
+      int iMin = bins[2*bin];
+      if(iMin < 0) return(false);
+      indices[0] = iMin;
+      indices[1] = bins[2*bin + 1];
+      return(true);
+   }
+   
+   /**
+    * Helper method computes the min/max decimation pyramid for this data set. The finest level is computed from the raw
+    * data, and each coarser level is computed by merging pairs of bins from the level below it. 
+    * @return The pyramid, as described in {@link DecimationHolder}. It will be empty if decimation is not supported.
+    */
+   private int[][] computeDecimationPyramid()
+   {
+      int n = height;
+      if((format != Fmt.SERIES && format != Fmt.PTSET) || n < (1 << (MINDECIMATIONLEVEL + 1))) return(new int[0][]);
+      int yCol = (format == Fmt.PTSET) ? 1 : 0;
+      
+      // finest level from the raw data. For a point set, verify that the well-defined x-coordinates are monotonic.
+      int binSize = 1 << MINDECIMATIONLEVEL;
+      int nBins = (n + binSize - 1) / binSize;
+      int[] bins = new int[2*nBins];
+      int dir = 0;
+      float xLast = Float.NaN;
+      for(int b=0; b<nBins; b++)
+      {
+         int iMin = -1;
+         int iMax = -1;
+         float yMin = 0;
+         float yMax = 0;
+         boolean ok = true;
+         for(int i = b*binSize; i < Math.min(n, (b+1)*binSize); i++)
+         {
+            float y = fData.get(at(i, yCol));
+            if(format == Fmt.PTSET)
+            {
+               float x = fData.get(at(i, 0));
+               if(!Utilities.isWellDefined(x)) ok = false;
+               else
+               {
+                  if(Utilities.isWellDefined(xLast) && x != xLast)
+                  {
+                     int d = (x > xLast) ? 1 : -1;
+                     if(dir == 0) dir = d;
+                     else if(d != dir) return(new int[0][]);
+                  }
+                  xLast = x;
+               }
+            }
+            if(!Utilities.isWellDefined(y)) ok = false;
+            else if(iMin < 0)
+            {
+               iMin = iMax = i;
+               yMin = yMax = y;
+            }
+            else if(y < yMin) { iMin = i; yMin = y; }
+            else if(y > yMax) { iMax = i; yMax = y; }
+         }
+         bins[2*b] = ok ? iMin : -1;
+         bins[2*b + 1] = ok ? iMax : -1;
+      }
+      
+      // each coarser level merges pairs of bins from the level below, until there is only one bin
+      List<int[]> levels = new ArrayList<>();
+      levels.add(bins);
+      while(nBins > 1)
       {
-         coordRanges[i] = 0;
-         coordRanges[i+1] = 0;
+         int[] prev = bins;
+         int nPrev = nBins;
+         nBins = (nPrev + 1) / 2;
+         bins = new int[2*nBins];
+         for(int b=0; b<nBins; b++)
+         {
+            int left = 2*b;
+            int right = 2*b + 1;
+            if(right >= nPrev || prev[2*left] < 0 || prev[2*right] < 0)
+            {
+               bins[2*b] = (right >= nPrev) ? prev[2*left] : -1;
+               bins[2*b + 1] = (right >= nPrev) ? prev[2*left + 1] : -1;
+               continue;
+            }
+            int iMin = prev[2*left];
+            if(fData.get(at(prev[2*right], yCol)) < fData.get(at(iMin, yCol))) iMin = prev[2*right];
+            int iMax = prev[2*left + 1];
+            if(fData.get(at(prev[2*right + 1], yCol)) > fData.get(at(iMax, yCol))) iMax = prev[2*right + 1];
+            bins[2*b] = iMin;
+            bins[2*b + 1] = iMax;
+         }
+         levels.add(bins);
       }
+      
+      return(levels.toArray(new int[0][]));
    }
    
    /**
@@ -2104,7 +2941,7 @@ public class DataSet implements Cloneable
     */
    public int getNumberOfSets()
    {
-      if(fData.length == 0) return(0);
+      if(isEmpty()) return(0);
       int n = 1;
       if(format == Fmt.MSERIES || format == Fmt.RASTER1D) n = width;
       else if(format == Fmt.MSET) n = width - 1;
@@ -2135,7 +2972,7 @@ public class DataSet implements Cloneable
       if(format == Fmt.RASTER1D)
       {
          if(iSet < 0 || iSet >= width) throw new IndexOutOfBoundsException();
-         return((int)fData[iSet]);
+         return((int)fData.get(iSet));
       }
       else return((format == Fmt.XYZIMG) ? width*height : height);
    }
@@ -2145,7 +2982,7 @@ public class DataSet implements Cloneable
     * @return True if data set contains no data. (Note that a {@link Fmt#RASTER1D} collection of one or more EMPTY 
     * rasters is not considered empty.)
     */
-   public boolean isEmpty() { return(fData.length == 0); }
+   public boolean isEmpty() { return(getRawDataSize() == 0); }
    
    /**
     * Retrieve the x-coordinate of a single specified point in this data set.
@@ -2174,7 +3011,7 @@ public class DataSet implements Cloneable
          case MSET : 
          case XYZSET :
          case XYZWSET :
-            x = fData[pos*width]; 
+            x = fData.get(at(pos, 0)); 
             break;
          case SERIES :
          case MSERIES :
@@ -2182,11 +3019,11 @@ public class DataSet implements Cloneable
             break;
          case RASTER1D :
             int start = width;
-            for(int i=0; i<iSet; i++) start += (int) fData[i];
-            x = fData[start + pos];
+            for(int i=0; i<iSet; i++) start += (int) fData.get(i);
+            x = fData.get(start + pos);
             break;
          case XYZIMG :
-            x = ((float) (pos % width)) * (coordRanges[1] - coordRanges[0])  + coordRanges[0];
+            x = ((float) (pos % width)) * (imgRange[1] - imgRange[0])  + imgRange[0];
             break;
       }
       return(x);
@@ -2201,7 +3038,7 @@ public class DataSet implements Cloneable
    public float getXStdDev(int pos)
    {
       if(pos < 0 || (format != Fmt.RASTER1D && pos >= getDataSize(0))) throw new IndexOutOfBoundsException();
-      return((format != Fmt.PTSET || width < 5) ? 0 : fData[pos*width + 4]);
+      return((format != Fmt.PTSET || width < 5) ? 0 : fData.get(at(pos, 4)));
    }
    
    /**
@@ -2220,7 +3057,7 @@ public class DataSet implements Cloneable
   public int getXErrorBarStyle(int pos)
    {
      if(pos < 0 || (format != Fmt.RASTER1D && pos >= getDataSize(0))) throw new IndexOutOfBoundsException();
-     return((format != Fmt.PTSET) ? 2 : ((width < 6) ? 0 : (int) fData[pos*width + 5]));
+     return((format != Fmt.PTSET) ? 2 : ((width < 6) ? 0 : (int) fData.get(at(pos, 5))));
    }
    
   /**
@@ -2252,19 +3089,19 @@ public class DataSet implements Cloneable
          case SERIES : 
          case XYZSET :
          case XYZWSET :
-            y = fData[pos*width + offset]; 
+            y = fData.get(at(pos, offset)); 
             break;
          case MSET : 
          case MSERIES :
             if(!doAvg)
-               y = fData[pos*width + iSet + offset]; 
+               y = fData.get(at(pos, iSet + offset)); 
             else
             {
                double sum = 0;
                int n = 0;
                for(int i=0; i<getNumberOfSets(); i++) 
                {
-                  float f = fData[pos*width + i + offset];
+                  float f = fData.get(at(pos, i + offset));
                   if(Utilities.isWellDefined(f)) { sum += f; ++n; }
                }
                y = (n == 0) ? Float.NaN : ((float) (sum/n));
@@ -2274,7 +3111,7 @@ public class DataSet implements Cloneable
             y = Float.NaN; 
             break;
          case XYZIMG :
-            y = ((float) (pos / width)) * (coordRanges[3] - coordRanges[2])  + coordRanges[2];
+            y = ((float) (pos / width)) * (imgRange[3] - imgRange[2])  + imgRange[2];
             break;
       }
       return(y);
@@ -2304,7 +3141,7 @@ public class DataSet implements Cloneable
          case PTSET : 
          case SERIES : 
             offset = (format == Fmt.PTSET) ? 2 : 1;
-            yStd = (offset < width) ? fData[pos*width + offset] : 0; 
+            yStd = (offset < width) ? fData.get(at(pos, offset)) : 0; 
             break;
          case MSET : 
          case MSERIES :
@@ -2317,7 +3154,7 @@ public class DataSet implements Cloneable
                int n = 0;
                for(int i=0; i<getNumberOfSets(); i++) 
                {
-                  float f = fData[pos*width + i + offset];
+                  float f = fData.get(at(pos, i + offset));
                   if(Utilities.isWellDefined(f)) 
                   { 
                      double diff = mean - f;
@@ -2362,8 +3199,8 @@ public class DataSet implements Cloneable
       if(format.is2D())
       {
          style = 0;
-         if(format == Fmt.PTSET && width >= 4) style = (int) fData[pos*width + 3];
-         else if(format == Fmt.SERIES && width >= 3) style = (int) fData[pos*width + 2];
+         if(format == Fmt.PTSET && width >= 4) style = (int) fData.get(at(pos, 3));
+         else if(format == Fmt.SERIES && width >= 3) style = (int) fData.get(at(pos, 2));
       }
       return(style);
    }
@@ -2384,8 +3221,8 @@ public class DataSet implements Cloneable
       {
          if(pos < 0 || pos >= getDataSize(0)) throw new IndexOutOfBoundsException();
       
-         if(format == Fmt.XYZIMG) z = fData[pos]; 
-         else z = fData[pos*width + 2];
+         if(format == Fmt.XYZIMG) z = fData.get(pos); 
+         else z = fData.get(pos*width + 2);
       }
       return(z);
    }
@@ -2403,7 +3240,7 @@ public class DataSet implements Cloneable
       if(format == Fmt.XYZWSET)
       {
          if(pos < 0 || pos >= getDataSize(0)) throw new IndexOutOfBoundsException();
-         z = fData[pos*width + 3];
+         z = fData.get(pos*width + 3);
       }
       return(z);
    }
@@ -2449,30 +3286,33 @@ public class DataSet implements Cloneable
       int imgH = Math.min(bi.getHeight(), height);
       if(imgW == 0 || imgH == 0) return(true);
       
-      float zMin = (range == null) ? coordRanges[4] : range[0];
-      float zMax = (range == null) ? coordRanges[5] : range[1];
+      float zMin = (range == null) ? getZMin() : range[0];
+      float zMax = (range == null) ? getZMax() : range[1];
       if(zMin == zMax) return(false);
       
       float zRng = zMax-zMin;
       if(isLog) zRng = (float) Math.log10(zRng + 1);
       int len = colormap.length - 1;
       
+      // each image row is prepared in a scratch array and written to the image in one go
+      int[] rowRGB = new int[imgW];
       for(int j=0; j<imgH; j++)
       {
          for(int i=0; i<imgW; i++)
          {
             int k = j*width + i;
-            float val = Utilities.rangeRestrict(zMin, zMax, fData[k]);
-            if(!Utilities.isWellDefined(val)) bi.setRGB(i, j, colormap[0]);
+            float val = Utilities.rangeRestrict(zMin, zMax, fData.get(k));
+            if(!Utilities.isWellDefined(val)) rowRGB[i] = colormap[0];
             else
             {
                int idx;
                if(isLog) idx = (int) (Math.log10(val-zMin+1) * len / zRng);
                else idx = (int) (((val-zMin) * len) / zRng);
                if(idx == len) --idx;
-               bi.setRGB(i, j, colormap[idx+1]); 
+               rowRGB[i] = colormap[idx+1]; 
             }
          }
+         bi.setRGB(0, j, imgW, 1, rowRGB, 0, imgW);
       }
       return(true);
    }
@@ -2491,6 +3331,9 @@ public class DataSet implements Cloneable
     * ill-defined (infinite or NaN) datum is mapped to index 0. Thus, the image data provided by this iterator 
     * represents an indexed-color image consistent with the buffered image created by <code>prepareImage()</code>. 
     * 
+    * <p>The iterator is a primitive iterator, so callers that stream a large image should use {@link 
+    * PrimitiveIterator.OfInt#nextInt()} rather than <code>next()</code> to avoid boxing each pixel value.</p>
+    * 
     * @param n The length of the colormap through which the indexed-color image data might be passed to generate a
     * physical image of the underlying data.
     * @param range Desired data range that should be mapped onto colormap array. If <code>null</code>, the observed
@@ -2499,7 +3342,7 @@ public class DataSet implements Cloneable
     * @return The image data iterator, or <code>null</code> if this is not a <code>Fmt.XYZIMG</code> dataset, or if the
     * <code>range</code> argument is invalid.
     */
-   public Iterator<Integer> getIndexedImageDataIterator(int n, float[] range, boolean isLog)
+   public PrimitiveIterator.OfInt getIndexedImageDataIterator(int n, float[] range, boolean isLog)
    {
       if(format != Fmt.XYZIMG || (range != null && (range.length != 2 || range[0] >= range[1]))) return(null);
       return(new ImageDataProducer(n, range, isLog));
@@ -2508,10 +3351,110 @@ public class DataSet implements Cloneable
    /**
     * Get an iterator that traverses the internal raw data array for this data set from start to finish. This iterator
     * is intended for use when writing the data set object to file or other output stream. It exposes the raw data
-    * array in a read-only -- and, hopefully, a fast and efficient -- manner.
+    * array in a read-only -- and, hopefully, a fast and efficient -- manner. It is a primitive iterator; use {@link 
+    * PrimitiveIterator.OfDouble#nextDouble()} to avoid boxing each datum. Since the raw data is single-precision, 
+    * each datum is exactly representable as a double.
     * @return An iterator over this dataset's raw data array. If the data set is emtpy, it will have no elements!
     */
-   public Iterator<Float> getRawDataIterator() { return( new RawDataProducer()); }
+   public PrimitiveIterator.OfDouble getRawDataIterator() { return( new RawDataProducer()); }
+   
+   /** Buffer size for the byte streams used to encode or decode a data set in base-64 binary format. */
+   private final static int STREAMBUFSZ = 8192;
+   
+   /**
+    * Helper class exposes a sequence of US-ASCII characters -- like the base-64 encoding of a data set -- as an input
+    * byte stream, one byte per character. A non-ASCII character, which cannot occur in base-64 text, reads as a space.
+    * Characters are copied out of the sequence in chunks, in bulk when the sequence is a string or string buffer. This 
+    * matters for a {@link StringBuffer}, all of whose methods are synchronized, since the base-64 decoder reads the
+    * stream one byte at a time.
+    */
+   private static class AsciiCharsInputStream extends InputStream
+   {
+      AsciiCharsInputStream(CharSequence text) { this.text = text; }
+
+      @Override public int read()
+      {
+         if(iBuf >= nBuf && !fillBuffer()) return(-1);
+         char c = chars[iBuf++];
+         return(c < 0x80 ? c : ' ');
+      }
+
+      @Override public int read(byte[] b, int off, int len)
+      {
+         if(len == 0) return(0);
+         if(iBuf >= nBuf && !fillBuffer()) return(-1);
+         int n = Math.min(len, nBuf - iBuf);
+         for(int i=0; i<n; i++)
+         {
+            char c = chars[iBuf++];
+            b[off + i] = (byte) (c < 0x80 ? c : ' ');
+         }
+         return(n);
+      }
+
+      @Override public int available() { return(nBuf - iBuf + text.length() - pos); }
+
+      /**
+       * Helper method copies the next chunk of characters from the sequence into the internal buffer.
+       * @return False if the end of the character sequence has been reached.
+       */
+      private boolean fillBuffer()
+      {
+         int n = Math.min(chars.length, text.length() - pos);
+         if(n <= 0) return(false);
+         if(text instanceof String) ((String) text).getChars(pos, pos + n, chars, 0);
+         else if(text instanceof StringBuffer) ((StringBuffer) text).getChars(pos, pos + n, chars, 0);
+         else if(text instanceof StringBuilder) ((StringBuilder) text).getChars(pos, pos + n, chars, 0);
+         else for(int i=0; i<n; i++) chars[i] = text.charAt(pos + i);
+         pos += n;
+         nBuf = n;
+         iBuf = 0;
+         return(true);
+      }
+
+      /** The character sequence. */
+      private final CharSequence text;
+      /** Index of the next character to be copied from the sequence into the internal buffer. */
+      private int pos = 0;
+      /** Internal buffer holding the current chunk of characters copied from the sequence. */
+      private final char[] chars = new char[STREAMBUFSZ];
+      /** Number of characters in the internal buffer. */
+      private int nBuf = 0;
+      /** Index of the next character to be read from the internal buffer. */
+      private int iBuf = 0;
+   }
+   
+   /**
+    * Helper class exposes a character stream writer as an output byte stream, writing each byte as a single character
+    * in the US-ASCII (or ISO-8859-1) character set. Intended only for writing base-64 encoded text, which is entirely
+    * ASCII. Flushing the stream flushes the writer, but closing the stream does NOT close the writer.
+    */
+   private static class AsciiCharsOutputStream extends OutputStream
+   {
+      AsciiCharsOutputStream(Writer wrt) { this.wrt = wrt; }
+
+      @Override public void write(int b) throws IOException { wrt.write(b & 0xFF); }
+
+      @Override public void write(byte[] b, int off, int len) throws IOException
+      {
+         while(len > 0)
+         {
+            int n = Math.min(len, chars.length);
+            for(int i=0; i<n; i++) chars[i] = (char) (b[off + i] & 0xFF);
+            wrt.write(chars, 0, n);
+            off += n;
+            len -= n;
+         }
+      }
+
+      @Override public void flush() throws IOException { wrt.flush(); }
+      @Override public void close() {}
+
+      /** The character stream writer. */
+      private final Writer wrt;
+      /** Buffer for converting bytes to characters. */
+      private final char[] chars = new char[1024];
+   }
    
    /**
     * Helper class providing an iterator over the "image data" in a {@link Fmt#XYZIMG} data set. It provides, for each 
@@ -2523,7 +3466,7 @@ public class DataSet implements Cloneable
     * 
     * @author sruffner
     */
-   private class ImageDataProducer implements Iterable<Integer>, Iterator<Integer>
+   private class ImageDataProducer implements Iterable<Integer>, PrimitiveIterator.OfInt
    {
       final int len;
       final float[] range;
@@ -2531,8 +3474,7 @@ public class DataSet implements Cloneable
       final float zMin;
       final float zMax;
       final float zRng;
-      int iRow = 0;
-      int iCol = 0;
+      int idxDatum = 0;
       boolean done;
       
       public Iterator<Integer> iterator() { return(new ImageDataProducer(len, range, isLog)); }
@@ -2546,19 +3488,19 @@ public class DataSet implements Cloneable
          done = format != Fmt.XYZIMG || width == 0 || height == 0 || len <= 0;   // ridiculous cases
          if(!done) done = (rng != null) && (rng.length != 2);
          
-         zMin = (range == null) ? coordRanges[4] : range[0];
-         zMax = (range == null) ? coordRanges[5] : range[1];
+         zMin = (range == null) ? getZMin() : range[0];
+         zMax = (range == null) ? getZMax() : range[1];
          if(!done) done = (zMin >= zMax);
          zRng = done ? 1 : (isLog ? (float)Math.log10(zMax-zMin+1) : (zMax-zMin)); 
       }
 
       public boolean hasNext() { return(!done); }
 
-      public Integer next()
+      public int nextInt()
       {
          if(!hasNext()) throw new NoSuchElementException("Out of elements.");
 
-         float val = Utilities.rangeRestrict(zMin, zMax, fData[iRow*width + iCol]);
+         float val = Utilities.rangeRestrict(zMin, zMax, fData.get(idxDatum));
          int idx = 0;
          if(Utilities.isWellDefined(val))
          {
@@ -2566,11 +3508,7 @@ public class DataSet implements Cloneable
             else idx = (int) (((val-zMin) * (len-1)) / zRng);
             idx = Utilities.rangeRestrict(0, len-2, idx) + 1;
          }
-         if(++iCol == width)
-         {
-            iCol = 0;
-            if(++iRow == height) done = true;
-         }
+         if(++idxDatum == width*height) done = true;
          
          return(idx);
       }
@@ -2586,18 +3524,24 @@ public class DataSet implements Cloneable
     * internal raw data array.
     * @author  sruffner
     */
-   private class RawDataProducer implements Iterable<Float>, Iterator<Float>
+   private class RawDataProducer implements Iterable<Double>, PrimitiveIterator.OfDouble
    {
       int idx = 0;
       
-      public Iterator<Float> iterator() { return(new RawDataProducer()); }
+      public Iterator<Double> iterator() { return(new RawDataProducer()); }
 
-      public boolean hasNext() { return(idx < fData.length); }
+      public boolean hasNext() { return(idx < getRawDataSize()); }
 
-      public Float next()
+      public double nextDouble()
       {
-         if(idx >= fData.length) throw new NoSuchElementException("Out of elements.");
-         return(fData[idx++]);
+         if(idx >= getRawDataSize()) throw new NoSuchElementException("Out of elements.");
+         if(rowStride != 0)
+         {
+            float f = fData.get(at(idx / width, idx % width));
+            ++idx;
+            return(f);
+         }
+         return(fData.get(idx++));
       }
 
       public void remove()
@@ -0,0 +1,256 @@
+package com.srscicomp.fc.data;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory cache of recently used {@link DataSet}s, bounded by the total number of bytes occupied by the cached
+ * data rather than by the number of data sets. A single data set can range from a few bytes to tens of megabytes, so an
+ * entry-count limit either squanders the available heap on a few large sets or leaves it unused when the sets are
+ * small. Here each entry is charged 4 bytes per raw data sample (see {@link DataSet#getRawDataSize()}), plus a small
+ * fixed overhead, and entries are evicted in least-recently-used order whenever the total charge exceeds the cache's
+ * byte budget. A data set whose charge alone exceeds the budget is never cached.
+ *
+ * <p>The byte budget bounds the cache's footprint, but the cache never holds a data set strongly: each entry keeps only
+ * a soft reference to its data set, so the garbage collector can still reclaim cached sets when the heap runs low --
+ * which matters because every data source holds its own cache. An entry whose data set was reclaimed is dropped the
+ * next time the cache is accessed, and is counted as an eviction.</p>
+ *
+ * <p>The cache is keyed by an arbitrary key type so that it may be shared by the various data source implementations:
+ * {@link DataSetRepository} keys its cache by data set UID, while the text-based sources key by data set ID. It also
+ * maintains hit, miss, and eviction counters to help tune the byte budget. All methods are synchronized, so a single
+ * cache instance may be accessed safely from multiple threads. The data sources refer to the cache only through the 
+ * {@link IDataSetCache} interface.</p>
+ *
+ * @param <K> The key type.
+ * @author sruffner
+ */
+public final class DataSetCache<K> implements IDataSetCache<K>
+{
+   /**
+    * Construct an empty data set cache with the default byte budget: one-eighth of the maximum heap size available to
+    * the JVM, but no more than {@link #DEFAULT_MAXBYTES}.
+    */
+   public DataSetCache() { this(Math.min(DEFAULT_MAXBYTES, Runtime.getRuntime().maxMemory() / 8)); }
+
+   /**
+    * Construct an empty data set cache with the specified byte budget.
+    * @param maxBytes Maximum total number of bytes charged to cached data sets. If non-positive, the cache is disabled
+    * and will not retain any data set.
+    */
+   public DataSetCache(long maxBytes)
+   {
+      this.maxBytes = Math.max(0, maxBytes);
+      entries = new LinkedHashMap<>(16, 0.75f, true);
+   }
+
+   /**
+    * Get the cache's byte budget.
+    * @return Maximum total number of bytes charged to data sets in the cache.
+    */
+   @Override public synchronized long getMaxBytes() { return(maxBytes); }
+
+   /**
+    * Set the cache's byte budget. If the new budget is smaller than the current total charge, least recently used
+    * entries are evicted until the cache is within budget.
+    * @param maxBytes Maximum total number of bytes charged to cached data sets. If non-positive, the cache is emptied
+    * and disabled.
+    */
+   @Override public synchronized void setMaxBytes(long maxBytes)
+   {
+      expungeReclaimed();
+      this.maxBytes = Math.max(0, maxBytes);
+      evictToBudget();
+   }
+
+   /**
+    * Get the total number of bytes currently charged to data sets in the cache.
+    * @return Total charge in bytes.
+    */
+   public synchronized long getByteCount()
+   {
+      expungeReclaimed();
+      return(nBytes);
+   }
+
+   /**
+    * Get the number of data sets currently in the cache.
+    * @return Number of cached data sets.
+    */
+   public synchronized int size()
+   {
+      expungeReclaimed();
+      return(entries.size());
+   }
+
+   /**
+    * Get the number of calls to {@link #get} that found the requested data set in the cache.
+    * @return Cumulative hit count since construction or the last call to {@link #resetStatistics()}.
+    */
+   public synchronized long getHitCount() { return(nHits); }
+
+   /**
+    * Get the number of calls to {@link #get} that did not find the requested data set in the cache.
+    * @return Cumulative miss count since construction or the last call to {@link #resetStatistics()}.
+    */
+   public synchronized long getMissCount() { return(nMisses); }
+
+   /**
+    * Get the number of data sets evicted from the cache to make room for others. Entries that are explicitly removed or
+    * replaced, or discarded when the cache is cleared, are not counted as evictions.
+    * @return Cumulative eviction count since construction or the last call to {@link #resetStatistics()}.
+    */
+   public synchronized long getEvictionCount() { return(nEvictions); }
+
+   /** Reset the cache's hit, miss and eviction counters to zero. The cache contents are unaffected. */
+   public synchronized void resetStatistics() { nHits = nMisses = nEvictions = 0; }
+
+   /**
+    * Retrieve a data set from the cache. If found, the entry becomes the most recently used.
+    * @param key The data set key.
+    * @return The cached data set, or null if it is not in the cache or was reclaimed by the garbage collector.
+    */
+   @Override public synchronized DataSet get(K key)
+   {
+      expungeReclaimed();
+      Entry e = entries.get(key);
+      DataSet ds = (e == null) ? null : e.get();
+      if(ds == null)
+      {
+         if(e != null) remove(key);
+         ++nMisses;
+         return(null);
+      }
+      ++nHits;
+      return(ds);
+   }
+
+   /**
+    * Store a data set in the cache as the most recently used entry, replacing any data set previously stored under the
+    * same key. Least recently used entries are then evicted as needed to keep the cache within its byte budget. If the
+    * data set's own charge exceeds the byte budget, it is not cached -- but any entry previously stored under the same
+    * key is still removed.
+    * @param key The data set key.
+    * @param ds The data set to cache. If null, this method is equivalent to {@link #remove}.
+    */
+   @Override public synchronized void put(K key, DataSet ds)
+   {
+      expungeReclaimed();
+      remove(key);
+      if(ds == null) return;
+
+      long charge = chargeFor(ds);
+      if(charge > maxBytes) return;
+      entries.put(key, new Entry(key, ds, charge, reclaimed));
+      nBytes += charge;
+      evictToBudget();
+   }
+
+   /**
+    * Remove a data set from the cache, if it is there.
+    * @param key The data set key.
+    * @return The data set removed, or null if there was no cache entry for the specified key or the entry's data set
+    * was reclaimed by the garbage collector.
+    */
+   @Override public synchronized DataSet remove(K key)
+   {
+      Entry e = entries.remove(key);
+      if(e == null) return(null);
+      nBytes -= e.charge;
+      return(e.get());
+   }
+
+   /** Remove all data sets from the cache. The hit, miss and eviction counters are unaffected. */
+   @Override public synchronized void clear()
+   {
+      entries.clear();
+      nBytes = 0;
+      while(reclaimed.poll() != null) ;
+   }
+
+   @Override public synchronized String toString()
+   {
+      expungeReclaimed();
+      long nLookups = nHits + nMisses;
+      return(String.format("%d sets, %.1f of %.1f MB; hits=%d, misses=%d (hit rate %.1f%%), evictions=%d",
+            entries.size(), nBytes / 1048576.0, maxBytes / 1048576.0, nHits, nMisses,
+            (nLookups == 0) ? 0.0 : 100.0 * nHits / nLookups, nEvictions));
+   }
+
+   /**
+    * Helper method evicts least recently used entries until the total charge no longer exceeds the byte budget. The
+    * cache's backing map is maintained in access order, so the least recently used entries come first.
+    */
+   private void evictToBudget()
+   {
+      Iterator<Map.Entry<K, Entry>> iter = entries.entrySet().iterator();
+      while(nBytes > maxBytes && iter.hasNext())
+      {
+         nBytes -= iter.next().getValue().charge;
+         iter.remove();
+         ++nEvictions;
+      }
+   }
+
+   /**
+    * Helper method drops every entry whose data set has been reclaimed by the garbage collector since the last call,
+    * crediting its charge back to the byte budget. An entry that was already removed or replaced is ignored.
+    */
+   private void expungeReclaimed()
+   {
+      Object ref;
+      while((ref = reclaimed.poll()) != null)
+      {
+         @SuppressWarnings("unchecked") Entry e = (Entry) ref;
+         if(entries.get(e.key) == e)
+         {
+            entries.remove(e.key);
+            nBytes -= e.charge;
+            ++nEvictions;
+         }
+      }
+   }
+
+   /**
+    * Compute the number of bytes charged to a data set stored in the cache.
+    * @param ds A data set.
+    * @return Four bytes per raw data sample, plus a fixed per-entry overhead.
+    */
+   private static long chargeFor(DataSet ds) { return(ENTRYOVERHEAD + 4L * ds.getRawDataSize()); }
+
+   /** A cache entry: a soft reference to the cached data set, plus its key and the number of bytes charged to it. */
+   private class Entry extends SoftReference<DataSet>
+   {
+      Entry(K key, DataSet ds, long charge, ReferenceQueue<DataSet> q)
+      {
+         super(ds, q);
+         this.key = key;
+         this.charge = charge;
+      }
+      final K key;
+      final long charge;
+   }
+
+   /** Data set cache entries, in least-to-most recently used order. */
+   private final LinkedHashMap<K, Entry> entries;
+   /** Entries whose data sets have been reclaimed by the garbage collector are enqueued here. */
+   private final ReferenceQueue<DataSet> reclaimed = new ReferenceQueue<>();
+   /** Maximum total number of bytes charged to cached data sets. */
+   private long maxBytes;
+   /** Total number of bytes currently charged to cached data sets. */
+   private long nBytes = 0;
+   /** Number of cache hits. */
+   private long nHits = 0;
+   /** Number of cache misses. */
+   private long nMisses = 0;
+   /** Number of entries evicted to keep the cache within its byte budget. */
+   private long nEvictions = 0;
+
+   /** The default maximum byte budget for a data set cache (64MB). */
+   public final static long DEFAULT_MAXBYTES = 64L * 1024L * 1024L;
+   /** Approximate fixed memory overhead charged to each cache entry, in bytes: data set object, ID, map entry. */
+   private final static long ENTRYOVERHEAD = 256;
+}
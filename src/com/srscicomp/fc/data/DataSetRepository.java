@@ -9,14 +9,26 @@ import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import com.srscicomp.common.util.Utilities;
 
@@ -35,8 +47,32 @@ import com.srscicomp.common.util.Utilities;
  * reference to the now-defunct <i>DataNav</i> in this source code file!</p>
  * 
  * <p>To improve performance, the repository proxy maintains an in-memory cache of data sets recently added to or
- * retrieved from the physical file. Only a soft reference to each data set is kept in the cache so that the garbage
- * collector can reclaim the memory used by a cached set as needed.</p>
+ * retrieved from the physical file. The cache is bounded by the total size of the cached data rather than the number of
+ * data sets, and the least recently used sets are evicted as needed to stay within that budget. Use {@link #getCache()}
+ * to adjust the budget or to check the cache's hit, miss and eviction counts. See {@link DataSetCache}. A different
+ * cache implementation -- e.g., one shared by several repositories -- may be installed via {@link 
+ * #setCache(IDataSetCache)}.</p>
+ * 
+ * <p>The repository proxy is safe for use by multiple threads. Operations that only read the repository -- retrieving 
+ * a data set or its summary information, listing UIDs, and so on -- may proceed concurrently, while any operation that
+ * modifies the file or the proxy's state has exclusive access. Thus a figure's data sets may be loaded in parallel on
+ * worker threads.</p>
+ * 
+ * <p>As data sets are added and removed, a repository file accumulates unoccupied blocks, as well as occupied blocks 
+ * that are larger than necessary. {@link #getFragmentation()} measures the fraction of the file that is wasted in this
+ * way. {@link #compact()} rewrites the entire file and blocks all other operations while it does so. Alternatively, 
+ * the file can be compacted in place, a few blocks at a time, on a background thread -- see {@link 
+ * #startBackgroundCompaction(double)} and {@link #setAutoCompaction(double)}. The repository remains accessible 
+ * throughout, but in-place compaction cannot reclaim the unused space in an occupied block.</p>
+ * 
+ * <p>Optionally, the raw data arrays of larger data sets may be compressed when stored in the repository file; see 
+ * {@link #setCompressionPolicy(Codec, int, double)}. Decompression on retrieval is transparent. Compression is disabled
+ * by default, since older versions of this class cannot read a repository file containing compressed data sets.</p>
+ * 
+ * <p>Finding a data set by its ID string ordinarily requires the block index of every data section, and preloading 
+ * a large repository file can take a while. If the repository's data sets have unique IDs, a <i>persistent ID 
+ * index</i> may be maintained instead; see {@link #setIDIndexEnabled(boolean)}. With it, {@link #findUID(String)} and 
+ * {@link #get(int)} can locate and retrieve a data set without preloading the file at all.</p>
  * 
  * <h2>Format description</h2>
  * <p>The file begins with an 8-byte tag followed by one or more <i>data sections</i>, each of which contain up to 500 
@@ -72,7 +108,9 @@ import com.srscicomp.common.util.Utilities;
  *    <ul>
  *       <li>Bytes 55-16: ID string, null-terminated and padded if the ID is less than 40 characters long. Single-byte 
  *       ASCII characters. Must satisfy the constraints defined by {@link DataSet#isValidIDString(String)}.</li>
- *       <li>Bytes 59-56: (int) Data format code. See {@link DataSet.Fmt} for the set of recognized values.</li>
+ *       <li>Bytes 59-56: (int) Data format code. See {@link DataSet.Fmt} for the set of recognized values. The 
+ *       code occupies the low-order byte; the next byte holds the integer code of the {@link Codec} with which the 
+ *       raw data array is compressed (0 if it is not compressed), and the two high-order bytes must be zero.</li>
  *       <li>Bytes 63-60: (int) Number of rows in data matrix, <i>N</i>. See {@link DataSet#getDataLength()}.</li>
  *       <li>Bytes 67-64: (int) Number of columns in data matrix, <i>M</i>. See {@link DataSet#getDataBreadth()}.</li>
  *       <li>Bytes 83-68: (float[4]) Four single-precision floating-pt parameters. For the SERIES and MSERIES formats, 
@@ -94,6 +132,13 @@ import com.srscicomp.common.util.Utilities;
  *    remaining <i>N</i>  elements are the raster samples: <i>[n1 n2 .. nM x1(1..n1) x2(1..n2) .. xM(1..nM)]</i>. Note 
  *    that <i>N = n1+n2+ .. +nM</i>. In this case, the array length <i>L=N+M</i>.</li>
  * </ul>
+ * 
+ * If the raw data array is compressed, the block layout is slightly different:
+ * <ul>
+ *    <li>Bytes 3-0: (int) The UID.</li>
+ *    <li>Bytes 7-4: (int) The length <i>K</i> of the compressed raw data array, in bytes.</li>
+ *    <li>Bytes 8+ : (byte[K]) The compressed raw data array. See {@link Codec}.</li>
+ * </ul>
  * </p> 
  * 
  * <p>If there is more than one section in the file, the block index for each section begins immediately after the
@@ -103,11 +148,63 @@ import com.srscicomp.common.util.Utilities;
  * unoccupied blocks in the file. It is always the case that, in a repository file with N sections, the first N-1
  * sections will be fully allocated (but not necessarily fully <i>occupied</i>).</p>
  * 
+ * <p>The persistent ID index is a sidecar file written in the same byte order as the repository file. By default, it 
+ * has the same path as the repository file plus the extension ".idx"; see {@link #setIDIndexPath(File)}. It is a hash
+ * table, with open addressing and linear probing, keyed by data set ID. The file begins with a 40-byte header:
+ * <ul>
+ *    <li>Bytes 3-0: The tag 0x494E4440 ("@DNI").</li>
+ *    <li>Bytes 7-4: (int) The number of slots <i>C</i> in the hash table, a power of two.</li>
+ *    <li>Bytes 11-8: (int) The number of occupied slots.</li>
+ *    <li>Bytes 15-12: (int) The number of slots that are occupied or were occupied by a since-removed data set.</li>
+ *    <li>Bytes 23-16: (long) The size of the repository file when the ID index was last updated, or -1 while an 
+ *    update is in progress.</li>
+ *    <li>Bytes 31-24: (long) The modification time of the repository file when the ID index was last updated.</li>
+ *    <li>Bytes 35-32: (int) A fingerprint of the repository file's content when the ID index was last updated: the 
+ *    CRC-32 checksum of the file tag and the block index of the first data section.</li>
+ *    <li>Bytes 39-36: Reserved; always 0.</li>
+ * </ul>
+ * The header is followed by <i>C</i> 84-byte slots, each with the same layout as a block index entry. An occupied slot
+ * is a copy of the block index entry of the block in which the data set with that ID is stored; an empty slot has a 
+ * UID of -1, and a slot whose data set was removed has a UID of 0. A data set's home slot is computed from the Java 
+ * string hash code of its ID. The ID index is updated after every change to the repository file, and it is ignored 
+ * and rebuilt from the block index whenever the repository file's size, modification time or fingerprint does not 
+ * match the values in the header -- as will happen if an older version of this class modifies the file, or if the 
+ * file is replaced by another with the same size and timestamp. In addition, every ID index entry is verified against
+ * the repository file before it is used to retrieve a data set; see {@link #findUID(String)}.</p>
+ * 
  * <p><i><b>A word on performance considerations.</b> Almost all file I/O operations by <code>DataSetRepository</code> 
  * are synchronous. This guarantees, for local disk storage, that the bytes have been truly written to the disk when 
  * the file write operation returns, but the tradeoff is a significant throughput penalty. Synchronous file I/O is not 
  * enforced during compaction of the repository, and tests showed a 3X-20X improvement in throughput for asynchronous 
  * over synchronous transfers.</i></p>
+ * 
+ * <p><i>By default, each operation opens and closes the repository file. When many operations are performed in 
+ * succession, the file may instead be held open via {@link #open()} and {@link #close()}, so that all operations share
+ * a single long-lived file channel.</i></p>
+ * 
+ * <h2>Batches and the write-ahead journal</h2>
+ * <p>To add or remove many data sets efficiently, bracket the operations with {@link #beginBatch()} and {@link 
+ * #commit()}. During a batch, the repository file itself is not modified. Instead, every physical write (and any file
+ * truncation) is appended, without synchronization, to a <i>write-ahead journal</i> -- a sidecar file with the same 
+ * path as the repository file plus the extension ".jnl". On commit, a commit record carrying a CRC32 checksum over 
+ * the journal's content is appended, and the journal is forced to disk. Only then are the journaled writes applied to 
+ * the repository file, which is forced to disk once before the journal is deleted. Thus a batch of any size costs two
+ * file synchronizations rather than several per operation. If the application dies before the commit record reaches
+ * the disk, the repository file is unchanged and the incomplete journal is discarded the next time the file is 
+ * preloaded; if it dies after that point, the committed journal is replayed on the next preload. Either way, the
+ * repository file reflects all of the batch's operations or none of them.</p>
+ * 
+ * <p>The journal begins with an 8-byte header: a 4-byte tag 0x4A4E4440 ("@DNJ" in ASCII, which also determines the 
+ * journal's byte order, just as for the repository file) followed by 4 reserved bytes. Each record starts with a 
+ * 16-byte header: <i>(int) type, (long) value, (int) length</i>. A write record (type 1) gives the file offset and the
+ * number of bytes written there, followed by the bytes themselves. A truncation record (type 2) gives the new file 
+ * size; length is 0. The commit record (type 3) gives the CRC32 checksum of all preceding records, and its length is
+ * the number of preceding records.</p>
+ * 
+ * <p><i>Data set retrieval can optionally be done from memory-mapped views of the file's data sections rather than by
+ * chunked reads through a file channel. This avoids reopening the file and an intermediate buffer copy on every cache 
+ * miss, which can substantially reduce load times for very large repository files. See {@link 
+ * #setMappedReads(boolean)}.</i></p>
  * @author sruffner
  */
 public class DataSetRepository
@@ -178,10 +275,33 @@ public class DataSetRepository
             System.out.println("put N M: Auto-generates N datasets and store them in the repository. All datasets\n" +
             		"will be the same: a 1000xM multiset where X=[0,1,..,999] and each Y-vector contains random\n" +
             		"data. Allowed range of N is [1..200]; for M, [2..100].");
+            System.out.println("bput N M: Same as 'put', except the datasets are stored in a single batch.");
             System.out.println("rename uid name: Rename the identified dataset in the repository.");
             System.out.println("remove N: Remove N randomly chosen datasets from the repository. Max allowed value\n" +
             		"of N is 200. If N exceeds the number of datasets remaining, repository will be empty.");
             System.out.println("compact: Compact the repository file.");
+            System.out.println("bgcompact [T]: Compact the repository file incrementally on a background thread if\n" +
+                  "its fragmentation is at least T (in [0..1], default 0), retrieving random datasets and reporting\n" +
+                  "progress until compaction is done.");
+            System.out.println("open: Hold the repository file open until the 'close' command is entered.");
+            System.out.println("close: Close the repository file if it is held open.");
+            System.out.println("cache [MB]: Report dataset cache usage and hit, miss and eviction counts. If an\n" +
+                  "integer argument is given, first set the cache's byte budget to that many megabytes.");
+            System.out.println("bench [N]: Retrieve every dataset in the repository N times (bypassing the dataset\n" +
+                  "cache), first using chunked reads and then memory-mapped reads, and report the elapsed time and\n" +
+                  "throughput for each. Allowed range of N is [1..100]; default is 5.");
+            System.out.println("stress [T] [N]: Start T threads that each retrieve N randomly chosen datasets\n" +
+                  "(bypassing the dataset cache) and verify their content, while another thread repeatedly adds,\n" +
+                  "renames and removes a scratch dataset. Allowed range of T is [1..32], default 4; for N,\n" +
+                  "[1..100000], default 1000.");
+            System.out.println("find ID: Find the dataset with the specified ID using the persistent ID index,\n" +
+                  "which is enabled by this command. Report the UID and the time it took to find and retrieve the\n" +
+                  "dataset.");
+            System.out.println("codec NAME [KB]: Compress subsequently stored datasets with the named codec (NONE,\n" +
+                  "DEFLATE or XOR_DEFLATE) if the raw data occupies at least KB kilobytes (default 16).");
+            System.out.println("zbench [N]: Compress and decompress a few synthetic datasets, plus any datasets in\n" +
+                  "the repository, N times with each codec, and report throughput and compression ratio. Allowed range\n" +
+                  "of N is [1..100]; default is 5.");
             System.out.println("quit: Exit the program (the repository file is not removed).");
          }
          else if("status".equals(command))
@@ -243,12 +363,12 @@ public class DataSetRepository
                else
                {
                   System.out.println("  " + ds.getInfo().getShortDescription());
-                  Iterator<Float> iter = ds.getRawDataIterator();
+                  PrimitiveIterator.OfDouble iter = ds.getRawDataIterator();
                   int i = 0;
                   while(i < n && iter.hasNext())
                   {
                      if((i%10) == 0) System.out.println("  ");
-                     float fValue = iter.next();
+                     double fValue = iter.nextDouble();
                      System.out.print(String.format("%8.3f", fValue) + " ");
                      ++i;
                   }
@@ -262,8 +382,9 @@ public class DataSetRepository
                done = true;
             }
          }
-         else if("put".equals(command))
+         else if("put".equals(command) || "bput".equals(command))
          {
+            boolean isBatch = "bput".equals(command);
             int n = 0;
             if(arg1 != null)
             {
@@ -289,6 +410,12 @@ public class DataSetRepository
             }
                         
             long tStart = System.currentTimeMillis();
+            if(isBatch && !dnf.beginBatch())
+            {
+               System.out.println("  !!! FAILED: " + dnf.getFailureReason());
+               done = true;
+               continue;
+            }
             for(int i=0; i<n; i++)
             {
                // generate a UID
@@ -322,6 +449,11 @@ public class DataSetRepository
                   break;
                }
             }
+            if(isBatch && !done && !dnf.commit())
+            {
+               System.out.println("  !!! FAILED: " + dnf.getFailureReason());
+               done = true;
+            }
             long tElapsed = System.currentTimeMillis() - tStart;
             if(!done) 
                System.out.println("  OK: " + n + " datasets added to repository in " + tElapsed + " milliseconds.");
@@ -417,12 +549,330 @@ public class DataSetRepository
                		"compaction = " + f.length() + " bytes.");
             }
          }
+         else if("open".equals(command))
+         {
+            if(dnf.open()) System.out.println("  OK.");
+            else
+            {
+               System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+               done = true;
+            }
+         }
+         else if("close".equals(command))
+         {
+            dnf.close();
+            System.out.println("  OK.");
+         }
+         else if("cache".equals(command))
+         {
+            if(arg1 != null)
+            {
+               try { dnf.getCache().setMaxBytes(Long.parseLong(arg1) * 1024L * 1024L); }
+               catch(NumberFormatException ignored) {}
+            }
+            System.out.println("  " + dnf.getCache());
+         }
+         else if("bench".equals(command))
+         {
+            int n = 5;
+            if(arg1 != null)
+            {
+               try { n = Integer.parseInt(arg1); } catch(NumberFormatException ignored) {}
+               n = Utilities.rangeRestrict(1, 100, n);
+            }
+            
+            int[] uids = dnf.getUIDs();
+            if(uids == null)
+            {
+               System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+               done = true;
+               continue;
+            }
+            
+            boolean wasMapped = dnf.isMappedReads();
+            for(int mode=0; mode<2 && !done; mode++)
+            {
+               dnf.setMappedReads(mode == 1);
+               long nBytes = 0;
+               long tStart = System.nanoTime();
+               for(int i=0; i<n && !done; i++) for(int uid : uids)
+               {
+                  dnf.datasetCache.clear();
+                  DataSet ds = dnf.get(uid);
+                  if(ds == null)
+                  {
+                     System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+                     done = true;
+                     break;
+                  }
+                  nBytes += 4L * ds.getRawDataSize();
+               }
+               double tElapsed = (System.nanoTime() - tStart) / 1.0e6;
+               if(!done)
+                  System.out.println(String.format("  %s: %d retrievals in %.1f ms (%.1f MB/s).", 
+                        (mode == 0) ? "Chunked" : "Mapped ", n*uids.length, tElapsed,
+                        (tElapsed > 0) ? (nBytes / 1.0e3) / tElapsed : 0.0));
+            }
+            dnf.setMappedReads(wasMapped);
+         }
+         else if("bgcompact".equals(command))
+         {
+            double threshold = 0;
+            if(arg1 != null)
+            {
+               try { threshold = Double.parseDouble(arg1); } catch(NumberFormatException ignored) {}
+               threshold = Utilities.rangeRestrict(0, 1, threshold);
+            }
+            System.out.println(String.format("  Fragmentation = %.3f, file size = %d bytes.", dnf.getFragmentation(), 
+                  f.length()));
+            if(!dnf.startBackgroundCompaction(threshold))
+            {
+               if(dnf.isUnusable())
+               {
+                  System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+                  done = true;
+               }
+               else System.out.println("  Fragmentation is below threshold. Compaction not started.");
+               continue;
+            }
+            
+            // retrieve datasets while compaction runs, reporting progress periodically
+            int[] uids = dnf.getUIDs();
+            long tStart = System.currentTimeMillis();
+            long tLast = tStart;
+            int nGets = 0;
+            while(dnf.isCompactingInBackground() && !dnf.isUnusable())
+            {
+               if(uids != null && uids.length > 0)
+               {
+                  if(dnf.get(uids[(int) (Math.random() * uids.length)]) != null) ++nGets;
+               }
+               else try { Thread.sleep(10); } catch(InterruptedException ignored) {}
+               
+               long tNow = System.currentTimeMillis();
+               if(tNow - tLast >= 250)
+               {
+                  System.out.println(String.format("  %.0f%%: %d bytes reclaimed.", 
+                        100 * dnf.getCompactionProgress(), dnf.getBytesReclaimed()));
+                  tLast = tNow;
+               }
+            }
+            if(dnf.isUnusable())
+            {
+               System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+               done = true;
+            }
+            else System.out.println(String.format("  Done in %d ms: %d bytes reclaimed, %d datasets retrieved " +
+                  "meanwhile. Fragmentation = %.3f, file size = %d bytes.", System.currentTimeMillis() - tStart, 
+                  dnf.getBytesReclaimed(), nGets, dnf.getFragmentation(), f.length()));
+         }
+         else if("stress".equals(command))
+         {
+            int nThreads = 4;
+            if(arg1 != null)
+            {
+               try { nThreads = Integer.parseInt(arg1); } catch(NumberFormatException ignored) {}
+               nThreads = Utilities.rangeRestrict(1, 32, nThreads);
+            }
+            int n = 1000;
+            if(arg2 != null)
+            {
+               try { n = Integer.parseInt(arg2); } catch(NumberFormatException ignored) {}
+               n = Utilities.rangeRestrict(1, 100000, n);
+            }
+            
+            // compute a checksum of the raw data in each stored dataset, retrieved on this thread
+            int[] uids = dnf.getUIDs();
+            if(uids == null)
+            {
+               System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+               done = true;
+               continue;
+            }
+            if(uids.length == 0)
+            {
+               System.out.println("  Repository is empty. Use 'put' first.");
+               continue;
+            }
+            final HashMap<Integer, Integer> checksums = new HashMap<>();
+            for(int uid : uids)
+            {
+               DataSet ds = dnf.get(uid);
+               if(ds == null) break;
+               checksums.put(uid, Arrays.hashCode(ds.getRawDataArray()));
+            }
+            if(checksums.size() != uids.length)
+            {
+               System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+               done = true;
+               continue;
+            }
+            
+            // disable the dataset cache so that every retrieval goes to the file
+            final DataSetRepository repo = dnf;
+            final int nGets = n;
+            long savedBudget = dnf.getCache().getMaxBytes();
+            dnf.getCache().setMaxBytes(0);
+            
+            // a writer thread repeatedly adds, renames and removes a scratch dataset while the readers retrieve random
+            // datasets from the original set and verify their content
+            final AtomicInteger nErrors = new AtomicInteger(0);
+            final AtomicInteger nWrites = new AtomicInteger(0);
+            final AtomicBoolean stop = new AtomicBoolean(false);
+            Thread writer = new Thread(() -> {
+               float[] raw = new float[3000];
+               for(int j=0; j<raw.length; j++) raw[j] = j;
+               DataSet scratch = DataSet.createDataSet("scratch", DataSet.Fmt.PTSET, null, 1000, 3, raw);
+               int uid = 1;
+               while(checksums.containsKey(uid)) ++uid;
+               while(!stop.get() && !repo.isUnusable())
+               {
+                  if(!(repo.put(uid, scratch) && repo.changeDataSetIDString(uid, "renamed") && repo.remove(uid)))
+                     nErrors.incrementAndGet();
+                  nWrites.addAndGet(3);
+               }
+            });
+            Thread[] readers = new Thread[nThreads];
+            for(int i=0; i<nThreads; i++) readers[i] = new Thread(() -> {
+               for(int j=0; j<nGets; j++)
+               {
+                  int uid = uids[(int) (Math.random() * uids.length)];
+                  DataSet ds = repo.get(uid);
+                  if(ds == null || Arrays.hashCode(ds.getRawDataArray()) != checksums.get(uid))
+                     nErrors.incrementAndGet();
+               }
+            });
+            
+            long tStart = System.nanoTime();
+            writer.start();
+            for(Thread t : readers) t.start();
+            try
+            {
+               for(Thread t : readers) t.join();
+               stop.set(true);
+               writer.join();
+            }
+            catch(InterruptedException ie) { stop.set(true); }
+            double tElapsed = (System.nanoTime() - tStart) / 1.0e6;
+            dnf.getCache().setMaxBytes(savedBudget);
+            
+            if(dnf.isUnusable())
+            {
+               System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+               done = true;
+            }
+            else System.out.println(String.format("  %s: %d reader threads x %d retrievals, %d writes in %.1f ms; " +
+                  "%d errors.", (nErrors.get() == 0) ? "OK" : "!!! FAIL", nThreads, nGets, nWrites.get(), tElapsed, 
+                  nErrors.get()));
+         }
+         else if("find".equals(command))
+         {
+            if(arg1 == null)
+            {
+               System.out.println("  Missing ID argument!");
+               continue;
+            }
+            dnf.setIDIndexEnabled(true);
+            long tStart = System.nanoTime();
+            int uid = dnf.findUID(arg1);
+            DataSet ds = (uid > 0) ? dnf.get(uid) : null;
+            double tElapsed = (System.nanoTime() - tStart) / 1.0e6;
+            if(dnf.isUnusable())
+            {
+               System.out.println("  !!! FAIL: " + dnf.getFailureReason());
+               done = true;
+            }
+            else if(uid < 0) System.out.println("  ID index is not available.");
+            else if(uid == 0) System.out.println(String.format("  Not found (%.3f ms).", tElapsed));
+            else System.out.println(String.format("  UID = %d: %s (%.3f ms).", uid, 
+                  (ds != null) ? ds.getInfo().getShortDescription() : "??? retrieval failed", tElapsed));
+         }
+         else if("codec".equals(command))
+         {
+            Codec codec = null;
+            if(arg1 != null)
+            {
+               try { codec = Codec.valueOf(arg1.toUpperCase()); } catch(IllegalArgumentException ignored) {}
+            }
+            if(codec == null)
+            {
+               System.out.println("  Bad codec name!");
+               continue;
+            }
+            int kb = 16;
+            if(arg2 != null)
+            {
+               try { kb = Integer.parseInt(arg2); } catch(NumberFormatException ignored) {}
+               kb = Utilities.rangeRestrict(1, 65536, kb);
+            }
+            dnf.setCompressionPolicy(codec, kb * 1024, dnf.getMaxCompressRatio());
+            System.out.println(String.format("  Codec = %s, min size = %d bytes, max ratio = %.2f.", 
+                  dnf.getCompressionCodec(), dnf.getMinCompressBytes(), dnf.getMaxCompressRatio()));
+         }
+         else if("zbench".equals(command))
+         {
+            int n = 5;
+            if(arg1 != null)
+            {
+               try { n = Integer.parseInt(arg1); } catch(NumberFormatException ignored) {}
+               n = Utilities.rangeRestrict(1, 100, n);
+            }
+            
+            // synthetic test sets: random multiset, smoothly varying series, and a spike train collection
+            List<DataSet> sets = new ArrayList<>();
+            float[] raw = new float[1000*11];
+            for(int i=0; i<1000; i++)
+            {
+               raw[i*11] = i;
+               for(int j=1; j<11; j++) raw[i*11+j] = (float) Math.random();
+            }
+            sets.add(DataSet.createDataSet("random", DataSet.Fmt.MSET, null, 1000, 11, raw));
+            raw = new float[100000];
+            for(int i=0; i<raw.length; i++) raw[i] = (float) (10.0 * Math.sin(i / 500.0));
+            sets.add(DataSet.createDataSet("smooth", DataSet.Fmt.SERIES, new float[] {0.01f, 0}, raw.length, 1, raw));
+            raw = new float[50 + 50*500];
+            for(int j=0; j<50; j++)
+            {
+               raw[j] = 500;
+               float t = 0;
+               for(int i=0; i<500; i++) raw[50 + j*500 + i] = (t += (float) (Math.random() * 20.0));
+            }
+            sets.add(DataSet.createDataSet("spikes", DataSet.Fmt.RASTER1D, null, 50*500, 50, raw));
+            int[] uids = dnf.getUIDs();
+            if(uids != null) for(int uid : uids)
+            {
+               DataSet ds = dnf.get(uid);
+               if(ds != null) sets.add(ds);
+            }
+            
+            for(DataSet ds : sets) for(Codec codec : Codec.values())
+            {
+               if(codec == Codec.NONE) continue;
+               long nBytes = 4L * ds.getRawDataSize();
+               byte[] packed = null;
+               long tStart = System.nanoTime();
+               for(int i=0; i<n; i++) packed = codec.encode(ds);
+               double tEnc = (System.nanoTime() - tStart) / 1.0e6;
+               float[] fData = new float[ds.getRawDataSize()];
+               boolean ok = true;
+               tStart = System.nanoTime();
+               for(int i=0; i<n && ok; i++) ok = codec.decode(packed, ds.getInfo(), fData);
+               double tDec = (System.nanoTime() - tStart) / 1.0e6;
+               ok = ok && Arrays.equals(fData, ds.getRawDataArray());
+               System.out.println(String.format("  %-12s %-11s %8d bytes -> %8d (ratio %.3f); encode %.1f MB/s, " +
+                     "decode %.1f MB/s%s", ds.getID(), codec, nBytes, packed.length, packed.length / (double) nBytes, 
+                     (tEnc > 0) ? (n * nBytes / 1.0e3) / tEnc : 0.0, (tDec > 0) ? (n * nBytes / 1.0e3) / tDec : 0.0, 
+                     ok ? "" : " !!! MISMATCH"));
+            }
+         }
          else if("quit".equals(command))
             done = true;
          else
             System.out.println("   !!! Command not recognized: " + command);
       }
       
+      dnf.stopBackgroundCompaction();
+      dnf.close();
       System.out.println("Bye!");
       System.exit(0);
    }
@@ -506,7 +956,7 @@ public class DataSetRepository
       allocatedBlocks = null;
       uid2BlockMap = null;
       failureReason = null;
-      datasetCache = new HashMap<>();
+      datasetCache = new DataSetCache<>();
    }
    
    /**
@@ -528,6 +978,67 @@ public class DataSetRepository
     */
    public String getFailureReason() { return(failureReason); }
 
+   /**
+    * Enable or disable the memory-mapped read mode for this repository file.
+    * 
+    * <p>By default, a data set is retrieved by opening the file and reading its raw data array in chunks into a heap 
+    * byte buffer, then copying each chunk into the data set's float array. In the memory-mapped read mode, the 
+    * allocation blocks of a data section are mapped into memory the first time a data set in that section is 
+    * retrieved, and all subsequent retrievals from that section copy the raw data directly from the mapped region -- 
+    * without reopening the file. A section's mapping is discarded whenever its layout changes (a data set is written 
+    * into one of its blocks, the section is coalesced, or the file is compacted), and it is re-mapped on the next 
+    * read.</p>
+    * 
+    * <p><i>Caveats</i>. A mapped region cannot be released explicitly; it persists until the mapped buffer is garbage
+    * collected. On some platforms (notably Windows), a file cannot be deleted or renamed while any region of it is 
+    * mapped, in which case {@link #removeAll()} or {@link #compact()} may fail. Also, a single mapping cannot exceed 
+    * 2GB, so data sets in a section spanning more than that are always read in chunks.</p>
+    * 
+    * @param enable True to enable memory-mapped reads, false to restore chunked reads.
+    */
+   public void setMappedReads(boolean enable)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         mappedReads = enable;
+         if(!enable) releaseMappedSections();
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Is the memory-mapped read mode enabled for this repository file? See {@link #setMappedReads(boolean)}.
+    * @return True if data sets are retrieved from memory-mapped views of the file's data sections.
+    */
+   public boolean isMappedReads() { return(mappedReads); }
+
+   /**
+    * Get the in-memory cache of data sets recently added to or retrieved from this repository file. Use it to adjust
+    * the cache's byte budget or to check its hit, miss and eviction counts. Do NOT store data sets in it directly.
+    * @return The repository's data set cache, keyed by data set UID.
+    */
+   public IDataSetCache<Integer> getCache() { return(datasetCache); }
+
+   /**
+    * Replace the in-memory cache of data sets recently added to or retrieved from this repository file. The new cache
+    * is emptied before it is installed, since it may hold data sets from another repository keyed by the same UIDs. 
+    * Thus a cache instance may NOT be shared by more than one repository.
+    * @param cache The new data set cache, keyed by data set UID. If null, a {@link DataSetCache} with the default byte
+    * budget is installed.
+    */
+   public void setCache(IDataSetCache<Integer> cache)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         if(cache == null) cache = new DataSetCache<>();
+         cache.clear();
+         datasetCache = cache;
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+
    /**
     * Get a status description for this dataset repository file. If file is unusable, the description includes the
     * reason. Otherwise, it indicates the current capacity (total number of file blocks), number of blocks allocated,
@@ -536,17 +1047,21 @@ public class DataSetRepository
     */
    public String getStatus()
    {
-      preload();
-      String status;
-      if(failureReason != null)
-         status = "Disabled: " + failureReason;
-      else
+      lockForReading();
+      try
       {
-         status = "Capacity = " + (numSections*SECTIONSZ) + " dataset blocks.\n";
-         status += "  " + allocatedBlocks.size() + " blocks allocated.\n";
-         status += "  " + uid2BlockMap.size() + " datasets stored.\n";
+         String status;
+         if(failureReason != null)
+            status = "Disabled: " + failureReason;
+         else
+         {
+            status = "Capacity = " + (numSections*SECTIONSZ) + " dataset blocks.\n";
+            status += "  " + allocatedBlocks.size() + " blocks allocated.\n";
+            status += "  " + uid2BlockMap.size() + " datasets stored.\n";
+         }
+         return(status);
       }
-      return(status);
+      finally { rwLock.readLock().unlock(); }
    }
    
    /**
@@ -564,149 +1079,343 @@ public class DataSetRepository
     */
    public boolean preload()
    {
-      if(failureReason != null) return(false);
-      if(allocatedBlocks != null) return(true);
-      
-      boolean needInit = !filePath.isFile();
-      try(RandomAccessFile raf = new RandomAccessFile(filePath, "rwd"))
+      rwLock.writeLock().lock();
+      try
       {
-         FileChannel fc = raf.getChannel();
-         fc.position(0);
-
-         ByteBuffer bb = getByteBuffer();
-
-         if(needInit)
+         if(failureReason != null) return(false);
+         if(allocatedBlocks != null) return(true);
+      
+         // if a write-ahead journal was left behind by an interrupted batch, replay it if it was committed, else 
+         // discard it
+         if(!recoverJournal()) return(false);
+      
+         boolean needInit = !filePath.isFile();
+         try(RandomAccessFile raf = new RandomAccessFile(filePath, "rwd"))
          {
-            // file just created. Write the file tag and a 500-entry section index with no dataset blocks allocated.
-            IndexEntry unallocated = new IndexEntry(UNALLOCATED_ID, 0, 0, null);
+            FileChannel fc = raf.getChannel();
+            fc.position(0);
 
-            bb.limit(TAGSZ + SECTIONSZ * INDEXENTRYSZ);
-            bb.putInt(tagLE);
-            bb.putInt(1);
-            for(int i = 0; i < SECTIONSZ; i++) putIndexEntry(bb, unallocated);
-            bb.position(0);
-            if(TAGSZ + SECTIONSZ * INDEXENTRYSZ != fc.write(bb))
-               throw new IOException("Unexpected error while initializing empty repository file");
+            ByteBuffer bb = getByteBuffer();
 
-            numSections = 1;
-            allocatedBlocks = new ArrayList<>();
-            uid2BlockMap = new HashMap<>();
-         } else
-         {
-            // read in and check file header: tag and num sections in file. Fix endianness.
-            bb.limit(TAGSZ);
-            if(TAGSZ != fc.read(bb))
-               throw new IOException("Unexpected EOF while reading file header");
-            bb.position(0);
-            int tag = bb.getInt();
-            if(tag != tagLE)
+            if(needInit)
             {
-               int tagBE = (tagLE == TAG_DNX_LE) ? TAG_DNX_BE : TAG_DNR_BE;
-               if(tag != tagBE) throw new IOException("Unrecognized file tag: " + tag);
-               if(byteOrder == ByteOrder.LITTLE_ENDIAN) byteOrder = ByteOrder.BIG_ENDIAN;
-               else byteOrder = ByteOrder.LITTLE_ENDIAN;
-               bb.order(byteOrder);
-            }
-            int nSections = bb.getInt();
-            if(nSections <= 0) throw new IOException("Invalid number of data sections: " + nSections);
+               // file just created. Write the file tag and a 500-entry section index with no dataset blocks allocated.
+               IndexEntry unallocated = new IndexEntry(UNALLOCATED_ID, 0, 0, null);
 
-            // parse the block index of each existing data section and create list of all allocated blocks. Validate
-            // block index structure: first block starts immediately after index. Offset of next allocated block =
-            // offset of prev allocated block + size of prev allocated block. Once an unallocated block is encountered,
-            // all remaining blocks in index must be unallocated. Also, if there is more than one data section, only the
-            // last section can have any unallocated blocks, and the block index for section N begins immediately after
-            // the last allocated block of section N-1.
-            //
-            List<IndexEntry> allocated = new ArrayList<>();
-            HashMap<Integer, IndexEntry> blockMap = new HashMap<>();
-            IndexEntry lastEntry = null;
-            int i = 0;
-            boolean gotUnallocBlock = false;
-            while(i < nSections)
-            {
-               // move file pointer to the start of the block index for the next data section
-               if(i > 0) fc.position(lastEntry.offset + lastEntry.size);
+               bb.limit(TAGSZ + SECTIONSZ * INDEXENTRYSZ);
+               bb.putInt(tagLE);
+               bb.putInt(1);
+               for(int i = 0; i < SECTIONSZ; i++) putIndexEntry(bb, unallocated);
+               bb.position(0);
+               if(TAGSZ + SECTIONSZ * INDEXENTRYSZ != fc.write(bb))
+                  throw new IOException("Unexpected error while initializing empty repository file");
 
-               // read in the block index for the current section
-               bb.clear();
-               bb.limit(SECTIONSZ * INDEXENTRYSZ);
-               if(SECTIONSZ * INDEXENTRYSZ != fc.read(bb))
-                  throw new IOException("Unexpected EOF while reading block index for data section " + i);
+               numSections = 1;
+               allocatedBlocks = new ArrayList<>();
+               uid2BlockMap = new HashMap<>();
+            } else
+            {
+               // read in and check file header: tag and num sections in file. Fix endianness.
+               bb.limit(TAGSZ);
+               if(TAGSZ != fc.read(bb))
+                  throw new IOException("Unexpected EOF while reading file header");
                bb.position(0);
+               int tag = bb.getInt();
+               if(tag != tagLE)
+               {
+                  int tagBE = (tagLE == TAG_DNX_LE) ? TAG_DNX_BE : TAG_DNR_BE;
+                  if(tag != tagBE) throw new IOException("Unrecognized file tag: " + tag);
+                  if(byteOrder == ByteOrder.LITTLE_ENDIAN) byteOrder = ByteOrder.BIG_ENDIAN;
+                  else byteOrder = ByteOrder.LITTLE_ENDIAN;
+                  bb.order(byteOrder);
+               }
+               int nSections = bb.getInt();
+               if(nSections <= 0) throw new IOException("Invalid number of data sections: " + nSections);
 
-               // consume and validate section's block index, appending allocated blocks and update uid-to-block hash
-               for(int j = 0; j < SECTIONSZ; j++)
+               // parse the block index of each existing data section and create list of all allocated blocks. 
+               // Validate block index structure: first block starts immediately after index. Offset of next allocated
+               // block = offset of prev allocated block + size of prev allocated block. Once an unallocated block is 
+               // encountered, all remaining blocks in index must be unallocated. Also, if there is more than one data 
+               // section, only the last section can have any unallocated blocks, and the block index for section N 
+               // begins immediately after the last allocated block of section N-1.
+               //
+               List<IndexEntry> allocated = new ArrayList<>();
+               HashMap<Integer, IndexEntry> blockMap = new HashMap<>();
+               IndexEntry lastEntry = null;
+               int i = 0;
+               boolean gotUnallocBlock = false;
+               while(i < nSections)
                {
-                  IndexEntry entry = getIndexEntry(bb);
-                  if(entry == null)
-                     throw new IOException("Could not parse index entry at block " + j + " in data section " + i);
+                  // move file pointer to the start of the block index for the next data section
+                  if(i > 0) fc.position(lastEntry.offset + lastEntry.size);
 
-                  if(entry.uid < UNOCCUPIED_ID || gotUnallocBlock)
-                  {
-                     gotUnallocBlock = true;
-                     if(entry.uid != UNALLOCATED_ID || entry.offset != 0 || entry.size != 0)
-                        throw new IOException("Bad unallocated entry at pos=" + i + " in block index ");
-                     if(i != nSections - 1)
-                        throw new IOException(
-                              "Found unallocated block outside terminal data section (section " + i + ", blk " + j + ")");
-                  } else
+                  // read in the block index for the current section
+                  bb.clear();
+                  bb.limit(SECTIONSZ * INDEXENTRYSZ);
+                  if(SECTIONSZ * INDEXENTRYSZ != fc.read(bb))
+                     throw new IOException("Unexpected EOF while reading block index for data section " + i);
+                  bb.position(0);
+
+                  // consume and validate section's block index, appending allocated blocks and update uid-to-block hash
+                  for(int j = 0; j < SECTIONSZ; j++)
                   {
-                     long expected;
-                     if(j != 0) expected = lastEntry.offset + lastEntry.size;
-                     else if(i == 0) expected = TAGSZ + SECTIONSZ * INDEXENTRYSZ;
-                     else expected = lastEntry.offset + lastEntry.size + SECTIONSZ * INDEXENTRYSZ;
+                     IndexEntry entry = getIndexEntry(bb);
+                     if(entry == null)
+                        throw new IOException("Could not parse index entry at block " + j + " in data section " + i);
 
-                     if(entry.offset != expected)
-                        throw new IOException("Bad file offset in index entry: section " + i + ", block " + j +
-                              ";\n  expected offset = " + expected + ", observed = " + entry.offset);
+                     if(entry.uid < UNOCCUPIED_ID || gotUnallocBlock)
+                     {
+                        gotUnallocBlock = true;
+                        if(entry.uid != UNALLOCATED_ID || entry.offset != 0 || entry.size != 0)
+                           throw new IOException("Bad unallocated entry at pos=" + i + " in block index ");
+                        if(i != nSections - 1)
+                           throw new IOException("Found unallocated block outside terminal data section (section " +
+                                 i + ", blk " + j + ")");
+                     } else
+                     {
+                        long expected;
+                        if(j != 0) expected = lastEntry.offset + lastEntry.size;
+                        else if(i == 0) expected = TAGSZ + SECTIONSZ * INDEXENTRYSZ;
+                        else expected = lastEntry.offset + lastEntry.size + SECTIONSZ * INDEXENTRYSZ;
 
-                     allocated.add(entry);
-                     if(entry.uid > UNOCCUPIED_ID) blockMap.put(entry.uid, entry);
-                     lastEntry = entry;
+                        if(entry.offset != expected)
+                           throw new IOException("Bad file offset in index entry: section " + i + ", block " + j +
+                                 ";\n  expected offset = " + expected + ", observed = " + entry.offset);
+
+                        allocated.add(entry);
+                        if(entry.uid > UNOCCUPIED_ID) blockMap.put(entry.uid, entry);
+                        lastEntry = entry;
+                     }
                   }
+
+                  ++i;
                }
 
-               ++i;
+               numSections = nSections;
+               allocatedBlocks = allocated;
+               uid2BlockMap = blockMap;
             }
-
-            numSections = nSections;
-            allocatedBlocks = allocated;
-            uid2BlockMap = blockMap;
          }
-      }
-      catch(IOException ioe)
-      {
-         failureReason = ioe.getMessage() + "\n  File: " + filePath;
-         clearCache();
-      }
-      
-      return(failureReason == null);
-   }
+         catch(IOException ioe)
+         {
+            failureReason = ioe.getMessage() + "\n  File: " + filePath;
+            datasetCache.clear();
+         }
       
-   /**
-    * Does this dataset repository file contain a dataset assigned to the given identifier?
-    * @param uid The dataset's unique integer identifier (UID).
-    * @return True if dataset is stored in this repository file. If UID is not strictly positive or if this repository
-    * file object is disabled, returns false.
-    */
-   public boolean contains(int uid)
-   {
-      if(uid <= UNOCCUPIED_ID) return(false);
-      preload();
-      if(isUnusable()) return(false);
-      return(uid2BlockMap.containsKey(uid));
+         if(failureReason == null)
+         {
+            indexedEntries.clear();
+            loadIDIndex();
+         }
+         return(failureReason == null);
+      }
+      finally { rwLock.writeLock().unlock(); }
    }
    
    /**
-    * Get the total number of datasets currently stored in this dataset repository file.
-    * @return Number of datasets. If the repository has been rendered unusable by a previous operational failure, this
-    * method returns -1.
+    * Open this dataset repository file and keep it open until {@link #close()} is called. 
+    * 
+    * <p>While the file is open, all operations read and write it through a single long-lived file channel using 
+    * positional I/O, instead of opening and closing the file for each operation. This can significantly reduce the 
+    * overhead when many datasets are accessed in succession. The channel is opened in "rw" rather than the synchronous
+    * "rwd" mode; instead, each operation that modifies the file forces its changes to the storage device before it 
+    * returns, so the durability guarantee is the same whether or not the file is held open.</p>
+    * 
+    * <p>Usage is optional. If the file is not open, each operation opens and closes the file as needed. The file is
+    * preloaded (and created if it does not yet exist) before it is opened.</p>
+    * @return True if successful or if file is already open; false if an IO error occurs, or if this file proxy was 
+    * already rendered unusable by a previous catastrophic error.
     */
-   public int getCount()
+   public boolean open()
    {
-      preload();
-      return(isUnusable() ? -1 : uid2BlockMap.size());
-   }
+      rwLock.writeLock().lock();
+      try
+      {
+         if(!(checkIDIndex() || preload())) return(false);
+         if(channel != null) return(true);
+      
+         try
+         {
+            channel = new RandomAccessFile(filePath, "rw").getChannel();
+         }
+         catch(IOException ioe)
+         {
+            failureReason = "Failed to open file:\n  " + ioe.getMessage() + "\n  File: " + filePath;
+            datasetCache.clear();
+         }
+         return(failureReason == null);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /** 
+    * Close this dataset repository file if it was held open by a prior call to {@link #open()}; else no action taken.
+    * The file may be reopened later.
+    */
+   public void close()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         if(channel == null) return;
+         try { channel.close(); } catch(IOException ignored) {}
+         channel = null;
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Is this dataset repository file currently held open? See {@link #open()}.
+    * @return True if file is open.
+    */
+   public boolean isOpen() { return(channel != null); }
+   
+   /**
+    * Begin a batch of operations on this dataset repository file. Until {@link #commit()} or {@link #rollback()} is 
+    * called, all changes to the file are collected in a write-ahead journal rather than applied directly; see class 
+    * header for details. Datasets stored during the batch are retained in memory so that they can be retrieved before
+    * the batch is committed. The repository file cannot be compacted while a batch is in progress.
+    * @return True if successful or if a batch is already in progress; false if the journal file could not be created,
+    * or if this file proxy was already rendered unusable by a previous catastrophic error.
+    */
+   public boolean beginBatch()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         if(!preload()) return(false);
+         if(journal != null) return(true);
+      
+         try
+         {
+            journal = new Journal(getJournalPath(), (byteOrder != null) ? byteOrder : ByteOrder.nativeOrder());
+            batchSets = new HashMap<>();
+         }
+         catch(IOException ioe)
+         {
+            failureReason = "Failed to create write-ahead journal:\n  " + ioe.getMessage() + "\n  File: " + filePath;
+            datasetCache.clear();
+         }
+         return(failureReason == null);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Commit the batch of operations in progress, applying all journaled changes to the repository file. The journal 
+    * is forced to disk before any changes are applied, and it is deleted once the repository file has been forced to 
+    * disk. If no batch is in progress, no action is taken.
+    * @return True if successful or if no batch was in progress; false if an IO error occurs, or if this file proxy was
+    * rendered unusable by a catastrophic error (possibly during the batch). If the failure occurs after the journal
+    * was committed, the batch's changes will be recovered the next time the file is preloaded.
+    */
+   public boolean commit()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         if(journal == null) return(failureReason == null);
+         Journal jnl = journal;
+         journal = null;
+         batchSets = null;
+         if(failureReason != null)
+         {
+            jnl.close();
+            return(false);
+         }
+      
+         FileChannel fc = null;
+         try
+         {
+            jnl.commit();
+            jnl.close();
+         
+            fc = (channel != null) ? channel : new RandomAccessFile(filePath, "rw").getChannel();
+            if(!Journal.replay(jnl.file, fc))
+               throw new IOException("Write-ahead journal is incomplete or corrupted");
+            if(!jnl.file.delete()) throw new IOException("Unable to delete journal file " + jnl.file);
+         }
+         catch(IOException ioe)
+         {
+            failureReason = "Failed to commit batch:\n  " + ioe.getMessage() + "\n  File: " + filePath;
+            datasetCache.clear();
+         }
+         finally
+         {
+            jnl.close();
+            releaseChannel(fc);
+         }
+         flushIDIndex();
+         return(failureReason == null);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Abandon the batch of operations in progress. The journal is discarded and, since the repository file was not 
+    * modified during the batch, the repository's in-memory state is simply reloaded from the file. If no batch is in 
+    * progress, no action is taken.
+    */
+   @SuppressWarnings("ResultOfMethodCallIgnored")
+   public void rollback()
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         if(journal == null) return;
+         journal.close();
+         journal.file.delete();
+         journal = null;
+         batchSets = null;
+      
+         datasetCache.clear();
+         releaseMappedSections();
+         numSections = 0;
+         allocatedBlocks = null;
+         uid2BlockMap = null;
+         preload();
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Is a batch of operations in progress on this dataset repository file? See {@link #beginBatch()}.
+    * @return True if a batch is in progress.
+    */
+   public boolean isBatchActive() { return(journal != null); }
+      
+   /**
+    * Does this dataset repository file contain a dataset assigned to the given identifier?
+    * @param uid The dataset's unique integer identifier (UID).
+    * @return True if dataset is stored in this repository file. If UID is not strictly positive or if this repository
+    * file object is disabled, returns false.
+    */
+   public boolean contains(int uid)
+   {
+      lockForReading();
+      try
+      {
+         if(uid <= UNOCCUPIED_ID) return(false);
+         if(isUnusable()) return(false);
+         return(uid2BlockMap.containsKey(uid));
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
+   
+   /**
+    * Get the total number of datasets currently stored in this dataset repository file.
+    * @return Number of datasets. If the repository has been rendered unusable by a previous operational failure, this
+    * method returns -1.
+    */
+   public int getCount()
+   {
+      lockForReading();
+      try
+      {
+         return(isUnusable() ? -1 : uid2BlockMap.size());
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
    
    /**
     * Get the unique integer identifiers (UIDs) for all datasets currently stored in this dataset repository file.
@@ -715,14 +1424,18 @@ public class DataSetRepository
     */
    public int[] getUIDs()
    {
-      preload();
-      if(isUnusable()) return(null);
+      lockForReading();
+      try
+      {
+         if(isUnusable()) return(null);
       
-      Set<Integer> keys = uid2BlockMap.keySet();
-      int[] uids = new int[keys.size()];
-      int j = 0; for(Integer key : keys) uids[j++] = key;
+         Set<Integer> keys = uid2BlockMap.keySet();
+         int[] uids = new int[keys.size()];
+         int j = 0; for(Integer key : keys) uids[j++] = key;
       
-      return(uids);
+         return(uids);
+      }
+      finally { rwLock.readLock().unlock(); }
    }
    
    /**
@@ -734,12 +1447,16 @@ public class DataSetRepository
     */
    public List<Integer> getUIDs(List<Integer> uids)
    {
-      preload();
-      if(isUnusable()) return(null);
+      lockForReading();
+      try
+      {
+         if(isUnusable()) return(null);
       
-      List<Integer> uidList = (uids != null) ? uids : new ArrayList<>();
-      uidList.addAll(uid2BlockMap.keySet());
-      return(uidList);
+         List<Integer> uidList = (uids != null) ? uids : new ArrayList<>();
+         uidList.addAll(uid2BlockMap.keySet());
+         return(uidList);
+      }
+      finally { rwLock.readLock().unlock(); }
    }
    
    /**
@@ -755,76 +1472,87 @@ public class DataSetRepository
     */
    public boolean put(int uid, DataSet ds)
    {
-      if(uid <= 0 ||ds == null) throw new IllegalArgumentException();
-      if(contains(uid)) return(false);
-
-      // if file is currently full, we must grow it to accommodate the new entry
-      if(numSections*SECTIONSZ == uid2BlockMap.size())
+      rwLock.writeLock().lock();
+      try
       {
-         if(!grow()) return(false);
-      }
+         if(uid <= 0 ||ds == null) throw new IllegalArgumentException();
+         if(contains(uid)) return(false);
+
+         // if file is currently full, we must grow it to accommodate the new entry
+         if(numSections*SECTIONSZ == uid2BlockMap.size())
+         {
+            if(!grow()) return(false);
+         }
       
-      // compute #bytes needed to store dataset
-      DataSetInfo info = ds.getInfo();
-      int size = computeStorageSize(info);
+         // compress the dataset's raw data if warranted by the compression policy, then compute #bytes needed to 
+         // store dataset
+         DataSetInfo info = ds.getInfo();
+         byte[] packed = encodeForStorage(ds);
+         int size = (packed == null) ? computeStorageSize(info) : COMPRESSEDHDRSZ + packed.length;
       
-      // find first unoccupied but allocated block that can accommodate dataset, if there is one.
-      int block = -1;
-      for(int i=0; i<allocatedBlocks.size(); i++)
-      {
-         IndexEntry entry = allocatedBlocks.get(i);
-         if(entry.uid == UNOCCUPIED_ID && size <= entry.size)
+         // find first unoccupied but allocated block that can accommodate dataset, if there is one.
+         int block = -1;
+         for(int i=0; i<allocatedBlocks.size(); i++)
          {
-            block = i;
-            break;
+            IndexEntry entry = allocatedBlocks.get(i);
+            if(entry.uid == UNOCCUPIED_ID && size <= entry.size)
+            {
+               block = i;
+               break;
+            }
          }
-      }
       
-      // if no unoccupied blocks will work, use first unallocated block
-      if(block < 0 && allocatedBlocks.size() < numSections*SECTIONSZ) block = allocatedBlocks.size();
+         // if no unoccupied blocks will work, use first unallocated block
+         if(block < 0 && allocatedBlocks.size() < numSections*SECTIONSZ) block = allocatedBlocks.size();
       
-      // if no unoccupied blocks will work AND all blocks are allocated, try to coalesce any adjacent unoccupied blocks.
-      if(block < 0) block = coalesce(size);
+         // if no unoccupied blocks will work AND all blocks are allocated, try to coalesce any adjacent unoccupied 
+         // blocks.
+         if(block < 0) block = coalesce(size);
       
-      // if we still don't have an unoccupied block that's big enough, then we must grow the file.
-      if(block < 0) 
-      {
-         if(!grow()) return(false);
-         block = allocatedBlocks.size();
-      }
+         // if we still don't have an unoccupied block that's big enough, then we must grow the file.
+         if(block < 0) 
+         {
+            if(!grow()) return(false);
+            block = allocatedBlocks.size();
+         }
       
-      // prepare index entry holding dataset ID and block offset and size. If block is yet unallocated, its offset will
-      // be at EOF and its size will match the dataset's required storage size.
-      IndexEntry entryAdded;
-      if(block == allocatedBlocks.size())
-      {
-         if(allocatedBlocks.isEmpty())
-            entryAdded = new IndexEntry(uid, TAGSZ + SECTIONSZ*INDEXENTRYSZ, size, info);
-         else
+         // prepare index entry holding dataset ID and block offset and size. If block is yet unallocated, its offset 
+         // will be at EOF and its size will match the dataset's required storage size.
+         IndexEntry entryAdded;
+         if(block == allocatedBlocks.size())
          {
-            IndexEntry entry = allocatedBlocks.get(allocatedBlocks.size()-1);
+            if(allocatedBlocks.isEmpty())
+               entryAdded = new IndexEntry(uid, TAGSZ + SECTIONSZ*INDEXENTRYSZ, size, info);
+            else
+            {
+               IndexEntry entry = allocatedBlocks.get(allocatedBlocks.size()-1);
             
-            // if allocating first block of a new data section, we have to account for that section's block index!
-            long offset = entry.offset + entry.size;
-            if((block % SECTIONSZ) == 0) offset += SECTIONSZ*INDEXENTRYSZ;
+               // if allocating first block of a new data section, we have to account for that section's block index!
+               long offset = entry.offset + entry.size;
+               if((block % SECTIONSZ) == 0) offset += SECTIONSZ*INDEXENTRYSZ;
             
-            entryAdded = new IndexEntry(uid, offset, size, info);
+               entryAdded = new IndexEntry(uid, offset, size, info);
+            }
+         }
+         else
+         {
+            IndexEntry entry = allocatedBlocks.get(block);
+            entryAdded = new IndexEntry(uid, entry.offset, entry.size, info);
          }
-      }
-      else
-      {
-         IndexEntry entry = allocatedBlocks.get(block);
-         entryAdded = new IndexEntry(uid, entry.offset, entry.size, info);
-      }
       
-      // write dataset into physical file, also updating file index. This also will store dataset in cache.
-      if(!writeDataset(block, entryAdded, ds)) return(false);
+         // write dataset into physical file, also updating file index. This also will store dataset in cache.
+         if(packed != null) entryAdded.codec = compressionCodec;
+         if(!writeDataset(block, entryAdded, ds, packed)) return(false);
       
-      // update cached index and uid-to-block map
-      if(block == allocatedBlocks.size()) allocatedBlocks.add(entryAdded);
-      else allocatedBlocks.set(block, entryAdded);
-      uid2BlockMap.put(uid, entryAdded);
-      return(true);
+         // update cached index and uid-to-block map
+         if(block == allocatedBlocks.size()) allocatedBlocks.add(entryAdded);
+         else allocatedBlocks.set(block, entryAdded);
+         uid2BlockMap.put(uid, entryAdded);
+         noteIDIndexChange(info.getID(), entryAdded);
+         flushIDIndex();
+         return(true);
+      }
+      finally { rwLock.writeLock().unlock(); }
    }
    
    /**
@@ -835,14 +1563,30 @@ public class DataSetRepository
     */
    public DataSet get(int uid)
    {
-      if(uid <= 0) throw new IllegalArgumentException();
-      preload();
-      if(isUnusable()) return(null);
+      // a dataset found via the ID index can be retrieved without preloading the file
+      if(!indexedEntries.isEmpty())
+      {
+         rwLock.readLock().lock();
+         try
+         {
+            IndexEntry entry = (allocatedBlocks == null && failureReason == null) ? indexedEntries.get(uid) : null;
+            if(entry != null) return(readDataset(entry));
+         }
+         finally { rwLock.readLock().unlock(); }
+      }
+      
+      lockForReading();
+      try
+      {
+         if(uid <= 0) throw new IllegalArgumentException();
+         if(isUnusable()) return(null);
 
-      IndexEntry entry = uid2BlockMap.get(uid);
-      if(entry == null) return(null);
+         IndexEntry entry = uid2BlockMap.get(uid);
+         if(entry == null) return(null);
       
-      return(readDataset(entry));
+         return(readDataset(entry));
+      }
+      finally { rwLock.readLock().unlock(); }
    }
    
    /**
@@ -854,12 +1598,16 @@ public class DataSetRepository
     */
    public DataSetInfo getDataSetInfo(int uid)
    {
-      if(uid <= 0) throw new IllegalArgumentException();
-      preload();
-      if(isUnusable()) return(null);
+      lockForReading();
+      try
+      {
+         if(uid <= 0) throw new IllegalArgumentException();
+         if(isUnusable()) return(null);
 
-      IndexEntry entry = uid2BlockMap.get(uid);
-      return((entry != null) ? entry.info : null);
+         IndexEntry entry = uid2BlockMap.get(uid);
+         return((entry != null) ? entry.info : null);
+      }
+      finally { rwLock.readLock().unlock(); }
    }
    
    /** 
@@ -872,65 +1620,80 @@ public class DataSetRepository
     */
    public boolean changeDataSetIDString(int uid, String dsID)
    {
-      if(uid <= 0 || !DataSet.isValidIDString(dsID)) throw new IllegalArgumentException();
-      preload();
-      if(isUnusable()) return(false);
+      rwLock.writeLock().lock();
+      try
+      {
+         if(uid <= 0 || !DataSet.isValidIDString(dsID)) throw new IllegalArgumentException();
+         preload();
+         if(isUnusable()) return(false);
      
-      IndexEntry entry = uid2BlockMap.get(uid);
-      if(entry == null) return(false);
-      else if(entry.info.getID().equals(dsID)) return(true);
+         IndexEntry entry = uid2BlockMap.get(uid);
+         if(entry == null) return(false);
+         else if(entry.info.getID().equals(dsID)) return(true);
       
-      entry.info = DataSetInfo.changeID(entry.info, dsID);
+         String oldID = entry.info.getID();
+         entry.info = DataSetInfo.changeID(entry.info, dsID);
       
-      // locate relevant block index entry: section number, block number, and absolute file offset. If there's more 
-      // than one data section, we have to take into account that the block index of each subsequent section begins 
-      // immediately after the last allocated block of the preceding section
-      int entryPos = -1;
-      for(int i=0; i<allocatedBlocks.size(); i++) if(allocatedBlocks.get(i) == entry)
-      {
-         entryPos = i;
-         break;
-      }
-      int section = entryPos / SECTIONSZ;
-      int block = entryPos % SECTIONSZ;
-      long offset = TAGSZ;
-      if(section > 0)
-      {
-         IndexEntry last = allocatedBlocks.get(section*SECTIONSZ - 1);
-         offset = last.offset + last.size;
-      }
-      offset += block*INDEXENTRYSZ;
+         // locate relevant block index entry: section number, block number, and absolute file offset. If there's more 
+         // than one data section, we have to take into account that the block index of each subsequent section begins 
+         // immediately after the last allocated block of the preceding section
+         int entryPos = -1;
+         for(int i=0; i<allocatedBlocks.size(); i++) if(allocatedBlocks.get(i) == entry)
+         {
+            entryPos = i;
+            break;
+         }
+         int section = entryPos / SECTIONSZ;
+         int block = entryPos % SECTIONSZ;
+         long offset = TAGSZ;
+         if(section > 0)
+         {
+            IndexEntry last = allocatedBlocks.get(section*SECTIONSZ - 1);
+            offset = last.offset + last.size;
+         }
+         offset += block*INDEXENTRYSZ;
       
-      // open the file and overwrite the block index entry
-      try(RandomAccessFile raf = new RandomAccessFile(filePath, "rwd"))
-      {
-         // open file and reposition to beginning of the block index entry to be updated
-         FileChannel fc = raf.getChannel();
-         fc.position(offset);
+         // overwrite the block index entry
+         FileChannel fc = null;
+         try
+         {
+            fc = openChannel(true);
 
-         ByteBuffer bb = getByteBuffer();
-         bb.clear();
-         bb.limit(INDEXENTRYSZ);
-         if(!putIndexEntry(bb, entry))
-            throw new IOException("Unexpected error while preparing index entry");
-         bb.position(0);
-         if(INDEXENTRYSZ != fc.write(bb))
-            throw new IOException("Unexpected error while writing index entry");
-      } catch(IOException ioe)
-      {
-         failureReason = "Failed to update block index entry (section " + section + ", block " + block + "):\n  " +
-               ioe.getMessage();
-         clearCache();
-      }
+            ByteBuffer bb = getByteBuffer();
+            bb.clear();
+            bb.limit(INDEXENTRYSZ);
+            if(!putIndexEntry(bb, entry))
+               throw new IOException("Unexpected error while preparing index entry");
+            bb.position(0);
+            if(INDEXENTRYSZ != writeAt(fc, bb, offset))
+               throw new IOException("Unexpected error while writing index entry");
+            syncChannel(fc);
+         } catch(IOException ioe)
+         {
+            failureReason = "Failed to update block index entry (section " + section + ", block " + block + "):\n  " +
+                  ioe.getMessage();
+            datasetCache.clear();
+         }
+         finally
+         {
+            releaseChannel(fc);
+         }
 
-      // remove the affected dataset from the dataset cache if it is there, replacing it with the renamed dataset
-      if(failureReason == null)
-      {
-         DataSet ds = retrieveFromCache(uid);
-         if(ds != null) storeInCache(uid, ds.changeID(dsID));
-      }
+         // remove the affected dataset from the dataset cache if it is there, replacing it with the renamed dataset
+         if(failureReason == null)
+         {
+            DataSet ds = datasetCache.remove(uid);
+            if(ds != null) datasetCache.put(uid, ds.changeID(dsID));
+            if(batchSets != null && batchSets.containsKey(uid)) batchSets.put(uid, batchSets.get(uid).changeID(dsID));
+            
+            noteIDIndexChange(oldID, new IndexEntry(UNOCCUPIED_ID, 0, 0, null));
+            noteIDIndexChange(dsID, entry);
+            flushIDIndex();
+         }
       
-      return(failureReason == null);
+         return(failureReason == null);
+      }
+      finally { rwLock.writeLock().unlock(); }
    }
    
    /** 
@@ -942,58 +1705,78 @@ public class DataSetRepository
     */
    public boolean remove(int uid)
    {
-      if(!contains(uid)) return(false);
+      rwLock.writeLock().lock();
+      try
+      {
+         if(!contains(uid)) return(false);
       
-      // remove dataset from cache if it is there
-      removeFromCache(uid);
+         // remove dataset from cache if it is there
+         datasetCache.remove(uid);
+         if(batchSets != null) batchSets.remove(uid);
 
-      // find allocation block in which dataset is stored
-      int block = -1;
-      for(int i=0; i<allocatedBlocks.size(); i++)
-      {
-         IndexEntry entry = allocatedBlocks.get(i);
-         if(uid == entry.uid) { block = i; break; }
-      }
+         // find allocation block in which dataset is stored
+         int block = -1;
+         for(int i=0; i<allocatedBlocks.size(); i++)
+         {
+            IndexEntry entry = allocatedBlocks.get(i);
+            if(uid == entry.uid) { block = i; break; }
+         }
       
-      // update the physical file simply by setting the corresponding block index entry to unoccupied.
-      if(!unoccupyAllocatedBlock(block)) return(false);
+         // update the physical file simply by setting the corresponding block index entry to unoccupied.
+         if(!unoccupyAllocatedBlock(block)) return(false);
       
-      // update internals: block used by removed dataset is marked as unoccupied
-      IndexEntry unoccupied = allocatedBlocks.get(block);
-      unoccupied.uid = UNOCCUPIED_ID;
-      unoccupied.info = null;
-      uid2BlockMap.remove(uid);
-      return(true);
+         // update internals: block used by removed dataset is marked as unoccupied
+         IndexEntry unoccupied = allocatedBlocks.get(block);
+         noteIDIndexChange(unoccupied.info.getID(), new IndexEntry(UNOCCUPIED_ID, 0, 0, null));
+         unoccupied.uid = UNOCCUPIED_ID;
+         unoccupied.info = null;
+         uid2BlockMap.remove(uid);
+         flushIDIndex();
+         
+         if(autoCompactThreshold > 0 && journal == null) startBackgroundCompaction(autoCompactThreshold);
+         return(true);
+      }
+      finally { rwLock.writeLock().unlock(); }
    }
    
    /** 
     * Remove all datasets from this dataset repository file. This merely deletes the old file and creates an empty one.
-    * However, if there are already no datasets in the file, the method takes no action.
+    * However, if there are already no datasets in the file, the method takes no action. Any batch in progress is rolled
+    * back first.
     * @return True if successful; false if operation failed, or if this file proxy was already unusable due to a prior 
     * operational failure.
     */
    public boolean removeAll()
    {
-      preload();
-      if(isUnusable()) return(false);
-      if(uid2BlockMap.isEmpty()) return(true);
+      rwLock.writeLock().lock();
+      try
+      {
+         rollback();
+         preload();
+         if(isUnusable()) return(false);
+         if(uid2BlockMap.isEmpty()) return(true);
       
-      // clear out everything!
-      clearCache();
-      allocatedBlocks.clear();
-      uid2BlockMap.clear();
-      numSections = 0;
-      allocatedBlocks = null;
-      uid2BlockMap = null;
+         // clear out everything! If the file is held open, it must be closed before it can be deleted.
+         datasetCache.clear();
+         releaseMappedSections();
+         boolean wasOpen = isOpen();
+         close();
+         allocatedBlocks.clear();
+         uid2BlockMap.clear();
+         numSections = 0;
+         allocatedBlocks = null;
+         uid2BlockMap = null;
       
-      // delete the current file
-      if(!filePath.delete())
-      {
-         failureReason = "Unable to delete old repository file at:\n  " + filePath;
-         return(false);
-      }
+         // delete the current file
+         if(!filePath.delete())
+         {
+            failureReason = "Unable to delete old repository file at:\n  " + filePath;
+            return(false);
+         }
       
-      return(preload());
+         return(wasOpen ? open() : preload());
+      }
+      finally { rwLock.writeLock().unlock(); }
    }
    
    /**
@@ -1007,144 +1790,665 @@ public class DataSetRepository
     * operation failure. If all file blocks are allocated and occupied and the amount of wasted space across all blocks
     * is less than 10% of the total file size, the file is considered "compact enough" -- in which case the method takes 
     * no action and returns true.
+    * @throws IllegalStateException if a batch is in progress.
     */
    public boolean compact()
    {
-      preload();
-      if(isUnusable()) return(false);
-      
-      // compute the amount of allocated but unoccupied space. This includes all unoccupied blocks plus any extra space
-      // in occupied blocks
-      long wasted = 0;
-      for(IndexEntry e : allocatedBlocks)
+      rwLock.writeLock().lock();
+      try
       {
-         if(e.uid == UNOCCUPIED_ID) wasted += e.size;
-         else if(e.uid > UNOCCUPIED_ID) wasted += e.size - computeStorageSize(e.info);
-      }
+         if(journal != null) throw new IllegalStateException("Cannot compact repository while a batch is in progress!");
+         preload();
+         if(isUnusable()) return(false);
       
-      // if amount of wasted space is less than 10% of the total, don't bother compacting
-      long total = filePath.length();
-      if(total == 0 || (0.1 > ((double)wasted) / ((double)total))) return(true);
+         // if amount of wasted space is less than 10% of the total, don't bother compacting
+         if(getFragmentation() < 0.1) return(true);
       
-      // prepare compacted index and corresponding UID-to-block hashmap. Recover unused space in each occupied block!
-      long compactedOffset = TAGSZ;
-      List<IndexEntry> compactedIndex = new ArrayList<>();
-      HashMap<Integer, IndexEntry> compactedMap = new HashMap<>();
-      for(IndexEntry entry : allocatedBlocks)
-      {
-         if(entry.uid > UNOCCUPIED_ID)
+         // prepare compacted index and corresponding UID-to-block hashmap. Recover unused space in each occupied block!
+         long compactedOffset = TAGSZ;
+         List<IndexEntry> compactedIndex = new ArrayList<>();
+         HashMap<Integer, IndexEntry> compactedMap = new HashMap<>();
+         for(IndexEntry entry : allocatedBlocks)
          {
-            // if next block will start a new data section, we have to make room for that section's block index!
-            int nBlks = compactedIndex.size();
-            if((nBlks % SECTIONSZ) == 0) compactedOffset += SECTIONSZ * INDEXENTRYSZ;
+            if(entry.uid > UNOCCUPIED_ID)
+            {
+               // if next block will start a new data section, we have to make room for that section's block index!
+               int nBlks = compactedIndex.size();
+               if((nBlks % SECTIONSZ) == 0) compactedOffset += SECTIONSZ * INDEXENTRYSZ;
 
-            IndexEntry entry2 = new IndexEntry(entry.uid, compactedOffset, computeStorageSize(entry.info), entry.info);
-            compactedOffset += entry2.size;
-            compactedIndex.add(entry2);
-            compactedMap.put(entry2.uid, entry2);
+               IndexEntry entry2 = new IndexEntry(entry.uid, compactedOffset, getStoredSize(entry), entry.info);
+               entry2.codec = entry.codec;
+               entry2.stored = entry2.size;
+               compactedOffset += entry2.size;
+               compactedIndex.add(entry2);
+               compactedMap.put(entry2.uid, entry2);
+            }
          }
-      }
-      int nSections = compactedIndex.size() / SECTIONSZ;
-      ++nSections;
+         int nSections = compactedIndex.size() / SECTIONSZ;
+         ++nSections;
       
-      // create temporary name for file that will be fully compacted. 
-      int i = 0;
-      String absPathStr = filePath.getAbsolutePath();
-      File tmpFile = new File(absPathStr + "." + i);
-      while(tmpFile.exists()) {++i; tmpFile = new File(absPathStr + "." + i); }
+         // create temporary name for file that will be fully compacted. 
+         int i = 0;
+         String absPathStr = filePath.getAbsolutePath();
+         File tmpFile = new File(absPathStr + "." + i);
+         while(tmpFile.exists()) {++i; tmpFile = new File(absPathStr + "." + i); }
       
-      RandomAccessFile srcRAF = null;
-      RandomAccessFile dstRAF = null;
-      boolean ok = false;
+         FileChannel srcFC = null;
+         RandomAccessFile dstRAF = null;
+         boolean ok = false;
+         try
+         {
+            srcFC = openChannel(false);
+         
+            dstRAF = new RandomAccessFile(tmpFile, "rw");
+            FileChannel dstFC = dstRAF.getChannel();
+            dstFC.position(0);
+         
+            // write file header
+            ByteBuffer bb = getByteBuffer();
+            bb.limit(TAGSZ);
+            bb.putInt(tagLE);
+            bb.putInt(nSections);
+            bb.position(0);
+            if(TAGSZ != dstFC.write(bb))
+               throw new IOException("Unexpected error while writing file header for compacted file");
+         
+            // write each data section into the compacted file, transferring data from old file. Each section begins
+            // with its block index.
+            IndexEntry unallocated = new IndexEntry(UNALLOCATED_ID, 0, 0, null);
+            for(i=0; i<nSections; i++)
+            {
+               // first write the block index for the data section
+               bb.clear();
+               bb.limit(SECTIONSZ*INDEXENTRYSZ);
+               for(int j=0; j<SECTIONSZ; j++)
+               {
+                  int idx = i*SECTIONSZ + j;
+                  IndexEntry entry = (idx < compactedIndex.size()) ? compactedIndex.get(idx) : unallocated;
+                  if(!putIndexEntry(bb, entry))
+                     throw new IOException("Unexpected error while preparing block index for section " + i);
+               }
+               bb.position(0);
+               if(SECTIONSZ*INDEXENTRYSZ != dstFC.write(bb))
+                  throw new IOException("Unexpected error while writing block index for section " + i);
+            
+               // now transfer the actual data from the old to the new file
+               for(int j=0; j<SECTIONSZ; j++)
+               {
+                  int idx = i*SECTIONSZ + j;
+                  if(idx >= compactedIndex.size()) break;
+                  IndexEntry entry = compactedIndex.get(idx);
+                  IndexEntry old = uid2BlockMap.get(entry.uid);
+               
+                  long nBytes = srcFC.transferTo(old.offset, entry.size, dstFC);
+                  if(nBytes != ((long)entry.size))
+                     throw new IOException("Unexpected error while copying data to compacted file");
+               }
+            }
+
+            dstRAF.close();
+            ok = true;
+         }
+         catch(IOException ioe)
+         {
+            failureReason = "Failed during compaction:\n   " + ioe.getMessage() + "\n  File: " + filePath;
+            datasetCache.clear();
+         }
+         finally
+         {
+            releaseChannel(srcFC);
+            try { if(dstRAF != null) dstRAF.close(); } catch(IOException ignored) {}
+         }
+      
+         // if the file is held open, it must be closed before it can be replaced by the compacted file
+         boolean wasOpen = isOpen();
+         if(ok)
+         {
+            releaseMappedSections();
+            close();
+            ok = filePath.delete();
+            if(ok) ok = tmpFile.renameTo(filePath);
+            if(!ok) 
+            {
+               failureReason = "File delete or rename operation failed after compaction.\n" + 
+                     "Compacted dataset repository saved in: " + tmpFile;
+               datasetCache.clear();
+            }
+         
+            if(ok)
+            {
+               // SUCCESS. Replace current block index and map with new versions reflecting file's compacted state!
+               numSections = nSections;
+               allocatedBlocks.clear();
+               allocatedBlocks = compactedIndex;
+               uid2BlockMap.clear();
+               uid2BlockMap = compactedMap;
+               rebuildIDIndex();
+            
+               if(wasOpen) ok = open();
+            }
+         }
+         return(ok);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Measure the fragmentation of this repository file: the fraction of the file occupied by allocated but unused 
+    * space. This includes all unoccupied blocks plus any extra space in occupied blocks. It is the metric that decides
+    * whether the file needs compacting; see {@link #compact()} and {@link #startBackgroundCompaction(double)}.
+    * @return The fragmentation metric, in [0..1). Returns 0 if the file is empty, or if this file proxy was rendered 
+    * unusable by a prior operational failure.
+    */
+   public double getFragmentation()
+   {
+      lockForReading();
       try
       {
-         srcRAF = new RandomAccessFile(filePath, "rw");
-         FileChannel srcFC = srcRAF.getChannel();
-         srcFC.position(0);
+         if(isUnusable()) return(0);
+         long total = getFileEnd();
+         return((total == 0) ? 0 : ((double) getWastedSpace()) / ((double) total));
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
+   
+   /**
+    * Perform one step of an incremental, in-place compaction of this repository file. 
+    * 
+    * <p>Unlike {@link #compact()}, which rewrites the entire file, each step is short: it moves at most the specified 
+    * number of datasets, holding exclusive access to the repository only while it does so. Each move takes the dataset
+    * in the last occupied block of the file and stores it in the smallest unoccupied block nearer the start of the 
+    * file that can hold it. Unoccupied blocks at the end of the file are then released and the file is truncated; if 
+    * the last data section is left with no allocated blocks, that section is removed as well. All changes made during
+    * the step are applied as a single batch via the write-ahead journal (see class header), so the file reflects all 
+    * of them or none of them even if the application dies in the middle of the step. Dataset UIDs are unaffected.</p>
+    * 
+    * <p>If a batch is in progress, no action is taken.</p>
+    * 
+    * @param maxMoves The maximum number of datasets to move. Must be positive.
+    * @return The number of bytes by which the repository file shrank. Zero if the step made no progress -- in which
+    * case no further compaction is possible without a complete file rewrite -- or if a batch is in progress. Returns
+    * -1 if the operation failed or if this file proxy was already unusable due to a prior operational failure.
+    */
+   public long compactStep(int maxMoves)
+   {
+      if(maxMoves <= 0) throw new IllegalArgumentException();
+      rwLock.writeLock().lock();
+      try
+      {
+         preload();
+         if(isUnusable()) return(-1);
+         if(journal != null) return(0);
          
-         dstRAF = new RandomAccessFile(tmpFile, "rw");
-         FileChannel dstFC = dstRAF.getChannel();
-         dstFC.position(0);
+         long startSize = getFileEnd();
+         if(!beginBatch()) return(-1);
+         int nMoves = 0;
+         while(releaseTrailingBlocks() && nMoves < maxMoves && !allocatedBlocks.isEmpty())
+         {
+            // the last allocated block is now occupied. Find the smallest unoccupied block that can hold its dataset.
+            // A compressed dataset is compressed again with the same codec.
+            int src = allocatedBlocks.size() - 1;
+            IndexEntry srcEntry = allocatedBlocks.get(src);
+            DataSet ds = readDataset(srcEntry);
+            if(ds == null) break;
+            byte[] packed = srcEntry.codec.encode(ds);
+            int size = (packed == null) ? computeStorageSize(srcEntry.info) : COMPRESSEDHDRSZ + packed.length;
+            int dst = -1;
+            for(int i=0; i<src; i++)
+            {
+               IndexEntry e = allocatedBlocks.get(i);
+               if(e.uid == UNOCCUPIED_ID && size <= e.size && (dst < 0 || e.size < allocatedBlocks.get(dst).size))
+                  dst = i;
+            }
+            if(dst < 0) break;
+            
+            // move the dataset. Moving it should not disturb the contents of the dataset cache.
+            DataSet cached = datasetCache.remove(srcEntry.uid);
+            IndexEntry dstEntry = new IndexEntry(srcEntry.uid, allocatedBlocks.get(dst).offset, 
+                  allocatedBlocks.get(dst).size, srcEntry.info);
+            dstEntry.codec = srcEntry.codec;
+            if(!writeDataset(dst, dstEntry, ds, packed)) break;
+            datasetCache.put(dstEntry.uid, cached);
+            if(!unoccupyAllocatedBlock(src)) break;
+            
+            allocatedBlocks.set(dst, dstEntry);
+            uid2BlockMap.put(dstEntry.uid, dstEntry);
+            noteIDIndexChange(dstEntry.info.getID(), dstEntry);
+            srcEntry.uid = UNOCCUPIED_ID;
+            srcEntry.info = null;
+            ++nMoves;
+         }
          
-         // write file header
-         ByteBuffer bb = getByteBuffer();
-         bb.limit(TAGSZ);
-         bb.putInt(tagLE);
-         bb.putInt(nSections);
-         bb.position(0);
-         if(TAGSZ != dstFC.write(bb))
-            throw new IOException("Unexpected error while writing file header for compacted file");
+         // if anything went wrong, the journal is discarded and the repository is unusable. The file is unchanged.
+         if(!commit()) return(-1);
+         long reclaimed = startSize - getFileEnd();
+         if(reclaimed > 0) releaseMappedSections();
+         return(reclaimed);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Start compacting this repository file incrementally on a background thread, if its fragmentation metric (see 
+    * {@link #getFragmentation()}) meets or exceeds the specified threshold. The background thread repeatedly invokes
+    * {@link #compactStep(int)}, pausing briefly between steps so that other operations -- in particular, dataset 
+    * retrievals -- are never blocked for long. It stops once no further progress is possible, when {@link 
+    * #stopBackgroundCompaction()} is called, or if an operation fails. While a batch is in progress, the thread waits
+    * for the batch to finish.
+    * @param threshold The fragmentation threshold, in [0..1]. Compaction does not start below this threshold.
+    * @return True if background compaction is running when the method returns (it may have been started already).
+    */
+   public boolean startBackgroundCompaction(double threshold)
+   {
+      // NOTE: Always acquire the read lock BEFORE the compactor lock, since a removal holding the write lock may call
+      // this method to trigger automatic compaction.
+      lockForReading();
+      try
+      {
+         synchronized(compactorLock)
+         {
+            if(compactor != null && compactor.isAlive()) return(true);
+            if(isUnusable()) return(false);
+            long total = getFileEnd();
+            long wasted = getWastedSpace();
+            if(total == 0 || ((double) wasted) / ((double) total) < threshold) return(false);
+
+            compactionTarget = Math.max(1, wasted);
+            bytesReclaimed = 0;
+            compactionProgress = 0;
+            stopCompactor = false;
+            compactor = new Thread(this::runBackgroundCompaction, "Compacting " + filePath.getName());
+            compactor.setDaemon(true);
+            compactor.start();
+            return(true);
+         }
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
+   
+   /** 
+    * Stop background compaction of this repository file, if it is running. The method waits for the step in progress,
+    * if any, to finish. The file is left consistent and usable.
+    */
+   public void stopBackgroundCompaction()
+   {
+      Thread t;
+      synchronized(compactorLock)
+      {
+         t = compactor;
+         stopCompactor = true;
+      }
+      if(t == null || t == Thread.currentThread()) return;
+      try { t.join(); } catch(InterruptedException ie) { Thread.currentThread().interrupt(); }
+   }
+   
+   /**
+    * Is this repository file being compacted on a background thread? See {@link #startBackgroundCompaction(double)}.
+    * @return True if background compaction is running.
+    */
+   public boolean isCompactingInBackground()
+   {
+      synchronized(compactorLock) { return(compactor != null && compactor.isAlive()); }
+   }
+   
+   /**
+    * Get the progress of the current or most recent background compaction of this repository file. Progress is the 
+    * number of bytes reclaimed so far as a fraction of the unused space in the file when compaction began; since not
+    * all of that space can be reclaimed incrementally, progress jumps to 1 when compaction finishes.
+    * @return Compaction progress in [0..1].
+    */
+   public double getCompactionProgress() { return(compactionProgress); }
+   
+   /**
+    * Get the number of bytes reclaimed so far by the current or most recent background compaction of this repository
+    * file.
+    * @return Number of bytes by which the file has shrunk.
+    */
+   public long getBytesReclaimed() { return(bytesReclaimed); }
+   
+   /**
+    * Enable or disable automatic background compaction of this repository file. When enabled, background compaction
+    * is started whenever a dataset removal pushes the file's fragmentation metric to or above the specified threshold.
+    * Disabled by default.
+    * @param threshold The fragmentation threshold in (0..1] at which background compaction is triggered. If zero or 
+    * negative, automatic compaction is disabled.
+    */
+   public void setAutoCompaction(double threshold) { autoCompactThreshold = Math.min(1, threshold); }
+   
+   /**
+    * Get the fragmentation threshold for automatic background compaction of this repository file. See {@link 
+    * #setAutoCompaction(double)}.
+    * @return The fragmentation threshold. Automatic compaction is disabled if this is zero or negative.
+    */
+   public double getAutoCompaction() { return(autoCompactThreshold); }
+   
+   /**
+    * Set the policy by which the raw data arrays of datasets subsequently stored in this repository are compressed. 
+    * Datasets already in the file are unaffected, and retrieval of compressed datasets is always transparent. By 
+    * default, no dataset is compressed. 
+    * 
+    * <p><b>NOTE</b>: Versions of this class that predate support for compressed blocks will reject a repository file
+    * containing any compressed datasets as improperly formatted.</p>
+    * @param codec The codec with which to compress the raw data. If null or {@link Codec#NONE}, compression is 
+    * disabled.
+    * @param minBytes A dataset is compressed only if its uncompressed raw data array occupies at least this many bytes.
+    * Small datasets gain little from compression. Values below 1024 are treated as 1024.
+    * @param maxRatio A dataset is stored compressed only if the size of the compressed data relative to the size of the
+    * uncompressed data does not exceed this ratio; otherwise there's little to gain in return for the time it takes to 
+    * decompress it. Range-restricted to [0.05..1].
+    */
+   public void setCompressionPolicy(Codec codec, int minBytes, double maxRatio)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         compressionCodec = (codec == null) ? Codec.NONE : codec;
+         minCompressBytes = Math.max(1024, minBytes);
+         maxCompressRatio = Utilities.rangeRestrict(0.05, 1.0, maxRatio);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Get the codec with which datasets are compressed when stored in this repository. See {@link 
+    * #setCompressionPolicy(Codec, int, double)}.
+    * @return The codec; {@link Codec#NONE} if compression is disabled.
+    */
+   public Codec getCompressionCodec() { return(compressionCodec); }
+   
+   /**
+    * Get the minimum size of a dataset's raw data array, in bytes, for it to be compressed when stored in this 
+    * repository. See {@link #setCompressionPolicy(Codec, int, double)}.
+    * @return The minimum size in bytes.
+    */
+   public int getMinCompressBytes() { return(minCompressBytes); }
+   
+   /**
+    * Get the maximum compression ratio (compressed size relative to uncompressed size) for which a dataset is stored 
+    * compressed in this repository. See {@link #setCompressionPolicy(Codec, int, double)}.
+    * @return The maximum compression ratio.
+    */
+   public double getMaxCompressRatio() { return(maxCompressRatio); }
+   
+   /**
+    * Enable or disable the persistent ID index for this repository file. When enabled, the repository maintains a 
+    * sidecar file that maps each dataset's ID string to the location of its allocation block, so that a dataset can be
+    * found by ID -- via {@link #findUID(String)} -- without preloading the entire file. See class header for details.
+    * 
+    * <p>The ID index is only useful if every dataset in the repository has a unique ID string, which is NOT enforced 
+    * by this class. If two datasets are found to have the same ID when the index is built, no ID index is maintained.
+    * It is recommended that the ID index be enabled right after construction.</p>
+    * @param enable True to enable the ID index, false to disable it. When disabled, the sidecar file is left as is, 
+    * but it will be out of date -- and therefore ignored -- as soon as the repository file is modified.
+    */
+   public void setIDIndexEnabled(boolean enable)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         if(enable == idIndexEnabled) return;
+         idIndexEnabled = enable;
+         idIndex = null;
+         idIndexChecked = false;
+         idIndexChanges.clear();
+         if(allocatedBlocks != null) loadIDIndex();
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Set the location of the persistent ID index file for this repository. By default, it is the repository file path
+    * plus the extension ".idx". Use this method to keep the ID index elsewhere -- e.g., in an application cache 
+    * directory. It is recommended that this be done right after construction, before the ID index is enabled.
+    * @param f The ID index file path. If null, the default location is restored.
+    */
+   public void setIDIndexPath(File f)
+   {
+      rwLock.writeLock().lock();
+      try
+      {
+         idIndexPath = f;
+         idIndex = null;
+         idIndexChecked = false;
+         idIndexChanges.clear();
+         if(idIndexEnabled && allocatedBlocks != null) loadIDIndex();
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Is the persistent ID index enabled for this repository file? See {@link #setIDIndexEnabled(boolean)}.
+    * @return True if enabled.
+    */
+   public boolean isIDIndexEnabled() { return(idIndexEnabled); }
+   
+   /**
+    * Is the persistent ID index enabled and available for use? If the file has not been preloaded, this method opens 
+    * the ID index file and verifies that it is up to date with respect to the repository file. This takes a constant 
+    * amount of time, regardless of the number of datasets in the repository. The file itself is not preloaded.
+    * @return True if the ID index is available.
+    */
+   public boolean hasIDIndex() { return(checkIDIndex()); }
+   
+   /**
+    * Find the UID of the dataset with the specified ID string by consulting the persistent ID index. This does not 
+    * require that the file be preloaded; only a few small reads of the ID index file are needed. The dataset itself 
+    * may then be retrieved by calling {@link #get(int)}, again without preloading the file.
+    * @param id The dataset ID string.
+    * @return The dataset's UID. Returns 0 if there is no dataset with that ID. Returns -1 if the ID index is disabled 
+    * or unavailable, if it was found to be inconsistent with the repository file, or if a batch is in progress. In 
+    * this case the caller must fall back on the block index; see {@link #getUIDs()} and {@link #getDataSetInfo(int)}.
+    */
+   public int findUID(String id)
+   {
+      if(!checkIDIndex()) return(-1);
+      rwLock.readLock().lock();
+      try
+      {
+         IDIndex idx = idIndex;
+         if(idx == null || failureReason != null || journal != null || !idIndexChanges.isEmpty()) return(-1);
+         if(id == null) return(0);
+         IndexEntry entry = idx.find(id);
+         if(entry == null) return(0);
          
-         // write each data section into the compacted file, transferring data from old file. Each section begins with
-         // its block index.
-         IndexEntry unallocated = new IndexEntry(UNALLOCATED_ID, 0, 0, null);
-         for(i=0; i<nSections; i++)
+         // verify the entry: against the block index if it is loaded, else against the UID at the start of the block
+         boolean ok;
+         if(uid2BlockMap != null)
          {
-            // first write the block index for the data section
-            bb.clear();
-            bb.limit(SECTIONSZ*INDEXENTRYSZ);
-            for(int j=0; j<SECTIONSZ; j++)
+            IndexEntry e = uid2BlockMap.get(entry.uid);
+            ok = (e != null) && e.offset == entry.offset && id.equals(e.info.getID());
+         }
+         else
+         {
+            FileChannel fc = null;
+            try
             {
-               int idx = i*SECTIONSZ + j;
-               IndexEntry entry = (idx < compactedIndex.size()) ? compactedIndex.get(idx) : unallocated;
-               if(!putIndexEntry(bb, entry))
-                  throw new IOException("Unexpected error while preparing block index for section " + i);
+               fc = openChannel(false);
+               ByteBuffer bb = getByteBuffer();
+               bb.limit(4);
+               ok = (4 == fc.read(bb, entry.offset));
+               bb.position(0);
+               ok = ok && (bb.getInt() == entry.uid);
             }
-            bb.position(0);
-            if(SECTIONSZ*INDEXENTRYSZ != dstFC.write(bb))
-               throw new IOException("Unexpected error while writing block index for section " + i);
-            
-            // now transfer the actual data from the old to the new file
-            for(int j=0; j<SECTIONSZ; j++)
+            finally { releaseChannel(fc); }
+            if(ok) indexedEntries.put(entry.uid, entry);
+         }
+         if(!ok)
+         {
+            idIndexStale = true;
+            idIndex = null;
+            return(-1);
+         }
+         return(entry.uid);
+      }
+      catch(IOException ioe)
+      {
+         idIndexStale = true;
+         idIndex = null;
+         return(-1);
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
+   
+   /**
+    * Get summary information on all datasets in this repository file from the persistent ID index. This does not 
+    * require that the file be preloaded; the ID index file is read sequentially, which is typically much faster than 
+    * reading the block index of every data section in the file.
+    * @return Summary information for all datasets in the repository, in no particular order. Returns null if the ID 
+    * index is disabled or unavailable, or if a batch is in progress; see {@link #findUID(String)}.
+    */
+   public List<DataSetInfo> getIndexedDataSetInfo()
+   {
+      if(!checkIDIndex()) return(null);
+      rwLock.readLock().lock();
+      try
+      {
+         IDIndex idx = idIndex;
+         if(idx == null || failureReason != null || journal != null || !idIndexChanges.isEmpty()) return(null);
+         List<DataSetInfo> infos = new ArrayList<>();
+         for(IndexEntry e : idx.readAll().values()) infos.add(e.info);
+         return(infos);
+      }
+      catch(IOException ioe)
+      {
+         idIndexStale = true;
+         idIndex = null;
+         return(null);
+      }
+      finally { rwLock.readLock().unlock(); }
+   }
+   
+   /**
+    * The body of the background compaction thread. See {@link #startBackgroundCompaction(double)}.
+    */
+   private void runBackgroundCompaction()
+   {
+      try
+      {
+         while(!stopCompactor)
+         {
+            if(isBatchActive())
+            {
+               Thread.sleep(COMPACT_PAUSE_MS);
+               continue;
+            }
+            long n = compactStep(COMPACT_BLOCKS_PER_STEP);
+            if(n <= 0) break;
+            bytesReclaimed += n;
+            compactionProgress = Math.min(1.0, ((double) bytesReclaimed) / ((double) compactionTarget));
+            Thread.sleep(COMPACT_PAUSE_MS);
+         }
+      }
+      catch(InterruptedException ignored) {}
+      finally
+      {
+         compactionProgress = 1;
+         synchronized(compactorLock) { compactor = null; }
+      }
+   }
+   
+   /**
+    * Helper method computes the total amount of allocated but unused space in the repository file: all unoccupied 
+    * blocks plus any extra space in occupied blocks.
+    * @return The unused space in bytes.
+    */
+   private long getWastedSpace()
+   {
+      long wasted = 0;
+      for(IndexEntry e : allocatedBlocks)
+      {
+         if(e.uid == UNOCCUPIED_ID) wasted += e.size;
+         else if(e.uid > UNOCCUPIED_ID) wasted += e.size - getStoredSize(e);
+      }
+      return(wasted);
+   }
+   
+   /**
+    * Helper method computes the size the repository file should have, given its current block index: it ends with the
+    * last allocated block -- or, if the last data section has no allocated blocks, with that section's block index.
+    * @return The expected file size in bytes.
+    */
+   private long getFileEnd()
+   {
+      long end = TAGSZ;
+      if(!allocatedBlocks.isEmpty())
+      {
+         IndexEntry last = allocatedBlocks.get(allocatedBlocks.size() - 1);
+         end = last.offset + last.size;
+      }
+      if(allocatedBlocks.size() == (numSections - 1) * SECTIONSZ) end += SECTIONSZ * INDEXENTRYSZ;
+      return(end);
+   }
+   
+   /**
+    * Helper method for incremental compaction. Any unoccupied blocks at the end of the last data section are marked as
+    * unallocated. If that leaves the last section with no allocated blocks, the section itself is removed (unless it 
+    * is the only section), and the process repeats with the new last section. Finally, the file is truncated to its
+    * new extent.
+    * @return True if successful, false if a file IO error occurred, rendering this repository file unusable.
+    */
+   private boolean releaseTrailingBlocks()
+   {
+      long startSize = getFileEnd();
+      FileChannel fc = null;
+      try
+      {
+         fc = openChannel(true);
+         ByteBuffer bb = getByteBuffer();
+         IndexEntry unallocated = new IndexEntry(UNALLOCATED_ID, 0, 0, null);
+         while(true)
+         {
+            int first = (numSections - 1) * SECTIONSZ;
+            int n = allocatedBlocks.size();
+            int k = n;
+            while(k > first && allocatedBlocks.get(k-1).uid == UNOCCUPIED_ID) --k;
+            if(k < n)
             {
-               int idx = i*SECTIONSZ + j;
-               if(idx >= compactedIndex.size()) break;
-               IndexEntry entry = compactedIndex.get(idx);
-               IndexEntry old = uid2BlockMap.get(entry.uid);
+               // find file offset to the start of the block index of the last data section, then rewrite the entries
+               // for the released blocks.
+               long sectionOffset = TAGSZ;
+               if(numSections > 1)
+               {
+                  IndexEntry e = allocatedBlocks.get(first - 1);
+                  sectionOffset = e.offset + e.size;
+               }
+               bb.clear();
+               bb.limit((n - k) * INDEXENTRYSZ);
+               for(int i=k; i<n; i++) if(!putIndexEntry(bb, unallocated))
+                  throw new IOException("Unexpected error while preparing block index");
+               bb.position(0);
+               if((n - k) * INDEXENTRYSZ != writeAt(fc, bb, sectionOffset + (k - first) * INDEXENTRYSZ))
+                  throw new IOException("Unexpected error while writing file index chunk");
                
-               long nBytes = srcFC.transferTo(old.offset, entry.size, dstFC);
-               if(nBytes != ((long)entry.size))
-                  throw new IOException("Unexpected error while copying data to compacted file");
+               while(allocatedBlocks.size() > k) allocatedBlocks.remove(allocatedBlocks.size() - 1);
+               invalidateMappedSection(numSections - 1);
             }
+            
+            // if the last section is now empty, remove it by decrementing the number of sections in the file header
+            if(k > first || numSections == 1) break;
+            bb.clear();
+            bb.limit(TAGSZ);
+            bb.putInt(tagLE);
+            bb.putInt(numSections - 1);
+            bb.position(0);
+            if(TAGSZ != writeAt(fc, bb, 0)) throw new IOException("Unexpected error while updating file header");
+            --numSections;
          }
-
-         srcRAF.close();
-         dstRAF.close();
-         ok = true;
+         
+         long endSize = getFileEnd();
+         if(endSize < startSize) truncateAt(fc, endSize);
+         syncChannel(fc);
       }
       catch(IOException ioe)
       {
-         failureReason = "Failed during compaction:\n   " + ioe.getMessage() + "\n  File: " + filePath;
-         clearCache();
+         failureReason = "Failed while releasing unused blocks:\n   " + ioe.getMessage() + "\n   File: " + filePath;
+         datasetCache.clear();
       }
       finally
       {
-         try { if(srcRAF != null) srcRAF.close(); } catch(IOException ignored) {}
-         try { if(dstRAF != null) dstRAF.close(); } catch(IOException ignored) {}
-      }
-      
-      if(ok)
-      {
-         ok = filePath.delete();
-         if(ok) ok = tmpFile.renameTo(filePath);
-         if(!ok) 
-         {
-            failureReason = "File delete or rename operation failed after compaction.\n" + 
-                  "Compacted dataset repository saved in: " + tmpFile;
-            clearCache();
-         }
-         
-         if(ok)
-         {
-            // SUCCESS. Replace current block index and map with new versions reflecting file's compacted state!
-            numSections = nSections;
-            allocatedBlocks.clear();
-            allocatedBlocks = compactedIndex;
-            uid2BlockMap.clear();
-            uid2BlockMap = compactedMap;
-         }
+         releaseChannel(fc);
       }
-      return(ok);
+      return(failureReason == null);
    }
    
    /**
@@ -1162,44 +2466,44 @@ public class DataSetRepository
       if(allocatedBlocks.size() < numSections*SECTIONSZ)
          throw new IllegalStateException("Cannot increase capacity until all existing sections are fully allocated!");
       
-      RandomAccessFile raf = null;
+      FileChannel fc = null;
       boolean ok = false;
       try
       {
-         raf = new RandomAccessFile(filePath, "rwd");
-         FileChannel fc = raf.getChannel();
+         fc = openChannel(true);
          
          ByteBuffer bb = getByteBuffer();
 
          // increment number of data sections in file
-         fc.position(0);
          bb.limit(TAGSZ);
          bb.putInt(tagLE);
          bb.putInt(numSections + 1);
          bb.position(0);
-         if(TAGSZ != fc.write(bb))
+         if(TAGSZ != writeAt(fc, bb, 0))
             throw new IOException("Unexpected error while updating file header");
          
-         // move to the end of the file and write the block index for the new section. No blocks are allocated yet.
-         fc.position(fc.size());
+         // append the block index for the new section to the end of the file, which always coincides with the end of 
+         // the last allocated block. No blocks are allocated yet.
+         IndexEntry lastBlk = allocatedBlocks.get(allocatedBlocks.size() - 1);
          IndexEntry unallocated = new IndexEntry(UNALLOCATED_ID, 0, 0, null);
          bb.clear();
          bb.limit(SECTIONSZ*INDEXENTRYSZ);
          for(int i=0; i<SECTIONSZ; i++) if(!putIndexEntry(bb, unallocated))
             throw new IOException("Unexpected error while preparing block index for new data section");
          bb.position(0);
-         if(SECTIONSZ*INDEXENTRYSZ != fc.write(bb))
+         if(SECTIONSZ*INDEXENTRYSZ != writeAt(fc, bb, lastBlk.offset + lastBlk.size))
             throw new IOException("Unexpected error while appending block index for new data section");
+         syncChannel(fc);
          ok = true;
       }
       catch(IOException ioe)
       {
          failureReason = "Failed while growing file:\n   " + ioe.getMessage() + "\n  File: " + filePath;
-         clearCache();
+         datasetCache.clear();
       }
       finally
       {
-         try { if(raf != null) raf.close(); } catch(IOException ignored) {}
+         releaseChannel(fc);
       }
       
       if(ok) ++numSections;
@@ -1247,18 +2551,18 @@ public class DataSetRepository
       // handle special case: last block in last section is unoccupied, and coalescing is not possible.
       if(!canCoalesce)
       {
-         try(RandomAccessFile raf = new RandomAccessFile(filePath, "rwd"))
+         FileChannel fc = null;
+         try
          {
-            FileChannel fc = raf.getChannel();
+            fc = openChannel(true);
 
-            // position file pointer to the start of the last entry of last data section
+            // find file offset to the start of the last entry of last data section
             long sectionOffset = TAGSZ;
             if(numSections > 1)
             {
                IndexEntry e = allocatedBlocks.get((numSections - 1) * SECTIONSZ - 1);
                sectionOffset = e.offset + e.size;
             }
-            fc.position(sectionOffset + (SECTIONSZ - 1) * INDEXENTRYSZ);
 
             // mark that entry as unallocated
             ByteBuffer bb = getByteBuffer();
@@ -1266,20 +2570,26 @@ public class DataSetRepository
             if(!putIndexEntry(bb, new IndexEntry(UNALLOCATED_ID, 0, 0, null)))
                throw new IOException("Unexpected error while preparing block index");
             bb.position(0);
-            if(INDEXENTRYSZ != fc.write(bb))
+            if(INDEXENTRYSZ != writeAt(fc, bb, sectionOffset + (SECTIONSZ - 1) * INDEXENTRYSZ))
                throw new IOException("Unexpected error while writing file index chunk");
 
             // truncate file at the end of the next-to-last block in the last data section
             IndexEntry e = allocatedBlocks.get(allocatedBlocks.size() - 2);
-            fc.truncate(e.offset + e.size);
+            truncateAt(fc, e.offset + e.size);
+            syncChannel(fc);
 
             // the last allocated block is now unallocated!
             allocatedBlocks.remove(allocatedBlocks.size() - 1);
+            invalidateMappedSection(numSections - 1);
          }
          catch(IOException ioe)
          {
             failureReason = "Failed while coalescing:\n   " + ioe.getMessage() + "\n   File: " + filePath;
-            clearCache();
+            datasetCache.clear();
+         }
+         finally
+         {
+            releaseChannel(fc);
          }
          
          return((failureReason == null) ? allocatedBlocks.size() : -1);
@@ -1317,18 +2627,18 @@ public class DataSetRepository
       if(unoccupied != null) updated.add(unoccupied);
       
       // write the coalesced block index to the physical file
-      try(RandomAccessFile raf = new RandomAccessFile(filePath, "rwd"))
+      FileChannel fc = null;
+      try
       {
-         FileChannel fc = raf.getChannel();
+         fc = openChannel(true);
 
-         // position file pointer to the start of the block index of the last data section
+         // find file offset to the start of the block index of the last data section
          long sectionOffset = TAGSZ;
          if(numSections > 1)
          {
             IndexEntry e = allocatedBlocks.get((numSections - 1) * SECTIONSZ - 1);
             sectionOffset = e.offset + e.size;
          }
-         fc.position(sectionOffset);
 
          ByteBuffer bb = getByteBuffer();
          bb.limit(SECTIONSZ * INDEXENTRYSZ);
@@ -1341,13 +2651,18 @@ public class DataSetRepository
                throw new IOException("Unexpected error while preparing block index");
          }
          bb.position(0);
-         if(SECTIONSZ * INDEXENTRYSZ != fc.write(bb))
+         if(SECTIONSZ * INDEXENTRYSZ != writeAt(fc, bb, sectionOffset))
             throw new IOException("Unexpected error while writing file index chunk");
+         syncChannel(fc);
       }
       catch(IOException ioe)
       {
          failureReason = "Failed while coalescing:\n   " + ioe.getMessage() + "\n   File: " + filePath;
-         clearCache();
+         datasetCache.clear();
+      }
+      finally
+      {
+         releaseChannel(fc);
       }
       
       // return immediately if file update failed
@@ -1360,6 +2675,7 @@ public class DataSetRepository
       i = (numSections-1)*SECTIONSZ; 
       while(i < allocatedBlocks.size()) allocatedBlocks.remove(i);
       allocatedBlocks.addAll(updated);
+      invalidateMappedSection(numSections - 1);
 
       int block = -1;
       for(i=(numSections-1)*SECTIONSZ; i<allocatedBlocks.size(); i++)
@@ -1379,45 +2695,72 @@ public class DataSetRepository
     * entry accordingly. If the specified block is not allocated, the file's size will increase to accommodate the 
     * dataset content. The dataset is also stored in the in-memory dataset cache.
     * @param idx Index of dataset block. If block is not yet allocated, this must equal the #blocks already allocated.
-    * @param entry Index entry to be written into the file index (UID, file offset, block size, dataset info).
+    * @param entry Index entry to be written into the file index (UID, file offset, block size, dataset info, codec).
     * @param ds The dataset itself.
+    * @param packed The dataset's raw data array, compressed with the codec specified in the index entry. Must be null
+    * if the codec is {@link Codec#NONE}, in which case the raw data array is stored uncompressed.
     * @return True if successful, false if any file-write operation fails.
     */
-   private boolean writeDataset(int idx, IndexEntry entry, DataSet ds)
+   private boolean writeDataset(int idx, IndexEntry entry, DataSet ds, byte[] packed)
    {
       if(idx < 0 || idx >= numSections*SECTIONSZ || idx > allocatedBlocks.size() || entry == null || ds == null) 
          throw new IllegalArgumentException();
 
-      // store dataset in cache now
-      storeInCache(entry.uid, ds);
+      // store dataset in cache now. Any mapped view of the target section is stale once the block is written.
+      datasetCache.put(entry.uid, ds);
+      invalidateMappedSection(idx / SECTIONSZ);
+      if(batchSets != null) batchSets.put(entry.uid, ds);
 
-      try(RandomAccessFile raf = new RandomAccessFile(filePath, "rwd"))
+      FileChannel fc = null;
+      try
       {
-         // open file and reposition to beginning of target block
-         FileChannel fc = raf.getChannel();
-         fc.position(entry.offset);
+         fc = openChannel(true);
 
-         // write the dataset UID
+         // write the dataset UID at the beginning of the target block
          ByteBuffer bb = getByteBuffer();
          bb.limit(4);
          bb.putInt(entry.uid);
          bb.position(0);
-         if(4 != fc.write(bb)) throw new IOException("Unexpected error while writing UID to allocated block");
+         if(4 != writeAt(fc, bb, entry.offset)) 
+            throw new IOException("Unexpected error while writing UID to allocated block");
          bb.clear();
 
-         // write the raw data array in CHUNKSZ chunks
-         int nBytes = computeStorageSize(entry.info) - 4;
-         int nWrt = 0;
-         while(nWrt < nBytes)
-         {
-            int nChunk = Math.min(CHUNKSZ, nBytes - nWrt);
-            bb.limit(nChunk);
-            FloatBuffer fbuf = bb.asFloatBuffer();
-            ds.copyRawData(nWrt / 4, nChunk / 4, fbuf);
+         if(packed != null)
+         {
+            // write the length of the compressed raw data, then the compressed bytes
+            bb.limit(4);
+            bb.putInt(packed.length);
             bb.position(0);
-            if(nChunk != fc.write(bb)) throw new IOException("Unexpected error while writing dataset raw data");
+            if(4 != writeAt(fc, bb, entry.offset + 4)) 
+               throw new IOException("Unexpected error while writing compressed data length");
             bb.clear();
-            nWrt += nChunk;
+            
+            ByteBuffer src = ByteBuffer.wrap(packed);
+            while(src.hasRemaining())
+            {
+               if(0 >= writeAt(fc, src, entry.offset + COMPRESSEDHDRSZ + src.position()))
+                  throw new IOException("Unexpected error while writing compressed raw data");
+            }
+            entry.stored = COMPRESSEDHDRSZ + packed.length;
+         }
+         else
+         {
+            // write the raw data array in CHUNKSZ chunks
+            int nBytes = computeStorageSize(entry.info) - 4;
+            int nWrt = 0;
+            while(nWrt < nBytes)
+            {
+               int nChunk = Math.min(CHUNKSZ, nBytes - nWrt);
+               bb.limit(nChunk);
+               FloatBuffer fbuf = bb.asFloatBuffer();
+               ds.copyRawData(nWrt / 4, nChunk / 4, fbuf);
+               bb.position(0);
+               if(nChunk != writeAt(fc, bb, entry.offset + 4 + nWrt)) 
+                  throw new IOException("Unexpected error while writing dataset raw data");
+               bb.clear();
+               nWrt += nChunk;
+            }
+            entry.stored = nBytes + 4;
          }
 
          // update entry in block index. If entry is not in the first data section, we have to examine the last block
@@ -1431,19 +2774,23 @@ public class DataSetRepository
          }
          offset += (idx % SECTIONSZ) * INDEXENTRYSZ;
 
-         fc.position(offset);
          bb.clear();
          bb.limit(INDEXENTRYSZ);
          if(!putIndexEntry(bb, entry))
             throw new IOException("Unexpected error while preparing index entry");
          bb.position(0);
-         if(INDEXENTRYSZ != fc.write(bb))
+         if(INDEXENTRYSZ != writeAt(fc, bb, offset))
             throw new IOException("Unexpected error while writing index entry");
+         syncChannel(fc);
       }
       catch(IOException ioe)
       {
          failureReason = "Failed to write dataset in block " + idx + ":\n  " + ioe.getMessage();
-         clearCache();
+         datasetCache.clear();
+      }
+      finally
+      {
+         releaseChannel(fc);
       }
       
       return(failureReason == null);
@@ -1451,7 +2798,10 @@ public class DataSetRepository
    
    /**
     * Helper method reads the dataset at the specified block in the physical repository file. The method will first 
-    * check the in-memory dataset cache. If it's available there, the file IO operation will be avoided.
+    * check the in-memory dataset cache. If it's available there, the file IO operation will be avoided. Otherwise, if
+    * the memory-mapped read mode is enabled, the raw data is copied directly from the mapped data section; else it is
+    * read from the file in <code>CHUNKSZ</code> chunks. An uncompressed raw data array of at least {@link 
+    * DataSet#OFFHEAPMINBYTES} bytes is copied into direct buffers outside the Java heap rather than a Java array.
     * @param entry Index entry for file block where dataset is stored (UID, file offset, block size, dataset info).
     * @return The dataset read from the file. Null if any file-read operation fails, which renders this repository file 
     * object unusable.
@@ -1461,38 +2811,104 @@ public class DataSetRepository
       if(entry == null) throw new IllegalArgumentException();
 
       // try in-memory cache first!
-      DataSet ds = this.retrieveFromCache(entry.uid);
+      DataSet ds = datasetCache.get(entry.uid);
       if(ds != null) return(ds);
+      
+      // a dataset stored during a batch in progress is not in the physical file yet!
+      if(batchSets != null)
+      {
+         ds = batchSets.get(entry.uid);
+         if(ds != null) return(ds);
+      }
 
-      try(RandomAccessFile raf = new RandomAccessFile(filePath, "r"))
+      // in mapped read mode, copy the raw data straight from the mapped section, if possible
+      ByteBuffer mapped = mappedReads ? getMappedBlock(entry) : null;
+      if(mapped != null)
       {
-         // open file and reposition to beginning of target block
-         FileChannel fc = raf.getChannel();
-         fc.position(entry.offset);
+         try
+         {
+            if(mapped.getInt() != entry.uid) throw new IOException("Retrieved dataset UID does not match index entry!");
+            FloatStore store = readOffHeap(entry, mapped, null);
+            if(store != null)
+            {
+               ds = DataSet.createDataSet(entry.info, store, null);
+               if(ds == null)
+                  throw new IOException("Retrieved raw data array does not match dataset info in cached index entry!");
+               return(ds);
+            }
+            float[] fData = new float[entry.info.getDataArraySize()];
+            if(entry.codec != Codec.NONE)
+            {
+               int len = mapped.getInt();
+               if(len < 0 || len > entry.size - COMPRESSEDHDRSZ) 
+                  throw new IOException("Invalid compressed data length: " + len);
+               byte[] packed = new byte[len];
+               mapped.get(packed);
+               if(!entry.codec.decode(packed, entry.info, fData)) 
+                  throw new IOException("Unable to decompress raw data array");
+            }
+            else mapped.asFloatBuffer().get(fData);
+            
+            ds = DataSet.createDataSet(entry.info, fData);
+            if(ds == null)
+               throw new IOException("Retrieved raw data array does not match dataset info in cached index entry!");
+         }
+         catch(IOException ioe)
+         {
+            failureReason = "Failed to read dataset (UID=" + entry.uid + ") at offset " +
+                  entry.offset + ":\n  " + ioe.getMessage();
+            datasetCache.clear();
+         }
+         return(ds);
+      }
+      
+      FileChannel fc = null;
+      try
+      {
+         fc = openChannel(false);
 
-         // read the dataset UID and verify
+         // read the dataset UID at the beginning of the target block and verify
          ByteBuffer bb = getByteBuffer();
          bb.limit(4);
-         if(4 != fc.read(bb)) throw new IOException("Unexpected error while dataset UID from data block");
+         if(4 != fc.read(bb, entry.offset)) throw new IOException("Unexpected error while dataset UID from data block");
          bb.position(0);
          int uid = bb.getInt();
          if(uid != entry.uid) throw new IOException("Retrieved dataset UID does not match index entry!");
          bb.clear();
 
-         // read the raw data array in CHUNKSZ chunks
+         FloatStore store = readOffHeap(entry, null, fc);
+         if(store != null)
+         {
+            ds = DataSet.createDataSet(entry.info, store, null);
+            if(ds == null)
+               throw new IOException("Retrieved raw data array does not match dataset info in cached index entry!");
+            return(ds);
+         }
          float[] fData = new float[entry.info.getDataArraySize()];
-         int nBytes = fData.length * 4;
-         int nWrt = 0;
-         while(nWrt < nBytes)
+         if(entry.codec != Codec.NONE)
          {
-            int nChunk = Math.min(CHUNKSZ, nBytes - nWrt);
-            bb.limit(nChunk);
-            if(nChunk != fc.read(bb)) throw new IOException("Unexpected error while reading dataset raw data");
-            bb.position(0);
-            FloatBuffer fbuf = bb.asFloatBuffer();
-            fbuf.get(fData, nWrt / 4, nChunk / 4);
-            nWrt += nChunk;
-            bb.clear();
+            // read the compressed raw data array in one go and decompress it
+            byte[] packed = readCompressedData(fc, entry);
+            if(!entry.codec.decode(packed, entry.info, fData)) 
+               throw new IOException("Unable to decompress raw data array");
+         }
+         else
+         {
+            // read the raw data array in CHUNKSZ chunks
+            int nBytes = fData.length * 4;
+            int nWrt = 0;
+            while(nWrt < nBytes)
+            {
+               int nChunk = Math.min(CHUNKSZ, nBytes - nWrt);
+               bb.limit(nChunk);
+               if(nChunk != fc.read(bb, entry.offset + 4 + nWrt)) 
+                  throw new IOException("Unexpected error while reading dataset raw data");
+               bb.position(0);
+               FloatBuffer fbuf = bb.asFloatBuffer();
+               fbuf.get(fData, nWrt / 4, nChunk / 4);
+               nWrt += nChunk;
+               bb.clear();
+            }
          }
 
          // create the dataset
@@ -1504,12 +2920,348 @@ public class DataSetRepository
       {
          failureReason = "Failed to read dataset (UID=" + entry.uid + ") at offset " +
                entry.offset + ":\n  " + ioe.getMessage();
-         clearCache();
+         datasetCache.clear();
+      }
+      finally
+      {
+         releaseChannel(fc);
       }
       
       return(ds);
    }
    
+   /**
+    * Helper method reads the uncompressed raw data array of a very large dataset into direct buffers outside the Java 
+    * heap, which are then wrapped as the dataset's {@link FloatStore}. Unlike a {@link ColumnarSrc} file, the
+    * repository file is modified in place, so the store cannot be backed by memory-mapped views of the file itself.
+    * @param entry Index entry for file block where dataset is stored.
+    * @param mapped If not null, a memory-mapped view of the block, positioned at the start of the raw data array.
+    * @param fc If <b>mapped</b> is null, the repository file channel from which the raw data array is read.
+    * @return The off-heap store. Returns null if the raw data array is compressed, if it is smaller than {@link 
+    * DataSet#OFFHEAPMINBYTES}, or if there is not enough direct memory available. In these cases the caller should
+    * read the raw data into a Java array as usual.
+    * @throws IOException if an IO error occurs.
+    */
+   private FloatStore readOffHeap(IndexEntry entry, ByteBuffer mapped, FileChannel fc) throws IOException
+   {
+      int n = entry.info.getDataArraySize();
+      if(entry.codec != Codec.NONE || 4L*n < DataSet.OFFHEAPMINBYTES) return(null);
+      ByteBuffer[] segments = FloatStore.allocateDirect(n);
+      if(segments == null) return(null);
+      
+      long pos = entry.offset + 4;
+      for(ByteBuffer seg : segments)
+      {
+         if(mapped != null)
+         {
+            ByteBuffer src = mapped.duplicate();
+            src.limit(src.position() + seg.capacity());
+            seg.put(src);
+            mapped.position(src.limit());
+         }
+         else while(seg.hasRemaining())
+         {
+            if(fc.read(seg, pos + seg.position()) < 0) 
+               throw new IOException("Unexpected error while reading dataset raw data");
+         }
+         pos += seg.capacity();
+         seg.flip();
+         seg.order(byteOrder != null ? byteOrder : ByteOrder.nativeOrder());
+      }
+      return(FloatStore.wrap(segments));
+   }
+   
+   /**
+    * Helper method acquires the read lock on behalf of an operation that only reads the repository. If the file has 
+    * not been preloaded yet, it is preloaded first, under the write lock -- since a thread holding the read lock cannot
+    * acquire the write lock. The caller must release the read lock when done, even if the file is unusable.
+    */
+   private void lockForReading()
+   {
+      rwLock.readLock().lock();
+      while(allocatedBlocks == null && failureReason == null)
+      {
+         rwLock.readLock().unlock();
+         preload();
+         rwLock.readLock().lock();
+      }
+   }
+   
+   /**
+    * Helper method reads the compressed raw data array of a dataset from its allocation block.
+    * @param fc A file channel obtained by {@link #openChannel(boolean)}.
+    * @param entry Index entry for the file block where the dataset is stored. Its codec must not be {@link Codec#NONE}.
+    * @return The compressed bytes.
+    * @throws IOException if an IO error occurs, or if the compressed data length in the block is invalid.
+    */
+   private byte[] readCompressedData(FileChannel fc, IndexEntry entry) throws IOException
+   {
+      ByteBuffer bb = getByteBuffer();
+      bb.limit(4);
+      if(4 != fc.read(bb, entry.offset + 4)) 
+         throw new IOException("Unexpected EOF while reading compressed data length");
+      bb.position(0);
+      int len = bb.getInt();
+      if(len < 0 || len > entry.size - COMPRESSEDHDRSZ) throw new IOException("Invalid compressed data length: " + len);
+      entry.stored = COMPRESSEDHDRSZ + len;
+      
+      byte[] packed = new byte[len];
+      ByteBuffer dst = ByteBuffer.wrap(packed);
+      while(dst.hasRemaining())
+      {
+         if(0 >= fc.read(dst, entry.offset + COMPRESSEDHDRSZ + dst.position()))
+            throw new IOException("Unexpected EOF while reading compressed raw data");
+      }
+      return(packed);
+   }
+   
+   /**
+    * Helper method gets the number of bytes actually used to store a dataset within its allocation block. For an 
+    * uncompressed dataset, this depends only on the dataset's size. For a compressed dataset, the length of the 
+    * compressed data is recorded in the block itself; if it is not yet known, it is read from the file.
+    * @param entry Index entry for an occupied allocation block.
+    * @return The number of bytes used in the block. If the compressed data length cannot be read, the block size is 
+    * returned.
+    */
+   private int getStoredSize(IndexEntry entry)
+   {
+      if(entry.codec == Codec.NONE) return(computeStorageSize(entry.info));
+      if(entry.stored < 0)
+      {
+         FileChannel fc = null;
+         try
+         {
+            fc = openChannel(false);
+            ByteBuffer bb = getByteBuffer();
+            bb.limit(4);
+            if(4 == fc.read(bb, entry.offset + 4))
+            {
+               bb.position(0);
+               int len = bb.getInt();
+               if(len >= 0 && len <= entry.size - COMPRESSEDHDRSZ) entry.stored = COMPRESSEDHDRSZ + len;
+            }
+         }
+         catch(IOException ignored) {}
+         finally { releaseChannel(fc); }
+      }
+      return((entry.stored < 0) ? entry.size : entry.stored);
+   }
+   
+   /**
+    * Helper method compresses the raw data array of a dataset about to be stored in the repository file, if warranted
+    * by the current compression policy. See {@link #setCompressionPolicy(Codec, int, double)}.
+    * @param ds The dataset.
+    * @return The compressed raw data, or null if the dataset should be stored uncompressed.
+    */
+   private byte[] encodeForStorage(DataSet ds)
+   {
+      int nBytes = computeStorageSize(ds.getInfo()) - 4;
+      if(compressionCodec == Codec.NONE || nBytes < minCompressBytes) return(null);
+      byte[] packed = compressionCodec.encode(ds);
+      return((packed != null && COMPRESSEDHDRSZ - 4 + packed.length <= maxCompressRatio * nBytes) ? packed : null);
+   }
+   
+   /**
+    * Helper method opens the persistent ID index, if it is enabled, without preloading the repository file. Only the
+    * repository file tag (to determine the file's byte order) and the ID index file header are read. If a write-ahead
+    * journal file exists, the ID index is not opened, since the journal must be recovered by a full preload. If the 
+    * file has already been preloaded, the ID index was opened (or rebuilt) at that time.
+    * @return True if the ID index is available.
+    */
+   private boolean checkIDIndex()
+   {
+      if(idIndex != null) return(failureReason == null);
+      if(idIndexChecked || !idIndexEnabled) return(false);
+      
+      rwLock.writeLock().lock();
+      try
+      {
+         if(!idIndexEnabled || failureReason != null) return(false);
+         if(allocatedBlocks != null || idIndexChecked) return(idIndex != null);
+         idIndexChecked = true;
+         if(!filePath.isFile() || getJournalPath().isFile()) return(false);
+         
+         try(RandomAccessFile raf = new RandomAccessFile(filePath, "r"))
+         {
+            ByteBuffer bb = ByteBuffer.allocate(TAGSZ).order(ByteOrder.LITTLE_ENDIAN);
+            if(TAGSZ != raf.getChannel().read(bb, 0)) return(false);
+            bb.flip();
+            int tag = bb.getInt();
+            ByteOrder order;
+            if(tag == tagLE) order = ByteOrder.LITTLE_ENDIAN;
+            else if(tag == ((tagLE == TAG_DNX_LE) ? TAG_DNX_BE : TAG_DNR_BE)) order = ByteOrder.BIG_ENDIAN;
+            else return(false);
+            
+            idIndex = IDIndex.open(getIDIndexPath(), filePath, order);
+            if(idIndex != null) byteOrder = order;
+         }
+         catch(IOException ignored) {}
+         return(idIndex != null);
+      }
+      finally { rwLock.writeLock().unlock(); }
+   }
+   
+   /**
+    * Helper method for {@link #preload()}. If the persistent ID index is enabled, it is opened. If the ID index file 
+    * does not exist, is out of date, or was found to be inconsistent with the repository file, it is rebuilt from the
+    * block index.
+    */
+   private void loadIDIndex()
+   {
+      idIndex = null;
+      idIndexChecked = true;
+      idIndexChanges.clear();
+      if(!idIndexEnabled) return;
+      if(!idIndexStale) idIndex = IDIndex.open(getIDIndexPath(), filePath, byteOrder);
+      if(idIndex == null) rebuildIDIndex();
+   }
+   
+   /**
+    * Helper method rebuilds the persistent ID index file from the block index, if the ID index is enabled. If any two
+    * datasets in the repository have the same ID, or if an IO error occurs, the ID index file is deleted instead.
+    */
+   @SuppressWarnings("ResultOfMethodCallIgnored")
+   private void rebuildIDIndex()
+   {
+      idIndex = null;
+      idIndexStale = false;
+      idIndexChanges.clear();
+      if(!idIndexEnabled) return;
+      
+      HashMap<String, IndexEntry> entries = new HashMap<>();
+      for(IndexEntry e : uid2BlockMap.values()) if(entries.put(e.info.getID(), e) != null)
+      {
+         getIDIndexPath().delete();
+         return;
+      }
+      try { idIndex = IDIndex.create(getIDIndexPath(), filePath, byteOrder, entries.values()); }
+      catch(IOException ioe) { getIDIndexPath().delete(); }
+   }
+   
+   /**
+    * Helper method records a change to be applied to the persistent ID index by the next call to {@link 
+    * #flushIDIndex()}. It has no effect if the ID index is disabled.
+    * @param id A dataset ID.
+    * @param entry The block index entry of the block in which the dataset with that ID is now stored; or an unoccupied
+    * entry if there is no longer such a dataset.
+    */
+   private void noteIDIndexChange(String id, IndexEntry entry)
+   {
+      if(idIndexEnabled) idIndexChanges.put(id, entry);
+   }
+   
+   /**
+    * Helper method applies all pending changes to the persistent ID index and records the repository file's current
+    * size and modification time in the ID index file header. Call this after any operation that modifies the file. It
+    * has no effect while a batch is in progress, since the file is not modified until the batch is committed. If the 
+    * update fails, the ID index is abandoned until the file is next preloaded -- the file itself is still usable.
+    */
+   private void flushIDIndex()
+   {
+      if(journal != null) return;
+      IDIndex idx = idIndex;
+      if(idx != null && failureReason == null)
+      {
+         try { idIndex = idx.update(idIndexChanges, filePath); }
+         catch(IOException ioe)
+         {
+            idIndex = null;
+            idIndexStale = true;
+         }
+      }
+      idIndexChanges.clear();
+   }
+   
+   /**
+    * Helper method for the memory-mapped read mode. It locates the data section containing the allocation block 
+    * defined by the specified index entry and returns a view of that section's memory-mapped allocation blocks, 
+    * positioned at the start of the block. If the section is not yet mapped, it is mapped now.
+    * <p>The method is synchronized because it may be invoked concurrently by multiple readers, and the list of mapped 
+    * sections is updated lazily.</p>
+    * @param entry Index entry for an allocated block.
+    * @return A view of the mapped section, positioned at the first byte of the block and ordered to match the file's
+    * byte order. Returns null if a batch is in progress, if the block could not be found, if the section spans more 
+    * than 2GB, or if the mapping operation failed. In any of these cases, the caller should fall back to a chunked read.
+    */
+   private synchronized ByteBuffer getMappedBlock(IndexEntry entry)
+   {
+      // the file layout may differ from the in-memory index while a batch is in progress. Also, the allocated block 
+      // list is not available if the dataset was found via the ID index before the file was preloaded.
+      if(journal != null || allocatedBlocks == null) return(null);
+      
+      // find the block's position in the allocated block list. Block file offsets increase monotonically.
+      int lo = 0;
+      int hi = allocatedBlocks.size() - 1;
+      int idx = -1;
+      while(lo <= hi)
+      {
+         int mid = (lo + hi) >>> 1;
+         long ofs = allocatedBlocks.get(mid).offset;
+         if(ofs < entry.offset) lo = mid + 1;
+         else if(ofs > entry.offset) hi = mid - 1;
+         else { idx = mid; break; }
+      }
+      if(idx < 0) return(null);
+      int iSect = idx / SECTIONSZ;
+      
+      // offset to the first allocation block in the section, just after the section's block index
+      long start = TAGSZ;
+      if(iSect > 0)
+      {
+         IndexEntry e = allocatedBlocks.get(iSect * SECTIONSZ - 1);
+         start = e.offset + e.size;
+      }
+      start += SECTIONSZ * INDEXENTRYSZ;
+      
+      if(mappedSections == null) mappedSections = new ArrayList<>();
+      while(mappedSections.size() < numSections) mappedSections.add(null);
+      
+      MappedByteBuffer mbb = mappedSections.get(iSect);
+      if(mbb == null)
+      {
+         // map everything from the section's first block to the end of its last allocated block
+         IndexEntry last = allocatedBlocks.get(Math.min((iSect + 1) * SECTIONSZ, allocatedBlocks.size()) - 1);
+         long len = last.offset + last.size - start;
+         if(len > Integer.MAX_VALUE) return(null);
+         
+         FileChannel fc = null;
+         try
+         {
+            fc = openChannel(false);
+            mbb = fc.map(FileChannel.MapMode.READ_ONLY, start, len);
+         }
+         catch(IOException ioe) { return(null); }
+         finally { releaseChannel(fc); }
+         mappedSections.set(iSect, mbb);
+      }
+      
+      // NOTE: A duplicate buffer always has big-endian byte order, so we must set the byte order AFTER duplicating.
+      ByteBuffer bb = mbb.duplicate();
+      bb.order(byteOrder != null ? byteOrder : ByteOrder.nativeOrder());
+      bb.position((int) (entry.offset - start));
+      return(bb);
+   }
+   
+   /**
+    * Discard the memory-mapped view of the specified data section, if there is one. Call this method whenever the
+    * content or extent of the section's allocation blocks changes. The section will be re-mapped on the next read.
+    * @param iSect Index of the affected data section.
+    */
+   private synchronized void invalidateMappedSection(int iSect)
+   {
+      if(mappedSections != null && iSect >= 0 && iSect < mappedSections.size()) mappedSections.set(iSect, null);
+   }
+   
+   /** 
+    * Discard the memory-mapped views of all data sections in the repository file. Note that the mapped regions are 
+    * not actually released until the corresponding buffers are garbage-collected.
+    */
+   private synchronized void releaseMappedSections()
+   {
+      if(mappedSections != null) mappedSections.clear();
+      mappedSections = null;
+   }
+   
    /**
     * Helper method updates the physical repository file, marking the allocated block as unoccupied. Only affects the
     * corresponding entry in the block index of the relevant data section. The index entry's file offset and size are 
@@ -1524,9 +3276,10 @@ public class DataSetRepository
       
       int iSect = idx / SECTIONSZ;
       int iBlk = idx % SECTIONSZ;
-      try(RandomAccessFile raf = new RandomAccessFile(filePath, "rwd"))
+      FileChannel fc = null;
+      try
       {
-         FileChannel fc = raf.getChannel();
+         fc = openChannel(true);
 
          // find offset to the relevant block index entry. If it is not in the first data section, we must examine last
          // block in preceding section to find the offset to start of the section containing the entry to be updated.
@@ -1538,127 +3291,169 @@ public class DataSetRepository
          }
          offset += iBlk * INDEXENTRYSZ;
 
-         fc.position(offset);
-
          ByteBuffer bb = getByteBuffer();
          bb.limit(4);
          bb.putInt(UNOCCUPIED_ID);
          bb.position(0);
-         if(4 != fc.write(bb)) throw new IOException("Unexpected error while writing file");
+         if(4 != writeAt(fc, bb, offset)) throw new IOException("Unexpected error while writing file");
+         syncChannel(fc);
       }
       catch(IOException ioe)
       {
          failureReason = "Failed to unoccupy allocated block (section " + iSect + ", block " + iBlk + "):\n  " +
                ioe.getMessage();
-         clearCache();
+         datasetCache.clear();
+      }
+      finally
+      {
+         releaseChannel(fc);
       }
       
       return(failureReason == null);
    }
    
-   /** 
-    * Get the byte buffer allocated for use and cached by this <code>DNRepositoryFile</code>.
-    * <p>Cacheing the byte buffer avoids having to reallocate it frequently if this <code>DNRepositoryFile</code> is 
-    * accessed often. Only a soft reference to the buffer is maintained, so that the garbage collector can reclaim it 
-    * when memory resources are low. This method handles reallocating the buffer when this happens.</p>
-    * @return Hard reference to the byte buffer. The buffer will be initially cleared, with a limit and capacity of 
-    * <code>CHUNKSZ</code> bytes. If the source file's byte order is known, the buffer will be set accordingly; else 
-    * its byte order will be set to the platform's native byte order.
+   /**
+    * Get the abstract pathname of the write-ahead journal file used during a batch of operations on this repository.
+    * @return The repository file path with the extension ".jnl" appended.
     */
-   private ByteBuffer getByteBuffer()
+   private File getJournalPath() { return(new File(filePath.getAbsolutePath() + ".jnl")); }
+   
+   /**
+    * Helper method gets the abstract pathname of the persistent ID index file: the path set by {@link 
+    * #setIDIndexPath(File)}, else the repository file path plus ".idx".
+    * @return The ID index file path.
+    */
+   private File getIDIndexPath()
    {
-      ByteBuffer bb = (softBB == null) ? null : softBB.get();
-      if(bb == null)
-      {
-         bb = ByteBuffer.allocate(CHUNKSZ);
-         softBB = new SoftReference<>(bb);
-      }
-      bb.clear();
-      if(byteOrder == null) byteOrder = ByteOrder.nativeOrder();
-      bb.order(byteOrder);
-      return(bb);
+      File f = idIndexPath;
+      return((f != null) ? f : new File(filePath.getAbsolutePath() + ".idx"));
    }
    
    /**
-    * Store a dataset in the repository's in-memory dataset cache. If the cache is at capacity, at least one entry is 
-    * removed to make room.
-    * @param uid Unique identifier of the dataset to be stored.
-    * @param ds The dataset to be stored in cache.
+    * Helper method for {@link #preload()}. If a write-ahead journal file exists, it was left behind by a batch that was
+    * interrupted before it was fully committed. If the journal is complete, its changes are replayed onto the 
+    * repository file; otherwise, it is discarded, leaving the repository file as it was prior to the batch. In either 
+    * case, the journal file is then deleted.
+    * @return True if successful or if there was no journal file; false if an IO error occurs, rendering this file 
+    * proxy unusable.
     */
-   private void storeInCache(int uid, DataSet ds)
+   private boolean recoverJournal()
    {
-      // if it was already there, remove it and replace it
-      SoftReference<DataSet> ref = datasetCache.remove(uid);
-      if(ref != null)
-      {
-         ref.clear();
-         datasetCache.put(uid, new SoftReference<>(ds));
-         return;
-      }
+      File jnlFile = getJournalPath();
+      if(!jnlFile.isFile()) return(true);
       
-      // otherwise, if cache is at capacity, remove all entries that have been garbage-collected. If it is still full
-      // after doing so, then remove 20% of the entries. NOTE use of iterator.remove(). Cant use HashMap.remove() 
-      // while iterating over its keys!!
-      if(datasetCache.size() == MAXCACHESZ)
+      try
       {
-         Iterator<Integer> iter = datasetCache.keySet().iterator();
-         while(iter.hasNext())
+         if(filePath.isFile())
          {
-            ref = datasetCache.get(iter.next());
-            if(ref.get() == null) iter.remove();
+            try(RandomAccessFile raf = new RandomAccessFile(filePath, "rw"))
+            {
+               Journal.replay(jnlFile, raf.getChannel());
+            }
          }
+         if(!jnlFile.delete()) throw new IOException("Unable to delete journal file " + jnlFile);
       }
-      if(datasetCache.size() == MAXCACHESZ)
+      catch(IOException ioe)
       {
-         int n = MAXCACHESZ / 5;
-         Iterator<Integer> iter = datasetCache.keySet().iterator();
-         while(iter.hasNext())
-         {
-            ref = datasetCache.get(iter.next());
-            if(ref != null) ref.clear();
-            iter.remove();
-            --n;
-            if(n == 0) break;
-         }
+         failureReason = "Failed to recover from write-ahead journal:\n  " + ioe.getMessage() + "\n  File: " + filePath;
       }
-      
-      // store the dataset in the cache
-      datasetCache.put(uid, new SoftReference<>(ds));
+      return(failureReason == null);
+   }
+   
+   /**
+    * Get a file channel for reading or writing the repository file. If the file is held open (see {@link #open()}), 
+    * the long-lived channel is returned. Otherwise, the file is opened and a new channel returned; in this case, it is 
+    * opened in the synchronous "rwd" mode for write access -- unless a batch is in progress, in which case there's no
+    * need to open the file for writing and null is returned. Always pass the channel to {@link 
+    * #releaseChannel(FileChannel)} when done with it.
+    * @param write True if the channel must support writing.
+    * @return The file channel.
+    * @throws IOException if the file could not be opened.
+    */
+   private FileChannel openChannel(boolean write) throws IOException
+   {
+      if(channel != null) return(channel);
+      if(write && journal != null) return(null);
+      return(new RandomAccessFile(filePath, write ? "rwd" : "r").getChannel());
+   }
+   
+   /**
+    * Write the remaining bytes in a buffer to the repository file at the specified file position. If a batch is in 
+    * progress, the write is instead appended to the batch's write-ahead journal; the repository file itself is not 
+    * modified until the batch is committed.
+    * @param fc A file channel obtained by {@link #openChannel(boolean)} with write access. Ignored during a batch.
+    * @param bb The bytes to be written.
+    * @param pos The file position at which the bytes are written.
+    * @return The number of bytes written.
+    * @throws IOException if an IO error occurs.
+    */
+   private int writeAt(FileChannel fc, ByteBuffer bb, long pos) throws IOException
+   {
+      if(journal != null) return(journal.write(bb, pos));
+      return(fc.write(bb, pos));
+   }
+   
+   /**
+    * Truncate the repository file to the specified size. If a batch is in progress, the truncation is instead appended
+    * to the batch's write-ahead journal.
+    * @param fc A file channel obtained by {@link #openChannel(boolean)} with write access. Ignored during a batch.
+    * @param size The new file size in bytes.
+    * @throws IOException if an IO error occurs.
+    */
+   private void truncateAt(FileChannel fc, long size) throws IOException
+   {
+      if(journal != null) journal.truncate(size);
+      else fc.truncate(size);
    }
    
    /**
-    * Retreive a dataset from the repository's in-memory dataset cache, if it's available there.
-    * @param uid Unique identifier of dataset to retrieve.
-    * @return The dataset requested, or null if it was not found in cache.
+    * Release a file channel obtained by {@link #openChannel(boolean)}. It is closed unless it is the long-lived channel
+    * that's kept while the repository file is held open.
+    * @param fc The file channel to release. If null, no action is taken.
     */
-   private DataSet retrieveFromCache(int uid)
+   private void releaseChannel(FileChannel fc)
    {
-      DataSet ds = null;
-      SoftReference<DataSet> ref = datasetCache.get(uid);
-      if(ref != null)
+      if(fc != null && fc != channel)
       {
-         ds = ref.get();
-         if(ds == null) datasetCache.remove(uid);
+         try { fc.close(); } catch(IOException ignored) {}
       }
-      return(ds);
    }
    
    /**
-    * Remove a dataset from the repository's in-memory dataset cache, if it's there.
-    * @param uid Unique identifier of dataset to be removed from cache.
+    * Force any changes written via the specified file channel to the storage device. This is only necessary for the 
+    * long-lived channel, since all other channels are opened in the synchronous "rwd" mode. It is not done during a 
+    * batch, since the repository file is not modified until the batch is committed.
+    * @param fc A file channel obtained by {@link #openChannel(boolean)}.
+    * @throws IOException if an IO error occurs.
     */
-   private void removeFromCache(int uid)
+   private void syncChannel(FileChannel fc) throws IOException
    {
-      SoftReference<DataSet> ref = datasetCache.remove(uid);
-      if(ref != null) ref.clear();
+      if(fc != null && fc == channel && journal == null) fc.force(false);
    }
    
-   /** Clear the repository's in-memory dataset cache. */
-   private void clearCache()
+   /** 
+    * Get the byte buffer allocated for use by the calling thread and cached by this <code>DNRepositoryFile</code>.
+    * <p>Cacheing the byte buffer avoids having to reallocate it frequently if this <code>DNRepositoryFile</code> is 
+    * accessed often. Only a soft reference to the buffer is maintained, so that the garbage collector can reclaim it 
+    * when memory resources are low. This method handles reallocating the buffer when this happens. A separate buffer
+    * is cached for each thread that accesses the file, so concurrent readers do not interfere with each other.</p>
+    * @return Hard reference to the byte buffer. The buffer will be initially cleared, with a limit and capacity of 
+    * <code>CHUNKSZ</code> bytes. If the source file's byte order is known, the buffer will be set accordingly; else 
+    * its byte order will be set to the platform's native byte order.
+    */
+   private ByteBuffer getByteBuffer()
    {
-      for(SoftReference<DataSet> ref : datasetCache.values())
-         ref.clear();
-      datasetCache.clear();
+      SoftReference<ByteBuffer> ref = softBB.get();
+      ByteBuffer bb = (ref == null) ? null : ref.get();
+      if(bb == null)
+      {
+         bb = ByteBuffer.allocate(CHUNKSZ);
+         softBB.set(new SoftReference<>(bb));
+      }
+      bb.clear();
+      if(byteOrder == null) byteOrder = ByteOrder.nativeOrder();
+      bb.order(byteOrder);
+      return(bb);
    }
    
    /** Absolute pathname of the repository file. */
@@ -1667,12 +3462,37 @@ public class DataSetRepository
    /** Little-endian file tag code for this repository file. It has one of two possible values. Set at construction. */
    private final int tagLE;
    
-   /** A soft reference to the byte buffer allocated and used to read/write repository file. */
-   private SoftReference<ByteBuffer> softBB = null;
+   /** Long-lived channel for reading and writing the repository file while it is held open; else null. */
+   private FileChannel channel = null;
+   
+   /** The write-ahead journal for the batch of operations in progress; null if no batch is in progress. */
+   private Journal journal = null;
+   
+   /** 
+    * Hard references to all datasets stored during the batch of operations in progress, keyed by UID; null if no batch
+    * is in progress. These are not in the physical file until the batch is committed.
+    */
+   private HashMap<Integer, DataSet> batchSets = null;
+   
+   /** 
+    * A soft reference to the byte buffer allocated and used to read/write repository file. Each thread gets its own
+    * buffer, since concurrent readers cannot share one.
+    */
+   private final ThreadLocal<SoftReference<ByteBuffer>> softBB = new ThreadLocal<>();
    
    /** Repository file's endianness. Will be <code>null</code> if undetermined. */
    private ByteOrder byteOrder = null;
    
+   /** Flag set if data sets are retrieved from memory-mapped views of the file's data sections. */
+   private boolean mappedReads = false;
+   
+   /** 
+    * Memory-mapped views of the allocation blocks in each data section, when the memory-mapped read mode is enabled. 
+    * An element is null if the corresponding section is not mapped, either because no data set has been read from it 
+    * yet or because its mapping was discarded after a layout change. The list is null until the first mapped read.
+    */
+   private List<MappedByteBuffer> mappedSections = null;
+   
    /** Total number of data sections in the repository file. */
    private int numSections;
    
@@ -1687,11 +3507,61 @@ public class DataSetRepository
    /** Maps dataset UID to the index entry which defines the file block in which the dataset is stored. */
    private HashMap<Integer, IndexEntry> uid2BlockMap;
    
-   /** Cache of recent datasets. Maintained as soft references so they can be garbage-collected when necessary. */
-   private final HashMap<Integer, SoftReference<DataSet>> datasetCache;
+   /** Background thread that incrementally compacts the repository file; null if it is not running. */
+   private Thread compactor = null;
+   /** Guards the start and stop of the background compaction thread. */
+   private final Object compactorLock = new Object();
+   /** Flag set to stop the background compaction thread after its current step. */
+   private volatile boolean stopCompactor = false;
+   /** Unused space in the repository file, in bytes, when the current or last background compaction started. */
+   private volatile long compactionTarget = 1;
+   /** Number of bytes reclaimed so far by the current or last background compaction. */
+   private volatile long bytesReclaimed = 0;
+   /** Progress of the current or last background compaction, in [0..1]. */
+   private volatile double compactionProgress = 0;
+   /** Fragmentation threshold for automatic background compaction after a dataset removal; disabled if non-positive. */
+   private volatile double autoCompactThreshold = 0;
+   
+   /** Flag set if the repository maintains a persistent ID index. See {@link #setIDIndexEnabled(boolean)}. */
+   private volatile boolean idIndexEnabled = false;
+   /** Location of the persistent ID index file; if null, it is the repository file path plus ".idx". */
+   private volatile File idIndexPath = null;
+   /** The persistent ID index, if enabled and available; else null. */
+   private volatile IDIndex idIndex = null;
+   /** Flag set once an attempt has been made to open the persistent ID index without preloading the file. */
+   private volatile boolean idIndexChecked = false;
+   /** Flag set if the persistent ID index was found to be inconsistent with the file; it is rebuilt on preload. */
+   private volatile boolean idIndexStale = false;
+   /** 
+    * Changes not yet applied to the persistent ID index, keyed by dataset ID. The value is the block index entry of 
+    * the block in which the dataset with that ID is now stored, or an unoccupied entry if there is no longer such a 
+    * dataset.
+    */
+   private final HashMap<String, IndexEntry> idIndexChanges = new HashMap<>();
+   /** 
+    * Block index entries for datasets found via the persistent ID index before the file is preloaded, keyed by UID. 
+    * Discarded once the file is preloaded.
+    */
+   private final ConcurrentHashMap<Integer, IndexEntry> indexedEntries = new ConcurrentHashMap<>();
+   
+   /** The codec with which datasets are compressed when stored in the repository file. */
+   private volatile Codec compressionCodec = Codec.NONE;
+   /** Minimum size of a dataset's uncompressed raw data array, in bytes, for it to be stored compressed. */
+   private volatile int minCompressBytes = 16384;
+   /** Maximum ratio of compressed to uncompressed raw data size for a dataset to be stored compressed. */
+   private volatile double maxCompressRatio = 0.8;
+   
+   /** Byte-budgeted cache of recently added or retrieved datasets, keyed by UID. */
+   private volatile IDataSetCache<Integer> datasetCache;
    
    /** If non-null, this describes why last attempted operation failed. Once set, all further activity is disabled. */
-   private String failureReason;
+   private volatile String failureReason;
+   
+   /** 
+    * Guards the repository's in-memory state and the physical file. Operations that only read the repository hold the 
+    * read lock and may proceed concurrently; all other operations hold the write lock.
+    */
+   private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
    
    
    /** Length of file tag in bytes. */
@@ -1705,12 +3575,42 @@ public class DataSetRepository
    /** Big-endian tag code for repository file that DOES require each dataset to have a unique ID string. */
    private final static int TAG_DNR_BE = 0x40444E52;
    
+   /** Little-endian tag code for the write-ahead journal file used during a batch of operations ("@DNJ"). */
+   private final static int TAG_JNL_LE = 0x4A4E4440;
+   /** Big-endian tag code for the write-ahead journal file. */
+   private final static int TAG_JNL_BE = 0x40444E4A;
+   /** Length of the header of each record in the write-ahead journal, in bytes. */
+   private final static int JNLRECHDRSZ = 16;
+   /** Journal record type: write bytes at a specified file offset. */
+   private final static int JNL_WRITE = 1;
+   /** Journal record type: truncate the repository file. */
+   private final static int JNL_TRUNCATE = 2;
+   /** Journal record type: commit record, which terminates a complete journal. */
+   private final static int JNL_COMMIT = 3;
+   
+   /** Little-endian tag code for the persistent ID index file ("@DNI"). */
+   private final static int TAG_IDX_LE = 0x494E4440;
+   /** Length of the persistent ID index file header, in bytes. */
+   private final static int IDXHDRSZ = 40;
+   /** Minimum number of slots in the persistent ID index hash table. */
+   private final static int IDXMINCAPACITY = 64;
+   
+   /** Maximum number of datasets moved in each step of a background compaction. */
+   private final static int COMPACT_BLOCKS_PER_STEP = 8;
+   /** Pause between steps of a background compaction, in milliseconds. */
+   private final static long COMPACT_PAUSE_MS = 20;
+   
    /** Length of a single dataset block index entry, in bytes. */
    private final static int INDEXENTRYSZ = 84;
    /** Portion of dataset index entry occupied by the summary information on a dataset, in bytes. */
    private final static int DATASETINFOSZ = 68;
    /** Number of floating point parameters stored in the dataset summary info in index entry. */
    private final static int NDSIPARAMS = 4;
+   /** 
+    * Length of the header preceding the compressed raw data array in an allocation block, in bytes: the dataset UID and
+    * the length of the compressed data.
+    */
+   private final static int COMPRESSEDHDRSZ = 8;
    /** Number of entries in the allocation block index for each file data section. */
    private final static int SECTIONSZ = 500;
    /** Value of UID field in index entry when corresponding allocation block is not yet allocated (= -1). */
@@ -1727,12 +3627,6 @@ public class DataSetRepository
     */
    private final static int CHUNKSZ = TAGSZ + INDEXENTRYSZ*SECTIONSZ + 16;
    
-   /** 
-    * Maximum number of entries in the dataset cache. When capacity is reached, one entry is removed when a new one
-    * is added.
-    */
-   private final static int MAXCACHESZ = 50;
-   
    /** 
     * Compute #bytes required to store a dataset having the specified summary information.
     * @param info Summary info on dataset, including dataset length and breadth and format type.
@@ -1780,8 +3674,11 @@ public class DataSetRepository
       id = id.trim();
       if(!DataSet.isValidIDString(id)) return(null);
 
-      DataSet.Fmt fmt = DataSet.Fmt.getFormatByIntCode(bb.getInt());
-      if(fmt == null) return(null);
+      // the low-order byte is the data format code; the next byte is the codec code. The rest must be zero.
+      int fmtCode = bb.getInt();
+      DataSet.Fmt fmt = DataSet.Fmt.getFormatByIntCode(fmtCode & 0xFF);
+      Codec codec = Codec.getCodecByIntCode((fmtCode >> 8) & 0xFF);
+      if(fmt == null || codec == null || (fmtCode >>> 16) != 0) return(null);
       
       int nrows = bb.getInt();
       int ncols = bb.getInt();
@@ -1791,7 +3688,10 @@ public class DataSetRepository
       for(int i=0; i<NDSIPARAMS; i++) params[i] = bb.getFloat();
       DataSetInfo info = DataSetInfo.createDataSetInfo(id, fmt, nrows, ncols, params);
       
-      return((info==null) ? null : new IndexEntry(uid, offset, size, info));
+      if(info == null) return(null);
+      IndexEntry entry = new IndexEntry(uid, offset, size, info);
+      entry.codec = codec;
+      return(entry);
    }
 
    /**
@@ -1820,7 +3720,7 @@ public class DataSetRepository
          bb.put(id);
          for(int i=id.length; i<DataSet.MAXIDLEN; i++) bb.put((byte)0);
 
-         bb.putInt(entry.info.getFormat().getIntCode());
+         bb.putInt(entry.info.getFormat().getIntCode() | (entry.codec.getIntCode() << 8));
          bb.putInt(entry.info.getDataLength());
          bb.putInt(entry.info.getDataBreadth());
          for(int i=0; i<NDSIPARAMS; i++) bb.putFloat(entry.info.getParam(i));
@@ -1830,6 +3730,737 @@ public class DataSetRepository
    }
 
    
+   /**
+    * The write-ahead journal in which all changes to the repository file are collected during a batch of operations. 
+    * See the class header for a description of the journal file format.
+    * @author sruffner
+    */
+   private static class Journal
+   {
+      /** The journal file. */
+      final File file;
+      /** Channel for appending records to the journal file; null once the journal is closed. */
+      private FileChannel fc;
+      /** Buffer for preparing the header of each journal record. */
+      private final ByteBuffer hdr;
+      /** Running CRC32 checksum over all records appended to the journal. */
+      private final CRC32 crc = new CRC32();
+      /** Number of records appended to the journal, excluding the commit record. */
+      private int nRecords = 0;
+      
+      /**
+       * Create a new, empty write-ahead journal. If the journal file already exists, it is truncated.
+       * @param f The journal file.
+       * @param order Byte order for the journal; should match that of the repository file.
+       * @throws IOException if an IO error occurs while creating the journal file and writing its header.
+       */
+      Journal(File f, ByteOrder order) throws IOException
+      {
+         file = f;
+         hdr = ByteBuffer.allocate(JNLRECHDRSZ);
+         hdr.order(order);
+         fc = new RandomAccessFile(f, "rw").getChannel();
+         fc.truncate(0);
+         
+         hdr.putInt(TAG_JNL_LE);
+         hdr.putInt(0);
+         hdr.flip();
+         if(TAGSZ != fc.write(hdr)) throw new IOException("Unexpected error while writing journal header");
+      }
+      
+      /**
+       * Append a write record to the journal.
+       * @param src The bytes to be written. All remaining bytes in the buffer are consumed.
+       * @param pos The repository file position at which the bytes are to be written.
+       * @return The number of bytes consumed.
+       * @throws IOException if an IO error occurs.
+       */
+      int write(ByteBuffer src, long pos) throws IOException
+      {
+         int n = src.remaining();
+         appendRecordHeader(JNL_WRITE, pos, n);
+         crc.update(src.duplicate());
+         while(src.hasRemaining()) fc.write(src);
+         return(n);
+      }
+      
+      /**
+       * Append a truncation record to the journal.
+       * @param size The size to which the repository file is to be truncated.
+       * @throws IOException if an IO error occurs.
+       */
+      void truncate(long size) throws IOException { appendRecordHeader(JNL_TRUNCATE, size, 0); }
+      
+      /**
+       * Append the commit record to the journal and force the journal's content to the storage device.
+       * @throws IOException if an IO error occurs.
+       */
+      void commit() throws IOException
+      {
+         hdr.clear();
+         hdr.putInt(JNL_COMMIT);
+         hdr.putLong(crc.getValue());
+         hdr.putInt(nRecords);
+         hdr.flip();
+         while(hdr.hasRemaining()) fc.write(hdr);
+         fc.force(true);
+      }
+      
+      /** Close the journal file, if it is not already closed. The file itself is not deleted. */
+      void close()
+      {
+         if(fc == null) return;
+         try { fc.close(); } catch(IOException ignored) {}
+         fc = null;
+      }
+      
+      private void appendRecordHeader(int type, long value, int length) throws IOException
+      {
+         hdr.clear();
+         hdr.putInt(type);
+         hdr.putLong(value);
+         hdr.putInt(length);
+         hdr.flip();
+         crc.update(hdr.duplicate());
+         while(hdr.hasRemaining()) fc.write(hdr);
+         ++nRecords;
+      }
+      
+      /**
+       * Replay the changes recorded in a write-ahead journal file onto a repository file -- but only if the journal is 
+       * complete, ie, it ends with a valid commit record. The journal is scanned twice: once to verify its checksum, 
+       * and then to apply its write and truncation records in order. The repository file is forced to the storage 
+       * device afterwards. Since every record is a physical write or truncation, replaying a journal more than once is
+       * harmless.
+       * @param f The journal file.
+       * @param dst Channel for writing the repository file.
+       * @return True if the journal was complete and its changes were applied; false if it was incomplete or corrupted,
+       * in which case the repository file is not touched.
+       * @throws IOException if an IO error occurs.
+       */
+      static boolean replay(File f, FileChannel dst) throws IOException
+      {
+         try(RandomAccessFile raf = new RandomAccessFile(f, "r"))
+         {
+            FileChannel src = raf.getChannel();
+            ByteBuffer bb = ByteBuffer.allocate(CHUNKSZ);
+            
+            // verify journal header and fix byte order
+            bb.limit(TAGSZ);
+            if(TAGSZ != src.read(bb, 0)) return(false);
+            bb.flip();
+            int tag = bb.getInt();
+            if(tag != TAG_JNL_LE)
+            {
+               if(tag != TAG_JNL_BE) return(false);
+               bb.order(bb.order() == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            }
+            
+            // pass 1: verify that the journal ends with a commit record with a matching checksum and record count
+            CRC32 chk = new CRC32();
+            long pos = TAGSZ;
+            int n = 0;
+            boolean committed = false;
+            while(!committed)
+            {
+               bb.clear();
+               bb.limit(JNLRECHDRSZ);
+               if(JNLRECHDRSZ != src.read(bb, pos)) return(false);
+               bb.flip();
+               int type = bb.getInt();
+               long value = bb.getLong();
+               int len = bb.getInt();
+               if(type == JNL_COMMIT)
+               {
+                  if(value != chk.getValue() || len != n) return(false);
+                  committed = true;
+               }
+               else if((type == JNL_WRITE && len >= 0) || (type == JNL_TRUNCATE && len == 0))
+               {
+                  bb.flip();
+                  chk.update(bb);
+                  pos += JNLRECHDRSZ;
+                  int nDone = 0;
+                  while(nDone < len)
+                  {
+                     bb.clear();
+                     bb.limit(Math.min(CHUNKSZ, len - nDone));
+                     int nRead = src.read(bb, pos + nDone);
+                     if(nRead <= 0) return(false);
+                     bb.flip();
+                     chk.update(bb);
+                     nDone += nRead;
+                  }
+                  pos += len;
+                  ++n;
+               }
+               else return(false);
+            }
+            
+            // pass 2: apply the write and truncation records in order
+            pos = TAGSZ;
+            for(int i=0; i<n; i++)
+            {
+               bb.clear();
+               bb.limit(JNLRECHDRSZ);
+               if(JNLRECHDRSZ != src.read(bb, pos)) throw new IOException("Unexpected EOF in journal");
+               bb.flip();
+               int type = bb.getInt();
+               long value = bb.getLong();
+               int len = bb.getInt();
+               pos += JNLRECHDRSZ;
+               if(type == JNL_TRUNCATE)
+               {
+                  if(dst.size() > value) dst.truncate(value);
+                  continue;
+               }
+               int nDone = 0;
+               while(nDone < len)
+               {
+                  bb.clear();
+                  bb.limit(Math.min(CHUNKSZ, len - nDone));
+                  int nRead = src.read(bb, pos + nDone);
+                  if(nRead <= 0) throw new IOException("Unexpected EOF in journal");
+                  bb.flip();
+                  while(bb.hasRemaining()) dst.write(bb, value + nDone + bb.position());
+                  nDone += nRead;
+               }
+               pos += len;
+            }
+            dst.force(true);
+         }
+         return(true);
+      }
+   }
+   
+   /**
+    * The persistent ID index: a sidecar file holding a hash table that maps the ID string of each dataset in the 
+    * repository to a copy of the block index entry for the allocation block in which that dataset is stored. See the 
+    * class header for a description of the file format.
+    * @author sruffner
+    */
+   private static class IDIndex
+   {
+      /** The ID index file. */
+      final File file;
+      /** Byte order of the ID index file, which always matches that of the repository file. */
+      private final ByteOrder order;
+      /** Number of slots in the hash table. Always a power of two. */
+      private final int capacity;
+      /** Number of occupied slots in the hash table. */
+      private int count;
+      /** Number of slots in the hash table that are occupied or were occupied by an entry since removed. */
+      private int used;
+      
+      private IDIndex(File f, ByteOrder order, int capacity, int count, int used)
+      {
+         file = f;
+         this.order = order;
+         this.capacity = capacity;
+         this.count = count;
+         this.used = used;
+      }
+      
+      /**
+       * Open an existing ID index file. The file header is verified, and the repository file's size, modification time
+       * and content fingerprint are compared to the values recorded in the header when the ID index was last updated.
+       * @param f The ID index file.
+       * @param repo The repository file.
+       * @param order The byte order of the repository file.
+       * @return The ID index, or null if the file does not exist, is not a valid ID index file, or is out of date with
+       * respect to the repository file.
+       */
+      static IDIndex open(File f, File repo, ByteOrder order)
+      {
+         if(!f.isFile()) return(null);
+         try(RandomAccessFile raf = new RandomAccessFile(f, "r"))
+         {
+            ByteBuffer bb = ByteBuffer.allocate(IDXHDRSZ).order(order);
+            if(IDXHDRSZ != raf.getChannel().read(bb, 0)) return(null);
+            bb.flip();
+            if(bb.getInt() != TAG_IDX_LE) return(null);
+            int cap = bb.getInt();
+            int n = bb.getInt();
+            int nUsed = bb.getInt();
+            long len = bb.getLong();
+            long mod = bb.getLong();
+            int print = bb.getInt();
+            if(cap < IDXMINCAPACITY || Integer.bitCount(cap) != 1 || n < 0 || nUsed < n || nUsed > cap) return(null);
+            if(raf.length() != IDXHDRSZ + ((long) cap) * INDEXENTRYSZ) return(null);
+            if(len != repo.length() || mod != repo.lastModified() || print != fingerprint(repo)) return(null);
+            return(new IDIndex(f, order, cap, n, nUsed));
+         }
+         catch(IOException ioe) { return(null); }
+      }
+      
+      /**
+       * Create a new ID index file, replacing any existing file. The hash table capacity is chosen so that the table is
+       * no more than half full.
+       * @param f The ID index file.
+       * @param repo The repository file. Its current size and modification time are recorded in the file header.
+       * @param order The byte order of the repository file.
+       * @param entries Block index entries for all datasets currently stored in the repository. No two may have the 
+       * same dataset ID.
+       * @return The new ID index.
+       * @throws IOException if an IO error occurs.
+       */
+      static IDIndex create(File f, File repo, ByteOrder order, Collection<IndexEntry> entries) throws IOException
+      {
+         int cap = IDXMINCAPACITY;
+         while(cap < 2 * entries.size()) cap <<= 1;
+         IndexEntry[] table = new IndexEntry[cap];
+         for(IndexEntry e : entries)
+         {
+            int slot = hash(e.info.getID(), cap);
+            while(table[slot] != null) slot = (slot + 1) & (cap - 1);
+            table[slot] = e;
+         }
+         
+         IDIndex idx = new IDIndex(f, order, cap, entries.size(), entries.size());
+         try(RandomAccessFile raf = new RandomAccessFile(f, "rw"))
+         {
+            FileChannel fc = raf.getChannel();
+            fc.truncate(0);
+            idx.writeHeader(fc, null);
+            
+            IndexEntry empty = new IndexEntry(UNALLOCATED_ID, 0, 0, null);
+            ByteBuffer bb = ByteBuffer.allocate(SECTIONSZ * INDEXENTRYSZ).order(order);
+            long pos = IDXHDRSZ;
+            for(int i=0; i<cap; i++)
+            {
+               putIndexEntry(bb, (table[i] != null) ? table[i] : empty);
+               if(!bb.hasRemaining() || i == cap-1)
+               {
+                  bb.flip();
+                  while(bb.hasRemaining()) pos += fc.write(bb, pos);
+                  bb.clear();
+               }
+            }
+            fc.force(false);
+            idx.writeHeader(fc, repo);
+            fc.force(false);
+         }
+         return(idx);
+      }
+      
+      /**
+       * Find the entry for the specified dataset ID in the ID index.
+       * @param id The dataset ID.
+       * @return Copy of the block index entry for the allocation block in which the dataset is stored, or null if there
+       * is no dataset with the specified ID.
+       * @throws IOException if an IO error occurs or the ID index file is corrupted.
+       */
+      IndexEntry find(String id) throws IOException
+      {
+         try(RandomAccessFile raf = new RandomAccessFile(file, "r"))
+         {
+            FileChannel fc = raf.getChannel();
+            ByteBuffer bb = ByteBuffer.allocate(INDEXENTRYSZ).order(order);
+            int slot = hash(id, capacity);
+            for(int i=0; i<capacity; i++)
+            {
+               IndexEntry e = readSlot(fc, bb, slot);
+               if(e.uid == UNALLOCATED_ID) break;
+               if(e.uid > UNOCCUPIED_ID && id.equals(e.info.getID())) return(e);
+               slot = (slot + 1) & (capacity - 1);
+            }
+         }
+         return(null);
+      }
+      
+      /**
+       * Read all entries in the ID index.
+       * @return Copies of the block index entries for all datasets in the ID index, keyed by dataset ID.
+       * @throws IOException if an IO error occurs or the ID index file is corrupted.
+       */
+      HashMap<String, IndexEntry> readAll() throws IOException
+      {
+         HashMap<String, IndexEntry> entries = new HashMap<>();
+         try(RandomAccessFile raf = new RandomAccessFile(file, "r"))
+         {
+            FileChannel fc = raf.getChannel();
+            ByteBuffer bb = ByteBuffer.allocate(SECTIONSZ * INDEXENTRYSZ).order(order);
+            long pos = IDXHDRSZ;
+            int nRead = 0;
+            while(nRead < capacity)
+            {
+               int n = Math.min(SECTIONSZ, capacity - nRead);
+               bb.clear();
+               bb.limit(n * INDEXENTRYSZ);
+               while(bb.hasRemaining())
+               {
+                  int nBytes = fc.read(bb, pos);
+                  if(nBytes <= 0) throw new IOException("Unexpected EOF in ID index");
+                  pos += nBytes;
+               }
+               bb.flip();
+               for(int i=0; i<n; i++)
+               {
+                  IndexEntry e = getIndexEntry(bb);
+                  if(e == null) throw new IOException("Corrupted ID index entry");
+                  if(e.uid > UNOCCUPIED_ID) entries.put(e.info.getID(), e);
+               }
+               nRead += n;
+            }
+         }
+         return(entries);
+      }
+      
+      /**
+       * Apply a set of changes to the ID index. While the changes are applied, the repository file size and 
+       * modification time recorded in the file header are invalidated, so that the ID index will be rebuilt if the 
+       * application dies in the middle of the update. If the hash table would become more than three-fourths full, 
+       * the ID index file is instead rebuilt with a larger table.
+       * @param changes The changes, keyed by dataset ID. If the value is the block index entry of an occupied block 
+       * whose dataset has that ID, the entry is added to or updated in the ID index; otherwise, the ID is removed.
+       * @param repo The repository file. Its current size and modification time are recorded in the file header.
+       * @return The updated ID index. This will be a new object if the ID index file was rebuilt.
+       * @throws IOException if an IO error occurs or the ID index file is corrupted.
+       */
+      IDIndex update(Map<String, IndexEntry> changes, File repo) throws IOException
+      {
+         if(used + changes.size() > capacity - capacity / 4)
+         {
+            HashMap<String, IndexEntry> entries = readAll();
+            for(Map.Entry<String, IndexEntry> change : changes.entrySet())
+            {
+               if(isLive(change.getKey(), change.getValue())) entries.put(change.getKey(), change.getValue());
+               else entries.remove(change.getKey());
+            }
+            return(create(file, repo, order, entries.values()));
+         }
+         
+         try(RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+         {
+            FileChannel fc = raf.getChannel();
+            writeHeader(fc, null);
+            fc.force(false);
+            
+            ByteBuffer bb = ByteBuffer.allocate(INDEXENTRYSZ).order(order);
+            for(Map.Entry<String, IndexEntry> change : changes.entrySet())
+            {
+               // find the slot holding the ID, if any, and the first free slot along the way
+               String id = change.getKey();
+               int slot = hash(id, capacity);
+               int found = -1;
+               int free = -1;
+               boolean freeIsEmpty = false;
+               for(int i=0; i<capacity; i++)
+               {
+                  IndexEntry e = readSlot(fc, bb, slot);
+                  if(e.uid > UNOCCUPIED_ID && id.equals(e.info.getID())) { found = slot; break; }
+                  if(e.uid <= UNOCCUPIED_ID && free < 0) { free = slot; freeIsEmpty = (e.uid == UNALLOCATED_ID); }
+                  if(e.uid == UNALLOCATED_ID) break;
+                  slot = (slot + 1) & (capacity - 1);
+               }
+               
+               if(isLive(id, change.getValue()))
+               {
+                  if(found < 0)
+                  {
+                     if(free < 0) throw new IOException("ID index is full");
+                     found = free;
+                     ++count;
+                     if(freeIsEmpty) ++used;
+                  }
+                  writeSlot(fc, bb, found, change.getValue());
+               }
+               else if(found >= 0)
+               {
+                  writeSlot(fc, bb, found, new IndexEntry(UNOCCUPIED_ID, 0, 0, null));
+                  --count;
+               }
+            }
+            
+            fc.force(false);
+            writeHeader(fc, repo);
+            fc.force(false);
+         }
+         return(this);
+      }
+      
+      /**
+       * Compute the content fingerprint of a repository file: the CRC-32 checksum of the file tag and the block index 
+       * of the first data section. Any change to the set of data sets stored in the first section changes this block
+       * index, so a repository file replaced by another of the same size and modification time is almost certainly
+       * detected. Reading the fingerprint takes constant time, regardless of the size of the file.
+       * @param repo The repository file.
+       * @return The fingerprint.
+       * @throws IOException if an IO error occurs.
+       */
+      static int fingerprint(File repo) throws IOException
+      {
+         try(RandomAccessFile raf = new RandomAccessFile(repo, "r"))
+         {
+            FileChannel fc = raf.getChannel();
+            ByteBuffer bb = ByteBuffer.allocate((int) Math.min(fc.size(), TAGSZ + INDEXENTRYSZ * SECTIONSZ));
+            while(bb.hasRemaining()) if(fc.read(bb, bb.position()) < 0) break;
+            CRC32 crc = new CRC32();
+            crc.update(bb.array(), 0, bb.position());
+            return((int) crc.getValue());
+         }
+      }
+      
+      /**
+       * Helper method checks whether an ID index change adds or updates an entry, rather than removing one.
+       * @param id The dataset ID.
+       * @param e The block index entry recorded for the change.
+       * @return True if the entry is for an occupied block holding a dataset with the specified ID.
+       */
+      private static boolean isLive(String id, IndexEntry e)
+      {
+         return(e.uid > UNOCCUPIED_ID && e.info != null && id.equals(e.info.getID()));
+      }
+      
+      /**
+       * Helper method computes the home slot for a dataset ID in a hash table of the specified capacity. Since the 
+       * hash is persisted, it relies on {@link String#hashCode()}, whose algorithm is fixed by the Java specification.
+       * @param id The dataset ID.
+       * @param cap The hash table capacity. Must be a power of two.
+       * @return The home slot index.
+       */
+      private static int hash(String id, int cap)
+      {
+         int h = id.hashCode();
+         h ^= (h >>> 16);
+         return(h & (cap - 1));
+      }
+      
+      private IndexEntry readSlot(FileChannel fc, ByteBuffer bb, int slot) throws IOException
+      {
+         bb.clear();
+         if(INDEXENTRYSZ != fc.read(bb, IDXHDRSZ + ((long) slot) * INDEXENTRYSZ))
+            throw new IOException("Unexpected EOF in ID index");
+         bb.flip();
+         IndexEntry e = getIndexEntry(bb);
+         if(e == null) throw new IOException("Corrupted ID index entry at slot " + slot);
+         return(e);
+      }
+      
+      private void writeSlot(FileChannel fc, ByteBuffer bb, int slot, IndexEntry e) throws IOException
+      {
+         bb.clear();
+         putIndexEntry(bb, e);
+         bb.flip();
+         long pos = IDXHDRSZ + ((long) slot) * INDEXENTRYSZ;
+         while(bb.hasRemaining()) pos += fc.write(bb, pos);
+      }
+      
+      /**
+       * Write the ID index file header.
+       * @param fc The ID index file channel.
+       * @param repo The repository file, whose current size, modification time and content fingerprint are recorded in
+       * the header. If null, the header is marked as out of date, as is done while the ID index is being updated.
+       * @throws IOException if an IO error occurs.
+       */
+      private void writeHeader(FileChannel fc, File repo) throws IOException
+      {
+         ByteBuffer bb = ByteBuffer.allocate(IDXHDRSZ).order(order);
+         bb.putInt(TAG_IDX_LE);
+         bb.putInt(capacity);
+         bb.putInt(count);
+         bb.putInt(used);
+         bb.putLong((repo != null) ? repo.length() : -1);
+         bb.putLong((repo != null) ? repo.lastModified() : 0);
+         bb.putInt((repo != null) ? fingerprint(repo) : 0);
+         bb.putInt(0);
+         bb.flip();
+         long pos = 0;
+         while(bb.hasRemaining()) pos += fc.write(bb, pos);
+      }
+   }
+   
+   /**
+    * Enumeration of the codecs with which a dataset's raw data array may be compressed when stored in the repository
+    * file. The codec is recorded in the second byte of the data format code in the dataset's index entry.
+    * 
+    * <p>The raw data is handled as the sequence of the 32-bit integer representations of its floating-point values. 
+    * {@link #DEFLATE} simply compresses the byte sequence using the standard DEFLATE algorithm at the fastest level. 
+    * {@link #XOR_DEFLATE} first replaces each value with the exclusive-OR of its bits with those of the previous value
+    * in the same column of the data matrix (for RASTER1D and XYZIMG data, the previous value in the array), then 
+    * rearranges the result into four byte planes, most significant byte first, before compressing with DEFLATE. For 
+    * sampled or smoothly varying data, adjacent values share their sign, exponent and leading mantissa bits, so the 
+    * high-order byte planes are mostly zeros and compress very well.</p>
+    * 
+    * @author sruffner
+    */
+   public enum Codec
+   {
+      /** Raw data array is stored uncompressed. */
+      NONE(0),
+      /** Raw data array is compressed with DEFLATE. */
+      DEFLATE(1),
+      /** Raw data array is XOR-delta encoded by column and split into byte planes, then compressed with DEFLATE. */
+      XOR_DEFLATE(2);
+      
+      private final int code;
+      
+      Codec(int code) { this.code = code; }
+      
+      /**
+       * Get the integer code identifying this codec in a repository file's block index.
+       * @return The codec's integer code.
+       */
+      public int getIntCode() { return(code); }
+      
+      /**
+       * Get the codec identified by the specified integer code.
+       * @param code The integer code.
+       * @return The corresponding codec, or null if code is not recognized.
+       */
+      public static Codec getCodecByIntCode(int code)
+      {
+         for(Codec c : values()) if(c.code == code) return(c);
+         return(null);
+      }
+      
+      /**
+       * Compress the raw data array of a dataset.
+       * @param ds The dataset.
+       * @return The compressed raw data. Returns null for {@link #NONE}.
+       */
+      public byte[] encode(DataSet ds)
+      {
+         if(this == NONE) return(null);
+         float[] fData = ds.getRawDataArray();
+         int n = fData.length;
+         byte[] raw = new byte[n*4];
+         if(this == DEFLATE)
+         {
+            for(int i=0; i<n; i++)
+            {
+               int bits = Float.floatToRawIntBits(fData[i]);
+               raw[4*i] = (byte) (bits >>> 24);
+               raw[4*i+1] = (byte) (bits >>> 16);
+               raw[4*i+2] = (byte) (bits >>> 8);
+               raw[4*i+3] = (byte) bits;
+            }
+         }
+         else
+         {
+            int[] prev = new int[getStride(ds.getInfo())];
+            for(int i=0, col=0; i<n; i++)
+            {
+               int bits = Float.floatToRawIntBits(fData[i]);
+               int x = bits ^ prev[col];
+               prev[col] = bits;
+               if(++col == prev.length) col = 0;
+               raw[i] = (byte) (x >>> 24);
+               raw[n+i] = (byte) (x >>> 16);
+               raw[2*n+i] = (byte) (x >>> 8);
+               raw[3*n+i] = (byte) x;
+            }
+         }
+         return(deflate(raw));
+      }
+      
+      /**
+       * Decompress the raw data array of a dataset that was compressed by this codec.
+       * @param packed The compressed raw data.
+       * @param info Summary information for the dataset.
+       * @param dst The raw data array in which the decompressed values are stored. Its length must equal the raw data 
+       * array size for the dataset, as specified in the summary information.
+       * @return True if successful; false if the compressed data is invalid, or if it does not decompress to exactly 
+       * the expected number of bytes. Always returns false for {@link #NONE}.
+       */
+      public boolean decode(byte[] packed, DataSetInfo info, float[] dst)
+      {
+         if(this == NONE) return(false);
+         int n = dst.length;
+         byte[] raw = inflate(packed, n*4);
+         if(raw == null) return(false);
+         if(this == DEFLATE)
+         {
+            for(int i=0; i<n; i++)
+            {
+               int bits = ((raw[4*i] & 0xFF) << 24) | ((raw[4*i+1] & 0xFF) << 16) | ((raw[4*i+2] & 0xFF) << 8) | 
+                     (raw[4*i+3] & 0xFF);
+               dst[i] = Float.intBitsToFloat(bits);
+            }
+         }
+         else
+         {
+            int[] prev = new int[getStride(info)];
+            for(int i=0, col=0; i<n; i++)
+            {
+               int x = ((raw[i] & 0xFF) << 24) | ((raw[n+i] & 0xFF) << 16) | ((raw[2*n+i] & 0xFF) << 8) | 
+                     (raw[3*n+i] & 0xFF);
+               int bits = x ^ prev[col];
+               prev[col] = bits;
+               if(++col == prev.length) col = 0;
+               dst[i] = Float.intBitsToFloat(bits);
+            }
+         }
+         return(true);
+      }
+      
+      /**
+       * Helper method gets the number of interleaved columns in a dataset's raw data array. For RASTER1D and XYZIMG 
+       * data, the array is treated as a single column.
+       * @param info Summary information for the dataset.
+       * @return The column stride, at least 1.
+       */
+      private static int getStride(DataSetInfo info)
+      {
+         DataSet.Fmt fmt = info.getFormat();
+         if(fmt == DataSet.Fmt.RASTER1D || fmt == DataSet.Fmt.XYZIMG) return(1);
+         return(Math.max(1, info.getDataBreadth()));
+      }
+      
+      /**
+       * Helper method compresses a byte array using DEFLATE at the fastest compression level.
+       * @param raw The bytes to compress.
+       * @return The compressed bytes.
+       */
+      private static byte[] deflate(byte[] raw)
+      {
+         Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+         try
+         {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, raw.length / 2)];
+            int len = 0;
+            while(!deflater.finished())
+            {
+               if(len == out.length) out = Arrays.copyOf(out, out.length * 2);
+               len += deflater.deflate(out, len, out.length - len);
+            }
+            return(Arrays.copyOf(out, len));
+         }
+         finally { deflater.end(); }
+      }
+      
+      /**
+       * Helper method decompresses a byte array that was compressed by {@link #deflate(byte[])}.
+       * @param packed The compressed bytes.
+       * @param nBytes The expected number of decompressed bytes.
+       * @return The decompressed bytes, or null if the compressed data is invalid or does not decompress to exactly the
+       * expected number of bytes.
+       */
+      private static byte[] inflate(byte[] packed, int nBytes)
+      {
+         Inflater inflater = new Inflater(true);
+         try
+         {
+            // with the "nowrap" option, the inflater requires an extra dummy byte at the end of its input
+            byte[] in = Arrays.copyOf(packed, packed.length + 1);
+            inflater.setInput(in);
+            byte[] raw = new byte[nBytes];
+            int len = 0;
+            while(len < nBytes && !inflater.finished())
+            {
+               int n = inflater.inflate(raw, len, nBytes - len);
+               if(n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+               len += n;
+            }
+            return((len == nBytes) ? raw : null);
+         }
+         catch(DataFormatException dfe) { return(null); }
+         finally { inflater.end(); }
+      }
+   }
+   
    /**
     * A single entry in the block index for a data section within the repository file.
     * @author sruffner
@@ -1844,6 +4475,13 @@ public class DataSetRepository
       int size;
       /** Summary info on dataset stored in the file block defined by this index. Ignore if block is unoccupied. */
       DataSetInfo info;
+      /** The codec with which the dataset's raw data array is compressed. Ignore if block is unoccupied. */
+      Codec codec = Codec.NONE;
+      /** 
+       * Number of bytes actually used to store the dataset in the file block. For a compressed dataset, this is -1 
+       * until the compressed data length is read from the block. Ignore if block is unoccupied.
+       */
+      int stored = -1;
       
       IndexEntry(int uid, long offset, int size, DataSetInfo info)
       {
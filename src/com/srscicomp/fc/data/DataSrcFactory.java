@@ -4,8 +4,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.StringTokenizer;
+import java.util.zip.CRC32;
 
 import com.srscicomp.common.util.Utilities;
 import com.srscicomp.fc.data.DataSet.Fmt;
@@ -34,19 +38,20 @@ public final class DataSrcFactory
 
    /**
     * Is the specified file consistent with one of the supported data set source file formats? <i>As of FC 5.4.0,
-    * the specified file must have one of these four accepted extensions -- .dna, .txt, .dnr, .dnb.</li>
+    * the specified file must have one of these accepted extensions -- .dna, .txt, .dnr, .dnb, .dnc.</li>
     * @param f The file to check.
     * @return True if file exists and its content conforms to a supported data set source file format.
     */
    public static boolean isDataSource(File f)
    {
       String ext = Utilities.getExtension(f);
-      if(!("txt".equals(ext) || "dna".equals(ext) || "dnr".equals(ext) || "dnb".equals(ext)))
+      if(!("txt".equals(ext) || "dna".equals(ext) || "dnr".equals(ext) || "dnb".equals(ext) || "dnc".equals(ext)))
          return(false);
       boolean ok = false;
       if(f.isFile())
       {
          ok = BinarySrc.checkFile(f);
+         if(!ok) ok = ColumnarSrc.checkFile(f);
          if(!ok) ok = DeprecatedBinarySrc.checkFile(f);
          if(!ok) ok = AnnotatedTextSrc.checkFile(f);
          if(!ok) ok = PlainTextSrc.checkFile(f);
@@ -56,13 +61,18 @@ public final class DataSrcFactory
    
    /**
     * Create a {@link IDataSrc} instance that can read and, optionally, write the specified data set source file. 
-    * Currently, four source file formats are supported.
+    * Currently, five source file formats are supported.
     * <ol>
     * <li>The fastest and most versatile is the binary data set repository file (preferred extension ".dnr"), which is
     * a random-access binary format that optimizes the speed at which data sets can be retrieved, added and removed from
     * the physical file. Disadvantages: (1) Since file is modified in place, a catastrophic I/O failure can leave it in
     * a corrupted state. (2) As data sets are added and removed, the amount of wasted space in the file may get out of
     * hand. It can be fixed by compacting the file, but that functionality is not exposed by {@link IDataSrc}.</li>
+    * <li>For very large data sets, the columnar binary format (extension ".dnc") stores each data set contiguously, 
+    * column by column, so that it can be memory-mapped and loaded in bulk. The file is never modified in place, so it
+    * cannot be corrupted by a catastrophic I/O failure. Disadvantage: Replaced and removed data sets leave wasted 
+    * space in the file until it is compacted, which involves a complete rewrite. Use {@link #convertToColumnar(File, 
+    * File)} to convert a source file in any of the other formats.</li>
     * <li>An older, more fail-safe binary format (preferred extension ".dnb"), which includes a table of contents with 
     * file offset information so that accessing a selected data set within the file can be done quickly. Disadvantage: 
     * The fail-safe design mandated that any modification to the file involve a complete rewrite to a temporary file to 
@@ -91,7 +101,8 @@ public final class DataSrcFactory
     * @return If the source file already exists, this method returns the data set source implementation to which the
     * file's content conforms. If the content does not conform to any supported file formats, it returns null. If the 
     * source file does not exist, the method returns the implementation for the annotated text or random-access binary 
-    * format, depending on the value of the <i>textonly</i> flag.
+    * format, depending on the value of the <i>textonly</i> flag -- unless the file has the extension ".dnc", in which 
+    * case the columnar binary format is chosen.
     */
    public IDataSrc getDataSource(File f, boolean textonly)
    {
@@ -100,10 +111,13 @@ public final class DataSrcFactory
       if(f.isFile())
       {
          if(BinarySrc.checkFile(f)) src = new BinarySrc(f);
+         else if(ColumnarSrc.checkFile(f)) src = new ColumnarSrc(f);
          else if(DeprecatedBinarySrc.checkFile(f)) src = new DeprecatedBinarySrc(f);
          else if(AnnotatedTextSrc.checkFile(f)) src = new AnnotatedTextSrc(f);
          else if(PlainTextSrc.checkFile(f)) src = new PlainTextSrc(f);
       }
+      else if("dnc".equals(Utilities.getExtension(f)))
+         src = new ColumnarSrc(f);
       else
          src = textonly ? new AnnotatedTextSrc(f) : new BinarySrc(f);
       return(src);
@@ -127,7 +141,8 @@ public final class DataSrcFactory
     * @return If the source file already exists, this method returns the data set source implementation to which the
     * file's content conforms. If the content does not conform to any supported file formats, it returns null. If the 
     * source file does not exist, the method returns the implementation for the annotated text or random-access binary 
-    * format, depending on the value of the <i>textonly</i> flag.
+    * format, depending on the value of the <i>textonly</i> flag -- unless the file has the extension ".dnc", in which 
+    * case the columnar binary format is chosen.
     */
    public IDataSrc getDataSource(File f, Fmt[] requestedFmts, boolean textonly)
    {
@@ -136,15 +151,73 @@ public final class DataSrcFactory
       if(f.isFile())
       {
          if(BinarySrc.checkFile(f)) src = new BinarySrc(f);
+         else if(ColumnarSrc.checkFile(f)) src = new ColumnarSrc(f);
          else if(DeprecatedBinarySrc.checkFile(f)) src = new DeprecatedBinarySrc(f);
          else if(AnnotatedTextSrc.checkFile(f)) src = new AnnotatedTextSrc(f);
          else if(PlainTextSrc.checkFile(f)) src = new PlainTextSrc(f, requestedFmts);
       }
+      else if("dnc".equals(Utilities.getExtension(f)))
+         src = new ColumnarSrc(f);
       else
          src = textonly ? new AnnotatedTextSrc(f) : new BinarySrc(f);
       return(src);
    }
 
+   /**
+    * Convert a data set source file in any supported format to the columnar binary format, which is best suited to very
+    * large data sets. The data sets are copied in batches, so that only a limited number of them are held in memory at
+    * any time. If the conversion fails, the destination file is removed.
+    * @param src The existing data set source file.
+    * @param dst The columnar binary data source file to be created. It must not exist.
+    * @return Null if successful, else an error description.
+    */
+   public String convertToColumnar(File src, File dst)
+   {
+      if(src == null || dst == null) throw new IllegalArgumentException("Null argument!");
+      if(dst.exists()) return("Destination file already exists!");
+      IDataSrc in = getDataSource(src, false);
+      if(in == null || !src.isFile()) return("Not a supported data set source file: " + src.getName());
+      IDataSrc out = new ColumnarSrc(dst);
+      
+      String emsg = null;
+      if(!in.open()) emsg = in.getLastError();
+      else if(!out.open()) emsg = out.getLastError();
+      else
+      {
+         DataSetInfo[] infos = in.getSummaryInfo();
+         if(infos == null) emsg = in.getLastError();
+         else if(infos.length == 0 && !out.removeAll()) emsg = out.getLastError();
+         
+         List<DataSet> batch = new ArrayList<>();
+         long batchBytes = 0;
+         for(int i=0; emsg == null && infos != null && i<infos.length; i++)
+         {
+            DataSet ds = in.getDataByID(infos[i].getID());
+            if(ds == null) 
+            {
+               emsg = in.getLastError();
+               break;
+            }
+            batch.add(ds);
+            batchBytes += 4L * ds.getRawDataSize();
+            if(batchBytes >= CONVERTBATCHBYTES || i == infos.length-1)
+            {
+               if(!out.writeData(batch, false)) emsg = out.getLastError();
+               batch.clear();
+               batchBytes = 0;
+            }
+         }
+      }
+      
+      in.close();
+      out.close();
+      if(emsg != null) //noinspection ResultOfMethodCallIgnored
+         dst.delete();
+      return(emsg);
+   }
+   
+   /** Approximate number of bytes of raw data copied in each batch by {@link #convertToColumnar(File, File)}. */
+   private final static long CONVERTBATCHBYTES = 64L*1024L*1024L;
    
    /**
     * Helper method intended for use by {@link IDataSrc} implementations. It generates a new non-existent temporary 
@@ -174,6 +247,46 @@ public final class DataSrcFactory
       return(tmpPath);
    }
    
+   /**
+    * Set the directory in which {@link IDataSrc} implementations keep the sidecar index files that let them open a 
+    * large source file without scanning it: the persistent ID index of the random-access binary format, and the data
+    * section offset table of the annotated-text format. Sidecar files are never written next to the source file 
+    * itself. If no sidecar directory is set -- the default -- no sidecar files are written at all, and each source 
+    * rebuilds its indices in memory when it is opened. The application sets this directory at startup, typically to a
+    * subdirectory of the user's workspace. It affects only data source proxies created afterwards.
+    * @param dir The sidecar directory. If null or not an existing directory, sidecar files are disabled.
+    */
+   public static void setSidecarDirectory(File dir) { sidecarDir = (dir != null && dir.isDirectory()) ? dir : null; }
+   
+   /**
+    * Get the directory in which data source implementations keep their sidecar index files. See {@link 
+    * #setSidecarDirectory(File)}.
+    * @return The sidecar directory, or null if sidecar files are disabled.
+    */
+   public static File getSidecarDirectory() { return(sidecarDir); }
+   
+   /**
+    * Helper method intended for use by {@link IDataSrc} implementations. It generates the path of a sidecar index file
+    * for the specified source file, in the current sidecar directory. The name combines the source file's name with a
+    * checksum of its absolute path, so that source files with the same name in different directories do not collide.
+    * The sidecar file's content must be validated against the source file before it is trusted, since the source file
+    * may have been replaced or modified by other means since the sidecar was written.
+    * @param src The source file. Must not be null.
+    * @param ext The sidecar file extension, including the leading period.
+    * @return The sidecar file path, or null if no sidecar directory has been set.
+    */
+   static File getSidecarFile(File src, String ext)
+   {
+      File dir = sidecarDir;
+      if(dir == null) return(null);
+      CRC32 crc = new CRC32();
+      crc.update(src.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+      return(new File(dir, String.format("%s-%08x%s", src.getName(), crc.getValue(), ext)));
+   }
+   
+   /** Directory in which data sources keep their sidecar index files; null if sidecar files are disabled. */
+   private static volatile File sidecarDir = null;
+   
    
    /**
     * <i>For test/debug only.</i> This program reads commands from standard input and writes to standard output. It is 
@@ -231,6 +344,11 @@ public final class DataSrcFactory
             		"exists, it will be replaced by the new dataset!");
             System.out.println("remove dsid : Remove the dataset with identifier 'dsid' from the current source.");
             System.out.println("removeall : Remove all datasets from the current source.");
+            System.out.println("open : Open the current source for a sequence of operations.");
+            System.out.println("close : Close the current source.");
+            System.out.println("convert path : Copy all datasets in the current source to a new columnar binary\n  " +
+                  "source file (.dnc) specified by 'path'.");
+            System.out.println("bench : Report the time taken to load every dataset in the current source.");
             System.out.println("quit: Exit the program.");
          }
          else if("select".equals(command))
@@ -240,6 +358,7 @@ public final class DataSrcFactory
                System.out.println("   !!! Argument required specifying pathname of data source file!");
                continue;
             }
+            if(source != null) source.close();
             source = factory.getDataSource(new File(arg), false);
             if(source == null)
                System.out.println("   !!! Specified file does not conform to a supported data source file format!");
@@ -324,8 +443,87 @@ public final class DataSrcFactory
                else System.out.println("   OK.");
             }
          }
+         else if("open".equals(command))
+         {
+            if(source == null)
+               System.out.println("   Failed: Data source file is currently undefined!");
+            else
+            {
+               if(!source.open()) System.out.println("   Failed: " + source.getLastError());
+               else System.out.println("   OK.");
+            }
+         }
+         else if("convert".equals(command))
+         {
+            if(arg == null)
+            {
+               System.out.println("   !!! Argument required specifying pathname of columnar data source file!");
+               continue;
+            }
+            if(source == null)
+               System.out.println("   Failed: Data source file is currently undefined!");
+            else
+            {
+               long t0 = System.nanoTime();
+               String emsg = factory.convertToColumnar(source.getSourceFile(), new File(arg));
+               if(emsg != null) System.out.println("   Failed: " + emsg);
+               else System.out.printf("   OK. Conversion took %.1f ms.\n", (System.nanoTime() - t0) / 1.0e6);
+            }
+         }
+         else if("bench".equals(command))
+         {
+            if(source == null)
+               System.out.println("   Failed: Data source file is currently undefined!");
+            else
+            {
+               long t0 = System.nanoTime();
+               DataSetInfo[] info = source.getSummaryInfo();
+               long t1 = System.nanoTime();
+               if(info == null)
+               {
+                  System.out.println("   Failed: " + source.getLastError());
+                  continue;
+               }
+               System.out.printf("   Summary info for %d datasets: %.1f ms\n", info.length, (t1 - t0) / 1.0e6);
+               
+               long nBytes = 0;
+               boolean ok = true;
+               for(int i=0; ok && i<info.length; i++)
+               {
+                  long t2 = System.nanoTime();
+                  DataSet ds = source.getDataByID(info[i].getID());
+                  long t3 = System.nanoTime();
+                  ok = (ds != null);
+                  if(!ok) System.out.println("   Failed: " + source.getLastError());
+                  else
+                  {
+                     nBytes += 4L * ds.getRawDataSize();
+                     System.out.printf("      %s: %.1f ms\n", info[i].getShortDescription(), (t3 - t2) / 1.0e6);
+                  }
+               }
+               if(ok)
+               {
+                  double ms = (System.nanoTime() - t1) / 1.0e6;
+                  System.out.printf("   OK. Loaded %.1f MB in %.1f ms (%.1f MB/s).\n", nBytes / 1.0e6, ms, 
+                        (ms > 0) ? nBytes / (ms * 1.0e3) : 0);
+               }
+            }
+         }
+         else if("close".equals(command))
+         {
+            if(source == null)
+               System.out.println("   Failed: Data source file is currently undefined!");
+            else
+            {
+               source.close();
+               System.out.println("   OK.");
+            }
+         }
          else if("quit".equals(command))
+         {
+            if(source != null) source.close();
             done = true;
+         }
          else
             System.out.println("   !!! Command not recognized: " + command);
       }
@@ -10,6 +10,7 @@ import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * <b>DeprecatedBinarySrc</b> reads and writes files containing <i>FigureComposer</i>-compatible datasets stored in a 
@@ -131,6 +132,8 @@ class DeprecatedBinarySrc implements IDataSrc
    public String getLastError() { return(lastErrorMsg); }
    public boolean isUnusable() { return(false); }
    public boolean isReadOnly() { return(false); }
+   public boolean open() { return(true); }
+   public void close() {}
 
    public DataSetInfo[] getSummaryInfo()
    {
@@ -406,6 +409,15 @@ class DeprecatedBinarySrc implements IDataSrc
       return(ok);
    }
 
+   public boolean writeData(List<DataSet> sets, boolean replace)
+   {
+      if(sets != null) for(DataSet set : sets)
+      {
+         if(!writeData(set, replace)) return(false);
+      }
+      return(true);
+   }
+
    public boolean changeID(String id, String idNew)
    {
       lastErrorMsg = "";
@@ -0,0 +1,218 @@
+package com.srscicomp.fc.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * The single-precision floating-point raw data array backing a {@link DataSet}. Element <i>i</i> of the store is
+ * element <i>i</i> of the raw data array as described in {@link DataSet#createDataSet(String, DataSet.Fmt, float[],
+ * int, int, float[])}, regardless of how the data is physically arranged. Like the data set itself, a store is never
+ * modified once it has been created, so it may be safely shared by multiple data sets and accessed by multiple threads.
+ *
+ * <p>Small data sets are backed by an ordinary Java array on the heap. A very large data set may instead be backed by
+ * one or more byte buffers outside the Java heap -- direct buffers, or memory-mapped views of a data source file. This
+ * keeps the samples of a few large images from inflating the heap and lengthening garbage collection pauses. Since a
+ * single buffer cannot exceed 2GB, an off-heap store is split into segments of {@link #SEGLEN} elements. A store may
+ * also interleave several equal-length column stores, as needed to present the columns of a tuple-based data set
+ * stored contiguously (see {@link ColumnarSrc}) as the row-major raw data array expected by {@link DataSet}.</p>
+ *
+ * @author sruffner
+ */
+abstract class FloatStore
+{
+   /** Base-2 logarithm of the number of elements in each segment of an off-heap store. */
+   final static int SEGSHIFT = 28;
+
+   /** Number of elements in each segment of an off-heap store, except possibly the last. */
+   final static int SEGLEN = 1 << SEGSHIFT;
+
+   /**
+    * Wrap a Java array as a data store. The array reference is stored internally, so the array must not be modified
+    * afterwards!
+    * @param data The raw data array. Cannot be null.
+    * @return The store backed by the array.
+    */
+   static FloatStore wrap(float[] data)
+   {
+      if(data == null) throw new IllegalArgumentException("Null argument!");
+      return(new HeapStore(data));
+   }
+
+   /**
+    * Wrap a sequence of byte buffers as an off-heap data store. Each buffer holds consecutive elements of the raw data
+    * array in the buffer's byte order, starting at position zero and ending at its limit. The buffers must not be
+    * modified afterwards!
+    * @param segments The byte buffers. All but the last must contain exactly {@link #SEGLEN} elements; the last must
+    * contain at least one element and no more than that. Cannot be null or empty.
+    * @return The store backed by the buffers.
+    */
+   static FloatStore wrap(ByteBuffer[] segments)
+   {
+      if(segments == null || segments.length == 0) throw new IllegalArgumentException("No segments!");
+      return(new BufferStore(segments));
+   }
+
+   /**
+    * Interleave several equal-length stores, each of which holds one column of an <i>NxM</i> data matrix, to form a
+    * store holding that matrix in row-major order.
+    * @param columns The <i>M</i> column stores, each of length <i>N</i>. Cannot be null or empty.
+    * @return The store for the data matrix.
+    */
+   static FloatStore interleave(FloatStore[] columns)
+   {
+      if(columns == null || columns.length == 0) throw new IllegalArgumentException("No columns!");
+      if(columns.length == 1) return(columns[0]);
+      for(FloatStore col : columns) if(col.length() != columns[0].length())
+         throw new IllegalArgumentException("Columns differ in length!");
+      return(new ColumnStore(columns));
+   }
+
+   /**
+    * Allocate direct byte buffers, in native byte order, with enough room to hold the specified number of elements.
+    * The buffers are segmented as required by {@link #wrap(ByteBuffer[])}. The caller must fill each buffer before
+    * wrapping them as a store.
+    * @param n The number of elements. Must be positive.
+    * @return The direct byte buffers, or null if the JVM's limit on direct memory would be exceeded.
+    */
+   static ByteBuffer[] allocateDirect(int n)
+   {
+      if(n <= 0) throw new IllegalArgumentException("Bad length!");
+      ByteBuffer[] segments = new ByteBuffer[(int) ((n + (long) SEGLEN - 1) >> SEGSHIFT)];
+      try
+      {
+         for(int i=0; i<segments.length; i++)
+         {
+            int len = (i < segments.length-1) ? SEGLEN : n - i*SEGLEN;
+            segments[i] = ByteBuffer.allocateDirect(4*len).order(ByteOrder.nativeOrder());
+         }
+      }
+      catch(OutOfMemoryError oome) { return(null); }
+      return(segments);
+   }
+
+   /**
+    * Get the number of elements in this store.
+    * @return The store length.
+    */
+   abstract int length();
+
+   /**
+    * Get an element of this store.
+    * @param i The element index.
+    * @return The element value.
+    * @throws IndexOutOfBoundsException if index is invalid.
+    */
+   abstract float get(int i);
+
+   /**
+    * Copy a range of elements from this store to an array.
+    * @param i Index of first element to copy.
+    * @param dst The destination array.
+    * @param ofs Offset into destination array.
+    * @param len Number of elements to copy.
+    * @throws IndexOutOfBoundsException if the range is invalid for the store or for the destination array.
+    */
+   void get(int i, float[] dst, int ofs, int len) { for(int k=0; k<len; k++) dst[ofs+k] = get(i+k); }
+
+   /**
+    * Get the Java array backing this store. Code that scans a data set element by element may use the array directly
+    * for speed. <b>Do not modify</b>.
+    * @return The backing array, or null if this store does not reside on the Java heap.
+    */
+   float[] array() { return(null); }
+
+   /**
+    * Does this store share its backing memory with the specified store -- ie, do they hold the same raw data because
+    * one was derived from the other rather than by coincidence?
+    * @param other The other store.
+    * @return True if the stores are the same object or are backed by the same Java array.
+    */
+   boolean shares(FloatStore other)
+   {
+      return(other == this || (other != null && array() != null && array() == other.array()));
+   }
+
+
+   /** A store backed by a Java array. */
+   private static class HeapStore extends FloatStore
+   {
+      HeapStore(float[] data) { this.data = data; }
+
+      @Override int length() { return(data.length); }
+      @Override float get(int i) { return(data[i]); }
+      @Override void get(int i, float[] dst, int ofs, int len) { System.arraycopy(data, i, dst, ofs, len); }
+      @Override float[] array() { return(data); }
+
+      /** The backing array. */
+      private final float[] data;
+   }
+
+   /** A store backed by one or more byte buffers, typically outside the Java heap. */
+   private static class BufferStore extends FloatStore
+   {
+      BufferStore(ByteBuffer[] segments)
+      {
+         this.segments = new FloatBuffer[segments.length];
+         long n = 0;
+         for(int i=0; i<segments.length; i++)
+         {
+            this.segments[i] = segments[i].duplicate().order(segments[i].order()).position(0).asFloatBuffer();
+            int len = this.segments[i].remaining();
+            if(len == 0 || len > SEGLEN || (i < segments.length-1 && len != SEGLEN))
+               throw new IllegalArgumentException("Bad segment length!");
+            n += len;
+         }
+         if(n > Integer.MAX_VALUE) throw new IllegalArgumentException("Store too large!");
+         length = (int) n;
+      }
+
+      @Override int length() { return(length); }
+      @Override float get(int i) { return(segments[i >>> SEGSHIFT].get(i & (SEGLEN-1))); }
+      @Override void get(int i, float[] dst, int ofs, int len)
+      {
+         if(i < 0 || len < 0 || i + len > length) throw new IndexOutOfBoundsException();
+         while(len > 0)
+         {
+            FloatBuffer seg = segments[i >>> SEGSHIFT].duplicate();
+            int start = i & (SEGLEN-1);
+            int n = Math.min(len, seg.limit() - start);
+            seg.position(start);
+            seg.get(dst, ofs, n);
+            i += n;
+            ofs += n;
+            len -= n;
+         }
+      }
+
+      /** The float views of the byte buffers backing this store. */
+      private final FloatBuffer[] segments;
+      /** Total number of elements in this store. */
+      private final int length;
+   }
+
+   /** A store that interleaves equal-length column stores to present a data matrix in row-major order. */
+   private static class ColumnStore extends FloatStore
+   {
+      ColumnStore(FloatStore[] columns)
+      {
+         long n = ((long) columns.length) * columns[0].length();
+         if(n > Integer.MAX_VALUE) throw new IllegalArgumentException("Store too large!");
+         this.columns = columns.clone();
+         length = (int) n;
+      }
+
+      @Override int length() { return(length); }
+      @Override float get(int i)
+      {
+         if(i < 0 || i >= length) throw new IndexOutOfBoundsException();
+         int row = i / columns.length;
+         return(columns[i - row*columns.length].get(row));
+      }
+
+      /** The column stores. */
+      private final FloatStore[] columns;
+      /** Total number of elements in this store. */
+      private final int length;
+   }
+}
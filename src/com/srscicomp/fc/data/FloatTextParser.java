@@ -0,0 +1,437 @@
+package com.srscicomp.fc.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A reusable parser that converts text into a sequence of floating-point "tuples" without allocating a string object
+ * for each numeric token. It is intended for importing large amounts of numeric text data -- the various plain-text
+ * data set formats, and text pasted into the data set editor.
+ *
+ * <p>The text is divided into tuples by one or more tuple separator characters -- typically the line-feed and/or
+ * carriage-return characters, so that each line of text is a tuple. Each tuple, in turn, is a list of floating-point
+ * tokens separated by whitespace, where any character that is not a tuple separator and whose code is less than or
+ * equal to that of the space character counts as whitespace. The parsed values are appended to a single growable
+ * array, and the length of each tuple is recorded in a second growable array. Thus, no per-tuple or per-token objects
+ * are created, and the parser may be reused via {@link #clear()} to avoid reallocating its internal buffers.</p>
+ *
+ * <p>Numeric tokens are parsed by {@link #parseFloat(CharSequence, int, int)}. It handles the common decimal forms
+ * -- an optional sign, digits with an optional decimal point, and an optional exponent -- directly from the characters,
+ * falling back on {@link Float#parseFloat(String)} for any other form (e.g., "NaN", "Infinity", or a hexadecimal
+ * literal) and for the rare decimal value that cannot be converted exactly by the fast path. In every case, the result
+ * is identical to that of {@link Float#parseFloat(String)}.</p>
+ *
+ * <p>Very large text may be parsed concurrently via {@link #parseParallel(CharSequence, String)}, which splits the
+ * text into chunks at tuple separators, parses the chunks on the common fork-join pool, and stitches the results
+ * together. The outcome is identical to that of {@link #parse(CharSequence, String)}. To parse file content without
+ * first converting it to a string, wrap the raw bytes of an ASCII text file in an {@link AsciiText}.</p>
+ *
+ * @author sruffner
+ */
+public final class FloatTextParser
+{
+   /** Construct a floating-point text parser with empty value and tuple buffers. */
+   public FloatTextParser() { this(16); }
+
+   /**
+    * Construct a floating-point text parser with empty value and tuple buffers.
+    * @param capacity The initial capacity of the value buffer. If the total number of values to be parsed is known in
+    * advance, specifying it here avoids reallocating the buffer as it grows.
+    */
+   public FloatTextParser(int capacity)
+   {
+      values = new float[Math.max(capacity, 16)];
+      tupleLengths = new int[16];
+   }
+
+   /** Discard all tuples parsed thus far. The internal buffers are retained for reuse. */
+   public void clear()
+   {
+      nValues = 0;
+      nTuples = 0;
+      errorTuple = -1;
+   }
+
+   /**
+    * Parse the specified text as a sequence of tuples and append them to those parsed thus far. The text is divided
+    * into tuples at each occurrence of any of the specified separator characters. As with {@link
+    * java.util.StringTokenizer}, a zero-length tuple (e.g., the text between two consecutive separators) is skipped.
+    * However, a tuple containing only whitespace is NOT skipped; it is recorded as a tuple of length 0.
+    * @param text The text to parse. If null or empty, no tuples are parsed.
+    * @param separators The tuple separator characters. If null or empty, the entire text is a single tuple.
+    * @return True if successful; false if a token could not be parsed as a floating-point number. In the latter case,
+    * parsing stops, the tuple containing the bad token is discarded, and {@link #getErrorTuple()} returns the index
+    * of that tuple in the sequence of tuples parsed.
+    */
+   public boolean parse(CharSequence text, String separators)
+   {
+      return(text == null || parseRange(text, 0, text.length(), separators));
+   }
+
+   /**
+    * Same as {@link #parse(CharSequence, String)}, except that the text is split into chunks that are parsed
+    * concurrently on the common fork-join pool. Each chunk ends with a tuple separator (or the end of the text), so
+    * every tuple lies entirely within one chunk, and the chunks' tuples are appended in order. Thus the values, tuple
+    * lengths and error tuple index are exactly the same as if the text were parsed sequentially. If the text is too
+    * short to benefit from parallel parsing, or if there are no separators, it is parsed sequentially.
+    *
+    * <p>If the value buffer must grow, it is sized exactly to hold the parsed values, so {@link #toArray()} does not
+    * make a copy. When the text is parsed in several pieces, construct the parser with the total number of values as
+    * its capacity, so the buffer never grows.</p>
+    *
+    * @param text The text to parse. If null or empty, no tuples are parsed. Its content must not change while parsing
+    * is in progress.
+    * @param separators The tuple separator characters.
+    * @return True if successful; false if a token could not be parsed as a floating-point number. See {@link
+    * #parse(CharSequence, String)}.
+    */
+   public boolean parseParallel(CharSequence text, String separators)
+   {
+      if(text == null) return(true);
+      int len = text.length();
+      int nChunks = Math.min(len / MINCHUNKLEN, 4 * ForkJoinPool.getCommonPoolParallelism());
+      if(nChunks < 2 || separators == null || separators.isEmpty()) return(parseRange(text, 0, len, separators));
+
+      // split text into chunks of roughly equal size, each ending just after a tuple separator, and parse each chunk
+      // on the common pool
+      List<ForkJoinTask<FloatTextParser>> tasks = new ArrayList<>(nChunks);
+      int start = 0;
+      for(int i=1; i<=nChunks && start < len; i++)
+      {
+         int end = (i == nChunks) ? len : Math.max(start, (int) (((long) len) * i / nChunks));
+         while(end < len && separators.indexOf(text.charAt(end)) < 0) ++end;
+         if(end < len) ++end;
+
+         final int chunkStart = start;
+         final int chunkEnd = end;
+         tasks.add(ForkJoinPool.commonPool().submit(() -> {
+            FloatTextParser chunk = new FloatTextParser((chunkEnd - chunkStart) / 8);
+            chunk.parseRange(text, chunkStart, chunkEnd, separators);
+            return(chunk);
+         }));
+         start = end;
+      }
+
+      // stitch the chunks together in order, stopping at the first chunk in which a parsing error occurred
+      List<FloatTextParser> chunks = new ArrayList<>(tasks.size());
+      long nTotal = nValues;
+      for(ForkJoinTask<FloatTextParser> task : tasks)
+      {
+         FloatTextParser chunk = task.join();
+         chunks.add(chunk);
+         nTotal += chunk.nValues;
+         if(chunk.errorTuple >= 0) break;
+      }
+      for(int i=chunks.size(); i<tasks.size(); i++) tasks.get(i).cancel(false);
+      if(nTotal > Integer.MAX_VALUE - 8) throw new OutOfMemoryError("Too many values to store in an array");
+
+      if(values.length < nTotal) values = Arrays.copyOf(values, (int) nTotal);
+      for(FloatTextParser chunk : chunks)
+      {
+         System.arraycopy(chunk.values, 0, values, nValues, chunk.nValues);
+         nValues += chunk.nValues;
+         if(nTuples + chunk.nTuples > tupleLengths.length)
+            tupleLengths = Arrays.copyOf(tupleLengths, Math.max(2 * tupleLengths.length, nTuples + chunk.nTuples));
+         System.arraycopy(chunk.tupleLengths, 0, tupleLengths, nTuples, chunk.nTuples);
+         if(chunk.errorTuple >= 0)
+         {
+            errorTuple = nTuples + chunk.errorTuple;
+            nTuples += chunk.nTuples;
+            return(false);
+         }
+         nTuples += chunk.nTuples;
+      }
+      return(true);
+   }
+
+   /**
+    * Helper method parses a portion of the specified text as a sequence of tuples. See {@link #parse(CharSequence,
+    * String)}.
+    * @param text The text to parse.
+    * @param from Index of the first character to parse.
+    * @param to Index just past the last character to parse.
+    * @param separators The tuple separator characters. If null or empty, the entire text is a single tuple.
+    * @return True if successful; false if a token could not be parsed as a floating-point number.
+    */
+   private boolean parseRange(CharSequence text, int from, int to, String separators)
+   {
+      int len = to;
+      boolean hasSeps = (separators != null && !separators.isEmpty());
+      char maxSep = 0;
+      if(hasSeps) for(int i=0; i<separators.length(); i++) maxSep = (char) Math.max(maxSep, separators.charAt(i));
+
+      int start = from;
+      while(start < len)
+      {
+         int end = start;
+         if(hasSeps)
+         {
+            for(; end < len; end++)
+            {
+               char c = text.charAt(end);
+               if(c <= maxSep && separators.indexOf(c) >= 0) break;
+            }
+         }
+         else end = len;
+
+         if(end > start && parseTuple(text, start, end) < 0) return(false);
+         start = end + 1;
+      }
+      return(true);
+   }
+
+   /**
+    * Parse a portion of the specified text as a single tuple of whitespace-separated floating-point tokens, and append
+    * it to the tuples parsed thus far.
+    * @param text The text containing the tuple.
+    * @param start Index of the first character of the tuple.
+    * @param end Index just past the last character of the tuple.
+    * @return The number of values in the tuple (possibly 0), or -1 if a token could not be parsed as a floating-point
+    * number. In the latter case, the tuple is discarded and {@link #getErrorTuple()} returns the index it would have
+    * had in the sequence of tuples parsed.
+    */
+   public int parseTuple(CharSequence text, int start, int end)
+   {
+      int first = nValues;
+      int i = start;
+      while(i < end)
+      {
+         while(i < end && text.charAt(i) <= ' ') ++i;
+         if(i == end) break;
+         int tokStart = i;
+         while(i < end && text.charAt(i) > ' ') ++i;
+
+         float f;
+         try { f = parseFloat(text, tokStart, i); }
+         catch(NumberFormatException nfe)
+         {
+            nValues = first;
+            errorTuple = nTuples;
+            return(-1);
+         }
+         if(nValues == values.length) values = Arrays.copyOf(values, values.length * 2);
+         values[nValues++] = f;
+      }
+
+      if(nTuples == tupleLengths.length) tupleLengths = Arrays.copyOf(tupleLengths, tupleLengths.length * 2);
+      tupleLengths[nTuples++] = nValues - first;
+      return(nValues - first);
+   }
+
+   /**
+    * Get the number of tuples parsed thus far.
+    * @return The tuple count.
+    */
+   public int getTupleCount() { return(nTuples); }
+
+   /**
+    * Get the length of a tuple parsed.
+    * @param i Index of the tuple in the sequence of tuples parsed.
+    * @return The number of values in the tuple.
+    */
+   public int getTupleLength(int i)
+   {
+      if(i < 0 || i >= nTuples) throw new IndexOutOfBoundsException();
+      return(tupleLengths[i]);
+   }
+
+   /**
+    * Get the total number of values parsed thus far, across all tuples.
+    * @return The value count.
+    */
+   public int getValueCount() { return(nValues); }
+
+   /**
+    * Get the internal buffer of parsed values. The values of all tuples are stored contiguously, in order, in the
+    * first {@link #getValueCount()} elements of the buffer. The buffer may be longer than that. It is NOT a copy, and
+    * it is reused or replaced by subsequent parsing.
+    * @return The internal value buffer.
+    */
+   public float[] getValueBuffer() { return(values); }
+
+   /**
+    * Get the values parsed thus far, across all tuples.
+    * @return An array of length {@link #getValueCount()} containing all parsed values in order. If the internal buffer
+    * is exactly full, the buffer itself is returned (and the parser should not be reused); else it is a copy.
+    */
+   public float[] toArray() { return((nValues == values.length) ? values : Arrays.copyOf(values, nValues)); }
+
+   /**
+    * Get the index of the tuple in which the last parsing error occurred.
+    * @return The tuple index, or -1 if no parsing error has occurred since the parser was constructed or cleared.
+    */
+   public int getErrorTuple() { return(errorTuple); }
+
+   /**
+    * Parse a portion of the specified text as a single-precision floating-point number. The common decimal forms are
+    * handled directly: an optional sign, a sequence of decimal digits with an optional decimal point (at least one
+    * digit is required), and an optional exponent ('e' or 'E', an optional sign, and 1+ digits). Provided the number
+    * has no more than 18 significant digits and its decimal exponent is small, the value is computed exactly from the
+    * digits without creating any objects. Otherwise, the method falls back on {@link Float#parseFloat(String)}.
+    *
+    * <p>Unlike {@link Float#parseFloat(String)}, leading and trailing whitespace is NOT ignored, although the fallback
+    * will accept it.</p>
+    *
+    * @param text The text containing the numeric token.
+    * @param start Index of the first character of the token.
+    * @param end Index just past the last character of the token.
+    * @return The floating-point value, exactly as {@link Float#parseFloat(String)} would return it.
+    * @throws NumberFormatException if the token cannot be parsed as a floating-point number.
+    */
+   public static float parseFloat(CharSequence text, int start, int end)
+   {
+      int i = start;
+      boolean neg = false;
+      if(i < end && (text.charAt(i) == '-' || text.charAt(i) == '+'))
+      {
+         neg = (text.charAt(i) == '-');
+         ++i;
+      }
+
+      // accumulate up to 18 significant digits, and the power of 10 by which they must be scaled
+      long m = 0;
+      int nDigits = 0;
+      int exp = 0;
+      boolean gotDigit = false;
+      boolean gotPoint = false;
+      for(; i < end; i++)
+      {
+         char c = text.charAt(i);
+         if(c >= '0' && c <= '9')
+         {
+            gotDigit = true;
+            if(m != 0 || c != '0')
+            {
+               if(nDigits == 18) return(parseFloatSlow(text, start, end));
+               m = m*10 + (c - '0');
+               ++nDigits;
+            }
+            if(gotPoint) --exp;
+         }
+         else if(c == '.' && !gotPoint) gotPoint = true;
+         else break;
+      }
+      if(!gotDigit) return(parseFloatSlow(text, start, end));
+
+      if(i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E'))
+      {
+         ++i;
+         boolean negExp = false;
+         if(i < end && (text.charAt(i) == '-' || text.charAt(i) == '+'))
+         {
+            negExp = (text.charAt(i) == '-');
+            ++i;
+         }
+         int e = 0;
+         int nExpDigits = 0;
+         for(; i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++)
+         {
+            if(e < 10000) e = e*10 + (text.charAt(i) - '0');
+            ++nExpDigits;
+         }
+         if(nExpDigits == 0) return(parseFloatSlow(text, start, end));
+         exp += negExp ? -e : e;
+      }
+      if(i != end) return(parseFloatSlow(text, start, end));
+
+      if(m == 0) return(neg ? -0.0f : 0.0f);
+
+      // both the digits and the power of 10 are exact in single precision, so one rounding yields the exact result
+      if(m < (1L << 24) && exp >= -10 && exp <= 10)
+      {
+         float f = (exp < 0) ? (m / POW10F[-exp]) : (m * POW10F[exp]);
+         return(neg ? -f : f);
+      }
+
+      // both are exact in double precision, so the double result is exact. Rounding that to single precision yields
+      // the exact result unless the double lies exactly halfway between two adjacent floats -- in which case we can't
+      // tell which way the true value should round.
+      if(m < (1L << 53) && exp >= -22 && exp <= 22)
+      {
+         double d = (exp < 0) ? (m / POW10[-exp]) : (m * POW10[exp]);
+         float f = (float) d;
+         double diff = Math.abs(d - f);
+         if(diff == 0 || (diff != Math.ulp(f) / 2 && diff != (f - Math.nextDown(f)) / 2))
+            return(neg ? -f : f);
+      }
+
+      return(parseFloatSlow(text, start, end));
+   }
+
+   /**
+    * Helper method for {@link #parseFloat(CharSequence, int, int)} handles any case not covered by the fast path.
+    * @param text The text containing the numeric token.
+    * @param start Index of the first character of the token.
+    * @param end Index just past the last character of the token.
+    * @return The floating-point value.
+    * @throws NumberFormatException if the token cannot be parsed as a floating-point number.
+    */
+   private static float parseFloatSlow(CharSequence text, int start, int end)
+   {
+      return(Float.parseFloat(text.subSequence(start, end).toString()));
+   }
+
+   /**
+    * A read-only character sequence view of ASCII text stored in a byte array, so that the content of an ASCII text
+    * file can be parsed directly from its raw bytes. Each byte is mapped to the character with the same code (i.e.,
+    * ISO-8859-1 decoding, which agrees with US-ASCII for all ASCII characters).
+    */
+   public static final class AsciiText implements CharSequence
+   {
+      /**
+       * Construct a character sequence view of a range of bytes. The bytes are not copied.
+       * @param bytes The byte array.
+       * @param offset Index of the first byte in the view.
+       * @param length The number of bytes in the view.
+       */
+      public AsciiText(byte[] bytes, int offset, int length)
+      {
+         if(offset < 0 || length < 0 || offset + length > bytes.length) throw new IndexOutOfBoundsException();
+         this.bytes = bytes;
+         this.offset = offset;
+         this.length = length;
+      }
+
+      @Override public int length() { return(length); }
+      @Override public char charAt(int index) { return((char) (bytes[offset + index] & 0xFF)); }
+      @Override public CharSequence subSequence(int start, int end)
+      {
+         if(start < 0 || end > length || start > end) throw new IndexOutOfBoundsException();
+         return(new AsciiText(bytes, offset + start, end - start));
+      }
+      @Override public String toString() { return(new String(bytes, offset, length, StandardCharsets.ISO_8859_1)); }
+
+      private final byte[] bytes;
+      private final int offset;
+      private final int length;
+   }
+
+   /** Minimum number of characters in each chunk of text parsed concurrently by {@link #parseParallel}. */
+   private final static int MINCHUNKLEN = 1 << 20;
+
+   /** Powers of 10 that are exactly representable in single precision: 10^0 .. 10^10. */
+   private final static float[] POW10F = {
+         1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+   };
+
+   /** Powers of 10 that are exactly representable in double precision: 10^0 .. 10^22. */
+   private final static double[] POW10 = {
+         1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+         1e20, 1e21, 1e22
+   };
+
+   /** The parsed values of all tuples, stored contiguously. */
+   private float[] values;
+   /** The number of parsed values in {@link #values}. */
+   private int nValues = 0;
+   /** The length of each tuple parsed. */
+   private int[] tupleLengths;
+   /** The number of tuples parsed. */
+   private int nTuples = 0;
+   /** Index of the tuple in which the last parsing error occurred, or -1 if there was none. */
+   private int errorTuple = -1;
+}
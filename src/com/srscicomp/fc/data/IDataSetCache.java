@@ -0,0 +1,56 @@
+package com.srscicomp.fc.data;
+
+/**
+ * This interface defines the requirements on an in-memory cache of {@link DataSet}s, as used by the various data source
+ * implementations to avoid re-reading a data set from file each time it is retrieved. It isolates those sources from
+ * the cache's eviction policy and memory bound, so that a different cache may be plugged in where needed -- e.g., one
+ * that draws on a memory budget shared by all sources. {@link DataSetCache} is the standard implementation.
+ *
+ * <p>A cache is a hint, not a store: an implementation may discard any entry at any time, so {@link #get} may return
+ * null for a data set that was previously put in the cache. Implementations must be safe for use by multiple
+ * threads.</p>
+ *
+ * @param <K> The key type.
+ * @author sruffner
+ */
+public interface IDataSetCache<K>
+{
+   /**
+    * Retrieve a data set from the cache.
+    * @param key The data set key.
+    * @return The cached data set, or null if it is not in the cache.
+    */
+   DataSet get(K key);
+
+   /**
+    * Store a data set in the cache, replacing any data set previously stored under the same key. The cache may decline
+    * to retain the data set, but any entry previously stored under the same key is still removed.
+    * @param key The data set key.
+    * @param ds The data set to cache. If null, this method is equivalent to {@link #remove}.
+    */
+   void put(K key, DataSet ds);
+
+   /**
+    * Remove a data set from the cache, if it is there.
+    * @param key The data set key.
+    * @return The data set removed, or null if there was no cache entry for the specified key.
+    */
+   DataSet remove(K key);
+
+   /** Remove all data sets from the cache. */
+   void clear();
+
+   /**
+    * Get the cache's memory budget.
+    * @return Maximum total number of bytes charged to data sets in the cache.
+    */
+   long getMaxBytes();
+
+   /**
+    * Set the cache's memory budget. If the new budget is smaller than the memory currently charged to cached data sets,
+    * entries are evicted until the cache is within budget.
+    * @param maxBytes Maximum total number of bytes charged to cached data sets. If non-positive, the cache is emptied
+    * and disabled.
+    */
+   void setMaxBytes(long maxBytes);
+}
@@ -1,6 +1,7 @@
 package com.srscicomp.fc.data;
 
 import java.io.File;
+import java.util.List;
 
 /**
  * This interface defines the requirements on any entity that can source {@link DataSet}s. It is intended to isolate 
@@ -47,6 +48,24 @@ public interface IDataSrc
     */
    boolean isReadOnly();
    
+   /**
+    * Open this data set source in preparation for a sequence of operations on it. An implementation that accesses the
+    * source file randomly may keep the file open until {@link #close()} is called, thereby avoiding the cost of 
+    * opening and closing the file for every operation. Implementations that read the entire source into memory or 
+    * rewrite it on every change need not take any action. 
+    * <p>Use of this method is optional; all other methods work whether or not the source is open. Callers that do open
+    * the source must close it when done.</p>
+    * @return True if successful or if the source is already open; false if a problem occurs while opening the source,
+    * or if the source was rendered unusable by a previous catastrophic error.
+    */
+   boolean open();
+   
+   /**
+    * Close this data set source, releasing any file resources retained since the last call to {@link #open()}. If the
+    * source is not open, no action is taken. A closed source may be reopened.
+    */
+   void close();
+   
    /**
     * Get summary information for all data sets available from this data source: the data set identifier, format, 
     * data size and breadth, and selected other parameters. Each data set in the source must have a unique ID. If the 
@@ -84,6 +103,21 @@ public interface IDataSrc
     */
    boolean writeData(DataSet set, boolean replace);
    
+   /**
+    * Store a list of data sets in this data source. Implementations that support transactional writes store either all
+    * of the data sets or none of them, at a much lower cost than storing each set separately. Other implementations 
+    * store the sets one at a time and stop at the first failure, in which case some of the sets may have been stored.
+    * @param sets The data sets to save. Any null entries are skipped. If the list is null or empty, the method returns 
+    * successfully but takes no action.
+    * @param replace If a data set with the same ID as one in the list already exists in the source, that data set is 
+    * replaced if this flag is set; otherwise, the operation fails.
+    * @return True if successful; false if a data set with the same ID as one in the list already exists and 
+    * <i>replace==false</i>, or if two data sets in the list have the same ID. Also returns false if the source is 
+    * read-only, if a problem occurs while writing source, or if the source was rendered unusable by a previous 
+    * catastrophic error.
+    */
+   boolean writeData(List<DataSet> sets, boolean replace);
+   
    /**
     * Change the ID of a single data set in this source.
     * @param id The ID of the affected data set.
@@ -6,7 +6,6 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -36,10 +35,20 @@ import com.srscicomp.fc.data.DataSet.Fmt;
  * the set of text lines representing a single data set.</p>
  *  
  * <p>The implementation is inefficient because the storage format is inefficient. There is no "table-of-contents" 
- * information at the beginning of the file, so the entire file must be scanned to get summary information. Since the 
- * {@link IDataSrc} interface requires that the summary information include data set meta-data, we have to parse 
- * every data set during this scan to get the required meta-data. Thus, the initial call may be very slow. Also, the 
- * implementation is memory-heavy, since all data sets are maintained in memory once scanned in.</p>
+ * information at the beginning of the file, so the entire file must be scanned to get summary information. However, 
+ * a data set's format, dimensions and defining parameters depend only on its annotation header (if any), the number 
+ * of datum tuples, and the minimum and maximum tuple lengths -- see {@link DataSet#getInfoForOldPlainTextSrcFileFormat
+ * DataSet.getInfoForOldPlainTextSrcFileFormat()}. So the scan merely counts the tokens on each line, recording the 
+ * summary information and the byte range of each data set definition in the file. By default, every data set is then
+ * parsed once, so that a malformed floating-point token renders the source unusable when it is first scanned. Parsed
+ * data sets are kept in a {@link DataSetCache} of limited size; a data set evicted from the cache is read again 
+ * directly from its byte range when it is next requested. Thus, memory usage does not grow with the size of the 
+ * file.</p>
+ * 
+ * <p>If lazy parsing is enabled via {@link #setLazyParsing(boolean)}, the tuples of a data set are not parsed until the
+ * data set is requested, which makes the scan much faster for a large file. The drawback is that a malformed 
+ * floating-point token is not detected until the data set containing it is retrieved -- so {@link #getSummaryInfo()} 
+ * may succeed for a file that contains an invalid data set.</p>
  * 
  * <p>(08apr2020) We could consider eliminating this data source format altogether. Nowadays, most if not all FC users
  * create draft figures in Matlab which are then imported into FC for further editing. Those who might still use FC 
@@ -142,18 +151,29 @@ class PlainTextSrc implements IDataSrc
       }
    }
    
+   /**
+    * Enable or disable lazy parsing of the data sets in this source. When disabled (the default), every data set is 
+    * parsed when the file is scanned, and the source is unusable if any data set definition is malformed. When 
+    * enabled, the scan only gathers summary information, and a data set is not parsed until it is retrieved. Call this
+    * right after construction; the file is not scanned again just because this setting changes.
+    * @param ena True to enable lazy parsing, false to disable it.
+    */
+   void setLazyParsing(boolean ena) { lazyParsing = ena; }
+   
    public File getSourceFile() { return(srcPath); }
    public String getLastError() { return(lastErrorMsg); }
    public boolean isUnusable() { return(isInvalidSrcFile); }
    public boolean isReadOnly() { return(true); }
+   public boolean open() { return(true); }
+   public void close() {}
 
    public DataSetInfo[] getSummaryInfo()
    {
       reparseIfNecessary();
       if(isInvalidSrcFile) return(null);
       
-      DataSetInfo[] info = new DataSetInfo[data.length];
-      for(int i=0; i<info.length; i++) info[i] = data[i].getInfo();
+      DataSetInfo[] info = new DataSetInfo[sections.length];
+      for(int i=0; i<info.length; i++) info[i] = sections[i].info;
       return(info);
    }
 
@@ -162,20 +182,32 @@ class PlainTextSrc implements IDataSrc
       reparseIfNecessary();
       if(isInvalidSrcFile) return(null);
       
-      // return data set with specified ID, if it exists
-      DataSet ds = null;
-      for(DataSet dataSet : data)
-         if(dataSet.getID().equals(id))
-         {
-            ds = dataSet;
-            break;
-         }
+      // find the data set definition with the specified ID. If it is not there, fail.
+      int idx = -1;
+      for(int i=0; i<sections.length; i++) if(sections[i].info.getID().equals(id))
+      {
+         idx = i;
+         break;
+      }
+      if(idx < 0)
+      {
+         lastErrorMsg = "Dataset (ID=" + id + ") not found in source!";
+         return(null);
+      }
       
-      lastErrorMsg = (ds == null) ? "Dataset (ID=" + id + ") not found in source!" : "";
+      // if the data set is in the cache, we're done. Otherwise, read in and parse its definition.
+      lastErrorMsg = "";
+      DataSet ds = dataCache.get(id);
+      if(ds == null)
+      {
+         ds = parseSection(idx);
+         if(ds != null) dataCache.put(id, ds);
+      }
       return(ds);
    }
 
    public boolean writeData(DataSet set, boolean replace) { lastErrorMsg = ERR_NOWRITE; return(false); }
+   public boolean writeData(List<DataSet> sets, boolean replace) { lastErrorMsg = ERR_NOWRITE; return(false); }
    public boolean changeID(String id, String idNew) { lastErrorMsg = ERR_NOWRITE; return(false);  }
    public boolean removeData(String id) { lastErrorMsg = ERR_NOWRITE; return(false);  }
    public boolean removeAll() { lastErrorMsg = ERR_NOWRITE; return(false);  }
@@ -199,113 +231,273 @@ class PlainTextSrc implements IDataSrc
    /** Source file's modification time the last time we parsed it. */
    private long srcLastModified = -1;
    
-   /** All data sets found in the file. */
-   private DataSet[] data = null;
+   /** The location and summary information for each data set definition found in the file. */
+   private Section[] sections = null;
+   
+   /** Cache of data sets parsed from the file, keyed by data set ID. */
+   private final IDataSetCache<String> dataCache = new DataSetCache<>();
    
    /** Flag set if unable to parse the file the last time it was scanned. */
    private boolean isInvalidSrcFile = false;
+   
+   /** If set, a data set is not parsed until it is retrieved. See {@link #setLazyParsing(boolean)}. */
+   private boolean lazyParsing = false;
 
+   /** The location and summary information for one data set definition in the source file. */
+   private static class Section
+   {
+      Section(DataSetInfo info, long offset, int length, int startLine) 
+      { 
+         this.info = info; 
+         this.offset = offset; 
+         this.length = length; 
+         this.startLine = startLine; 
+      }
+      
+      /** Summary information for the data set. */
+      final DataSetInfo info;
+      /** File offset of the first line of the data set definition. */
+      final long offset;
+      /** Number of bytes spanned by the data set definition, excluding the terminator of its last line. */
+      final int length;
+      /** Line number (zero-based) at which the data set definition starts. */
+      final int startLine;
+   }
+   
    /**
-    * Helper method checks if source file has changed since the last time we parsed it for data sets. If so, the cached 
-    * data is discarded and the file is parsed again. If parsing fails, {@link #getLastError()} will return the reason
-    * for the failure.
+    * Helper method checks if source file has changed since the last time we scanned it for data sets. If so, the 
+    * cached information and data sets are discarded and the file is scanned again. If scanning fails, {@link 
+    * #getLastError()} will return the reason for the failure.
+    * 
+    * <p>The scan reads the file in large chunks of raw bytes (the file is ASCII text), tracking the byte offset of each
+    * line and counting the tokens on it, where any whitespace or control character separates tokens. Any sequence of 
+    * "\r", "\n" or "\r\n" terminates a line. A blank line terminates a data set definition. When a definition ends, 
+    * its summary information is computed from its first line and its tuple length statistics, without parsing any 
+    * tuples. Unless lazy parsing is enabled, each data set definition is then parsed to validate it.</p>
     */
    private void reparseIfNecessary()
    {
       // fail immediately if path is not specified or does not exist
       if(srcPath == null || !srcPath.isFile())
       {
-         data = null;
+         sections = null;
+         dataCache.clear();
          lastErrorMsg = (srcPath==null) ? "File unspecified" : "File not found";
          isInvalidSrcFile = true;
          return;
       }
 
-      // if we've already parsed the file and its file mod time has not changed, then there's nothing to do
+      // if we've already scanned the file and its file mod time has not changed, then there's nothing to do
       if(srcLastModified > 0)
       {
          if(srcLastModified == srcPath.lastModified()) return;
       }
       
       srcLastModified = srcPath.lastModified();
-      data = null;
+      sections = null;
+      dataCache.clear();
       isInvalidSrcFile = false;
       lastErrorMsg = "";
 
-      // parse the entire file
-      BufferedReader rdr = null;
-      List<DataSet> sets = new ArrayList<>();
+      // scan the entire file
+      List<Section> found = new ArrayList<>();
       StringBuffer errMsgBuf = new StringBuffer();
-      try
+      try(FileInputStream in = new FileInputStream(srcPath))
       {
-         // create a buffered reader for reading the ascii text file one line at a time
-         rdr = new BufferedReader( new InputStreamReader( new FileInputStream(srcPath), StandardCharsets.US_ASCII) );
+         byte[] buf = new byte[65536];
+         StringBuilder firstLine = new StringBuilder();
+         long pos = 0;              // file offset of buf[0]
+         long lineStart = 0;        // file offset of the current line
+         int nLinesRead = 0;        // number of complete lines scanned so far
+         int nTokens = 0;           // number of tokens on the current line
+         boolean inToken = false;   // is the last character scanned part of a token?
+         boolean prevCR = false;    // was the last character scanned a carriage return?
+         
+         // statistics for the data set definition currently being scanned; start < 0 if there is none
+         int start = -1;
+         long setStart = 0;
+         long setEnd = 0;
+         String header = null;
+         boolean isAnnotated = false;
+         int nTuples = 0;
+         int minLen = Integer.MAX_VALUE;
+         int maxLen = 0;
+         long nValues = 0;
          
-         // read in and parse data sets
-         int nLinesRead = 0;
-         List<String> lines = new ArrayList<>();
          boolean done = false;
          while(!done)
          {
-            lines.clear();
-
-            // read in all lines until EOF or an empty line is encountered, skipping any initial blank lines. These 
-            // lines will define a single data set.
-            int start = -1;
-            while(true)
+            int nRead = in.read(buf);
+            done = (nRead <= 0);
+            int n = done ? 1 : nRead;
+            for(int i=0; i<n; i++)
             {
-               String nextLine = rdr.readLine();
-               if(nextLine == null)
+               // at EOF, pretend there's a final line terminator unless the last line was already terminated
+               byte b;
+               if(done)
                {
-                  done = true;
-                  break;
+                  if(pos == lineStart) break;
+                  b = '\n';
+                  prevCR = false;
                }
+               else b = buf[i];
                
-               ++nLinesRead;
-               nextLine = nextLine.trim();
+               if(b == '\n' && prevCR)
+               {
+                  prevCR = false;
+                  lineStart = pos + i + 1;
+                  continue;
+               }
+               prevCR = (b == '\r');
                
-               if(start < 0)
+               if(b != '\n' && b != '\r')
                {
-                  if(nextLine.isEmpty()) continue;
-                  else start = nLinesRead-1;
+                  boolean isDelim = ((b & 0xFF) <= ' ');
+                  if(!isDelim && !inToken) ++nTokens;
+                  inToken = !isDelim;
+                  if(start < 0 && nTokens > 0) firstLine.append((char) (b & 0xFF));
+                  continue;
                }
-               else if(nextLine.isEmpty())
-                  break;
                
-               lines.add(nextLine);
-            }
-            
-            // construct a new data set initialized IAW with the contiguous sequence of lines just read. If no parsing 
-            // error occurred, append the new data set to the list of sets loaded thus far.
-            if(!lines.isEmpty())
-            {
-               String defID = "set" + sets.size();
-               errMsgBuf.setLength(0);
-               DataSet ds = DataSet.fromOldPlainTextSrcFileFormat(lines, start, defID, preferredDSFormats, errMsgBuf);
-               if(ds != null)
-                  sets.add(ds);
+               // end of line reached. A blank line terminates the current data set definition, if any.
+               long lineEnd = pos + i;
+               if(nTokens == 0)
+               {
+                  if(start >= 0)
+                  {
+                     if(!addSection(found, header, nTuples, minLen, maxLen, nValues, start, setStart, setEnd, 
+                           errMsgBuf))
+                        throw new IOException(errMsgBuf.toString());
+                     start = -1;
+                  }
+               }
                else
                {
-                  lastErrorMsg = errMsgBuf.toString();
-                  isInvalidSrcFile = true;
-                  done = true;
+                  boolean isTuple = true;
+                  if(start < 0)
+                  {
+                     start = nLinesRead;
+                     setStart = lineStart;
+                     header = firstLine.toString().trim();
+                     firstLine.setLength(0);
+                     isAnnotated = header.startsWith(":");
+                     isTuple = !isAnnotated;
+                     nTuples = 0;
+                     minLen = Integer.MAX_VALUE;
+                     maxLen = 0;
+                     nValues = 0;
+                  }
+                  if(isTuple)
+                  {
+                     ++nTuples;
+                     if(nTokens < minLen) minLen = nTokens;
+                     if(nTokens > maxLen) maxLen = nTokens;
+                     nValues += nTokens;
+                  }
+                  setEnd = lineEnd;
                }
+               
+               ++nLinesRead;
+               nTokens = 0;
+               inToken = false;
+               lineStart = lineEnd + 1;
             }
+            if(!done) pos += nRead;
          }
-
+         
+         if(start >= 0 && !addSection(found, header, nTuples, minLen, maxLen, nValues, start, setStart, setEnd, 
+               errMsgBuf))
+            throw new IOException(errMsgBuf.toString());
       }
       catch(FileNotFoundException fnfe) { lastErrorMsg = "File not found!"; isInvalidSrcFile = true; }
-      catch(UnsupportedEncodingException uee) { lastErrorMsg = "Cannot handle USASCII!"; isInvalidSrcFile = true; }
       catch(IOException ioe) { lastErrorMsg = ioe.getMessage(); isInvalidSrcFile = true; }
-      finally
-      {
-         try { if(rdr != null) rdr.close(); } catch(IOException ignored) {}
-      }
 
       if(!lastErrorMsg.isEmpty()) return;
       
-      data = new DataSet[sets.size()];
-      for(int i=0; i<sets.size(); i++) data[i] = sets.get(i);
+      sections = found.toArray(new Section[0]);
+      
+      // unless lazy parsing is enabled, parse every data set now so that a malformed definition is detected up front.
+      // The parsed sets are cached, subject to the cache's memory bound.
+      if(!lazyParsing) for(int i=0; i<sections.length; i++)
+      {
+         DataSet ds = parseSection(i);
+         if(ds == null)
+         {
+            sections = null;
+            dataCache.clear();
+            isInvalidSrcFile = true;
+            return;
+         }
+         dataCache.put(sections[i].info.getID(), ds);
+      }
+   }
+   
+   /**
+    * Helper method for {@link #reparseIfNecessary()}. It computes the summary information for a data set definition 
+    * just scanned and appends a new section to the list of data set definitions found thus far.
+    * @param found The list of data set definitions found thus far.
+    * @param firstLine The first line of the data set definition, trimmed.
+    * @param nTuples The number of datum tuples in the definition.
+    * @param minLen The minimum observed tuple length.
+    * @param maxLen The maximum observed tuple length.
+    * @param nValues The total number of tokens in all datum tuples.
+    * @param start Line number (zero-based) at which the definition starts.
+    * @param setStart File offset of the first line of the definition.
+    * @param setEnd File offset of the end of the last line of the definition, excluding the line terminator.
+    * @param errMsgBuf If the data set definition is invalid, this buffer is initialized with an explanatory message.
+    * @return True if successful; false if the data set definition is invalid.
+    */
+   private boolean addSection(List<Section> found, String firstLine, int nTuples, int minLen, int maxLen, 
+         long nValues, int start, long setStart, long setEnd, StringBuffer errMsgBuf)
+   {
+      errMsgBuf.setLength(0);
+      if(setEnd - setStart > Integer.MAX_VALUE)
+      {
+         errMsgBuf.append("Dataset starting at line ").append(start).append(" is too large");
+         return(false);
+      }
+      String defID = "set" + found.size();
+      DataSetInfo info = DataSet.getInfoForOldPlainTextSrcFileFormat(firstLine, nTuples, minLen, maxLen, nValues, 
+            start, defID, preferredDSFormats, errMsgBuf);
+      if(info == null) return(false);
+      found.add(new Section(info, setStart, (int) (setEnd - setStart), start));
+      return(true);
+   }
+   
+   /**
+    * Helper method reads in a data set definition from the byte range it spans in the source file, and parses it. The
+    * raw bytes are parsed directly, and a large definition is parsed in parallel. See {@link 
+    * DataSet#fromOldPlainTextSrcFileFormat(CharSequence, int, String, Fmt[], StringBuffer)}.
+    * @param idx Index of the data set definition in the source file.
+    * @return The data set, or null if an IO error or parsing error occurs -- in which case {@link #getLastError()} 
+    * will return the reason for the failure.
+    */
+   private DataSet parseSection(int idx)
+   {
+      Section section = sections[idx];
+      byte[] bytes = new byte[section.length];
+      try(FileInputStream in = new FileInputStream(srcPath))
+      {
+         in.getChannel().position(section.offset);
+         int nRead = 0;
+         while(nRead < bytes.length)
+         {
+            int n = in.read(bytes, nRead, bytes.length - nRead);
+            if(n < 0) throw new IOException("Unexpected EOF while reading dataset at line " + section.startLine);
+            nRead += n;
+         }
+      }
+      catch(IOException ioe) 
+      { 
+         lastErrorMsg = ioe.getMessage(); 
+         return(null);
+      }
+      
+      StringBuffer errMsgBuf = new StringBuffer();
+      DataSet ds = DataSet.fromOldPlainTextSrcFileFormat(new FloatTextParser.AsciiText(bytes, 0, bytes.length), 
+            section.startLine, "set" + idx, preferredDSFormats, errMsgBuf);
+      if(ds == null) lastErrorMsg = errMsgBuf.toString();
+      return(ds);
    }
    
    /**
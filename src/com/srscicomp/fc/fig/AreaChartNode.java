@@ -7,11 +7,11 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.text.AttributedString;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 
+import com.srscicomp.common.g2dutil.PointProducer;
+import com.srscicomp.common.g2dutil.PointStream;
 import com.srscicomp.common.g2dutil.PolylinePainter;
 import com.srscicomp.common.g2dutil.SingleStringPainter;
 import com.srscicomp.common.g2dutil.TextAlign;
@@ -631,7 +631,7 @@ public class AreaChartNode extends FGNPlottableData implements Cloneable
     * 
     * @author sruffner
     */
-   private class AreaVertexProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class AreaVertexProducer extends PointProducer.Sequential implements Iterator<Point2D>
    {
       final int setIdx;
       final DataSet set;
@@ -648,7 +648,9 @@ public class AreaChartNode extends FGNPlottableData implements Cloneable
       final Point2D pCurrent = new Point2D.Double();
       final Point2D pNext = new Point2D.Double();
       
-      public Iterator<Point2D> iterator() { return(new AreaVertexProducer(setIdx)); }
+      @Override public Iterator<Point2D> iterator() { return(new AreaVertexProducer(setIdx)); }
+
+      @Override public PointStream openStream() { return(new AreaVertexProducer(setIdx)); }
 
       public AreaVertexProducer(int idx)
       {
@@ -771,15 +773,11 @@ public class AreaChartNode extends FGNPlottableData implements Cloneable
       }
 
       psDoc.startElement(this);
-      List<Point2D> vertices = new ArrayList<>();
       for(int i=0; i<getNumDataGroups(); i++)
       {
          // get the vertices defining the area for the i-th data group
-         vertices.clear();
-         Iterator<Point2D> iterator = new AreaVertexProducer(i);
-         while(iterator.hasNext()) 
-            vertices.add((Point2D) iterator.next().clone());    // must clone, b/c producer reuses a Point2D
-         if(vertices.isEmpty()) continue;
+         double[] vertices = PointProducer.toArray(new AreaVertexProducer(i));
+         if(vertices.length == 0) continue;
          
          psDoc.renderPolygons(vertices, getDataGroupColor(i));
          
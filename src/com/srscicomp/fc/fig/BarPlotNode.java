@@ -12,6 +12,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
+import com.srscicomp.common.g2dutil.PointProducer;
+import com.srscicomp.common.g2dutil.PointStream;
 import com.srscicomp.common.g2dutil.PolylinePainter;
 import com.srscicomp.common.g2dutil.RadialSectionPainter;
 import com.srscicomp.common.g2dutil.SingleStringPainter;
@@ -947,7 +949,7 @@ public class BarPlotNode extends FGNPlottableData implements Cloneable
     * 
     * @author  sruffner
     */
-   private class BarVertexProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class BarVertexProducer extends PointProducer.Sequential implements Iterator<Point2D>
    {
       /** Index of member set for which bar vertices are generated. */
       final int setIdx;
@@ -978,7 +980,9 @@ public class BarPlotNode extends FGNPlottableData implements Cloneable
        * Retrieve a new iterator. This merely returns a fresh copy of the producer, which acts both as {@link Iterable}
        * and {@link Iterator}.
        */
-      public Iterator<Point2D> iterator() { return(new BarVertexProducer(setIdx)); }
+      @Override public Iterator<Point2D> iterator() { return(new BarVertexProducer(setIdx)); }
+
+      @Override public PointStream openStream() { return(new BarVertexProducer(setIdx)); }
 
       /**
        * Construct a <b>BarVertexProducer</b>, which provides a special iterator over the vertices that define the
@@ -1141,7 +1145,7 @@ public class BarPlotNode extends FGNPlottableData implements Cloneable
     * 
     * @author  sruffner
     */
-   private class PolarBarVertexProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class PolarBarVertexProducer extends PointProducer.Sequential implements Iterator<Point2D>
    {
       /** Index of member set for which radial sections are generated. */
       final int setIdx;
@@ -1171,7 +1175,9 @@ public class BarPlotNode extends FGNPlottableData implements Cloneable
        * Retrieve a new iterator. This merely returns a fresh copy of the producer, which acts both as {@link Iterable}
        * and {@link Iterator}.
        */
-      public Iterator<Point2D> iterator() { return(new PolarBarVertexProducer(setIdx)); }
+      @Override public Iterator<Point2D> iterator() { return(new PolarBarVertexProducer(setIdx)); }
+
+      @Override public PointStream openStream() { return(new PolarBarVertexProducer(setIdx)); }
 
       /**
        * Construct a <b>PolarBarVertexProducer</b>, which provides a special iterator over the vertices that define the
@@ -1345,15 +1351,12 @@ public class BarPlotNode extends FGNPlottableData implements Cloneable
       }
 
       psDoc.startElement(this);
-      List<Point2D> vertices = new ArrayList<>();
       for(int i=0; i<getNumDataGroups(); i++)
       {
          // get the vertices defining the bars for the i-th bar group
-         vertices.clear();
-         Iterator<Point2D> iterator = g.isPolar() ? new PolarBarVertexProducer(i) : new BarVertexProducer(i);
-         while(iterator.hasNext()) 
-            vertices.add((Point2D) iterator.next().clone());    // must clone, b/c producer reuses a Point2D
-         if(vertices.isEmpty()) continue;
+         double[] vertices = 
+               PointProducer.toArray(g.isPolar() ? new PolarBarVertexProducer(i) : new BarVertexProducer(i));
+         if(vertices.length == 0) continue;
          
          if(g.isPolar())
             psDoc.renderConcentricWedges(origin, vertices, getDataGroupColor(i));
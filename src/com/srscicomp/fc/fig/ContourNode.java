@@ -503,6 +503,16 @@ public class ContourNode extends FGNPlottableData implements Cloneable
       return((Rectangle2D)rBoundsSelf.clone());
    }
 
+   /**
+    * A contour node displaying a heat map retains a raster layer, since resampling a large heat map image onto the 
+    * canvas is expensive. Thus, if another node in the same graph is edited, the heat map is not re-rasterized. A
+    * contour node with a large data set retains a layer in any display mode.
+    */
+   @Override protected boolean isRasterLayerRetained() 
+   { 
+      return(mode == DisplayMode.HEATMAP || mode == DisplayMode.CONTOUREDHEATMAP || super.isRasterLayerRetained()); 
+   }
+
    @Override protected void releaseRenderResourcesForSelf()
    {
       rBoundsSelf = null;
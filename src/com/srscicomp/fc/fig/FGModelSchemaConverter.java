@@ -2383,7 +2383,11 @@ public class FGModelSchemaConverter
     * 
     * <p>NOTE: Schema version 8 was the initial version under <em>DataNav</em>, which integrated and superceded the 
     * original Java-based <em>Phyplot</em> in 2008. Dataset handling was significantly revamped in this version.</p>
-    * 
+    *
+    * <p>The base64-encoded content of each "set" element is not prepared here. Instead, the element is given a text
+    * content writer that encodes the data set directly to the output stream when the schema document is written, so
+    * the document never holds a full-size copy of the encoded data.</p>
+    *
     * @param schema The XML schema content document.
     * @param model The graphic model being converted to XML.
     * @throws XMLException If an exception is thrown, it indicates an error in the conversion code!
@@ -2411,7 +2415,7 @@ public class FGModelSchemaConverter
          if(using != null) 
             eSet.setAttributeValueByName(FGModelSchema.A_USING, using);
          else
-            eSet.setTextContent(DataSet.toBase64(ds, true), false);
+            eSet.setTextContentWriter(wrt -> DataSet.writeBase64(ds, false, true, wrt));
 
          ref.add(eSet);
       }
@@ -2455,7 +2459,7 @@ public class FGModelSchemaConverter
                DataSet.Fmt dsFmt = Utilities.getEnumValueFromString(fmt, DataSet.Fmt.values());
                ds = DataSet.fromCommaSeparatedTuples(id, dsFmt, dx, eSet.getTextContent());
             }
-            else ds = DataSet.fromBase64(eSet.getTextContent());
+            else ds = DataSet.fromBase64(eSet.getTextContentChars());
             
             if(ds == null) throw new XMLException("Bad dataset content found", FGModelSchema.EL_SET, null);
             if(!(ds.getID().equals(id) && ds.getFormat().toString().equals(fmt)))
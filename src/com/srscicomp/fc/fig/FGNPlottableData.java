@@ -229,6 +229,22 @@ public abstract class FGNPlottableData extends FGNPlottable implements Cloneable
       super.onNodeModified(hint);
    }
 
+   /** 
+    * Minimum size of the raw data array of a data presentation node's data set, in floating-point values, for the node
+    * to retain a raster layer. See {@link #isRasterLayerRetained()}.
+    */
+   private final static long LAYERMINDATASIZE = 100000;
+
+   /**
+    * A data presentation node in a 2D graph retains a raster layer if its data set is large, since rendering a large
+    * data set is expensive, while the node changes much less often than the labels and other annotations around it.
+    * Thus, if another node in the same graph is edited, the data is not rendered again. A node in a 3D graph does not
+    * retain a layer.
+    */
+   @Override protected boolean isRasterLayerRetained()
+   {
+      return(getParentGraph3D() == null && ((long) set.getDataLength()) * set.getDataBreadth() >= LAYERMINDATASIZE);
+   }
    
    /** 
     * The grouped-data presentation nodes support <i>FypML</i> styled text in the data group labels, so this method
@@ -953,6 +953,8 @@ public class FGraphicModel implements RenderableModel, Printable
     * also be supported by that presentation element. If a such a replacement set is found <b>AND it is not identical to
     * the presentation element's current data set</b>, the replacement set becomes the element's new data set; else, the
     * data presentation element is left unchanged.</p>
+    * <p>Each replacement set is interned (see {@link DataSet#intern(DataSet)}), so that a data set appearing in several
+    * figures opened during the same session is backed by a single raw data array.</p>
     * <p><b>NOTE</b>: This method is also used when converting a FypML figure schema document into a graphic model. 
     * During conversion, the model is constructed with all data presentation nodes containing default data sets, then 
     * the actual data sets are read from the document and injected into the model with this method. If a set happens to 
@@ -989,7 +991,7 @@ public class FGraphicModel implements RenderableModel, Printable
             if(ds.getID().equals(id) && dsn.isSupportedDataFormat(ds.getFormat()) && (force || !ds.equals(currDS)))
             {
                replaceList.add(currDS);
-               replaceList.add(ds);
+               replaceList.add(DataSet.intern(ds));
                replaceList.add(dsn);
                used[i] = true;
                break;
@@ -2260,7 +2262,8 @@ public class FGraphicModel implements RenderableModel, Printable
    /**
     * Each graphic node in the <code>FGraphicModel</code> must invoke this method whenever its definition changes in 
     * any way, <strong>including</strong> the addition or removal of a child node. The method will set the model's 
-    * "dirty" flag, notify any registered listeners, and queue a rendering task if one is requested.
+    * "dirty" flag, notify any registered listeners, and queue a rendering task if one is requested. It also 
+    * invalidates the retained raster layers of the affected node, its ancestors and its descendants.
     * 
     * @param n The graphics node that was affected. Cannot be <code>null</code>. For a child list changes this should 
     * be the parent node affected. Else, it should be the node whose definition was changed.
@@ -2278,6 +2281,7 @@ public class FGraphicModel implements RenderableModel, Printable
    {
       assert(n != null);
       if(n.getGraphicModel() != this) return;
+      if(change >= 0 || needsRender) n.invalidateRasterLayers();
       if(change >= 0) 
       {
          isModified = true;
@@ -3066,9 +3070,44 @@ public class FGraphicModel implements RenderableModel, Printable
       return(true);
    }
 
-   public void unregisterViewer(RenderableModelViewer viewer) { if(rmviewer == viewer) rmviewer = null; }
+   public void unregisterViewer(RenderableModelViewer viewer) 
+   { 
+      if(rmviewer == viewer) 
+      {
+         rmviewer = null;
+         root.releaseRasterLayers();
+      }
+   }
    public RenderableModelViewer getViewer() { return(rmviewer); }
 
+   /** Flag set if graphic nodes that support it may retain a raster layer between render cycles. */
+   private volatile boolean retainedLayersEnabled = false;
+
+   /**
+    * Enable or disable retained raster layers for this model. When enabled, selected graphic nodes -- expensive nodes
+    * like heat maps and data presentation nodes with large data sets -- keep a rasterized rendering of themselves
+    * between render cycles in the registered viewer, so that they need not be rendered from scratch each time a
+    * different part of the figure is modified. The layers are released when disabled, or when the viewer is 
+    * unregistered. Disabled by default.
+    * 
+    * <p>This is a display-only setting. It does not affect printing or export, nor is it considered a change to the 
+    * model's definition.</p>
+    * @param ena True to enable, false to disable retained raster layers.
+    */
+   public void setRetainedLayersEnabled(boolean ena)
+   {
+      if(retainedLayersEnabled == ena) return;
+      retainedLayersEnabled = ena;
+      if(!ena) root.releaseRasterLayers();
+   }
+
+   /**
+    * Are retained raster layers enabled for this model?
+    * @return True if enabled.
+    * @see #setRetainedLayersEnabled(boolean)
+    */
+   public boolean isRetainedLayersEnabled() { return(retainedLayersEnabled); }
+
    /**
     * Retrieve a Java2D graphics context from the <code>RenderableModelViewer</code> in which this 
     * <code>FGraphicModel</code> is currently displayed. This context should never be rendered into -- rendering should 
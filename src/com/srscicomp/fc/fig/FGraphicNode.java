@@ -4,6 +4,7 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
 import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.font.TextAttribute;
@@ -3450,6 +3451,7 @@ public abstract class FGraphicNode implements Focusable, PainterStyle, PSTransfo
    {
       cachedGlobalShape = new Rectangle2D.Double();
       cachedLocalBounds = null;
+      releaseRasterLayer();
       releaseRenderResourcesForSelf();
       for(FGraphicNode sub : subordinates)
          sub.releaseRenderResources();
@@ -3854,12 +3856,148 @@ public abstract class FGraphicNode implements Focusable, PainterStyle, PSTransfo
    {
       for(FGraphicNode sub : subordinates)
       {
-         if(!sub.render(g2d, task))
+         if(!renderNode(sub, g2d, task))
             return(false);
       }
       return(true);
    }
 
+   /**
+    * Helper method renders a subordinate node on behalf of its parent.
+    * 
+    * <p>When a figure is rendered in tiles on several threads at once (see {@link
+    * FigureNode#supportsConcurrentRendering()}), the same node may be asked to render itself into different tiles at 
+    * the same time. Since most nodes lazily prepare their painters and other cached render state during a render cycle,
+    * every node except a 2D graph container is rendered while holding the node's monitor. A 2D graph container merely
+    * sets up the viewport for its subordinates, so it is not locked -- which lets the different tiles render the
+    * graph's children in parallel. A 3D graph, however, is locked like any other node: it lazily recomputes its
+    * 3D-to-2D projection, which its component nodes and children use while they render. Locks are always acquired from
+    * parent to child, so there is no risk of deadlock. A node that spans several tiles is traversed once per tile, but
+    * its painters skip all marks outside the tile's clip region (see {@link 
+    * com.srscicomp.common.g2dutil.ShapePainter} and {@link com.srscicomp.common.g2dutil.MultiShapePainter}), so each
+    * tile holds the node's lock only while it draws its own share of the node.</p>
+    * 
+    * <p>If the node retains a raster layer (see {@link #isRasterLayerRetained()}), the model has enabled retained 
+    * layers, and the node is rendered onto an image buffer during a render cycle of the figure canvas, then the visible
+    * tiles of the node's layer are blitted instead -- unless the node has changed since it was last rendered, in which
+    * case it is rendered directly once more. See {@link RasterLayer}.</p>
+    * 
+    * @param n The node to render.
+    * @param g2d The graphics context in which to draw.
+    * @param task The rendering task in progress.
+    * @return <code>True</code> if the node was rendered; <code>false</code> if an error occurred or the rendering job 
+    * was cancelled.
+    */
+   protected static boolean renderNode(FGraphicNode n, Graphics2D g2d, RenderTask task)
+   {
+      if(n.isRasterLayerRetained() && isCanvasRenderCycle(g2d, task))
+      {
+         FGraphicModel model = n.getGraphicModel();
+         if(model != null && model.isRetainedLayersEnabled())
+            return(n.getRasterLayer().render(n, g2d, task));
+      }
+      if(n instanceof FGNGraph && !(n instanceof Graph3DNode)) return(n.render(g2d, task));
+      synchronized(n)
+      {
+         return(n.render(g2d, task));
+      }
+   }
+
+   /**
+    * Is a node being rendered onto an image buffer during a render cycle of the figure canvas? Render optimizations 
+    * that depend on the device resolution -- like retained raster layers -- are appropriate only in this case. They 
+    * must not be used when printing or exporting a figure. Note that PDF export also renders onto a graphics context 
+    * that reports an image buffer device, but no render task is supplied in that case.
+    * 
+    * @param g2d The graphics context in which the node is rendered.
+    * @param task The rendering task in progress. Null when printing or exporting a figure.
+    * @return True if the task is not null and the graphics context renders onto an image buffer.
+    */
+   protected static boolean isCanvasRenderCycle(Graphics2D g2d, RenderTask task)
+   {
+      return(task != null && g2d.getDeviceConfiguration().getDevice().getType() == GraphicsDevice.TYPE_IMAGE_BUFFER);
+   }
+
+   /**
+    * Does this node retain a raster layer holding its rendered appearance between render cycles of the figure canvas?
+    * This is worthwhile only for a node that is expensive to render, or that contains many subordinates. The
+    * base-class implementation returns false.
+    * 
+    * @return True if this node retains a raster layer. See {@link RasterLayer}.
+    */
+   protected boolean isRasterLayerRetained() { return(false); }
+
+   /**
+    * This node's retained raster layer. Lazily created. Null if the node does not retain a raster layer. It is not
+    * guarded by the node's monitor, which is held while the node renders, so that it may be invalidated or released on 
+    * the Swing event thread without waiting on the renderer.
+    */
+   private volatile RasterLayer rasterLayer = null;
+
+   /** Lock guarding the lazy creation of retained raster layers. */
+   private final static Object RASTERLAYERLOCK = new Object();
+
+   /**
+    * Helper method gets this node's retained raster layer, creating it if necessary.
+    * @return The raster layer.
+    */
+   private RasterLayer getRasterLayer()
+   {
+      RasterLayer layer = rasterLayer;
+      if(layer == null) synchronized(RASTERLAYERLOCK)
+      {
+         layer = rasterLayer;
+         if(layer == null) rasterLayer = layer = new RasterLayer();
+      }
+      return(layer);
+   }
+
+   /**
+    * Invalidate the retained raster layers of this node, its ancestors and its descendants. It must be invoked whenever
+    * this node is modified in any way that could affect its rendered appearance. A change in a node could alter the
+    * appearance of its descendants (eg, via inherited styles) as well as that of its ancestors, but no other nodes.
+    */
+   void invalidateRasterLayers()
+   {
+      for(FGraphicNode n = parent; n != null; n = n.parent) n.invalidateRasterLayer();
+      Stack<FGraphicNode> nodeStack = new Stack<>();
+      nodeStack.push(this);
+      while(!nodeStack.isEmpty())
+      {
+         FGraphicNode n = nodeStack.pop();
+         n.invalidateRasterLayer();
+         for(FGraphicNode sub : n.subordinates) nodeStack.push(sub);
+      }
+   }
+
+   /** Helper method invalidates this node's retained raster layer, if it has one. */
+   private void invalidateRasterLayer()
+   {
+      RasterLayer layer = rasterLayer;
+      if(layer != null) layer.invalidate();
+   }
+
+   /** Helper method releases this node's retained raster layer, if it has one. */
+   private void releaseRasterLayer()
+   {
+      RasterLayer layer = rasterLayer;
+      rasterLayer = null;
+      if(layer != null) layer.release();
+   }
+
+   /** Release the retained raster layers of this node and its descendants. (Recursion is not used.) */
+   void releaseRasterLayers()
+   {
+      Stack<FGraphicNode> nodeStack = new Stack<>();
+      nodeStack.push(this);
+      while(!nodeStack.isEmpty())
+      {
+         FGraphicNode n = nodeStack.pop();
+         n.releaseRasterLayer();
+         for(FGraphicNode sub : n.subordinates) nodeStack.push(sub);
+      }
+   }
+
    /**
     * The default focus highlight for a <code>FGraphicNode</code> is its local render bounds transformed to the root 
     * figure's "global" rendering coordinates. If the local render bounds cannot be computed, <code>null</code> is 
@@ -4792,6 +4930,7 @@ public abstract class FGraphicNode implements Focusable, PainterStyle, PSTransfo
       
       copy.cachedLocalBounds = null;
       copy.cachedGlobalShape = new Rectangle2D.Double();
+      copy.rasterLayer = null;
 
       copy.subordinates = new ArrayList<>();
       copy.nComponents = 0;
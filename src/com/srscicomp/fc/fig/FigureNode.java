@@ -404,6 +404,12 @@ public class FigureNode extends FRootGraphicNode implements Cloneable
       return(new Point2D.Double(getX().toMilliInches(), getY().toMilliInches())); 
    }
    @Override public boolean hasTranslucentRegions() { return(isTranslucent()); }
+
+   /**
+    * A figure may be rendered concurrently in tiles, since each of its nodes -- except the 2D graph containers, which
+    * hold no lazily prepared render state -- is locked while it renders itself. See {@link FGraphicNode#renderNode}.
+    */
+   @Override public boolean supportsConcurrentRendering() { return(true); }
    
    /** Since a <b>FigureNode</b> is always the root node, this method simply returns the identity transform. */
    @Override public AffineTransform getLocalToParentTransform() { return(new AffineTransform()); }
@@ -972,7 +972,7 @@ public class Graph3DNode extends FGNGraph implements Cloneable
          // render all component nodes first...
          for(int i=0; i<getComponentNodeCount(); i++) 
          {
-            if(!getComponentNodeAt(i).render(g2dCopy, task))
+            if(!renderNode(getComponentNodeAt(i), g2dCopy, task))
                return(false);
          }
          
@@ -991,7 +991,7 @@ public class Graph3DNode extends FGNGraph implements Cloneable
          for(int i=0; i<getChildCount(); i++)
          {
             FGraphicNode n = getChildAt(i);
-            if(!n.render(g2dCopy, task))
+            if(!renderNode(n, g2dCopy, task))
                return(false);
          }
          
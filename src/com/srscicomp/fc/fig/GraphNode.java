@@ -1041,7 +1041,7 @@ public class GraphNode extends FGNGraph implements Cloneable
          LegendNode legend = getLegend();
          for(int i=0; i<getComponentNodeCount(); i++) if(getComponentNodeAt(i) != legend)
          {
-            if(!getComponentNodeAt(i).render(g2dCopy, task))
+            if(!renderNode(getComponentNodeAt(i), g2dCopy, task))
                return(false);
          }
 
@@ -1063,13 +1063,13 @@ public class GraphNode extends FGNGraph implements Cloneable
                isClipped = false;
             }
                
-            if(!n.render(g2dCopy, task))
+            if(!renderNode(n, g2dCopy, task))
                return(false);
          }
          
          // render the legend and semi-automated title, unclipped
          if(isClipped) g2dCopy.setClip(clipOrig);
-         if(!legend.render(g2dCopy, task)) return(false);
+         if(!renderNode(legend, g2dCopy, task)) return(false);
          if(!renderAutoTitle(g2dCopy, task)) return(false);
       }
       finally 
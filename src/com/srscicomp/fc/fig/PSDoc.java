@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Stack;
@@ -2409,6 +2410,16 @@ public class PSDoc
 		appendLine( Utilities.toString(to,7,3) + " " + Utilities.toString(from,7,3) + " " + DO_LINE );
 	}
 
+   /**
+    * Same as {@link #renderPolyline(double[], Marker, double, PSTransformable, String, boolean)}, except that the
+    * points are supplied as an array of <code>Point2D</code>. A null element is treated as an ill-defined point.
+    */
+   public void renderPolyline(Point2D[] points, Marker symbol, double symSize, PSTransformable symbolInfo, 
+      String symbolText, boolean noLine) throws UnsupportedOperationException
+   {
+      renderPolyline(toPackedArray(points), symbol, symSize, symbolInfo, symbolText, noLine);
+   }
+
 	/**
 	 * Draw and stroke a polyline connecting the specified array of points in user space, using the current color and  
 	 * line width. If a valid symbol type and size are specified, then the defined symbol is rendered individually at 
@@ -2428,7 +2439,7 @@ public class PSDoc
 	 * polyline. Thus, instead of a single unbroken polyline, the method will render two or more shorter polylines.  
 	 * Symbols, of course, are only rendered at well-defined points.</p>
 	 * 
-	 * @param points The array of points in user space to be connected by the polyline.
+	 * @param xy The points in user space to be connected by the polyline, packed as consecutive (x,y) coordinate pairs.
 	 * @param symbol The type of symbol (if any) rendered at each well-defined point. If <code>null</code> or not a 
 	 * recognized <em>DataNav</em> symbol shape, no symbols are rendered.
 	 * @param symSize Size of a square box bounding the symbols, in thousandth-inches. If negative or zero, no symbols 
@@ -2440,9 +2451,11 @@ public class PSDoc
 	 * @param noLine If <code>true</code>, the polyline itself is not rendered, but any symbols will be.
 	 * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
 	 */
-	public void renderPolyline(Point2D[] points, Marker symbol, double symSize, PSTransformable symbolInfo, 
+	public void renderPolyline(double[] xy, Marker symbol, double symSize, PSTransformable symbolInfo, 
 		String symbolText, boolean noLine) throws UnsupportedOperationException
 	{
+      int nPts = (xy == null) ? 0 : xy.length / 2;
+      
 		// find the name of the prolog procedure that renders the specified adornment, if there is one
 		String adornProc = getAdornmentPrologProc( symbol );
       
@@ -2456,7 +2469,7 @@ public class PSDoc
       if(doAdorn) doAdorn = ((symSize > 0) && (opaqStrk || fillSym)) || doLabel;
       
 		// abort if there's nothing to render!
-		if(points == null || points.length == 0 || ((points.length==1 || noLine) && !doAdorn)) 
+		if(nPts == 0 || ((nPts==1 || noLine) && !doAdorn)) 
 			return;
 
 		// all rendering occurs in the context of a printed page
@@ -2478,13 +2491,13 @@ public class PSDoc
 		// this array, we encompass everything in a "save"-"restore" pair.  Any ill-defined points are set to "null" in 
 		// the DATA0 array.
 		saveVMState();
-		loadArray( DATA0, points );
+		loadPointArray(DATA0, xy);
 
 		// if polyline is rendered, invoke the appropriate prolog procedure:  "n polyLine". 
 		if(!noLine)
 		{
 			includeFunctionInProlog(POLYLINE);  
-			appendLine(points.length + " " + POLYLINE );
+			appendLine(nPts + " " + POLYLINE );
 		}
 
 		// if there's a symbol to render, do so at each well-defined point in the polyline by invoking the polyAdorn 
@@ -2503,7 +2516,7 @@ public class PSDoc
 			if(doLabel) cmd += unicodeToPostscriptText(symbolText);
 			cmd += ") " + Utilities.toString(-currentGraphics.fontSize / 3.0, 7, 3) + " ";
 			int fillCode = fillSym ? 1 : 0;
-			cmd += fillCode + " " + points.length + " " +
+			cmd += fillCode + " " + nPts + " " +
 				Utilities.toString(symSize,7,3) + " /" + adornProc + " " + POLYADORN;
 			appendLine( cmd );
 		}
@@ -2793,17 +2806,30 @@ public class PSDoc
    }
 
 	/**
-	 * The same as {@link #renderPolygons(List, boolean)}, except that the polygons are filled with the specified color
-	 * rather than the current text/fill color.
+	 * The same as {@link #renderPolygons(double[], Color)}, except that the vertices are supplied as a list of points.
 	 * @param vertices A list of points in the current user space that define one or more polygons to be rendered.
 	 * @param fillC The RGB color with which polygons are to be filled (alpha component is ignored), instead of the 
 	 * current text/fill color. <b>If null, the polygons are NOT filled at all.</b>
 	 * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
 	 */
 	public void renderPolygons(List<Point2D> vertices, Color fillC) throws UnsupportedOperationException
+	{
+	   renderPolygons(toPackedArray(vertices), fillC);
+	}
+	
+	/**
+	 * The same as {@link #renderPolygons(double[], boolean)}, except that the polygons are filled with the specified 
+	 * color rather than the current text/fill color.
+	 * @param xy The vertices, in the current user space, of one or more polygons to be rendered -- packed as 
+	 * consecutive (x,y) coordinate pairs.
+	 * @param fillC The RGB color with which polygons are to be filled (alpha component is ignored), instead of the 
+	 * current text/fill color. <b>If null, the polygons are NOT filled at all.</b>
+	 * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
+	 */
+	public void renderPolygons(double[] xy, Color fillC) throws UnsupportedOperationException
 	{
 	     // if no vertices are provided, or if there's just one vertex, there's nothing to render!
-      if( vertices == null || vertices.size() < 2 ) 
+      if( xy == null || xy.length < 4 ) 
          return;
 
       // remember old text/fill color
@@ -2817,7 +2843,7 @@ public class PSDoc
       if(!cmd.isEmpty()) appendLine(cmd);
 
       // now we can stroke and fill polygons using current graphics state properties
-      renderPolygons(vertices, (fillC != null));
+      renderPolygons(xy, (fillC != null));
 
       // change back to original fill color. Note that the only thing changing could be the fill color's opaque flag,
       // which does not cause anything to be written to the PS document!
@@ -2827,43 +2853,70 @@ public class PSDoc
 	}
 	
 	/**
-	 * Render a series of polygons defined by the specified list of vertices. The polygons are stroked with the current 
-	 * stroke properties, and optionally filled using the current text/fill color. Any current path defined prior to 
-	 * this call is lost; afterwards, the current path is empty. 
-	 * 
-	 * <p>The definition of each distinct polygon in the vertex array -- including the last polygon -- MUST end with a 
-	 * null vertex. The polygons are drawn into the current path in the order they are defined in the vertex array. Then 
-	 * the "poly-polygon" path is stroked and (optionally) filled. This may lead to unexpected effects if the polygons 
-	 * overlap -- this method is really intended for non-overlapping polygons.</p>
-	 * 
+	 * The same as {@link #renderPolygons(double[], boolean)}, except that the vertices are supplied as a list of 
+	 * points. Each polygon must end with a null vertex.
 	 * @param vertices A list of points in the current user space that define one or more polygons to be rendered.
 	 * @param filled If true, the polygons are filled with the current text/fill color before they are stroked.
 	 * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
 	 */
 	public void renderPolygons(List<Point2D> vertices, boolean filled) throws UnsupportedOperationException
 	{
-	   renderPolygons(vertices, filled, true);
+	   renderPolygons(toPackedArray(vertices), filled, true);
 	}
 
+	/**
+	 * Render a series of polygons defined by the specified vertices. The polygons are stroked with the current stroke
+	 * properties, and optionally filled using the current text/fill color. Any current path defined prior to this call
+	 * is lost; afterwards, the current path is empty. 
+	 * 
+	 * <p>The definition of each distinct polygon in the vertex array -- including the last polygon -- MUST end with an 
+	 * ill-defined vertex. The polygons are drawn into the current path in the order they are defined in the vertex 
+	 * array. Then the "poly-polygon" path is stroked and (optionally) filled. This may lead to unexpected effects if the
+	 * polygons overlap -- this method is really intended for non-overlapping polygons.</p>
+	 * 
+	 * @param xy The vertices, in the current user space, of one or more polygons to be rendered -- packed as 
+	 * consecutive (x,y) coordinate pairs.
+	 * @param filled If true, the polygons are filled with the current text/fill color before they are stroked.
+	 * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
+	 */
+	public void renderPolygons(double[] xy, boolean filled) throws UnsupportedOperationException
+	{
+	   renderPolygons(xy, filled, true);
+	}
+
+   /**
+    * The same as {@link #renderPolygons(double[], boolean, boolean)}, except that the vertices are supplied as a list 
+    * of points. Each polygon must end with a null vertex.
+    * @param vertices A list of points in the current user space that define one or more polygons to be rendered.
+    * @param filled If true, the polygons are filled with the current text/fill color before they are stroked.
+    * @param stroked If true, the polygons are stroked IAW the current stroke properties.
+    * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
+    */
+   public void renderPolygons(List<Point2D> vertices, boolean filled, boolean stroked) throws UnsupportedOperationException
+   {
+      renderPolygons(toPackedArray(vertices), filled, stroked);
+   }
+
    /**
-    * Render a series of polygons defined by the specified list of vertices. The polygons are optionally stroked with 
-    * the current stroke properties, and optionally filled using the current text/fill color. Any current path defined 
+    * Render a series of polygons defined by the specified vertices. The polygons are optionally stroked with the 
+    * current stroke properties, and optionally filled using the current text/fill color. Any current path defined 
     * prior to this call is lost; afterwards, the current path is empty. 
     * 
-    * <p>The definition of each distinct polygon in the vertex array -- including the last polygon -- MUST end with a 
-    * null vertex. The polygons are drawn into the current path in the order they are defined in the vertex array. Then 
-    * the "poly-polygon" path is stroked and (optionally) filled. This may lead to unexpected effects if the polygons 
-    * overlap -- this method is really intended for non-overlapping polygons.</p>
+    * <p>The definition of each distinct polygon in the vertex array -- including the last polygon -- MUST end with an 
+    * ill-defined vertex. The polygons are drawn into the current path in the order they are defined in the vertex 
+    * array. Then the "poly-polygon" path is stroked and (optionally) filled. This may lead to unexpected effects if the
+    * polygons overlap -- this method is really intended for non-overlapping polygons.</p>
     * 
-    * @param vertices A list of points in the current user space that define one or more polygons to be rendered.
+    * @param xy The vertices, in the current user space, of one or more polygons to be rendered -- packed as 
+    * consecutive (x,y) coordinate pairs.
     * @param filled If true, the polygons are filled with the current text/fill color before they are stroked.
     * @param stroked If true, the polygons are stroked IAW the current stroke properties.
     * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
     */
-   public void renderPolygons(List<Point2D> vertices, boolean filled, boolean stroked) throws UnsupportedOperationException
+   public void renderPolygons(double[] xy, boolean filled, boolean stroked) throws UnsupportedOperationException
    {
       // if no vertices are provided, or if there's just one vertex, there's nothing to render!
-      if( vertices == null || vertices.size() < 2 ) 
+      if( xy == null || xy.length < 4 ) 
          return;
 
       // nothing to render if polygons are neither stroked nor filled
@@ -2893,17 +2946,14 @@ public class PSDoc
 
       // we need to load the polygon vertices into the prolog's DATA0 array. to recover the VM consumed by this array, 
       // we encompass everything in a "save"-"restore" pair.  any ill-defined points are set to "null" in the DATA0 array.
-      Point2D[] vertexArray = new Point2D[vertices.size()];
-      for(int i=0; i<vertexArray.length; i++) vertexArray[i] = vertices.get(i);
-      
       saveVMState();
-      loadArray(DATA0, vertexArray);
+      loadPointArray(DATA0, xy);
 
       // invoke the prolog procedure which renders the polyline:  "fillCode n polygons", where fillCode = 0 if the 
       // polygons are not to be filled, or 1 to fill them w/ the current text/fill color
       includeFunctionInProlog(POLYGONS);
       String cmd = filled ? "1 " : "0 ";
-      cmd += vertexArray.length + " " + POLYGONS;
+      cmd += (xy.length / 2) + " " + POLYGONS;
       appendLine( cmd );
 
       // clear the DATA0 array and "restore" to recover VM allocated to the array
@@ -2919,11 +2969,29 @@ public class PSDoc
    }
 
    /**
-    * Render a series of concentric pie wedges or radial sections defined by the specified list of vertices. The wedges 
-    * are stroked with the current stroke properties, and optionally filled with the current text/fill color. Any 
-    * current path defined prior to this call is lost; afterwards, the current path is empty. 
+    * The same as {@link #renderConcentricWedges(Point2D, double[], double, boolean)}, except that the arc vertices are
+    * supplied as a list of points.
+    * @param origin The common center for the circular wedges.
+    * @param vertices A list of (x,y) points in the current user space that are the vertices of arcs bounding the 
+    * wedges or radial sections to be rendered.
+    * @param baseRad Radius (distance from specified origin) of a "baseline" arc that is paired with each arc defined 
+    * in the vertex list. If zero, then a pie wedge is rendered for each well-defined arc, else a radial section.
+    * @param filled If true, the wedges or radial sections are filled with the current text/fill color before they are 
+    * stroked.
+    * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
+    */
+	public void renderConcentricWedges(Point2D origin, List<Point2D> vertices, double baseRad, boolean filled)
+	      throws UnsupportedOperationException
+	{
+	   renderConcentricWedges(origin, toPackedArray(vertices), baseRad, filled);
+	}
+
+   /**
+    * Render a series of concentric pie wedges or radial sections defined by the specified vertices. The wedges are 
+    * stroked with the current stroke properties, and optionally filled with the current text/fill color. Any current
+    * path defined prior to this call is lost; afterwards, the current path is empty. 
     * 
-    * <p>The vertex list must contain an even number of entries. Each pair of vertices defines a single arc; the arc 
+    * <p>The vertex array must contain an even number of points. Each pair of vertices defines a single arc; the arc 
     * endpoints are specified in (x,y) "painting" coordinates. The method will convert each vertex to polar coordinates 
     * (r, theta). It is ASSUMED that each pair of arc endpoints will have the same radial component r -- the radial 
     * component of the first endpoint is used for the second endpoint as well. If either endpoint is ill-defined, that 
@@ -2935,22 +3003,22 @@ public class PSDoc
     * range in theta, and two radial line segments connecting the endpoints of the two arcs.</p>
     * 
     * @param origin The common center for the circular wedges.
-    * @param vertices A list of (x,y) points in the current user space that are the vertices of arcs bounding the 
-    * wedges or radial sections to be rendered -- as described above. <strong>The list will be altered by this 
-    * method! Its contents should be considered indeterminate upon return.</strong>
+    * @param xy The (x,y) vertices, in the current user space, of the arcs bounding the wedges or radial sections to be
+    * rendered -- as described above -- packed as consecutive coordinate pairs.
     * @param baseRad Radius (distance from specified origin) of a "baseline" arc that is paired with each arc defined 
-    * in the vertex list. If zero, then a pie wedge is rendered for each well-defined arc, else a radial section -- as 
+    * in the vertex array. If zero, then a pie wedge is rendered for each well-defined arc, else a radial section -- as
     * described above.
     * @param filled If true, the wedges or radial sections are filled with the current text/fill color before they are 
     * stroked.
     * @see PSDoc#POLYWEDGES
     * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
     */
-	public void renderConcentricWedges(Point2D origin, List<Point2D> vertices, double baseRad, boolean filled)
-	      throws UnsupportedOperationException
-	{
+   public void renderConcentricWedges(Point2D origin, double[] xy, double baseRad, boolean filled)
+         throws UnsupportedOperationException
+   {
       // if origin is ill-defined, or if no vertices are provided, or if there's just one, there's nothing to render!
-      if(!Utilities.isWellDefined(origin) || vertices == null || vertices.size() < 2)
+      int nPts = (xy == null) ? 0 : xy.length / 2;
+      if(!Utilities.isWellDefined(origin) || nPts < 2)
          return;
 
       // nothing to render if wedges/sections are neither stroked nor filled
@@ -2958,9 +3026,6 @@ public class PSDoc
       boolean stroked = currentGraphics.lineWidth > 0 && currentGraphics.isOpaqueStroke;
       if(!(stroked || filled)) return;
       
-      // if vertex list has odd number of points, go ahead and remove the last one!
-      if(vertices.size() % 2 != 0) vertices.remove(vertices.size()-1);
-      
       // all rendering occurs in the context of a printed page
       if( !pageStarted ) throw new UnsupportedOperationException( NOPAGE_EXCP );
 
@@ -2970,82 +3035,45 @@ public class PSDoc
       if( graphicsStack.size() + nStackSaves > MAX_GSTATE_DEPTH )
          throw new UnsupportedOperationException( GSOVFL_EXCP );
 
-      // process vertex list
-      Point2D[] arc = new Point2D[2];
-      int i = 0;
-      while(i < vertices.size())
+      // process vertex array. If it has an odd number of points, the last one is ignored. Each well-defined arc yields
+      // at most 5 vertices.
+      double ox = origin.getX(), oy = origin.getY();
+      double[] wedges = new double[5*2*(nPts/2)];
+      int n = 0;
+      for(int i=0; i+1<nPts; i+=2)
       {
-         arc[0] = vertices.get(i);
-         arc[1] = vertices.get(i+1);
-         if(!Utilities.isWellDefined(arc))
-         {
-            vertices.remove(i);
-            vertices.remove(i);
-            continue;
-         }
-         
+         double x0 = xy[2*i], y0 = xy[2*i+1], x1 = xy[2*i+2], y1 = xy[2*i+3];
+         if(!(Utilities.isWellDefined(x0, y0) && Utilities.isWellDefined(x1, y1))) continue;
+
+         double r = Point2D.distance(ox, oy, x0, y0);
+         double theta0 = Math.toDegrees(Math.atan2(y0-oy, x0-ox));
+         double theta1 = Math.toDegrees(Math.atan2(y1-oy, x1-ox));
          if(baseRad == 0) 
          {
-            double r = origin.distance(arc[0]);
-            double theta = Math.toDegrees(Math.atan2(arc[0].getY()-origin.getY(), arc[0].getX()-origin.getX()));
-            arc[0].setLocation(r, theta);
-            theta = Math.toDegrees(Math.atan2(arc[1].getY()-origin.getY(), arc[1].getX()-origin.getX()));
-            arc[1].setLocation(r, theta);
-            vertices.add(i+2, null);      // POLYWEDGES requires a null between each set of vertices
-            i += 3;
+            n = putVertex(wedges, n, r, theta0);
+            n = putVertex(wedges, n, r, theta1);
          }
-         else
+         else if(r <= baseRad)
          {
             // Radial section case. Have to add vertices for arc at baseline radius. First pair must define 
             // inner arc drawn in one direction, and second must define outer arc drawn in opposite direction!
-            double r = origin.distance(arc[0]);
-            double theta0 = Math.toDegrees(Math.atan2(arc[0].getY()-origin.getY(), arc[0].getX()-origin.getX()));
-            double theta1 = Math.toDegrees(Math.atan2(arc[1].getY()-origin.getY(), arc[1].getX()-origin.getX()));
-            // if(theta0 >= theta1) { double d = theta0; theta0 = theta1; theta1 = d; }  THIS CAUSED PROBLEMS.
-            if(r <= baseRad)
-            {
-               arc[0].setLocation(r, theta0);
-               arc[1].setLocation(r, theta1);
-               vertices.add(i+2, new Point2D.Double(baseRad, theta1));
-               vertices.add(i+3, new Point2D.Double(baseRad, theta0));
-            }
-            else
-            {
-               vertices.add(i, new Point2D.Double(baseRad, theta0));
-               vertices.add(i+1, new Point2D.Double(baseRad, theta1));
-               arc[0].setLocation(r, theta1);
-               arc[1].setLocation(r, theta0);
-            }
-            vertices.add(i+4,null);  // POLYWEDGES requires null between each set of vertices
-            i += 5;
+            n = putVertex(wedges, n, r, theta0);
+            n = putVertex(wedges, n, r, theta1);
+            n = putVertex(wedges, n, baseRad, theta1);
+            n = putVertex(wedges, n, baseRad, theta0);
+         }
+         else
+         {
+            n = putVertex(wedges, n, baseRad, theta0);
+            n = putVertex(wedges, n, baseRad, theta1);
+            n = putVertex(wedges, n, r, theta1);
+            n = putVertex(wedges, n, r, theta0);
          }
+         n = putVertex(wedges, n, Double.NaN, Double.NaN);      // POLYWEDGES requires a null between each set
       }
       
-      Point2D[] vertexArray = new Point2D[vertices.size()];
-      for(i=0; i<vertexArray.length; i++) vertexArray[i] = vertices.get(i);
-      
-      // mark start of code fragment with a comment
-      addComment( "renderConcentricWedges" );
-
-      // we need to load the wedge vertices into the prolog's DATA0 array. to recover the VM consumed by this array, we 
-      // encompass everything in a "save"-"restore" pair.  any ill-defined points are set to "null" in the DATA0 array.
-      saveVMState();
-      loadArray( DATA0, vertexArray );
-
-      // invoke the prolog procedure which renders the wedges:  "fillCode n x0 y0 polyWedges", where fillCode=0 if the 
-      // wedges are not filled, or 1 if they are filled with the current text/fill color
-      includeFunctionInProlog(POLYWEDGES);
-      String cmd = filled ? "1 " : "0 ";
-      cmd += vertexArray.length + " " + Utilities.toString(origin, 7, 3) + " " + POLYWEDGES;
-      appendLine( cmd );
-
-      // clear the DATA0 array and "restore" to recover VM allocated to the array
-      loadArray( DATA0, (Point2D[])null );
-      restoreVMState();
-
-      // mark end of code fragment with a comment 
-      addComment( "END renderConcentricWedges" );
-	}
+      renderPolarWedges(origin, Arrays.copyOf(wedges, n), filled);
+   }
 	
    /**
     * The same as {@link #renderConcentricWedges(Point2D, List, double, boolean)}, except that the wedges are filled 
@@ -3053,8 +3081,7 @@ public class PSDoc
     * 
     * @param origin The common center for the circular wedges.
     * @param vertices A list of (x,y) points in the current user space that are the vertices of arcs bounding the 
-    * wedges or radial sections to be rendered -- as described above. <b>The list will be altered by this 
-    * method! Its contents should be considered indeterminate upon return.</b>
+    * wedges or radial sections to be rendered -- as described above.
     * @param baseRad Radius (distance from specified origin) of a "baseline" arc that is paired with each arc defined 
     * in the vertex list. If zero, then a pie wedge is rendered for each well-defined arc, else a radial section.
     * @param fillC The RGB color with which wedges are to be filled (alpha component is ignored), instead of the current
@@ -3088,6 +3115,20 @@ public class PSDoc
        if(!cmd.isEmpty()) appendLine(cmd);
    }
    
+   /**
+    * The same as {@link #renderConcentricWedges(Point2D, double[], Color)}, except that the polar vertices are 
+    * supplied as a list of points.
+    * @param origin The common center for the circular wedges
+    * @param vertices A list of vertices defining the wedges or radial sections to be rendered, in polar form.
+    * @param fillC The RGB color with which wedges are to be filled (alpha component is ignored), instead of the current
+    * text/fill color. <b>If null, the wedges are NOT filled at all.</b>
+    * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
+    */
+   public void renderConcentricWedges(Point2D origin, List<Point2D> vertices, Color fillC)
+   {
+      renderConcentricWedges(origin, toPackedArray(vertices), fillC);
+   }
+
    /**
     * A variation of {@link #renderConcentricWedges(Point2D, List, double, Color)} in which the radial section vertices
     * are already in polar coordinate form.
@@ -3097,116 +3138,124 @@ public class PSDoc
     * coordinates are in degrees CCS and each radial coordinate is specified as a distance from the origin, in 
     * "painting coordinate units" (milli-inches). If r0 == 0, a pie wedge is rendered; else a radial section.</p>
     * @param origin The common center for the circular wedges
-    * @param vertices A list of vertices defining the wedges or radial sections to be rendered, in the form described.
-    * <b>The list will be altered by this method! Its contents should be considered indeterminate upon return.</b>
+    * @param xy The vertices defining the wedges or radial sections to be rendered, in the form described, packed as
+    * consecutive (theta, r) coordinate pairs. If it contains an odd number of vertices, the last is ignored.
     * @param fillC The RGB color with which wedges are to be filled (alpha component is ignored), instead of the current
     * text/fill color. <b>If null, the wedges are NOT filled at all.</b>
     * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
     */
-   public void renderConcentricWedges(Point2D origin, List<Point2D> vertices, Color fillC)
+   public void renderConcentricWedges(Point2D origin, double[] xy, Color fillC)
    {
-		// if origin is ill-defined, or if no vertices are provided, or if there's just one, there's nothing to render!
-      if(!Utilities.isWellDefined(origin) || vertices == null || vertices.size() < 2)
+      // if origin is ill-defined, or if no vertices are provided, or if there's just one, there's nothing to render!
+      int nPts = (xy == null) ? 0 : xy.length / 2;
+      if(!Utilities.isWellDefined(origin) || nPts < 2)
          return;
 
       // nothing to render if wedges/sections are neither stroked nor filled
       boolean stroked = currentGraphics.lineWidth > 0 && currentGraphics.isOpaqueStroke;
       if((fillC == null) && !stroked) return;
 
-		// remember old text/fill color
-		int oldFillRGB = currentGraphics.textFillColor;
-		boolean oldFillOpaque = currentGraphics.isOpaqueTextFill;
+      // remember old text/fill color
+      int oldFillRGB = currentGraphics.textFillColor;
+      boolean oldFillOpaque = currentGraphics.isOpaqueTextFill;
        
-		// change fill color temporarily
-		int fillRGB = (fillC != null) ? (0x00FFFFFF & fillC.getRGB()) : 0;
-		String cmd = currentGraphics.changeColors(currentGraphics.strokeColor, currentGraphics.isOpaqueStroke,
-				fillRGB, (fillC != null));
-		if(!cmd.isEmpty()) appendLine(cmd);
+      // change fill color temporarily
+      int fillRGB = (fillC != null) ? (0x00FFFFFF & fillC.getRGB()) : 0;
+      String cmd = currentGraphics.changeColors(currentGraphics.strokeColor, currentGraphics.isOpaqueStroke,
+            fillRGB, (fillC != null));
+      if(!cmd.isEmpty()) appendLine(cmd);
    
-		// if vertex list has odd number of points, go ahead and remove the last one!
-		if(vertices.size() % 2 != 0) vertices.remove(vertices.size()-1);
-       
-		// all rendering occurs in the context of a printed page
-		if( !pageStarted ) throw new UnsupportedOperationException( NOPAGE_EXCP );
-
-		// make sure we have enough room on the graphics state stack.  we need one space for the "save" op issued prior
-		// to loading the vertex array, and another if we're filling the radial sections/wedges
-		int nStackSaves = (fillC != null) ? 2 : 1;
-		if( graphicsStack.size() + nStackSaves > MAX_GSTATE_DEPTH )
-			throw new UnsupportedOperationException( GSOVFL_EXCP );
-
-		// process vertex list
-		Point2D[] arc = new Point2D[2];
-		int i = 0;
-		while(i < vertices.size())
-		{
-			arc[0] = vertices.get(i);
-			arc[1] = vertices.get(i+1);
-			if(!Utilities.isWellDefined(arc))
-			{
-				vertices.remove(i);
-				vertices.remove(i);
-				continue;
-			}
+      // all rendering occurs in the context of a printed page
+      if( !pageStarted ) throw new UnsupportedOperationException( NOPAGE_EXCP );
 
-			double theta0 = arc[0].getX();
-			double r0 = arc[0].getY();
-			double theta1 = arc[1].getX();
-			double r1 = arc[1].getY();
+      // make sure we have enough room on the graphics state stack.  we need one space for the "save" op issued prior
+      // to loading the vertex array, and another if we're filling the radial sections/wedges
+      int nStackSaves = (fillC != null) ? 2 : 1;
+      if( graphicsStack.size() + nStackSaves > MAX_GSTATE_DEPTH )
+         throw new UnsupportedOperationException( GSOVFL_EXCP );
 
-			if(r0 < 0.001)
-			{
-				// pie wedge: 2 vertices (r, theta0) and (r, theta1), followed by a null separator
-				arc[0].setLocation(r1, theta0);
-				arc[1].setLocation(r1, theta1);
-				vertices.add(i+2, null);
-				i += 3;
-			}
-			else
-			{
-				// radial section: 4 vertices followed by a null separator. First pair must define inner arc of section
-				// drawn in one direction (r0, theta0) -> (r0, theta1), while second pair defines the outer arc drawn in
-				// the opposite direction.
-				arc[0].setLocation(r0, theta0);
-				arc[1].setLocation(r0, theta1);
-				vertices.add(i+2, new Point2D.Double(r1, theta1));
-				vertices.add(i+3, new Point2D.Double(r1, theta0));
-				vertices.add(i+4, null);
-				i += 5;
-			}
-		}
+      // process vertex array. Each well-defined pair yields at most 5 vertices.
+      double[] wedges = new double[5*2*(nPts/2)];
+      int n = 0;
+      for(int i=0; i+1<nPts; i+=2)
+      {
+         double theta0 = xy[2*i], r0 = xy[2*i+1], theta1 = xy[2*i+2], r1 = xy[2*i+3];
+         if(!(Utilities.isWellDefined(theta0, r0) && Utilities.isWellDefined(theta1, r1))) continue;
 
-		Point2D[] vertexArray = new Point2D[vertices.size()];
-		for(i=0; i<vertexArray.length; i++) vertexArray[i] = vertices.get(i);
+         if(r0 < 0.001)
+         {
+            // pie wedge: 2 vertices (r, theta0) and (r, theta1), followed by a null separator
+            n = putVertex(wedges, n, r1, theta0);
+            n = putVertex(wedges, n, r1, theta1);
+         }
+         else
+         {
+            // radial section: 4 vertices followed by a null separator. First pair must define inner arc of section
+            // drawn in one direction (r0, theta0) -> (r0, theta1), while second pair defines the outer arc drawn in
+            // the opposite direction.
+            n = putVertex(wedges, n, r0, theta0);
+            n = putVertex(wedges, n, r0, theta1);
+            n = putVertex(wedges, n, r1, theta1);
+            n = putVertex(wedges, n, r1, theta0);
+         }
+         n = putVertex(wedges, n, Double.NaN, Double.NaN);
+      }
 
-		// mark start of code fragment with a comment
-		addComment( "renderConcentricWedges" );
+      renderPolarWedges(origin, Arrays.copyOf(wedges, n), fillC != null);
 
-		// we need to load the wedge vertices into the prolog's DATA0 array. to recover the VM consumed by this array, we
-		// encompass everything in a "save"-"restore" pair. Any ill-defined points are set to "null" in the DATA0 array.
-		saveVMState();
-		loadArray( DATA0, vertexArray );
+      // change back to original fill color. Note that the only thing changing could be the fill color's opaque flag,
+      // which does not cause anything to be written to the PS document!
+      cmd = currentGraphics.changeColors(currentGraphics.strokeColor, currentGraphics.isOpaqueStroke,
+             oldFillRGB, oldFillOpaque);
+      if(!cmd.isEmpty()) appendLine(cmd);
+   }
+   
+   /**
+    * Helper method for the <code>renderConcentricWedges()</code> methods. It loads the wedge vertices, already in the 
+    * (r, theta) form expected by the {@link #POLYWEDGES} prolog procedure, and invokes that procedure.
+    * @param origin The common center for the circular wedges.
+    * @param rTheta The wedge vertices, packed as consecutive (r, theta) pairs. Each wedge or radial section must be 
+    * followed by an ill-defined vertex.
+    * @param filled True if the wedges are filled with the current text/fill color.
+    */
+   private void renderPolarWedges(Point2D origin, double[] rTheta, boolean filled)
+   {
+      // mark start of code fragment with a comment
+      addComment( "renderConcentricWedges" );
 
-		// invoke the prolog procedure which renders the wedges:  "fillCode n x0 y0 polyWedges", where fillCode=0 if the
-		// wedges are not filled, or 1 if they are filled with the current text/fill color
-		includeFunctionInProlog(POLYWEDGES);
-		cmd = (fillC != null) ? "1 " : "0 ";
-		cmd += vertexArray.length + " " + Utilities.toString(origin, 7, 3) + " " + POLYWEDGES;
-		appendLine( cmd );
+      // we need to load the wedge vertices into the prolog's DATA0 array. to recover the VM consumed by this array, we 
+      // encompass everything in a "save"-"restore" pair.  any ill-defined points are set to "null" in the DATA0 array.
+      saveVMState();
+      loadPointArray(DATA0, rTheta);
 
-		// clear the DATA0 array and "restore" to recover VM allocated to the array
-		loadArray( DATA0, (Point2D[])null );
-		restoreVMState();
+      // invoke the prolog procedure which renders the wedges:  "fillCode n x0 y0 polyWedges", where fillCode=0 if the 
+      // wedges are not filled, or 1 if they are filled with the current text/fill color
+      includeFunctionInProlog(POLYWEDGES);
+      String cmd = filled ? "1 " : "0 ";
+      cmd += (rTheta.length / 2) + " " + Utilities.toString(origin, 7, 3) + " " + POLYWEDGES;
+      appendLine( cmd );
 
-		// mark end of code fragment with a comment
-		addComment( "END renderConcentricWedges" );
+      // clear the DATA0 array and "restore" to recover VM allocated to the array
+      loadArray( DATA0, (Point2D[])null );
+      restoreVMState();
 
+      // mark end of code fragment with a comment 
+      addComment( "END renderConcentricWedges" );
+   }
 
-		// change back to original fill color. Note that the only thing changing could be the fill color's opaque flag,
-		// which does not cause anything to be written to the PS document!
-		cmd = currentGraphics.changeColors(currentGraphics.strokeColor, currentGraphics.isOpaqueStroke,
-				 oldFillRGB, oldFillOpaque);
-		if(!cmd.isEmpty()) appendLine(cmd);
+   /**
+    * Helper method stores a vertex in a packed array of coordinate pairs.
+    * @param xy The packed array.
+    * @param n The index at which the vertex's first coordinate is stored.
+    * @param x The vertex's first coordinate.
+    * @param y The vertex's second coordinate.
+    * @return The index at which the next vertex should be stored.
+    */
+   private static int putVertex(double[] xy, int n, double x, double y)
+   {
+      xy[n] = x;
+      xy[n+1] = y;
+      return(n+2);
    }
    
    /**
@@ -3818,6 +3867,15 @@ public class PSDoc
 		appendLine( cmd );
 	}
 
+   /**
+    * Same as {@link #renderMultipleAdornments(double[], double[], Marker, double, String)}, except that the locations
+    * are supplied as an array of <code>Point2D</code>. A null element is treated as an ill-defined point.
+    */
+   public void renderMultipleAdornments(Point2D[] pts, double[] rot, Marker cap, double capSize, String text)
+   {
+      renderMultipleAdornments(toPackedArray(pts), rot, cap, capSize, text);
+   }
+
 	/**
 	 * Draw the specified adornment at each of the specified locations in user space. The adornments are stroked using 
 	 * the current stroke properties, and any closed adornments are filled with the current text/fill color. Each 
@@ -3830,20 +3888,21 @@ public class PSDoc
     * non-empty text label is still rendered -- only the text label is rendered, centered horizontally and vertically 
     * about the center point.</p>
     * 
-	 * @param pts The (x,y) coordinates of all locations where an adornment should be drawn. If any given point is not
-	 * well-defined, it is ignored.
+	 * @param xy The (x,y) coordinates of all locations where an adornment should be drawn, packed as consecutive 
+	 * coordinate pairs. If any given point is not well-defined, it is ignored.
 	 * @param rot The rotations to be applied to each adornment about its center point. If <code>null</code>, none of 
-	 * the adornments are rotated. Otherwise, the array provided MUST have the same length as the points array.
+	 * the adornments are rotated. Otherwise, the array provided MUST have one element per location.
 	 * @param cap The adornment type.
 	 * @param capSize Size of square box enclosing adornment, in thousandth-inches.
 	 * @param text A text string to be painted at each location, H- and V-centered. Text is painted using the current 
 	 * stroke color rather than the current text/fill color.
 	 * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
 	 */
-	public void renderMultipleAdornments(Point2D[] pts, double[] rot, Marker cap, double capSize, String text)
+	public void renderMultipleAdornments(double[] xy, double[] rot, Marker cap, double capSize, String text)
 	{
-		// abort if no points specified or size of non-null rotation array is not the same as points array size
-		if( pts == null || pts.length == 0 || (rot != null && (pts.length != rot.length)) )
+		// abort if no points specified or size of non-null rotation array is not the same as the number of points
+      int nPts = (xy == null) ? 0 : xy.length / 2;
+		if( nPts == 0 || (rot != null && (nPts != rot.length)) )
 			return;
 
       // if the current stroke color is transparent, then we don't draw the text string!
@@ -3879,7 +3938,7 @@ public class PSDoc
 		// into the DATA1 array.  to recover the VM consumed by the arrays, we encompass everything in a "save"-"restore" 
 		// pair.  any ill-defined points are set to "null" in the DATA0 array
 		saveVMState();
-		loadArray( DATA0, pts );
+		loadPointArray(DATA0, xy);
 		if( rot != null ) loadArray( DATA1, rot );
 
 		// invoke the prolog procedure which constructs a path rendering the specified adornment at the (well-defined) 
@@ -3891,7 +3950,7 @@ public class PSDoc
 		String cmd = "() 0 ";
 		if( text != null && !text.isEmpty())
 			cmd = "(" + unicodeToPostscriptText(text) + ") " + Utilities.toString(-currentGraphics.fontSize/3.0,7,3) + " ";
-		cmd += fillCode + " " + pts.length + " " + Utilities.toString(capSize,7,3) +
+		cmd += fillCode + " " + nPts + " " + Utilities.toString(capSize,7,3) +
 					" /" + adornProc + " " + ((rot!=null) ? POLYROTADORN : POLYADORN);
 		appendLine( cmd );
 
@@ -4580,6 +4639,16 @@ public class PSDoc
       if((!stroke) && !currentGraphics.isStrokingDisabled()) 
          appendLine("1 " + ENABLESTROKE + " " + Utilities.toString(currentGraphics.lineWidth,7,3) + " setlinewidth ");
 	}
+   /**
+    * Same as {@link #renderPolyFill(double[], boolean, boolean)}, except that the points are supplied as an array of
+    * <code>Point2D</code>. A null element is treated as an ill-defined point.
+    */
+   public void renderPolyFill(Point2D[] polyline, boolean isStroked, boolean isFilled) 
+      throws UnsupportedOperationException
+   {
+      renderPolyFill(toPackedArray(polyline), isStroked, isFilled);
+   }
+
 	/** 
 	 * Optionally fill the region bounded by a polyline, then optionally stroke the polyline itself. In the fill phase, 
     * a closed path for filling is created by connecting all well-defined points in the specified polyline array, while 
@@ -4588,19 +4657,20 @@ public class PSDoc
     * 
     * <p><em>Note</em>: This method was specifically created to render data in the "errorband" display mode.</p>
 	 * 
-	 * @param polyline The set of points defining the polyline, in plotting order. If this array is null or contains less
-    * than 3 points, the method makes no changes to this PS document.
+	 * @param xy The set of points defining the polyline, in plotting order, packed as consecutive (x,y) coordinate 
+	 * pairs. If this array is null or contains less than 3 points, the method makes no changes to this PS document.
 	 * @param isStroked If true, the bounding polyline is stroked. However, if the current pen stroke is empty (zero 
 	 * width or transparent), then it will not be stroked.
 	 * @param isFilled If true, the region bounded by polyline is filled with the current text/fill color, but NOT if
 	 * that fill color is transparent.
 	 * @throws UnsupportedOperationException if graphics state stack overflows or if there's no current page context.
 	 */
-	public void renderPolyFill(Point2D[] polyline, boolean isStroked, boolean isFilled) 
+	public void renderPolyFill(double[] xy, boolean isStroked, boolean isFilled) 
 		throws UnsupportedOperationException
 	{
 		// polylines must have at least 3 points, or we render nothing
-		if(polyline == null || polyline.length < 3) return;
+      int nPts = (xy == null) ? 0 : xy.length / 2;
+		if(nPts < 3) return;
 
 		// if the polyline path is neither stroked nor filled, then we render nothing! Check for empty pen stroke and
 		// transparent fill color!
@@ -4623,12 +4693,12 @@ public class PSDoc
 		// load the defining points for the polyline into the prolog's DATA0 array. To recover the VM consumed by this 
       // array, we encompass everything in a "save"-"restore" pair. Any ill-defined points are set to "null".
 		saveVMState();
-		loadArray(DATA0, polyline);
+		loadPointArray(DATA0, xy);
 
       // invoke the appropriate prolog procedure: "stroked? filled? n polyFill"
       includeFunctionInProlog(POLYFILL);
       String cmd = 
-         (isStroked ? "1 " : "0 ") + (isFilled ? "1 " : "0 ") + polyline.length + " " + POLYFILL;
+         (isStroked ? "1 " : "0 ") + (isFilled ? "1 " : "0 ") + nPts + " " + POLYFILL;
       appendLine(cmd);
       
 		// clear the DATA0 array and "restore" to recover VM allocated to it
@@ -4745,7 +4815,7 @@ public class PSDoc
 	 * data map to LUT indices [1..255].
 	 */
 	public void renderIndexedImage(int w, int h, Point2D botLeft, Point2D topRight, ColorLUT colorLUT, int rgbNaN, 
-	         boolean interpolate, Iterator<Integer> provider)
+	         boolean interpolate, PrimitiveIterator.OfInt provider)
 	{
       // check arguments
       if(w <= 0 || h <= 0 || provider == null) return;
@@ -4811,7 +4881,7 @@ public class PSDoc
       int nSamples = 0;
       while(provider.hasNext())
       {
-         int sample = provider.next();
+         int sample = provider.nextInt();
          encoder.put((byte) (sample & 0x00ff));
          ++nSamples;
       }
@@ -5143,60 +5213,103 @@ public class PSDoc
 	 * @param pts The (x,y) points to be loaded into array. If <code>null</code> or empty, the specified name is 
 	 * defined as a Postscript "null" object.  
 	 */
-	private void loadArray(String name, Point2D[] pts)
-	{
-		final int BIGARRAY = 200;
-		final int PTS_PER_PUT = 20;			// when using putInterval cmd to fill a big array
+	private void loadArray(String name, Point2D[] pts) { loadPointArray(name, toPackedArray(pts)); }
 
-		// if points array is null or empty, just set name to the null object  
-		if( pts == null || pts.length == 0 ) 
-		{
-			appendLine( "/" + name + " null def" );
-			return;
-		}
+   /**
+    * Same as {@link #loadArray(String, Point2D[])}, except that the (x,y) points are supplied packed in an array of
+    * consecutive coordinate pairs: <i>(xy[2*i], xy[2*i+1])</i> is the <i>i</i>-th point.
+    * 
+    * @param name The name assigned to the Postscript array object allocated and loaded here.
+    * @param xy The packed (x,y) points to be loaded into array. If <code>null</code> or empty, the specified name is 
+    * defined as a Postscript "null" object.  
+    */
+   private void loadPointArray(String name, double[] xy)
+   {
+      final int BIGARRAY = 200;
+      final int PTS_PER_PUT = 20;         // when using putInterval cmd to fill a big array
 
-		// we prepare a sequence of commands in a string buffer, then dump the buffer when we're done
-		StringBuilder loadBuf = new StringBuilder( 200 );
-		
-		if( pts.length < BIGARRAY )
-		{
-			// for short arrays, allocate and populate the points array object all at once:  "/ar [...] def.
-			loadBuf.append("/").append(name).append(" [ ");
-         for(Point2D pt : pts)
+      // if points array is null or empty, just set name to the null object  
+      int nPts = (xy == null) ? 0 : xy.length / 2;
+      if(nPts == 0) 
+      {
+         appendLine( "/" + name + " null def" );
+         return;
+      }
+
+      // we prepare a sequence of commands in a string buffer, then dump the buffer when we're done
+      StringBuilder loadBuf = new StringBuilder( 200 );
+      
+      if(nPts < BIGARRAY)
+      {
+         // for short arrays, allocate and populate the points array object all at once:  "/ar [...] def.
+         loadBuf.append("/").append(name).append(" [ ");
+         for(int i=0; i<nPts; i++) appendPoint(loadBuf, xy[2*i], xy[2*i+1]);
+         loadBuf.append( "] def" );
+
+         appendLine( loadBuf.toString() );
+      }
+      else
+      {
+         // for longer arrays, allocate the points array before populating it: "/ar n array def"
+         appendLine( "/" + name + " " + nPts + " array def" );
+
+         // now populate using a series of "ar index [...] putinterval" commands
+         for(int i=0; i<nPts; i+=PTS_PER_PUT)
          {
-            if(!Utilities.isWellDefined(pt))
-               loadBuf.append("null ");
-            else
-               loadBuf.append("[").append(Utilities.toString(pt, 7, 3)).append("] ");
+            loadBuf.delete(0,loadBuf.length());
+            loadBuf.append(name).append(" ").append(i).append(" [ ");
+            for(int j=i; j<nPts && j<i+PTS_PER_PUT; j++) appendPoint(loadBuf, xy[2*j], xy[2*j+1]);
+            loadBuf.append( "] putinterval" );
+            appendLine( loadBuf.toString() );
          }
-			loadBuf.append( "] def" );
+      }
+   }
 
-			appendLine( loadBuf.toString() );
-		}
-		else
-		{
-			// for longer arrays, allocate the points array before populating it: "/ar n array def"
-			appendLine( "/" + name + " " + pts.length + " array def" );
+   /**
+    * Helper method appends a point to the contents of a Postscript points array under construction: "[x y] ", or 
+    * "null " if the point is not well-defined.
+    * @param buf The buffer holding the array contents.
+    * @param x The point's x-coordinate.
+    * @param y The point's y-coordinate.
+    */
+   private static void appendPoint(StringBuilder buf, double x, double y)
+   {
+      if(!Utilities.isWellDefined(x, y)) buf.append("null ");
+      else 
+      {
+         buf.append("[").append(Utilities.toString(x, 7, 3)).append(" ");
+         buf.append(Utilities.toString(y, 7, 3)).append("] ");
+      }
+   }
 
-			// now populate using a series of "ar index [...] putinterval" commands
-			for( int i=0; i<pts.length; i+=PTS_PER_PUT )
-			{
-				loadBuf.delete(0,loadBuf.length());
-				loadBuf.append(name).append(" ").append(i).append(" [ ");
-				int j=0;
-				while( i+j < pts.length && j < PTS_PER_PUT )
-				{
-					if(!Utilities.isWellDefined(pts[i+j]))
-						loadBuf.append( "null " );
-					else 
-						loadBuf.append("[").append(Utilities.toString(pts[i + j], 7, 3)).append("] ");
-					++j;
-				}
-				loadBuf.append( "] putinterval" );
-				appendLine( loadBuf.toString() );
-			}
-		}
-	}
+   /**
+    * Helper method packs a list of points into an array of consecutive (x,y) coordinate pairs. A null point is packed
+    * as an ill-defined point.
+    * @param pts The points.
+    * @return The packed coordinates. Null if the list is null.
+    */
+   private static double[] toPackedArray(List<Point2D> pts)
+   {
+      return((pts == null) ? null : toPackedArray(pts.toArray(new Point2D[0])));
+   }
+
+   /**
+    * Helper method packs an array of points into an array of consecutive (x,y) coordinate pairs. A null point is 
+    * packed as an ill-defined point.
+    * @param pts The points.
+    * @return The packed coordinates. Null if the points array is null.
+    */
+   private static double[] toPackedArray(Point2D[] pts)
+   {
+      if(pts == null) return(null);
+      double[] xy = new double[2*pts.length];
+      for(int i=0; i<pts.length; i++)
+      {
+         xy[2*i] = (pts[i] == null) ? Double.NaN : pts[i].getX();
+         xy[2*i+1] = (pts[i] == null) ? Double.NaN : pts[i].getY();
+      }
+      return(xy);
+   }
 
    /**
     * This method allocates a Postscript array object referenced by the specified name and loads it with the specified 
@@ -621,8 +621,8 @@ public class PolarPlotNode extends FGNGraph implements Cloneable
          // render the polar coordinate grid first, unless it is on top of the data
          if(!gridOnTop)
          { 
-            if(!getThetaAxis().render(g2dCopy,  task)) return(false);
-            if(!getRadialAxis().render(g2dCopy, task)) return(false);
+            if(!renderNode(getThetaAxis(), g2dCopy, task)) return(false);
+            if(!renderNode(getRadialAxis(), g2dCopy, task)) return(false);
          }
 
          // render all other children with or without the clip shape installed -- as appropriate
@@ -643,7 +643,7 @@ public class PolarPlotNode extends FGNGraph implements Cloneable
                isClipped = false;
             }
                
-            if(!n.render(g2dCopy, task))
+            if(!renderNode(n, g2dCopy, task))
                return(false);
          }
          
@@ -652,11 +652,11 @@ public class PolarPlotNode extends FGNGraph implements Cloneable
          if(isClipped) g2dCopy.setClip(clipOrig);
          if(gridOnTop)
          { 
-            if(!getThetaAxis().render(g2dCopy,  task)) return(false);
-            if(!getRadialAxis().render(g2dCopy, task)) return(false);
+            if(!renderNode(getThetaAxis(), g2dCopy, task)) return(false);
+            if(!renderNode(getRadialAxis(), g2dCopy, task)) return(false);
          }
-         if(!getColorBar().render(g2dCopy, task)) return(false);
-         if(!getLegend().render(g2dCopy, task)) return(false);
+         if(!renderNode(getColorBar(), g2dCopy, task)) return(false);
+         if(!renderNode(getLegend(), g2dCopy, task)) return(false);
          if(!renderAutoTitle(g2dCopy, task)) return(false);
       }
       finally 
@@ -0,0 +1,370 @@
+package com.srscicomp.fc.fig;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.srscicomp.common.g2dviewer.RenderTask;
+
+/**
+ * A retained raster layer holds a rasterized rendering of a graphic node and all of its subordinates, so that the node
+ * need not be rendered from scratch in every render cycle of the figure canvas.
+ *
+ * <p>Whenever any part of a displayed figure is modified, the canvas re-renders the figure within the dirty regions
+ * affected by the change, and every node intersecting those regions normally renders itself again -- including static
+ * axes, legends and large heat maps that did not change at all. A node that retains a raster layer instead renders
+ * itself into offscreen images, and then simply blits those images onto the canvas in subsequent render cycles. The
+ * layer is keyed by the device transform at the time the node was rendered and by a modification counter. The counter
+ * is incremented each time the layer is invalidated, which happens whenever the node, one of its ancestors, or one of
+ * its descendants is changed (see {@link FGraphicModel#onChange(FGraphicNode, int, boolean, List)}).</p>
+ *
+ * <p>The layer is split into square tiles of {@link #TILESZ} pixels, aligned with the device pixel grid, and only the
+ * tiles intersecting the clip region of a render cycle are ever rendered or blitted. Thus, the memory used by a node 
+ * that is zoomed so that it extends well beyond the visible canvas is bounded by the visible area, and a small dirty 
+ * region costs no more than the few tiles it touches. Each tile is rendered in full, so the pixels it holds match those
+ * of a render of the entire node: the node is rendered into a scratch image that extends a couple of pixels beyond the
+ * stale tiles, so the edges of that scratch image -- where Java2D may sample a scaled image slightly differently -- 
+ * never fall inside a tile.</p>
+ *
+ * <p>A stale layer is not re-rendered right away. In the first render cycle after the node changes, the node is 
+ * rendered directly onto the canvas, just as if it did not retain a layer, so an edit of the node itself -- or of an
+ * axis of its parent graph -- costs no more than it would without layers. The stale tiles are rendered only when the
+ * node is rendered again without having changed in the meantime, i.e., when a different part of the figure that
+ * overlaps the node is modified.</p>
+ *
+ * <p>Since any change in a node's subtree invalidates its layer, a layer pays off only for a node that changes less
+ * often than the rest of the figure and whose subtree does not contain the elements the user edits most -- such as a
+ * data presentation node with a large data set -- and not for a container like a graph. Layers may nest: a node with 
+ * a retained layer may itself be rendered into an ancestor's layer, in which case it is merely blitted from its own 
+ * (still valid) layer when the ancestor's layer is re-rendered.</p>
+ *
+ * <p>Tile images are expensive, so their total size is limited by a budget shared by all layers in the application
+ * -- across all figures. Whenever a tile is rendered, the least recently used tiles are discarded as needed to keep 
+ * the total within {@link #BUDGETBYTES}. A discarded tile is simply re-rendered the next time it is needed. A node 
+ * whose visible tiles would take up more than half the budget is always rendered directly.</p>
+ *
+ * <p>Retained layers are used only when rendering onto an image buffer in a render cycle of the figure canvas. They
+ * are never used when printing or exporting a figure to PS, PDF or SVG.</p>
+ *
+ * @author sruffner
+ */
+final class RasterLayer
+{
+   /** The width and height of a layer tile, in pixels. */
+   private final static int TILESZ = 256;
+
+   /** The size of a layer tile image, in bytes. Each pixel takes 4 bytes. */
+   private final static long TILEBYTES = 4L * TILESZ * TILESZ;
+
+   /** Maximum total size of all layer tile images, in bytes. */
+   private final static long BUDGETBYTES = 64L * 1024 * 1024;
+
+   /**
+    * Width of the margin, in pixels, by which the scratch image into which stale tiles are rendered extends beyond 
+    * those tiles.
+    */
+   private final static int MARGIN = 2;
+
+   /**
+    * All tiles currently holding an image, in least-recently-used order. It also serves as the lock guarding each 
+    * tile's image reference and {@link #lruBytes}.
+    */
+   private final static LinkedHashMap<Tile, Long> lru = new LinkedHashMap<>(16, 0.75f, true);
+
+   /** Total size of all tile images in {@link #lru}, in bytes. */
+   private static long lruBytes = 0;
+
+   /** Modification counter, incremented each time the layer is invalidated. */
+   private final AtomicInteger modCount = new AtomicInteger(0);
+
+   /** The layer's tiles, keyed by their column and row in the device tile grid. Tiles are created on demand. */
+   private final Map<Long, Tile> tiles = new ConcurrentHashMap<>();
+
+   /** The device transform in effect when the layer's tiles were rendered. Guarded by this layer's lock. */
+   private AffineTransform tileXfm = null;
+
+   /** 
+    * Value of the modification counter when the node was last rendered, either directly or into the layer. Guarded by
+    * this layer's lock.
+    */
+   private int lastRenderModCount = -1;
+
+   /**
+    * Invalidate this layer. The node will be rendered into the layer afresh the next time it is rendered. This method
+    * may be called on any thread, even while the node is being rendered into the layer.
+    */
+   void invalidate() { modCount.incrementAndGet(); }
+
+   /**
+    * Release this layer's tile images and invalidate the layer. This method may be called on any thread, even while 
+    * the node is being rendered into the layer.
+    */
+   void release()
+   {
+      invalidate();
+      dropTiles();
+   }
+
+   /**
+    * Render a graphic node by blitting the tiles of its retained layer that intersect the current clip region onto the
+    * specified graphics context, first rendering the node into any of those tiles that are stale. However, if the node
+    * has changed since it was last rendered, or if its visible tiles would exceed half the budget for all tile images,
+    * the node is rendered directly instead.
+    *
+    * <p>Stale tiles are rendered in full, regardless of the task's dirty regions, while holding both the layer's lock
+    * and the node's monitor. Only the blit itself is subject to the current clip.</p>
+    *
+    * @param n The node to render. It must be the node that owns this layer.
+    * @param g2d The graphics context in which to draw, in the node's parent coordinate system. Its device must be an
+    * image buffer.
+    * @param task The rendering task in progress. Cannot be null.
+    * @return True if the node was rendered; false if an error occurred or the rendering job was cancelled.
+    */
+   boolean render(FGraphicNode n, Graphics2D g2d, RenderTask task)
+   {
+      AffineTransform at = g2d.getTransform();
+      AffineTransform toDevice = new AffineTransform(at);
+      toDevice.concatenate(n.getLocalToParentTransform());
+      Rectangle2D rLocal = n.getRenderBounds(null, false, null);
+      // the layer is a few pixels larger than the node's render bounds to allow for antialiasing and for strokes that
+      // slightly overshoot those bounds (eg, contour level lines at the edge of a graph's data box)
+      Rectangle rDev = toDevice.createTransformedShape(rLocal).getBounds();
+      rDev.grow(4, 4);
+      rDev = rDev.intersection(g2d.getDeviceConfiguration().getBounds());
+      Shape clip = g2d.getClip();
+      Rectangle rVisible = (clip == null) ? rDev : at.createTransformedShape(clip).getBounds().intersection(rDev);
+      if(rLocal.isEmpty() || rVisible.isEmpty()) return(renderDirectly(n, g2d, task));
+
+      int col0 = Math.floorDiv(rVisible.x, TILESZ);
+      int row0 = Math.floorDiv(rVisible.y, TILESZ);
+      int col1 = Math.floorDiv(rVisible.x + rVisible.width - 1, TILESZ);
+      int row1 = Math.floorDiv(rVisible.y + rVisible.height - 1, TILESZ);
+      if(((long) (col1 - col0 + 1)) * (row1 - row0 + 1) * TILEBYTES > BUDGETBYTES / 2) 
+         return(renderDirectly(n, g2d, task));
+
+      List<Tile> visible = new ArrayList<>();
+      List<BufferedImage> images = new ArrayList<>();
+      synchronized(this)
+      {
+         int rev = modCount.get();
+         if(!at.equals(tileXfm))
+         {
+            dropTiles();
+            tileXfm = at;
+         }
+
+         // collect the visible tiles, and those among them that are stale
+         List<Tile> stale = new ArrayList<>();
+         for(int row = row0; row <= row1; row++) for(int col = col0; col <= col1; col++)
+         {
+            final int c = col, r = row;
+            Tile t = tiles.computeIfAbsent((((long) r) << 32) | (c & 0xffffffffL), k -> new Tile(c, r));
+            visible.add(t);
+            BufferedImage img = t.getImage();
+            images.add(img);
+            if(img == null || t.imageModCount != rev) stale.add(t);
+         }
+
+         // the first time the node is rendered after a change, render it directly -- at no more cost than if it did 
+         // not retain a layer. The stale tiles are rendered the next time, if the node has not changed again.
+         if(!stale.isEmpty() && lastRenderModCount != rev)
+         {
+            lastRenderModCount = rev;
+            return(renderDirectly(n, g2d, task));
+         }
+         lastRenderModCount = rev;
+
+         if(!stale.isEmpty())
+         {
+            if(!renderTiles(n, g2d, task, stale, rev)) return(false);
+            for(int i=0; i<visible.size(); i++) if(stale.contains(visible.get(i)))
+               images.set(i, visible.get(i).image);
+         }
+      }
+
+      Graphics2D g2Dev = (Graphics2D) g2d.create();
+      try
+      {
+         g2Dev.setTransform(new AffineTransform());
+         for(int i=0; i<visible.size(); i++)
+         {
+            Tile t = visible.get(i);
+            g2Dev.drawImage(images.get(i), t.col * TILESZ, t.row * TILESZ, null);
+         }
+      }
+      finally { g2Dev.dispose(); }
+      return(task.updateProgress());
+   }
+
+   /**
+    * Helper method renders a graphic node directly onto the specified graphics context, while holding the node's 
+    * monitor.
+    * @param n The node to render.
+    * @param g2d The graphics context in which to draw, in the node's parent coordinate system.
+    * @param task The rendering task in progress.
+    * @return True if the node was rendered; false if an error occurred or the rendering job was cancelled.
+    */
+   private static boolean renderDirectly(FGraphicNode n, Graphics2D g2d, RenderTask task)
+   {
+      synchronized(n)
+      {
+         return(n.render(g2d, task));
+      }
+   }
+
+   /**
+    * Helper method renders a graphic node into the specified stale tiles of this layer, in a single pass. The node is
+    * rendered into a scratch image covering the stale tiles plus a margin of {@link #MARGIN} pixels, clipped to the 
+    * stale tiles grown by that margin; each tile is then copied out of the scratch image.
+    * @param n The node to render. It must be the node that owns this layer.
+    * @param g2d The graphics context of the render cycle in progress, in the node's parent coordinate system.
+    * @param task The rendering task in progress.
+    * @param stale The stale tiles.
+    * @param rev The current value of the layer's modification counter.
+    * @return True if the node was rendered; false if an error occurred or the rendering job was cancelled.
+    */
+   private boolean renderTiles(FGraphicNode n, Graphics2D g2d, RenderTask task, List<Tile> stale, int rev)
+   {
+      Area area = new Area();
+      for(Tile t : stale)
+         area.add(new Area(new Rectangle(t.col*TILESZ - MARGIN, t.row*TILESZ - MARGIN, TILESZ + 2*MARGIN, 
+               TILESZ + 2*MARGIN)));
+      Rectangle r = area.getBounds();
+
+      BufferedImage scratch = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_ARGB_PRE);
+      Graphics2D g2Layer = scratch.createGraphics();
+      boolean ok;
+      try
+      {
+         g2Layer.setRenderingHints(g2d.getRenderingHints());
+         g2Layer.translate(-r.x, -r.y);
+         g2Layer.clip(area);
+         g2Layer.transform(g2d.getTransform());
+         synchronized(n)
+         {
+            ok = n.render(g2Layer, new FullRenderTask(task));
+         }
+      }
+      finally { g2Layer.dispose(); }
+      if(!ok) return(false);
+
+      for(Tile t : stale)
+      {
+         BufferedImage bi = new BufferedImage(TILESZ, TILESZ, BufferedImage.TYPE_INT_ARGB_PRE);
+         bi.getRaster().setRect(r.x - t.col*TILESZ, r.y - t.row*TILESZ, scratch.getRaster());
+         t.dropImage();
+         t.putImage(bi);
+         t.imageModCount = rev;
+      }
+      return(true);
+   }
+
+   /** Helper method discards all of this layer's tiles, so that they no longer count against the budget. */
+   private void dropTiles()
+   {
+      for(Tile t : tiles.values()) t.dropImage();
+      tiles.clear();
+   }
+
+   /** One tile of a retained raster layer. */
+   private static class Tile
+   {
+      /**
+       * Construct an empty tile.
+       * @param col The tile's column in the device tile grid.
+       * @param row The tile's row in the device tile grid.
+       */
+      Tile(int col, int row)
+      {
+         this.col = col;
+         this.row = row;
+      }
+
+      /**
+       * Get this tile's image, marking the tile as the most recently used.
+       * @return The tile image; null if there is none.
+       */
+      BufferedImage getImage()
+      {
+         synchronized(lru)
+         {
+            lru.get(this);
+            return(image);
+         }
+      }
+
+      /** Discard this tile's image, if any, so that it no longer counts against the budget. */
+      void dropImage()
+      {
+         synchronized(lru)
+         {
+            Long bytes = lru.remove(this);
+            if(bytes != null) lruBytes -= bytes;
+            image = null;
+         }
+      }
+
+      /**
+       * Install a newly rendered image in this tile, which must not currently hold an image. The least recently used 
+       * tiles are discarded as needed to keep the total size of all tile images within {@link #BUDGETBYTES}.
+       * @param bi The new tile image.
+       */
+      void putImage(BufferedImage bi)
+      {
+         synchronized(lru)
+         {
+            Iterator<Map.Entry<Tile, Long>> it = lru.entrySet().iterator();
+            while(lruBytes + TILEBYTES > BUDGETBYTES && it.hasNext())
+            {
+               Map.Entry<Tile, Long> e = it.next();
+               e.getKey().image = null;
+               lruBytes -= e.getValue();
+               it.remove();
+            }
+            image = bi;
+            lru.put(this, TILEBYTES);
+            lruBytes += TILEBYTES;
+         }
+      }
+
+      /** The tile's column in the device tile grid. */
+      final int col;
+      /** The tile's row in the device tile grid. */
+      final int row;
+      /**
+       * The rendered tile. Null if the node has not yet been rendered into the tile, or if the image was discarded to
+       * stay within the budget for all tiles. Guarded by {@link #lru}.
+       */
+      private BufferedImage image = null;
+      /** Value of the layer's modification counter when the node was rendered into the tile. */
+      int imageModCount = -1;
+   }
+
+   /**
+    * The render task passed to a node that is rendered into its retained layer. It reports no dirty regions, so that
+    * the node and all of its subordinates are rendered in full, and it forwards progress updates to the task of the
+    * render cycle in progress.
+    */
+   private static class FullRenderTask implements RenderTask
+   {
+      FullRenderTask(RenderTask task) { this.task = task; }
+
+      @Override public List<Rectangle2D> getDirtyRegions() { return(Collections.emptyList()); }
+      @Override public boolean updateProgress() { return(task.updateProgress()); }
+
+      /** The task of the render cycle in progress. */
+      private final RenderTask task;
+   }
+}
@@ -7,6 +7,8 @@ import java.util.*;
 
 import com.srscicomp.common.g2dutil.CircularArcPainter;
 import com.srscicomp.common.g2dutil.Painter;
+import com.srscicomp.common.g2dutil.PointProducer;
+import com.srscicomp.common.g2dutil.PointStream;
 import com.srscicomp.common.g2dutil.PolylinePainter;
 import com.srscicomp.common.g2dviewer.RenderTask;
 import com.srscicomp.common.util.Utilities;
@@ -851,7 +853,7 @@ public class RasterNode extends FGNPlottableData implements Cloneable
    }
    
    /**
-    * Helper class provides an iterator over all of the locations in a single polyline path that renders the set of 
+    * Helper class provides a point stream over all of the locations in a single polyline path that renders the set of 
     * vertical "hash marks" comprising a raster train-like representation of the source raster data set. It generates 
     * three points for each well-defined raster sample datum: <i>{(x,y) (x,y+h) (NaN, NaN)}</i>, where <i>x, y, h</i> 
     * are expressed in "painting" coordinates WRT the parent graph viewport. Thus, each raster sample is rendered as a 
@@ -874,13 +876,12 @@ public class RasterNode extends FGNPlottableData implements Cloneable
     * </ul>
     *</p>
     * 
-    * <p>Iterators provided by <b>RasterTrainProducer</b> do <i>not</i> support removal of a location. Also, the class 
-    * is <i>not</i> thread-safe. Since it is used to iterate over data during rendering (which occurs in a background 
-    * thread), this could be problematic!</p>
+    * <p>The class is <i>not</i> thread-safe. Since it is used to stream data during rendering (which occurs in a 
+    * background thread), this could be problematic!</p>
     * 
     * @author  sruffner
     */
-   private class RasterTrainProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class RasterTrainProducer extends PointProducer.Sequential
    {
       final FViewport2D graphVP;
       final DataSet set;
@@ -894,7 +895,7 @@ public class RasterNode extends FGNPlottableData implements Cloneable
       int which;  // 0 for first pt of hash mark, 1 for second pt, 2 for undefined pt to separate from next hash!
       final Point2D pCurrent;
 
-      public Iterator<Point2D> iterator() { return(new RasterTrainProducer()); }
+      @Override public PointStream openStream() { return(new RasterTrainProducer()); }
 
       RasterTrainProducer()
       {
@@ -918,12 +919,10 @@ public class RasterNode extends FGNPlottableData implements Cloneable
          }
       }
 
-      public boolean hasNext() { return( graphVP != null && nSetsSoFar < set.getNumberOfSets() ); }
+      @Override protected boolean hasNext() { return( graphVP != null && nSetsSoFar < set.getNumberOfSets() ); }
 
-      public Point2D next()
+      @Override protected Point2D next()
       {
-         if(!hasNext()) throw new NoSuchElementException("Out of elements.");
-
          if(which == 2)
          {
             pCurrent.setLocation(Double.NaN, Double.NaN);
@@ -966,11 +965,6 @@ public class RasterNode extends FGNPlottableData implements Cloneable
 
          return(pCurrent);
       }
-
-      public void remove()
-      {
-         throw new UnsupportedOperationException("Removal not supported by this iterator.");
-      }
    }
 
    /**
@@ -998,7 +992,7 @@ public class RasterNode extends FGNPlottableData implements Cloneable
     *  is <i>not</i> thread-safe. Since it is used to iterate over data during rendering (which occurs in a background 
     *  thread), this could be problematic!</p>
     */
-   private class HistogramVertexProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class HistogramVertexProducer extends PointProducer.Sequential implements Iterator<Point2D>
    {
       final FViewport2D graphVP;
       final double[] hist;
@@ -1015,7 +1009,9 @@ public class RasterNode extends FGNPlottableData implements Cloneable
       int nVertsSoFar;
       final Point2D[] barVertices;
 
-      public Iterator<Point2D> iterator() { return(new HistogramVertexProducer(forPS)); }
+      @Override public Iterator<Point2D> iterator() { return(new HistogramVertexProducer(forPS)); }
+
+      @Override public PointStream openStream() { return(new HistogramVertexProducer(forPS)); }
 
       /**
        * Construct a 2D point producer which provides a special iterator over the vertices that define the outline of 
@@ -1205,13 +1201,8 @@ public class RasterNode extends FGNPlottableData implements Cloneable
       if(parentVP == null || !isStroked()) return;
       
       // use RasterTrainProducer to generate all the points in the polyline path
-      List<Point2D> listOfPoints = new ArrayList<>();
-      Iterator<Point2D> iterator = new RasterTrainProducer();
-      while(iterator.hasNext()) 
-         listOfPoints.add((Point2D) iterator.next().clone());   // must close, because producer reuses a Point2D!
-      if(listOfPoints.size() < 2) return;
-      Point2D[] coords = new Point2D[listOfPoints.size()];
-      for(int i=0; i<coords.length; i++) coords[i] = listOfPoints.get(i);
+      double[] coords = PointProducer.toArray(new RasterTrainProducer());
+      if(coords.length < 4) return;
       
       // now draw the polyline path in the PSDoc
       psDoc.startElement(this);
@@ -1233,12 +1224,8 @@ public class RasterNode extends FGNPlottableData implements Cloneable
       if(countsPerBin == null || countsPerBin.length == 0) calcHistogram();
       
       // use HistogramVertexProducer to generate the vertices for the histogram bar shapes.
-      Iterator<Point2D> iterator = new HistogramVertexProducer(true);
-      List<Point2D> vertices = new ArrayList<>();
-      while(iterator.hasNext()) 
-         vertices.add((Point2D) iterator.next().clone());    // must clone, b/c producer reuses a Point2D
-
-      if(vertices.isEmpty()) return;
+      double[] vertices = PointProducer.toArray(new HistogramVertexProducer(true));
+      if(vertices.length == 0) return;
       
       
       // if there are some histogram bars to render, invoke the Postscript document's appropriate utility method.
@@ -17,6 +17,8 @@ import java.util.*;
 import com.srscicomp.common.g2dutil.Marker;
 import com.srscicomp.common.g2dutil.MultiShapePainter;
 import com.srscicomp.common.g2dutil.PainterStyle;
+import com.srscicomp.common.g2dutil.PointProducer;
+import com.srscicomp.common.g2dutil.PointStream;
 import com.srscicomp.common.g2dutil.PolylinePainter;
 import com.srscicomp.common.g2dutil.Projector;
 import com.srscicomp.common.g2dutil.MultiShapePainter.PaintedShape;
@@ -953,6 +955,7 @@ public class Scatter3DNode extends FGNPlottableData implements Cloneable
       if(needsRendering(task))
       {
          if(shapePainter == null) updateRenderingResources();
+         polyPainter.setDecimated(isCanvasRenderCycle(g2d, task));
          if(!polyPainter.render(g2d, task)) return(false);
          return shapePainter.render(g2d, task);
       }
@@ -1098,21 +1101,10 @@ public class Scatter3DNode extends FGNPlottableData implements Cloneable
       if(!isBarPlotDisplayMode())
       {
          // if connect-the-dots polyline is drawn, prepare the array of points in the polyline
-         Point2D[] polyCoords = null;
+         double[] polyCoords = null;
          if(isStroked() && !getStemmed())
          {
-            Iterator<Point2D> iterator = new DataPointProducer();
-            List<Point2D> ptList = new ArrayList<>();
-            while(iterator.hasNext())
-            {
-               Point2D next = (Point2D) iterator.next().clone();    // b/c DataPointProducer reuses a Point2D
-               ptList.add(next);
-            }
-            polyCoords = new Point2D[ptList.size()];
-            for(int i = 0; i < ptList.size(); i++) polyCoords[i] = ptList.get(i);
-            
-            // in case the point list is really large
-            ptList.clear();
+            polyCoords = PointProducer.toArray(new DataPointProducer());
          }
          
          ShapeProducer producer = new ShapeProducer();
@@ -1662,7 +1654,7 @@ public class Scatter3DNode extends FGNPlottableData implements Cloneable
     * 
     * @author sruffner
     */
-   private class DataPointProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class DataPointProducer extends PointProducer.Sequential
    {
       DataPointProducer()
       {
@@ -1674,20 +1666,17 @@ public class Scatter3DNode extends FGNPlottableData implements Cloneable
          pCurrent = new Point2D.Double();
       }
       
-      @Override public Iterator<Point2D> iterator() { return(new DataPointProducer()); }
-      @Override public boolean hasNext() { return(nSoFar < nTotal); }
+      @Override public PointStream openStream() { return(new DataPointProducer()); }
       
-      @Override public Point2D next()
+      @Override protected boolean hasNext() { return(nSoFar < nTotal); }
+
+      @Override protected Point2D next()
       {
-         if(!hasNext()) throw new NoSuchElementException("Out of elements.");
-         
          prj.project(ds.getX(nSoFar, -1), ds.getY(nSoFar, -1), ds.getZ(nSoFar), pCurrent);
          ++nSoFar;
          return(pCurrent);
       }
       
-      @Override public void remove() { throw new UnsupportedOperationException("Removal not supported."); }
-      
       /** The 3D scatter plot's underlying data source. */
       final DataSet ds;
       /** Defines the 3D-to-2D projection governing the parent 3D graph. */
@@ -1696,10 +1685,7 @@ public class Scatter3DNode extends FGNPlottableData implements Cloneable
       int nSoFar;
       /** The total number of points to be produced. */
       final int nTotal;
-      /** 
-       * The current point. This is reused to deliver each point. IT IS ASSUMED that the consumer will NOT store a 
-       * reference to this point, but will make a copy if needed.
-       */
+      /** The current point. This is reused to prepare each point delivered. */
       final Point2D pCurrent;
    }
    
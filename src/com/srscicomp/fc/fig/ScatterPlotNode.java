@@ -12,6 +12,7 @@ import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -549,6 +550,7 @@ public class ScatterPlotNode extends FGNPlottableData implements Cloneable
       if(needsRendering(task))
       {
          if(shapePainter == null) updatePainters();
+         shapePainter.setSpriteStamping(isCanvasRenderCycle(g2d, task));
          
          // the LMS regression line is drawn on top of the markers in "trendline" mode, but the "connect the dots"
          // polyline is rendered before the marker symbols in all other display modes
@@ -755,6 +757,7 @@ public class ScatterPlotNode extends FGNPlottableData implements Cloneable
          set = getDataSet();
          sizeConstant = ScatterPlotNode.this.isSymbolSizeConstant();
          fillConstant = ScatterPlotNode.this.isFillColorConstant();
+         shapeKey = (sizeConstant && fillConstant) ? Arrays.asList(symbol, maxSymSizeMI) : null;
          
          shapePrimitive = new GeneralPath();
          if(sizeConstant)
@@ -812,6 +815,7 @@ public class ScatterPlotNode extends FGNPlottableData implements Cloneable
          set = src.set;
          
          sizeConstant = src.sizeConstant;
+         shapeKey = src.shapeKey;
          if(sizeConstant) 
          {
             shapePrimitive = src.shapePrimitive;
@@ -934,6 +938,13 @@ public class ScatterPlotNode extends FGNPlottableData implements Cloneable
       @Override public PainterStyle getStemPainterStyle() { return(null); }
       @Override public Paint getFillPaint() { return(null); }
       @Override public boolean isClosed() { return(symbol.isClosed()); }
+
+      /** 
+       * If all scatter plot markers are identical -- same size and same fill color -- the marker symbol and size
+       * identify the shape primitive, so the painter may stamp every marker from a cached sprite. Otherwise, no key is
+       * supplied, and every marker is filled and stroked directly.
+       */
+      @Override public Object getShapeKey() { return(shapeKey); }
             
       /** The parent graph view port converts each point from user units to rendering units. */
       final FViewport2D graphVP;
@@ -951,6 +962,8 @@ public class ScatterPlotNode extends FGNPlottableData implements Cloneable
       final boolean sizeConstant;
       /** True if all symbols are filled with the same fill color. */
       final boolean fillConstant;
+      /** Key identifying the shape primitive if all symbols are identical; else null. */
+      final Object shapeKey;
       /** The Z-axis (color axis) range for the parent graph; applicable only when fill color varies with Z. */
       final float[] zRange;
       /** The color map look-up table for the parent graph; applicable only when fill color varies with Z. */
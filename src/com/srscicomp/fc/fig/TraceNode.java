@@ -19,6 +19,8 @@ import com.srscicomp.common.g2dutil.Marker;
 import com.srscicomp.common.g2dutil.PaintableShape;
 import com.srscicomp.common.g2dutil.Painter;
 import com.srscicomp.common.g2dutil.PainterStyle;
+import com.srscicomp.common.g2dutil.PointProducer;
+import com.srscicomp.common.g2dutil.PointStream;
 import com.srscicomp.common.g2dutil.PolylinePainter;
 import com.srscicomp.common.g2dutil.ShapePainter;
 import com.srscicomp.common.g2dutil.StrokeCap;
@@ -556,29 +558,17 @@ public class TraceNode extends FGNPlottableData implements Cloneable
     * of points in the array.
     * @param isStair If true, then generate the intervening points to render data as a staircase rather than a 
     * "connect-the-dots" polyline.
-    * @return Array of data points to be plotted when element is rendered, in plotting order. Each data point is 
-    * transformed from "user" coordinates to \ "painting" coordinates WRT the parent graph viewport. Can contain 
-    * ill-defined points, representing discontinuities in the rendered polyline.
+    * @return Coordinates of the data points to be plotted when element is rendered, in plotting order and packed as 
+    * consecutive (x,y) pairs. Each data point is transformed from "user" coordinates to \ "painting" coordinates WRT 
+    * the parent graph viewport. Can contain ill-defined points, representing discontinuities in the rendered polyline.
     */
-   private Point2D[] getPlottedCoords(boolean allowSubSampling, boolean isStair)
+   private double[] getPlottedCoords(boolean allowSubSampling, boolean isStair)
    {
       // use the appropriate location producer to traverse the point sequence. This ensures that, in the event that the
       // polyline sub-sampling algorithm is engaged, the Postscript output will replicate what's rendered onscreen.
-      Iterator<Point2D> iterator = 
+      PointProducer producer = 
             isStair ? new StairPointProducer(allowSubSampling) : new DataPointProducer(allowSubSampling);
-      List<Point2D> ptList = new ArrayList<>();
-      while(iterator.hasNext())
-      {
-         Point2D next = (Point2D) iterator.next().clone();    // must clone, b/c DataPointProducer reuses a Point2D
-         ptList.add(next);
-      }
-      Point2D[] coords = new Point2D[ptList.size()];
-      for(int i = 0; i < ptList.size(); i++) coords[i] = ptList.get(i);
-      
-      // in case the point list is really large
-      ptList.clear();
-      
-      return(coords);
+      return(PointProducer.toArray(producer));
    }
 
    /**
@@ -808,6 +798,11 @@ public class TraceNode extends FGNPlottableData implements Cloneable
     * 
     * <p>Rendering is handled by a set of painters that are maintained and updated internally as the node's definition 
     * changes. Different painters are used to render the different display modes.</p>
+    * 
+    * <p>When the trace is rendered on the figure canvas, each polyline painter strokes a path decimated IAW the device
+    * pixel grid, which looks the same but is redrawn in time proportional to its width in pixels -- see {@link 
+    * PolylinePainter#setDecimated(boolean)}. In addition, each shape painter stamps its marker symbols from a cached 
+    * sprite rather than filling and stroking every symbol -- see {@link ShapePainter#setSpriteStamping(boolean)}.</p>
     */
    public boolean render(Graphics2D g2d, RenderTask task)
    {
@@ -816,8 +811,11 @@ public class TraceNode extends FGNPlottableData implements Cloneable
          if(painters.isEmpty())
             updatePainters();
 
+         boolean onCanvas = isCanvasRenderCycle(g2d, task);
          for(Painter p : painters)
          {
+            if(p instanceof PolylinePainter) ((PolylinePainter) p).setDecimated(onCanvas);
+            else if(p instanceof ShapePainter) ((ShapePainter) p).setSpriteStamping(onCanvas);
             if(!p.render(g2d, task)) return(false);
          }
       }
@@ -945,7 +943,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
             painters.add( new ErrorBarPainter() );
             
             Iterable<Point2D> producer = (mode == DisplayMode.POLYLINE) ? 
-                  new DataPointProducer() : new StairPointProducer();
+                  new DataPointProducer(false, true) : new StairPointProducer();
             painters.add( new PolylinePainter(this, producer) );
 
             SymbolNode symbol = getSymbolNode();
@@ -996,7 +994,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
             polyPainter = new PolylinePainter(ebar, null);
             painters.add( polyPainter );
 
-            painters.add( new PolylinePainter(this, new DataPointProducer()) );
+            painters.add( new PolylinePainter(this, new DataPointProducer(false, true)) );
          }
          boolean hasStdDev = !areErrorBarsHidden();
          boolean filled = ebar.getFillColor().getAlpha() != 0;
@@ -1303,7 +1301,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
 
       // get array of (x,y)-coords of all plotted points (in plotting order) and convert from the user coord system to 
       // the physical SVG coordinates of the parent viewport.  If there are no points, there's nothing to render.
-      Point2D[] coords = getPlottedCoords(true, false);
+      double[] coords = getPlottedCoords(true, false);
       if(coords.length == 0) return;
 
       psDoc.startElement(this);
@@ -1331,7 +1329,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
 
       // get array of (x,y)-coords of all plotted points (in plotting order) and convert from the user coord system to 
       // the physical SVG coordinates of the parent viewport.  If there are no points, there's nothing to render.
-      Point2D[] coords = getPlottedCoords(true, false);
+      double[] coords = getPlottedCoords(true, false);
       if(coords.length == 0) return;
 
       psDoc.startElement(this);
@@ -1355,10 +1353,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       }
       if(pts.size() == 2) psDoc.renderLine(pts.get(0), pts.get(1));
       else if(pts.size() > 2)
-      {
-         coords = pts.toArray(new Point2D[0]);
-         psDoc.renderPolyline(coords, null, 0.0, null, null, false);
-      }
+         psDoc.renderPolyline(pts.toArray(new Point2D[0]), null, 0.0, null, null, false);
       
       psDoc.endElement();         
    }
@@ -1377,7 +1372,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       // get array of (x,y)-coords of all plotted points (in plotting order) in the staircase polyline and convert from 
       // the user coord system to the physical SVG coordinates of the parent viewport.  If there are no points, there's 
       // nothing to render.
-      Point2D[] coords = getPlottedCoords(true, true);
+      double[] coords = getPlottedCoords(true, true);
       if(coords.length == 0) return;
       
       psDoc.startElement(this);
@@ -1414,15 +1409,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       {
          // use StdDevPointProducer to traverse the +1/-1 STD polylines that bound the error band, connecting them with 
          // an ill-defined point so that the stroked lines are not connected.
-         Iterator<Point2D> iterator = new StdDevPointProducer();
-         List<Point2D> ptList = new ArrayList<>();
-         while(iterator.hasNext())
-         {
-            Point2D next = (Point2D) iterator.next().clone();    // must clone, b/c StdDevPointProducer reuses a Point2D
-            ptList.add(next);
-         }
-         Point2D[] coords = new Point2D[ptList.size()];
-         for(int i = 0; i < ptList.size(); i++) coords[i] = ptList.get(i);
+         double[] coords = PointProducer.toArray(new StdDevPointProducer());
          
          // fill and/or stroke the resulting polyline IAW style properties of ErrorBarNode subordinate
          boolean filled = getFillColor().getAlpha() != 0;
@@ -1435,7 +1422,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       // render the nominal data trace polyline itself last, so that it is painted on top of a filled error band!
       if(isStroked())
       {
-         Point2D[] coords = getPlottedCoords(true, false);
+         double[] coords = getPlottedCoords(true, false);
          psDoc.renderPolyline(coords, null, 0, null, null, false );
       }
 
@@ -1455,24 +1442,14 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       psDoc.startElement(this);
 
       // use HistogramVertexProducer to generate the vertices for the histogram bar shapes.
-      Iterator<Point2D> iterator = new HistogramVertexProducer(true);
-      List<Point2D> vertices = new ArrayList<>();
-      while(iterator.hasNext())
-      {
-         Point2D next = (Point2D) iterator.next().clone();    // must clone, b/c HistogramVertexProducer reuses point
-         vertices.add(next);
-      }
+      double[] vertices = PointProducer.toArray(new HistogramVertexProducer(true));
 
       // if there are some histogram bars to render, invoke the Postscript document's appropriate utility method. 
       boolean filled = getFillColor().getAlpha() != 0;
-      if((!vertices.isEmpty()) && (isStroked() || (filled && (barWidth > 0))))
+      if((vertices.length > 0) && (isStroked() || (filled && (barWidth > 0))))
       {
          if(barWidth == 0) 
-         {
-            Point2D[] coords = new Point2D[vertices.size()];
-            for(int i = 0; i < coords.length; i++) coords[i] = vertices.get(i);
-            psDoc.renderPolyline(coords, null, 0, null, null, false);
-         }
+            psDoc.renderPolyline(vertices, null, 0, null, null, false);
          else if(!parentVP.isPolar()) 
             psDoc.renderPolygons(vertices, filled);
          else 
@@ -1493,14 +1470,14 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       double symSize = symbolInfo.getSizeInMilliInches();
       if(symSize > 0)
       {
-         Point2D[] coords = getPlottedCoords(false, false);
+         double[] coords = getPlottedCoords(false, false);
          if(parentVP.isPolar() && (getBarWidth() == 0) && (symbolInfo.getType() != Marker.CIRCLE))
          {
             // special use case: "compass plot" -- each symbol is rotated by angle of emanating ray
             Iterator<Float> rotIterator = new CompassPlotAngleProducer();
-            double[] rot = new double[coords.length];
+            double[] rot = new double[coords.length / 2];
             int i = 0;
-            while(rotIterator.hasNext() && i < coords.length) rot[i++] = rotIterator.next();
+            while(rotIterator.hasNext() && i < rot.length) rot[i++] = rotIterator.next();
             
             psDoc.startElement(symbolInfo);
             psDoc.renderMultipleAdornments(coords, rot, symbolInfo.getType(), symSize, symbolInfo.getCharacter());
@@ -1531,21 +1508,10 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       // use MultiSetPointProducer to traverse the points in the composite polyline that will render all of the 
       // individual point sets. This ensures that, in the event that the polyline sub-sampling algorithm is engaged,
       // the Postscript output will replicate what's rendered onscreen.
-      Iterator<Point2D> iterator = new MultiSetPointProducer();
-      List<Point2D> ptList = new ArrayList<>();
-      while(iterator.hasNext())
-      {
-         Point2D next = (Point2D) iterator.next().clone();    // must clone, b/c StdDevPointProducer reuses a Point2D
-         ptList.add(next);
-      }
-      Point2D[] coords = new Point2D[ptList.size()];
-      for(int i = 0; i < ptList.size(); i++) coords[i] = ptList.get(i);
-      
-      // in case the point list is really large
-      ptList.clear();
+      double[] coords = PointProducer.toArray(new MultiSetPointProducer());
       
       // if the composite polyline is not empty, render it IAW properties defined on subordinate ErrorBarNode
-      if(coords.length > 1)
+      if(coords.length > 2)
       {
          ErrorBarNode ebar = getErrorBarNode();
          Marker symbol = ebar.getEndCap();
@@ -1697,34 +1663,78 @@ public class TraceNode extends FGNPlottableData implements Cloneable
 
    
    /**
-    * Helper class defines an iterator over the data points currently defined in the trace node's data source. It serves
-    * both as the iterator implementation and the iterator provider (it simply provides fresh copies of itself).
+    * Helper class defines a point stream over the data points currently defined in the trace node's data source. It 
+    * serves both as the stream implementation and the stream provider (it simply provides fresh copies of itself). The
+    * points are delivered in bulk to painters that support {@link PointProducer}; other consumers iterate over them via
+    * the adapter {@link PointProducer#iterator()}.
     * 
-    * <p>The iterator generates the points in the order they appear in the dataset, while respecting the trace node's
+    * <p>The stream generates the points in the order they appear in the dataset, while respecting the trace node's
     * {@link #nSkipBy} parameter. If the total number of points to be generated exceeds 5000, a simple radial distance-
     * based sub-sampling algorithm can be optionally applied. Each data point is transformed from "user" coordinates to 
     * "painting" coordinates WRT the parent graph viewport. Thus, it is intended primarily for use while rendering the 
     * data trace into a graphics context.</p>
     * 
-    * <p>Iterators provided by <code>DataPointProducer</code> do <em>not</em> support removal of a data point. Also, 
-    * the class is <em>not</em> thread-safe. Since it is used to iterate over data during rendering (which occurs in 
-    * a background thread), this could be problematic!</p>
+    * <p>When the producer supplies the vertices of a polyline that is stroked onto a raster device, it may optionally
+    * use the data set's min/max decimation pyramid (see {@link DataSet#getMaxDecimationLevel()}) to skip over points 
+    * that would make no visible difference. This is possible for a large {@link Fmt#SERIES} or monotonic {@link 
+    * Fmt#PTSET} data set in a Cartesian graph, when no points are skipped. The points are traversed bin by bin, 
+    * choosing the coarsest bin in the pyramid whose points all lie in the same device pixel column, as determined by
+    * the device transform passed to {@link #openStream(AffineTransform)}. Such a bin is stroked as a vertical line 
+    * spanning the rows of its min and max points, plus the decorations at each vertex; only near the top and bottom of
+    * that span can a decoration -- where the polyline repeats a vertex or reverses direction -- change the rendered 
+    * output. So the bin is expanded recursively: a sub-bin whose points all lie in one device pixel is represented by
+    * its first and last points; a sub-bin whose points all lie well inside the span, away from the bin's first and 
+    * last points, is represented by its first point, the points with the minimum and maximum y-coordinate, and its 
+    * last point; every other sub-bin is split in two, down to the finest level, where all of its points are generated.
+    * The polyline through the generated points renders exactly like the polyline through all the points. If no bin 
+    * qualifies -- the data is too sparse along the x-axis, the bin straddles two columns or contains ill-defined data,
+    * or any of its representative points are ill-defined in painting coordinates (as can happen on a logarithmic
+    * axis) -- all of the points in the finest bin are generated. The pyramid is not used if the device transform is 
+    * rotated or sheared. Thus, the cost of traversing the data is proportional to the width of the graph -- and the
+    * number of points near the extremes of each pixel column -- rather than the number of points in the data set.</p>
+    * 
+    * <p>The class is <em>not</em> thread-safe. Since it is used to stream data during rendering (which occurs in a 
+    * background thread), this could be problematic!</p>
     * 
     * @author  sruffner
     */
-   private class DataPointProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class DataPointProducer extends PointProducer.Sequential
    {
       /**
        * Construct an iterator over the rendered data points in the trace node that does not allow sub-sampling of the
        * data point sequence.
        */
-      DataPointProducer() { this(false); }
+      DataPointProducer() { this(false, false); }
+      
+      /**
+       * Construct an iterator over the rendered data points in the trace node that does not use the data set's min/max
+       * decimation pyramid.
+       * @param allowSubSample True to allow sub-sampling of a data point sequence exceeding 5000 points.
+       */
+      DataPointProducer(boolean allowSubSample) { this(allowSubSample, false); }
+      
+      /**
+       * Construct an iterator over the rendered data points in the trace node. It never uses the data set's min/max 
+       * decimation pyramid itself, but a stream opened by {@link #openStream(AffineTransform)} may do so.
+       * @param allowSubSample True to allow sub-sampling of a data point sequence exceeding 5000 points.
+       * @param allowDecimation True to allow use of the data set's min/max decimation pyramid when possible. This is 
+       * intended only for generating the vertices of a polyline, never the locations of individual symbols.
+       */
+      DataPointProducer(boolean allowSubSample, boolean allowDecimation) 
+      { 
+         this(allowSubSample, allowDecimation, null); 
+      }
       
       /**
        * Construct an iterator over the rendered data points in the trace node.
        * @param allowSubSample True to allow sub-sampling of a data point sequence exceeding 5000 points.
+       * @param allowDecimation True to allow use of the data set's min/max decimation pyramid when possible. This is 
+       * intended only for generating the vertices of a polyline, never the locations of individual symbols.
+       * @param toDevice Transform from painting coordinates to device coordinates, used to decide whether a bin of 
+       * consecutive data points lies within a single device pixel column and so may be represented by fewer points. 
+       * If null, or if the transform is rotated or sheared, the decimation pyramid is not used.
        */
-      DataPointProducer(boolean allowSubSample)
+      DataPointProducer(boolean allowSubSample, boolean allowDecimation, AffineTransform toDevice)
       {
          nSkipBy = getSkip();
          graphVP = getParentViewport();
@@ -1733,6 +1743,9 @@ public class TraceNode extends FGNPlottableData implements Cloneable
          yOffset = getYOffset();
          nPtsSoFar = 0;
          pCurrent = new Point2D.Double();
+         this.allowDecimation = allowDecimation;
+         this.toDevice = (allowDecimation && toDevice != null && toDevice.getShearX() == 0 && 
+               toDevice.getShearY() == 0 && toDevice.getScaleX() != 0 && toDevice.getScaleY() != 0) ? toDevice : null;
          
          int nTotal = set.getDataSize(-1) / nSkipBy;
          if(allowSubSample && nTotal > 5000)
@@ -1740,38 +1753,228 @@ public class TraceNode extends FGNPlottableData implements Cloneable
             double d = getStrokeWidth() * 2.0;
             subSampler = new RadialPolylineSubsampler( d <= 0 ? 20 : d);
          }
+         
+         // decimation is worthwhile only if, on average, the finest bins in the decimation pyramid span less than a 
+         // device pixel horizontally
+         if(this.toDevice != null && nSkipBy == 1 && subSampler == null && graphVP != null && 
+               !graphVP.isPolar() && (set.getFormat() == Fmt.SERIES || set.getFormat() == Fmt.PTSET) && !set.isEmpty())
+         {
+            int n = set.getDataSize(-1);
+            double w = Math.abs(getDeviceColumn(n-1) - getDeviceColumn(0));
+            if(Utilities.isWellDefined(w) && w * (1 << DataSet.MINDECIMATIONLEVEL) < n)
+            {
+               maxLevel = set.getMaxDecimationLevel();
+               margin = 0.5 * getStrokeWidth() * Math.abs(this.toDevice.getScaleY()) + 1;
+            }
+         }
       }
 
-      public Iterator<Point2D> iterator() { return(new DataPointProducer(subSampler != null)); }
-
-      public boolean hasNext() { return(nPtsSoFar < set.getDataSize(-1)); }
+      @Override public PointStream openStream() 
+      { 
+         return(new DataPointProducer(subSampler != null, allowDecimation)); 
+      }
 
-      public Point2D next()
+      /** If decimation is allowed, the stream may use the data set's decimation pyramid IAW the device transform. */
+      @Override public PointStream openStream(AffineTransform toDevice)
       {
-         if(!hasNext()) throw new NoSuchElementException("Out of elements.");
+         return(new DataPointProducer(subSampler != null, allowDecimation, toDevice)); 
+      }
 
+      @Override protected boolean hasNext() 
+      { 
+         return(iPending < nPending || nStack > 0 || nPtsSoFar < set.getDataSize(-1)); 
+      }
+
+      @Override protected Point2D next()
+      {
          if(subSampler == null)
          {
-            prepareNextPoint();
+            prepareNextPoint(nextIndex());
             return(pCurrent);
          }
          
          boolean keepPt = false;
          while(hasNext() && !keepPt)
          {
-            prepareNextPoint();
+            prepareNextPoint(nextIndex());
             keepPt = subSampler.keep(pCurrent);
          }
          
          return(pCurrent);
       }
 
-      private void prepareNextPoint()
+      /**
+       * Advance to the next data point in the sequence generated -- before any sub-sampling is applied. This lets
+       * {@link StairPointProducer} traverse the same sequence of data points.
+       * @return The index of the next data point in the data set.
+       */
+      int nextIndex()
       {
-         pCurrent.setLocation(set.getX(nPtsSoFar, -1) + xOffset, set.getY(nPtsSoFar, -1) + yOffset);
-         if(graphVP != null) graphVP.userUnitsToThousandthInches(pCurrent);
-
+         if(maxLevel > 0)
+         {
+            if(iPending >= nPending) prepareNextDecimatedPoints();
+            return(pending[iPending++]);
+         }
+         
+         int idx = nPtsSoFar;
          nPtsSoFar += nSkipBy;
+         return(idx);
+      }
+
+      private void prepareNextPoint(int idx)
+      {
+         pCurrent.setLocation(set.getX(idx, -1) + xOffset, set.getY(idx, -1) + yOffset);
+         if(graphVP != null) graphVP.userUnitsToThousandthInches(pCurrent);
+      }
+      
+      /**
+       * Helper method queues the indices of the next points to be generated when the data set's min/max decimation 
+       * pyramid is in use. If no column bin is being expanded, it tries the bins that start at the next point to be
+       * covered, from the coarsest level down to the finest. If none qualifies, the points in the finest bin are 
+       * generated one at a time; else the bin that qualifies becomes the column bin, and its sub-bins are expanded in
+       * order -- see {@link #expandBin(int, int)} -- until at least one point is queued.
+       */
+      private void prepareNextDecimatedPoints()
+      {
+         iPending = 0;
+         nPending = 0;
+         if(nStack == 0)
+         {
+            int n = set.getDataSize(-1);
+            if(nPtsSoFar < rawEnd)
+            {
+               pending[nPending++] = nPtsSoFar++;
+               return;
+            }
+            
+            int level = Math.min(maxLevel, (nPtsSoFar == 0) ? maxLevel : Integer.numberOfTrailingZeros(nPtsSoFar));
+            for(; level >= DataSet.MINDECIMATIONLEVEL; level--)
+            {
+               int first = nPtsSoFar;
+               int last = Math.min(n, first + (1 << level)) - 1;
+               if(!set.getDecimatedMinMax(level, first >> level, minMax)) continue;
+               double col = getDeviceColumn(first);
+               if(!(Utilities.isWellDefined(col) && col == getDeviceColumn(last) && isPaintable(first) && 
+                     isPaintable(last) && isPaintable(minMax[0]) && isPaintable(minMax[1])))
+                  continue;
+               
+               double row0 = getDeviceRow(minMax[0]), row1 = getDeviceRow(minMax[1]);
+               bandLo = Math.min(row0, row1) + margin;
+               bandHi = Math.max(row0, row1) - margin;
+               binFirst = first;
+               binLast = last;
+               stackLevel[nStack] = level;
+               stackBin[nStack++] = first >> level;
+               nPtsSoFar = last + 1;
+               break;
+            }
+            
+            if(nStack == 0)
+            {
+               rawEnd = Math.min(n, nPtsSoFar + (1 << DataSet.MINDECIMATIONLEVEL));
+               pending[nPending++] = nPtsSoFar++;
+               return;
+            }
+         }
+         
+         while(nPending == 0)
+         {
+            --nStack;
+            expandBin(stackLevel[nStack], stackBin[nStack]);
+         }
+      }
+      
+      /**
+       * Helper method expands a bin within the current column bin when the data set's min/max decimation pyramid is in
+       * use. All points in the column bin lie in the same device pixel column, so the polyline through them is drawn
+       * as a vertical stroke spanning the rows of its min and max points, plus the decorations at each vertex. If all
+       * of the bin's points lie in the same device pixel, only its first and last points are queued: in the original
+       * polyline, the points in between add nothing but zero-length segments. If the bin's points all lie more than 
+       * half a stroke width (plus a pixel, for antialiasing) inside the column bin's vertical span, and the bin does
+       * not contain the column bin's first or last point -- where the polyline enters or leaves the column, and the
+       * line join depends on the neighboring point --, its first point, min and max points, and last point are 
+       * queued: the decorations at those points, and at the points they replace, lie entirely within the stroke that
+       * spans the column. Otherwise, the bin's two halves are pushed onto the stack for expansion, or -- for a bin at
+       * the finest level -- all of its points are queued. Thus the points near the top and bottom of the span, where 
+       * a repeated vertex or a change of direction can affect the rendered output, are generated in full.
+       * @param level The level of the bin in the decimation pyramid.
+       * @param bin The index of the bin at that level.
+       */
+      private void expandBin(int level, int bin)
+      {
+         int n = set.getDataSize(-1);
+         int first = bin << level;
+         int last = Math.min(n, first + (1 << level)) - 1;
+         set.getDecimatedMinMax(level, bin, minMax);
+         double row0 = getDeviceRow(minMax[0]), row1 = getDeviceRow(minMax[1]);
+         boolean inBand = first != binFirst && last != binLast && Math.min(row0, row1) >= bandLo && 
+               Math.max(row0, row1) <= bandHi;
+         
+         if(row0 != row1 && !inBand)
+         {
+            if(level > DataSet.MINDECIMATIONLEVEL)
+            {
+               if(((2*bin + 1) << (level-1)) < n)
+               {
+                  stackLevel[nStack] = level - 1;
+                  stackBin[nStack++] = 2*bin + 1;
+               }
+               stackLevel[nStack] = level - 1;
+               stackBin[nStack++] = 2*bin;
+            }
+            else for(int i=first; i<=last; i++) pending[nPending++] = i;
+            return;
+         }
+         
+         int lo = first, hi = first;
+         if(row0 != row1)
+         {
+            lo = Math.min(minMax[0], minMax[1]);
+            hi = Math.max(minMax[0], minMax[1]);
+         }
+         pending[nPending++] = first;
+         if(lo != first) pending[nPending++] = lo;
+         if(hi != lo) pending[nPending++] = hi;
+         if(last != hi) pending[nPending++] = last;
+      }
+      
+      /**
+       * Helper method computes the device pixel column containing a data point when the decimation pyramid is in use.
+       * Like the polyline painter, it truncates the point's painting coordinates to single precision before 
+       * transforming them to device coordinates.
+       * @param idx The index of the data point.
+       * @return The index of the device pixel column containing the point. May be ill-defined.
+       */
+      private double getDeviceColumn(int idx)
+      {
+         scratch.setLocation(set.getX(idx, -1) + xOffset, set.getY(idx, -1) + yOffset);
+         graphVP.userUnitsToThousandthInches(scratch);
+         return(Math.floor(toDevice.getScaleX() * ((float) scratch.getX()) + toDevice.getTranslateX()));
+      }
+      
+      /**
+       * Helper method computes the device pixel row containing a data point when the decimation pyramid is in use. See
+       * {@link #getDeviceColumn(int)}.
+       * @param idx The index of the data point.
+       * @return The index of the device pixel row containing the point. May be ill-defined.
+       */
+      private double getDeviceRow(int idx)
+      {
+         scratch.setLocation(set.getX(idx, -1) + xOffset, set.getY(idx, -1) + yOffset);
+         graphVP.userUnitsToThousandthInches(scratch);
+         return(Math.floor(toDevice.getScaleY() * ((float) scratch.getY()) + toDevice.getTranslateY()));
+      }
+      
+      /**
+       * Helper method checks whether a data point is well-defined in painting coordinates.
+       * @param idx The index of the data point.
+       * @return True if the point's location in the parent graph viewport is well-defined.
+       */
+      private boolean isPaintable(int idx)
+      {
+         scratch.setLocation(set.getX(idx, -1) + xOffset, set.getY(idx, -1) + yOffset);
+         graphVP.userUnitsToThousandthInches(scratch);
+         return(Utilities.isWellDefined(scratch));
       }
       
       /** The trace node's plot skip interval (== 1 if no data points are skipped). */
@@ -1786,13 +1989,44 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       final double yOffset;
       /** Number of data points processed thus far. */
       int nPtsSoFar;
-      /** 
-       * The current data point. This is reused to deliver each point. IT IS ASSUMED that the consumer will NOT store
-       * a reference to this point, but will make a copy if needed.
-       */
+      /** The current data point. This is reused to prepare each point delivered. */
       final Point2D pCurrent;
       /** Non-null if the polyline point sequence is being sub-sampled (when there are too many function samples). */
       RadialPolylineSubsampler subSampler = null;
+      /** True if use of the data set's min/max decimation pyramid is allowed. */
+      final boolean allowDecimation;
+      /** Transform from painting to device coordinates for decimation. Null if the decimation pyramid is not used. */
+      final AffineTransform toDevice;
+      /** Coarsest level of the data set's decimation pyramid to use; 0 if the pyramid is not in use. */
+      int maxLevel = 0;
+      /** Indices of the queued points to be generated when the decimation pyramid is in use. */
+      final int[] pending = new int[1 << DataSet.MINDECIMATIONLEVEL];
+      /** Number of queued points. */
+      int nPending = 0;
+      /** Index of the next queued point to be generated. */
+      int iPending = 0;
+      /** When no bin qualifies for decimation, the points before this index are generated one at a time. */
+      int rawEnd = 0;
+      /** Stack of bins waiting to be expanded within the current column bin: level of each bin in the pyramid. */
+      final int[] stackLevel = new int[64];
+      /** Stack of bins waiting to be expanded within the current column bin: index of each bin at its level. */
+      final int[] stackBin = new int[64];
+      /** Number of bins on the stack. The current column bin has been fully expanded when the stack is empty. */
+      int nStack = 0;
+      /** Index of the first point in the current column bin -- the coarsest bin lying in one device pixel column. */
+      int binFirst = 0;
+      /** Index of the last point in the current column bin. */
+      int binLast = 0;
+      /** A bin whose points all lie in device pixel rows in [bandLo, bandHi] is safely inside the column bin's span. */
+      double bandLo = 0;
+      /** See {@link #bandLo}. */
+      double bandHi = 0;
+      /** Half the trace's stroke width in device pixels, plus one pixel. See {@link #expandBin(int, int)}. */
+      double margin = 0;
+      /** Receives the indices of the min and max points in a decimation bin. */
+      final int[] minMax = new int[2];
+      /** Scratch point for computing locations in painting coordinates. */
+      final Point2D scratch = new Point2D.Double();
    }
 
    /**
@@ -1920,19 +2154,25 @@ public class TraceNode extends FGNPlottableData implements Cloneable
    }
    
    /**
-    * Helper class defines an iterator over the points that render the trace node in the staircase display mode. For
-    * each data point (Xn, Yn) in the data source, two points are produced in order to generate the staircase: 
+    * Helper class defines a point stream over the points that render the trace node in the staircase display mode. 
+    * For each data point (Xn, Yn) in the data source, two points are produced in order to generate the staircase: 
     * (Xn, Yn-1) and (Xn, Yn). Of course, for the first data point in the source, the first point in the pair is not
-    * defined. In all other respects, the iterator behaves in the same manner as {@link DataPointProducer} -- it just
+    * defined. In all other respects, the stream behaves in the same manner as {@link DataPointProducer} -- it just
     * generates twice as many points!
     * 
-    * <p>Iterators provided by <b>StairPointProducer</b> do <i>not</i> support removal of a data point. Also, the class
-    * is <i>not</i> thread-safe. Since it is used to iterate over data during rendering (which occurs in a background 
-    * thread), this could be problematic!</p>
+    * <p>In fact, the stream traverses the data points in the order generated by a {@link DataPointProducer}. Thus, 
+    * like that class, a stream opened by {@link #openStream(AffineTransform)} may use the data set's min/max decimation
+    * pyramid to skip over data points that would make no visible difference when the staircase is stroked onto a 
+    * raster device. Within a bin of data points that lie in the same device pixel column, each step of the staircase
+    * lies in that column, and each vertex lies in the same pixel row as a data point. So the points that may be 
+    * skipped for the polyline through the data points may be skipped for the staircase as well.</p>
+    * 
+    * <p>The class is <i>not</i> thread-safe. Since it is used to stream data during rendering (which occurs in a 
+    * background thread), this could be problematic!</p>
     * 
     * @author  sruffner
     */
-   private class StairPointProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class StairPointProducer extends PointProducer.Sequential
    {
       /**
        * Construct an iterator over the points that render the trace node as a staircase seqeunce. Do not allow 
@@ -1944,36 +2184,48 @@ public class TraceNode extends FGNPlottableData implements Cloneable
        * Construct an iterator over the points that render the trace node as a staircase sequence.
        * @param allowSubSample True to allow sub-sampling when the underlying data source size exceeds 5000.
        */
-      StairPointProducer(boolean allowSubSample)
+      StairPointProducer(boolean allowSubSample) { this(allowSubSample, null); }
+      
+      /**
+       * Construct an iterator over the points that render the trace node as a staircase sequence.
+       * @param allowSubSample True to allow sub-sampling when the underlying data source size exceeds 5000.
+       * @param toDevice Transform from painting coordinates to device coordinates. If not null, and the staircase is
+       * not sub-sampled, the data set's min/max decimation pyramid is used when possible. See {@link 
+       * DataPointProducer#DataPointProducer(boolean, boolean, AffineTransform)}.
+       */
+      StairPointProducer(boolean allowSubSample, AffineTransform toDevice)
       {
-         nSkipBy = getSkip();
          graphVP = getParentViewport();
          set = getDataSet();
          xOffset = getXOffset();
          yOffset = getYOffset();
-         nPtsSoFar = 0;
          pCurrPair = new Point2D[] { 
                new Point2D.Double(Double.NaN, Double.NaN), new Point2D.Double(Double.NaN, Double.NaN)
          };
          nextIdx = 2;
          lastDatumIdx = -1;
          
-         int nTotal = set.getDataSize(-1) / nSkipBy;
+         int nTotal = set.getDataSize(-1) / getSkip();
          if(allowSubSample && nTotal > 5000)
          {
             double d = getStrokeWidth() * 2.0;
             subSampler = new RadialPolylineSubsampler( d <= 0 ? 20 : d);
          }
+         dataPoints = new DataPointProducer(false, true, (subSampler == null) ? toDevice : null);
       }
 
-      public Iterator<Point2D> iterator() { return(new StairPointProducer(subSampler != null)); }
+      @Override public PointStream openStream() { return(new StairPointProducer(subSampler != null)); }
 
-      public boolean hasNext() { return((nPtsSoFar < set.getDataSize(-1)) || (nextIdx < 2)); }
-
-      public Point2D next()
+      /** The stream may use the data set's decimation pyramid IAW the device transform. */
+      @Override public PointStream openStream(AffineTransform toDevice)
       {
-         if(!hasNext()) throw new NoSuchElementException("Out of elements.");
+         return(new StairPointProducer(subSampler != null, toDevice));
+      }
+
+      @Override protected boolean hasNext() { return(dataPoints.hasNext() || (nextIdx < 2)); }
 
+      @Override protected Point2D next()
+      {
          if(nextIdx < 2) return(pCurrPair[nextIdx++]);
          
          if(subSampler == null)
@@ -1994,21 +2246,21 @@ public class TraceNode extends FGNPlottableData implements Cloneable
 
       private void prepareNextPointPair()
       {
-         pCurrPair[1].setLocation(set.getX(nPtsSoFar, -1) + xOffset, set.getY(nPtsSoFar, -1) + yOffset);
+         int idx = dataPoints.nextIndex();
+         pCurrPair[1].setLocation(set.getX(idx, -1) + xOffset, set.getY(idx, -1) + yOffset);
          if(graphVP != null) graphVP.userUnitsToThousandthInches(pCurrPair[1]);
          if(lastDatumIdx > -1)
          {
-            pCurrPair[0].setLocation(set.getX(nPtsSoFar, -1) + xOffset, set.getY(lastDatumIdx,  -1) + yOffset);
+            pCurrPair[0].setLocation(set.getX(idx, -1) + xOffset, set.getY(lastDatumIdx,  -1) + yOffset);
             if(graphVP != null) graphVP.userUnitsToThousandthInches(pCurrPair[0]);
          }
          
          nextIdx = 0;
-         lastDatumIdx = nPtsSoFar;
-         nPtsSoFar += nSkipBy;
+         lastDatumIdx = idx;
       }
       
-      /** The trace node's plot skip interval (== 1 if no data points are skipped). */
-      final int nSkipBy;
+      /** Generates the sequence of data points traversed -- possibly decimated IAW the device pixel grid. */
+      final DataPointProducer dataPoints;
       /** The parent graph viewport converts each point from user units to rendering units. */
       final FViewport2D graphVP;
       /** The underlying data set source. */
@@ -2017,13 +2269,10 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       final double xOffset;
       /** The Y-coordinate offset. */
       final double yOffset;
-      /** Number of data points processed thus far. */
-      int nPtsSoFar;
       /** 
        * The pair of points rendered for the current data point (X,Y) in the underlying data source. If (Xo,Yo) is the
        * previous point in the source, then this array will contain (X,Yo) and (X,Y) -- transformed to the parent graph
-       * viewport. The array is reused to deliver each point. IT IS ASSUMED that the consumer will NOT store a reference
-       * to each point it receives, but will make a copy if needed.
+       * viewport. The array is reused to prepare each point pair delivered.
        */
       final Point2D[] pCurrPair;
       /** Index into the two-element point array, indicating the point to deliver next. */
@@ -2035,11 +2284,11 @@ public class TraceNode extends FGNPlottableData implements Cloneable
    }
 
    /**
-    * Helper class defines an iterator over the points tracing out the polyline that is one standard deviation above and
-    * below the trace node's nominal data set. It serves both as the iterator implementation and the iterator provider 
+    * Helper class defines a point stream over the points tracing out the polyline that is one standard deviation above
+    * and below the trace node's nominal data set. It serves both as the stream implementation and the stream provider 
     * (it simply provides fresh copies of itself).
     * 
-    * <p>The iterator is designed to be the location source for the {@link PolylinePainter} that
+    * <p>The stream is designed to be the location source for the {@link PolylinePainter} that
     * renders the +1 and -1STD polylines when the trace node is in the errorband display mode. Each data point generated
     * is supplied in "painting" coordinates WRT the parent graph viewport, and the trace node's {@link #nSkipBy} 
     * parameter is honored. Since the band between the +1 and -1STD polylines may be filled, it traverses the -1STD 
@@ -2048,19 +2297,18 @@ public class TraceNode extends FGNPlottableData implements Cloneable
     * number of data points in the underlying data set exceeds 5000, a simple radial distance-based sub-sampling 
     * algorithm is applied.</p>
     * 
-    * <p>The iterator does <i>not</i> support removal of a data point. Also, the class is <i>not</i> thread-safe. Since 
-    * it is used to iterate over data during rendering (which occurs in a background thread), this could be 
-    * problematic!</p>
+    * <p>The class is <i>not</i> thread-safe. Since it is used to stream data during rendering (which occurs in a 
+    * background thread), this could be problematic!</p>
     * 
     * @author  sruffner
     */
-   private class StdDevPointProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class StdDevPointProducer extends PointProducer.Sequential
    {
       /**
-       * Construct an iterator over the +1 and -1STD polylines defined by the trace node's data set source.
-       * <p>Let <i>{Xi, Y(Xi)}</i> for <i>i = 0..n-1</i> represent the "nominal" data trace. The iterator traverses 
+       * Construct a point stream over the +1 and -1STD polylines defined by the trace node's data set source.
+       * <p>Let <i>{Xi, Y(Xi)}</i> for <i>i = 0..n-1</i> represent the "nominal" data trace. The stream traverses 
        * <i>{Xi, Y(Xi) + DY(Xi)}</i> and <i>{Xi, Y(Xi) - DY(Xi)}</i>, where <i>DY(Xi)</i> is the standard deviation in 
-       * <i>Y</i> at <i>X = Xi</i>. The iterator will traverse the -1STD trace backwards, creating a single path for the 
+       * <i>Y</i> at <i>X = Xi</i>. The stream will traverse the -1STD trace backwards, creating a single path for the 
        * purposes of filling the "error band" between +1 and -1STD. An undefined point is inserted between the ends of 
        * the two traces so that they are not connected when the path is stroked.
        */
@@ -2084,18 +2332,16 @@ public class TraceNode extends FGNPlottableData implements Cloneable
          }
       }
 
-      public Iterator<Point2D> iterator() { return(new StdDevPointProducer()); }
+      @Override public PointStream openStream() { return(new StdDevPointProducer()); }
 
-      public boolean hasNext()
+      @Override protected boolean hasNext()
       {
          if(set.getDataSize(-1) == 0) return(false);
          return( !(which == -1 && nPtsSoFar < 0) );
       }
 
-      public Point2D next()
+      @Override protected Point2D next()
       {
-         if(!hasNext()) throw new NoSuchElementException("Out of elements.");
-
          if(subSampler == null)
          {
             prepareNextPoint();
@@ -2131,8 +2377,6 @@ public class TraceNode extends FGNPlottableData implements Cloneable
          nPtsSoFar += which*nSkipBy;
       }
       
-      public void remove() { throw new UnsupportedOperationException("Removal not supported by this iterator."); }
-      
       /** Set to 1 or -1 while traversing points on the +1 or -1STD trace, respectively. */
       int which;
       
@@ -2148,10 +2392,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
       final double yOffset;
       /** Number of data points processed thus far. */
       int nPtsSoFar;
-      /** 
-       * The current data point. This is reused to deliver each point. IT IS ASSUMED that the consumer will NOT store
-       * a reference to this point, but will make a copy if needed.
-       */
+      /** The current data point. This is reused to prepare each point delivered. */
       final Point2D pCurrent;
       /** Non-null if the polyline point sequence is being sub-sampled (when there are too many function samples). */
       RadialPolylineSubsampler subSampler = null;
@@ -2190,7 +2431,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
     * 
     * @author  sruffner
     */
-   private class HistogramVertexProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class HistogramVertexProducer extends PointProducer.Sequential implements Iterator<Point2D>
    {
       final int nSkipBy;
       final FViewport2D graphVP;
@@ -2213,7 +2454,9 @@ public class TraceNode extends FGNPlottableData implements Cloneable
        * Retrieve a new iterator for this <code>HistogramVertexProducer</code>. This merely returns a fresh copy of 
        * <code>HistogramVertexProducer</code> itself, which acts both as <code>Iterable</code> and <code>Iterator</code>.
        */
-      public Iterator<Point2D> iterator() { return(new HistogramVertexProducer(forPS)); }
+      @Override public Iterator<Point2D> iterator() { return(new HistogramVertexProducer(forPS)); }
+
+      @Override public PointStream openStream() { return(new HistogramVertexProducer(forPS)); }
 
       /**
        * Construct a <code>HistogramVertexProducer</code>, which provides a special iterator over the vertices that 
@@ -2406,28 +2649,27 @@ public class TraceNode extends FGNPlottableData implements Cloneable
    }
    
    /**
-    * Helper class defines an iterator over all of the data points in all of the individual point sets defined in the 
-    * trace node's data set source. It is intended for use when rendering one of the collection-type datasets in the 
-    * "multitrace" display mode. It serves both as the iterator implementation and the iterator provider (it simply 
+    * Helper class defines a point stream over all of the data points in all of the individual point sets defined in 
+    * the trace node's data set source. It is intended for use when rendering one of the collection-type datasets in the
+    * "multitrace" display mode. It serves both as the stream implementation and the stream provider (it simply 
     * provides fresh copies of itself).
     * 
-    * <p>By design, the iterator serves as the location source for a {@link PolylinePainter} that
+    * <p>By design, the stream serves as the location source for a {@link PolylinePainter} that
     * renders the polylines for the two or more individual but related point sets. In this role, it iterates over 
     * the point sets in the order they appear in the data set, transforming each point from "user" coordinates to 
     * "painting" coordinates WRT the parent graph viewport. A single <i>(NaN, NaN)</i> point is inserted between the end
     * of one point set and the beginning of the next -- so that the polylines are not connected to each other. However, 
-    * if the data set contains only a single point set, the iterator acts as though it were empty. On the other hand, if
+    * if the data set contains only a single point set, the stream acts as though it were empty. On the other hand, if
     * the total number of points across all of the member sets -- while honoring the trace node's {@link #nSkipBy} 
     * parameter -- exceeds 5000, then a simple radial distance-based polyline sub-sampling algorithm is applied to 
     * reduce the total length of the polyline rendered.</p>
     *  
-    * <p>The iterator does <i>not</i> support removal of a data point. Also, the class is <i>not</i> thread-safe. Since 
-    * it is used to iterate over data during rendering (which occurs in a background thread), this could be 
-    * problematic!</p>
+    * <p>The class is <i>not</i> thread-safe. Since it is used to stream data during rendering (which occurs in a 
+    * background thread), this could be problematic!</p>
     * 
     * @author  sruffner
     */
-   private class MultiSetPointProducer implements Iterable<Point2D>, Iterator<Point2D>
+   private class MultiSetPointProducer extends PointProducer.Sequential
    {
       MultiSetPointProducer()
       {
@@ -2450,19 +2692,17 @@ public class TraceNode extends FGNPlottableData implements Cloneable
          }
       }
 
-      public Iterator<Point2D> iterator() { return(new MultiSetPointProducer()); }
+      @Override public PointStream openStream() { return(new MultiSetPointProducer()); }
 
-      public boolean hasNext()
+      @Override protected boolean hasNext()
       {
          if(graphVP == null) return(false);
          int nSets = set.getNumberOfSets();
          return( (nSets > 1) && (nSetsSoFar < nSets) );
       }
 
-      public Point2D next()
+      @Override protected Point2D next()
       {
-         if(!hasNext()) throw new NoSuchElementException("Out of elements.");
-
          if(subSampler == null)
          {
             prepareNextPoint();
@@ -2501,8 +2741,6 @@ public class TraceNode extends FGNPlottableData implements Cloneable
          }
       }
       
-      public void remove() { throw new UnsupportedOperationException("Removal not supported by this iterator."); }
-      
       /** The trace node's plot skip interval (== 1 if no data points are skipped). */
       final int nSkipBy;
       /** The parent graph viewport converts each point from user units to rendering units. */
@@ -2522,10 +2760,7 @@ public class TraceNode extends FGNPlottableData implements Cloneable
        * member point set and the start of the polyline for the next member set.
        */
       boolean insertGap;
-      /** 
-       * The current data point. This is reused to deliver each point. IT IS ASSUMED that the consumer will NOT store
-       * a reference to this point, but will make a copy if needed.
-       */
+      /** The current data point. This is reused to prepare each point delivered. */
       final Point2D pCurrent;
       /** Non-null if the polyline point sequence is being sub-sampled (when there are too many function samples). */
       RadialPolylineSubsampler subSampler = null;
@@ -284,7 +284,7 @@ public class FGModelSchema implements ISimpleXMLContentProvider
                   DataSet.Fmt dsFmt = DataSet.Fmt.getFormatByName(fmt);
                   ds = DataSet.fromCommaSeparatedTuples(id, dsFmt, dx, eSet.getTextContent());
                }
-               else ds = DataSet.fromBase64(eSet.getTextContent());
+               else ds = DataSet.fromBase64(eSet.getTextContentChars());
                
                if(ds == null) throw new XMLException("Bad dataset content found", FGModelSchema.EL_SET, null);
                if(!(ds.getID().equals(id) && ds.getFormat().toString().equals(fmt)))
@@ -402,7 +402,7 @@ public class FGModelSchema implements ISimpleXMLContentProvider
                   DataSet.Fmt dsFmt = DataSet.Fmt.getFormatByName(fmt);
                   ds = DataSet.fromCommaSeparatedTuples(id, dsFmt, dx, eSet.getTextContent());
                }
-               else ds = DataSet.fromBase64(eSet.getTextContent());
+               else ds = DataSet.fromBase64(eSet.getTextContentChars());
                
                if(ds == null) throw new XMLException("Bad dataset content found", FGModelSchema.EL_SET, null);
                if(!(ds.getID().equals(id) && ds.getFormat().toString().equals(fmt)))
@@ -452,7 +452,7 @@ public class FGModelSchema implements ISimpleXMLContentProvider
                // not defined and that the V7 attribute is "false".
                eSet.removeAttributeByName(FGModelSchema.A_USING);
                eSet.setAttributeValueByName(FGModelSchema.A_V7, "false");
-               eSet.setTextContent(DataSet.toBase64(ds, true), false);
+               eSet.setTextContentWriter(wrt -> DataSet.writeBase64(ds, false, true, wrt));
                res = 1;
                break;
             }
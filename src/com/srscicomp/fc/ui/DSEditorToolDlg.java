@@ -22,10 +22,7 @@ import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.EventObject;
-import java.util.List;
-import java.util.StringTokenizer;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -75,6 +72,7 @@ import com.srscicomp.common.ui.NumericTextField;
 import com.srscicomp.common.util.Utilities;
 import com.srscicomp.fc.data.DataSet;
 import com.srscicomp.fc.data.DataSetIDFilter;
+import com.srscicomp.fc.data.FloatTextParser;
 import com.srscicomp.fc.data.DataSet.Fmt;
 import com.srscicomp.fc.fig.FGNPlottableData;
 import com.srscicomp.fc.fig.FGraphicNode;
@@ -2443,62 +2441,40 @@ class DSEditorToolDlg extends JDialog
          // While parsing, count the total data size and determine if rows are all the same length or not. If not, it's 
          // packaged as raster data.
          boolean isRasterChunk = false;
-         int nTotal = 0;
          int nc = -1;
          
-         List<float[]> rows = new ArrayList<>();
-         StringTokenizer tokenizer = new StringTokenizer(textData, "\r\n");
-         while(tokenizer.hasMoreTokens())
+         FloatTextParser parser = new FloatTextParser();
+         if(!parser.parse(textData, "\r\n")) return(false);
+         int nRows = parser.getTupleCount();
+         for(int i=0; i<nRows && !isRasterChunk; i++)
          {
-            StringTokenizer lineTokenizer = new StringTokenizer(tokenizer.nextToken());
-            float[] row = new float[lineTokenizer.countTokens()];
-            for(int i=0; i<row.length; i++)
-            {
-               try { row[i] = Float.parseFloat(lineTokenizer.nextToken()); }
-               catch(NumberFormatException nfe) { return(false); }
-            }
-            rows.add(row);
-            
-            nTotal += row.length;
-            if(!isRasterChunk) 
-            {
-               if(nc == -1) nc = row.length;
-               else if(nc != row.length) isRasterChunk = true;
-            }
+            int len = parser.getTupleLength(i);
+            if(nc == -1) nc = len;
+            else if(nc != len) isRasterChunk = true;
          }
          
          // text could be one or more empty lines!
+         int nTotal = parser.getValueCount();
          if(nTotal == 0) return(false);
          
          // prepare 1D float array containing the parsed data.
          float[] data;
          if(isRasterChunk)
          {
-            data = new float[3 + rows.size() + nTotal];
+            data = new float[3 + nRows + nTotal];
             data[0] = 1;
             data[1] = nTotal;
-            data[2] = rows.size();
-            int dstOffset = 3 + rows.size();
-            for(int i=0; i<rows.size(); i++)
-            {
-               float[] row = rows.get(i);
-               data[3+i] = row.length;
-               System.arraycopy(row, 0, data, dstOffset, row.length);
-               dstOffset += row.length;
-            }
+            data[2] = nRows;
+            for(int i=0; i<nRows; i++) data[3+i] = parser.getTupleLength(i);
+            System.arraycopy(parser.getValueBuffer(), 0, data, 3 + nRows, nTotal);
          }
          else
          {
             data = new float[3 + nTotal];
             data[0] = 0;
-            data[1] = rows.size();
+            data[1] = nRows;
             data[2] = nc;
-            int dstOffset = 3;
-            for(float[] row : rows)
-            {
-               System.arraycopy(row, 0, data, dstOffset, nc);
-               dstOffset += nc;
-            }
+            System.arraycopy(parser.getValueBuffer(), 0, data, 3, nTotal);
          }
          
          return(insertDataChunk(data, replace));
@@ -3084,6 +3084,7 @@ public class FigComposer extends JPanel implements TabStripModel, FGModelListene
       
       FGraphicModel selected = getSelectedFigureModel();
       selected.addListener(this);
+      selected.setRetainedLayersEnabled(FCWorkspace.getInstance().getFigComposerRasterLayersOn());
       figCanvas.setModel(selected);
       if(selected.getSelectedNode() == null)
          selected.setSelectedNode(selected.getRoot());
@@ -32,7 +32,8 @@ public enum FCFileType implements FileFilter
    /** A Scalable Vector Graphics image of a <i>FypML</i> figure (save only). */ 
    SVG(new String[] {"svg"}, "Scalable Vector Graphics (.svg)", FCIcons.V4_PNGJPG_16),
    /** A <i>Figure Composer</i>-compatible binary data source. */ 
-   DNB(new String[] {"dnr", "dnb"}, " Figure Composer binary dataset source (.dnr, .dnb)", FCIcons.V4_DATA_16),
+   DNB(new String[] {"dnr", "dnb", "dnc"}, " Figure Composer binary dataset source (.dnr, .dnb, .dnc)", 
+         FCIcons.V4_DATA_16),
    /** A <i>Figure Composer</i>-compatible annotated plain-text data source. */ 
    DNA(new String[] {"dna", "txt"}, "Figure Composer annotated text data source (.dna, .txt)", FCIcons.V4_DATA_16),
    /** Any <i>Figure Composer</i>-compatible data source. */ 
@@ -44,7 +44,7 @@ import com.srscicomp.fc.uibase.DirWatcher.Event;
  * <ul>
  * <li>FypML figure definition files (*.fyp)</li>
  * <li>Matlab figure files (*.fig) -- because these can sometimes be imported successfully as FypML files.</li>
- * <li>Custom-formatted binary or plain-text data set source files (*.dnr, *.dnb, *.dna, *.txt)</li>
+ * <li>Custom-formatted binary or plain-text data set source files (*.dnr, *.dnb, *.dnc, *.dna, *.txt)</li>
  * </ul>
  * The workspace manager keeps track of file-system path information for these kinds of files found on the host machine 
  * -- the "workspace path cache". It also manages the user's application preferences, and maintains most recently used
@@ -275,6 +275,10 @@ public class FCWorkspace implements DirWatcher.Listener
       settingsFile = new File(home, SETTINGSFILENAME);
       pathCacheFile = new File(home, PATHCACHEFILENAME);
       
+      // data sources keep their sidecar index files in a dedicated subdirectory, never next to the source files
+      File sidecarDir = new File(home, SIDECARDIRNAME);
+      if(sidecarDir.isDirectory() || sidecarDir.mkdir()) DataSrcFactory.setSidecarDirectory(sidecarDir);
+      
       // if deprecated style palette file present, remove it (deprecated as of v4.7.1)
       File f = new File(home, PALETTEFILENAME);
       if(f.isFile()) //noinspection ResultOfMethodCallIgnored
@@ -287,6 +291,9 @@ public class FCWorkspace implements DirWatcher.Listener
       return(true);
    }
    
+   /** Name of subdirectory in user's workspace directory in which data sources keep their sidecar index files. */
+   private final static String SIDECARDIRNAME = "srcindex";
+   
    /** 
     * Name of JSON file in user's workspace directory that stores user's style palette between runtime sessions. 
     * 18jun2015 (for v4.7.1) : Permanently removed support for the style palette, which proved not useful. Kept this
@@ -404,6 +411,11 @@ public class FCWorkspace implements DirWatcher.Listener
    public final static String KEY_FC_WSFBDIV = "fc.wsfbdiv";
    /** <i>[As of v4.3.1]</i> Key containing a string specifying FC's toolbar state. */
    public final static String KEY_FC_TOOLSTATE = "fc.toolstate";
+   /**
+    * Key containing the on/off state ("true" or "false") of retained raster layers for the figure displayed in FC. Off 
+    * unless the key is present and set to "true".
+    */
+   public final static String KEY_FC_RASTERLAYERSON = "fc.rasterlayers";
    
    
    /** 
@@ -827,6 +839,26 @@ public class FCWorkspace implements DirWatcher.Listener
       currentSettings.setProperty(KEY_FC_TOOLSTATE, state == null ? "" : state);
    }
    
+   /**
+    * Should the figure displayed in the <i>Figure Composer</i> retain raster layers for expensive graphic nodes between
+    * render cycles? This is an opt-in setting, disabled by default.
+    * @return True if retained raster layers are enabled.
+    */
+   public boolean getFigComposerRasterLayersOn()
+   {
+      String on = currentSettings.getProperty(KEY_FC_RASTERLAYERSON, "false");
+      return("true".equals(on));
+   }
+   
+   /**
+    * Enable or disable retained raster layers for the figure displayed in the <i>Figure Composer</i>.
+    * @param on True to enable, false to disable.
+    */
+   public void setFigComposerRasterLayersOn(boolean on)
+   {
+      currentSettings.setProperty(KEY_FC_RASTERLAYERSON, on ? "true" : "false");
+   }
+   
    
    //
    // MRU figure model and data set source files
@@ -1075,7 +1107,7 @@ public class FCWorkspace implements DirWatcher.Listener
    /** 
     * Cache of known <i>Figure Composer</i>-related files on the host's file system. Three types of files are tracked in
     * this cache: FypML figure files (.fyp), Matlab figure files (.fig), and data set source files (.dna, .txt, .dnr, 
-    * and .dnb). The hash-map cache is keyed by parent directory, and each map value is a list of relevant files in
+    * .dnb and .dnc). The hash-map cache is keyed by parent directory, and each map value is a list of relevant files in
     * that directory.
     * <p>The parent directory could be marked as "unavailable", in which case the associated list of cache entries is
     * maintained, but is not exposed to users of <b>FCWorkspace</b>.</p>
@@ -1396,7 +1428,7 @@ public class FCWorkspace implements DirWatcher.Listener
    {
       stopPathCacheMonitor();
       pathCacheMonitor = DirWatcher.startWatcher(
-            getWorkspaceDirectories(true), true, true, new String[] {"fyp", "fig", "txt", "dna", "dnr", "dnb"});
+            getWorkspaceDirectories(true), true, true, new String[] {"fyp", "fig", "txt", "dna", "dnr", "dnb", "dnc"});
       if(pathCacheMonitor != null)
       {
          pathCacheMonitor.setPollingTimeout(2);
@@ -1465,7 +1497,7 @@ public class FCWorkspace implements DirWatcher.Listener
 
    /**
     * Add a file to the workspace's "path cache" of <i>Figure Composer</i>-related files: a FypML figure file (*.fyp), 
-    * a Matlab figure file (*.fig), or a data set source file (*.dna, *.txt, *.dnr, or *.dnb).
+    * a Matlab figure file (*.fig), or a data set source file (*.dna, *.txt, *.dnr, *.dnb, or *.dnc).
     * @param f The file to be added. The file is examined to ensure it is one of the tracked file types.
     * @return True if successful; false if file does not exist or is not one of the tracked file types.
     */
@@ -0,0 +1,185 @@
+package com.srscicomp.fc.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.srscicomp.common.util.MicroBench;
+
+/**
+ * Benchmark comparing the time it takes to load large data sets from an annotated-text data source file ({@link
+ * AnnotatedTextSrc}) when each large data section is parsed in parallel -- the default -- and when it is parsed
+ * sequentially, line by line (see {@link AnnotatedTextSrc#setParallelParsing(boolean)}). The file contains a large
+ * {@link DataSet.Fmt#PTSET} and a large {@link DataSet.Fmt#XYZIMG}. Each operation constructs a fresh source proxy --
+ * so that no data set cache carries over from one operation to the next -- and then opens the source, retrieves its
+ * summary information and loads one data set. The file content stays in the OS page cache, so this measures the cost
+ * of parsing the file content, not the cost of disk IO.
+ *
+ * <p>A data section is read into memory through a window of fixed size, so the heap allocated while parsing in
+ * parallel should exceed the size of the loaded data set by a roughly constant amount, regardless of the size of the
+ * data section.</p>
+ *
+ * <p>Before timing, the benchmark verifies that both methods return identical data sets, and that the parallel parse
+ * did not fall back on the sequential parse. It then corrupts a number in a copy of the file and verifies that the
+ * parallel parse records the fallback, and that both methods report the same error.</p>
+ *
+ * <p>Usage: <i>java com.srscicomp.fc.data.AnnotatedTextSrcBenchmark [nPts]</i>. The point set has <i>nPts</i>
+ * points (default 2000000), and the image has about as many samples. Run with a fixed heap large enough to hold
+ * several copies of the data, e.g. <i>-Xms1g -Xmx1g</i>.</p>
+ *
+ * @author sruffner
+ */
+public class AnnotatedTextSrcBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int nPts = (args.length > 0) ? Integer.parseInt(args[0]) : 2000000;
+      int side = (int) Math.sqrt(nPts);
+      List<DataSet> sets = Arrays.asList(createPointSet("pts", nPts), createImage("img", side, side));
+
+      final File f = createTempFile();
+      final File fBad = createTempFile();
+      try
+      {
+         AnnotatedTextSrc src = new AnnotatedTextSrc(f);
+         boolean ok = src.open() && src.writeData(sets, false);
+         src.close();
+         check(ok, "write " + f.getName() + ": " + src.getLastError());
+
+         for(DataSet ds : sets)
+         {
+            AnnotatedTextSrc par = new AnnotatedTextSrc(f);
+            DataSet dsPar = load(par, ds.getID(), true);
+            check(par.getParallelFallback() == null, ds.getID() + " parsed in parallel without fallback");
+            DataSet dsSeq = load(new AnnotatedTextSrc(f), ds.getID(), false);
+            check(dsPar != null && dsPar.equals(dsSeq), ds.getID() + " same whether parsed in parallel or not");
+         }
+
+         corrupt(f, fBad);
+         AnnotatedTextSrc par = new AnnotatedTextSrc(fBad);
+         AnnotatedTextSrc seq = new AnnotatedTextSrc(fBad);
+         check(load(par, "pts", true) == null && par.getParallelFallback() != null &&
+               load(seq, "pts", false) == null && par.getLastError().equals(seq.getLastError()),
+               "parallel parse of corrupted section falls back: " + par.getParallelFallback() + "; error: " +
+               par.getLastError());
+
+         MicroBench bench = new MicroBench(String.format("Load from annotated-text file: PTSET of %d points, %d x %d " +
+               "XYZIMG; %.1fMB", nPts, side, side, f.length() / 1048576.0), 3, 10);
+         for(DataSet ds : sets)
+         {
+            String id = ds.getID();
+            MicroBench.Result seqResult = bench.run("sequential, " + ds.getFormat(),
+                  () -> load(new AnnotatedTextSrc(f), id, false).getDataSize(-1));
+            MicroBench.Result parResult = bench.run("parallel, " + ds.getFormat(),
+                  () -> load(new AnnotatedTextSrc(f), id, true).getDataSize(-1));
+            MicroBench.printSpeedup(seqResult, parResult);
+         }
+         System.out.println("(sink=" + bench.getSink() + ")");
+      }
+      finally
+      {
+         //noinspection ResultOfMethodCallIgnored
+         f.delete();
+         //noinspection ResultOfMethodCallIgnored
+         fBad.delete();
+      }
+   }
+
+   /**
+    * Open an annotated-text data source, retrieve its summary information, then load one data set.
+    * @param src The data source proxy.
+    * @param id The ID of the data set to load.
+    * @param parallel True to parse a large data section in parallel, false to parse it sequentially.
+    * @return The loaded data set, or null if it could not be loaded.
+    */
+   private static DataSet load(AnnotatedTextSrc src, String id, boolean parallel)
+   {
+      try
+      {
+         src.setParallelParsing(parallel);
+         if(!src.open() || src.getSummaryInfo() == null) throw new IllegalStateException(src.getLastError());
+         return(src.getDataByID(id));
+      }
+      finally { src.close(); }
+   }
+
+   /**
+    * Copy a data source file, replacing the first digit after the middle of the file with a letter. The middle of the
+    * file lies in the point set's data section, so that data set can no longer be parsed.
+    * @param src The source file.
+    * @param dst The corrupted copy.
+    * @throws IOException if an IO error occurs.
+    */
+   private static void corrupt(File src, File dst) throws IOException
+   {
+      try(RandomAccessFile in = new RandomAccessFile(src, "r"); RandomAccessFile out = new RandomAccessFile(dst, "rw"))
+      {
+         byte[] bytes = new byte[(int) in.length()];
+         in.readFully(bytes);
+         int i = bytes.length / 2;
+         while(bytes[i] < '0' || bytes[i] > '9') ++i;
+         bytes[i] = 'x';
+         out.setLength(0);
+         out.write(bytes);
+      }
+   }
+
+   /**
+    * Create a point set with monotonically increasing x-coordinates and random y-coordinates.
+    * @param id The data set ID.
+    * @param nPts Number of points.
+    * @return The point set.
+    */
+   private static DataSet createPointSet(String id, int nPts)
+   {
+      Random rng = new Random(20260101L);
+      float[] raw = new float[2*nPts];
+      for(int i=0; i<nPts; i++)
+      {
+         raw[2*i] = i * 0.001f;
+         raw[2*i+1] = (float) (Math.sin(i * 1e-4) * 50 + rng.nextGaussian() * 5);
+      }
+      return(DataSet.createDataSet(id, DataSet.Fmt.PTSET, null, nPts, 2, raw));
+   }
+
+   /**
+    * Create an image data set of random samples.
+    * @param id The data set ID.
+    * @param w Image width.
+    * @param h Image height.
+    * @return The data set.
+    */
+   private static DataSet createImage(String id, int w, int h)
+   {
+      Random rng = new Random(20260102L);
+      float[] raw = new float[w*h];
+      for(int i=0; i<raw.length; i++) raw[i] = rng.nextFloat() * 1000f;
+      return(DataSet.createDataSet(id, DataSet.Fmt.XYZIMG, new float[] {0, w, 0, h}, h, w, raw));
+   }
+
+   /**
+    * Create a new path for a data source file in the temporary directory. The file itself is not created.
+    * @return The path.
+    * @throws IOException if the path cannot be created.
+    */
+   private static File createTempFile() throws IOException
+   {
+      File f = File.createTempFile("atxtbench", ".txt");
+      if(!f.delete()) throw new IOException("Cannot delete " + f);
+      return(f);
+   }
+
+   /**
+    * Abort the benchmark if a check fails.
+    * @param ok True if the check passed.
+    * @param what Description of the check.
+    */
+   private static void check(boolean ok, String what)
+   {
+      if(!ok) throw new IllegalStateException("Check failed: " + what);
+      System.out.println("OK: " + what);
+   }
+}
@@ -0,0 +1,177 @@
+package com.srscicomp.fc.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import com.srscicomp.common.util.MicroBench;
+
+/**
+ * Benchmark comparing the time it takes to load large data sets from a columnar binary data source file ({@link
+ * ColumnarSrc}) and from the standard binary data source file ({@link BinarySrc}). Both files contain the same two
+ * data sets: a large {@link DataSet.Fmt#PTSET} and a large {@link DataSet.Fmt#XYZIMG}. Each operation constructs a
+ * fresh source proxy -- so that no data set cache or in-memory index carries over from one operation to the next --
+ * and then opens the source, retrieves its summary information, loads each data set and computes its statistics, as
+ * happens when a figure referencing the data sets is first rendered. The file content stays in the OS page cache, so
+ * this measures the cost of decoding the file content, not the cost of disk IO.
+ *
+ * <p>A data set at least {@link DataSet#OFFHEAPMINBYTES} in size may be loaded from the columnar source without
+ * copying it, by wrapping memory-mapped views of its data section; the data is then read from the page cache only as
+ * it is used. So that this is not mistaken for a free load, each data set is also loaded and then traversed in full.
+ * The heap allocation figures do not include the off-heap stores of large data sets.</p>
+ *
+ * <p>Before timing, the benchmark verifies that both sources return data sets identical to the originals.</p>
+ *
+ * <p>Usage: <i>java com.srscicomp.fc.data.ColumnarSrcBenchmark [nPts]</i>. The point set has <i>nPts</i> points
+ * (default 10000000), and the image has about as many samples. Run with a fixed heap large enough to hold several
+ * copies of the data, e.g. <i>-Xms2g -Xmx2g</i>.</p>
+ *
+ * @author sruffner
+ */
+public class ColumnarSrcBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int nPts = (args.length > 0) ? Integer.parseInt(args[0]) : 10000000;
+      int side = (int) Math.sqrt(nPts);
+      DataSet ptset = createPointSet("pts", nPts);
+      DataSet image = createImage("img", side, side);
+      List<DataSet> sets = Arrays.asList(ptset, image);
+
+      final File fBin = createTempFile(".dnr");
+      final File fCol = createTempFile(".dnc");
+      try
+      {
+         write(new BinarySrc(fBin), sets);
+         write(new ColumnarSrc(fCol), sets);
+         for(DataSet ds : sets)
+         {
+            check(ds.equals(new BinarySrc(fBin).getDataByID(ds.getID())), "BinarySrc returns " + ds.getID());
+            check(ds.equals(new ColumnarSrc(fCol).getDataByID(ds.getID())), "ColumnarSrc returns " + ds.getID());
+         }
+
+         MicroBench bench = new MicroBench(String.format("Load from file: PTSET of %d points, %d x %d XYZIMG; " +
+               ".dnr=%.1fMB, .dnc=%.1fMB", nPts, side, side, fBin.length() / 1048576.0, fCol.length() / 1048576.0),
+               3, 10);
+         for(boolean scan : new boolean[] {false, true})
+         {
+            String suffix = scan ? " + scan" : "";
+            for(DataSet ds : sets)
+            {
+               String what = ds.getFormat() + suffix;
+               MicroBench.Result bin = bench.run("BinarySrc, " + what, 
+                     () -> load(new BinarySrc(fBin), ds.getID(), scan));
+               MicroBench.Result col = bench.run("ColumnarSrc, " + what, 
+                     () -> load(new ColumnarSrc(fCol), ds.getID(), scan));
+               MicroBench.printSpeedup(bin, col);
+            }
+         }
+         System.out.println("(sink=" + bench.getSink() + ")");
+      }
+      finally
+      {
+         //noinspection ResultOfMethodCallIgnored
+         fBin.delete();
+         //noinspection ResultOfMethodCallIgnored
+         fCol.delete();
+      }
+   }
+
+   /**
+    * Open a data source, retrieve its summary information, then load one data set and compute its statistics.
+    * @param src The data source proxy.
+    * @param id The ID of the data set to load.
+    * @param scan If true, traverse the entire raw data array of the loaded data set.
+    * @return A value derived from the loaded data set.
+    */
+   private static long load(IDataSrc src, String id, boolean scan)
+   {
+      try
+      {
+         if(!src.open() || src.getSummaryInfo() == null) throw new IllegalStateException(src.getLastError());
+         DataSet ds = src.getDataByID(id);
+         if(ds == null) throw new IllegalStateException(src.getLastError());
+         long res = ds.getDataSize(-1) + (long) ds.getYMax();
+         if(scan)
+         {
+            double sum = 0;
+            for(PrimitiveIterator.OfDouble it = ds.getRawDataIterator(); it.hasNext();) sum += it.nextDouble();
+            res += (long) sum;
+         }
+         return(res);
+      }
+      finally { src.close(); }
+   }
+
+   /**
+    * Write data sets to a new data source file.
+    * @param src The data source proxy.
+    * @param sets The data sets to write.
+    */
+   private static void write(IDataSrc src, List<DataSet> sets)
+   {
+      boolean ok = src.open() && src.writeData(sets, false);
+      src.close();
+      check(ok, "write " + src.getSourceFile().getName() + ": " + src.getLastError());
+   }
+
+   /**
+    * Create a point set with monotonically increasing x-coordinates and random y-coordinates.
+    * @param id The data set ID.
+    * @param nPts Number of points.
+    * @return The point set.
+    */
+   private static DataSet createPointSet(String id, int nPts)
+   {
+      Random rng = new Random(20260101L);
+      float[] raw = new float[2*nPts];
+      for(int i=0; i<nPts; i++)
+      {
+         raw[2*i] = i * 0.001f;
+         raw[2*i+1] = (float) (Math.sin(i * 1e-4) * 50 + rng.nextGaussian() * 5);
+      }
+      return(DataSet.createDataSet(id, DataSet.Fmt.PTSET, null, nPts, 2, raw));
+   }
+
+   /**
+    * Create an image data set of random samples.
+    * @param id The data set ID.
+    * @param w Image width.
+    * @param h Image height.
+    * @return The data set.
+    */
+   private static DataSet createImage(String id, int w, int h)
+   {
+      Random rng = new Random(20260102L);
+      float[] raw = new float[w*h];
+      for(int i=0; i<raw.length; i++) raw[i] = rng.nextFloat() * 1000f;
+      return(DataSet.createDataSet(id, DataSet.Fmt.XYZIMG, new float[] {0, w, 0, h}, h, w, raw));
+   }
+
+   /**
+    * Create a new path for a data source file in the temporary directory. The file itself is not created.
+    * @param ext The file extension.
+    * @return The path.
+    * @throws IOException if the path cannot be created.
+    */
+   private static File createTempFile(String ext) throws IOException
+   {
+      File f = File.createTempFile("colbench", ext);
+      if(!f.delete()) throw new IOException("Cannot delete " + f);
+      return(f);
+   }
+
+   /**
+    * Abort the benchmark if a check fails.
+    * @param ok True if the check passed.
+    * @param what Description of the check.
+    */
+   private static void check(boolean ok, String what)
+   {
+      if(!ok) throw new IllegalStateException("Check failed: " + what);
+      System.out.println("OK: " + what);
+   }
+}
@@ -0,0 +1,236 @@
+package com.srscicomp.fc.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded stress test of the concurrent read path in {@link DataSetRepository} and {@link BinarySrc}. Several
+ * reader threads retrieve randomly chosen data sets and verify their content, while a writer thread repeatedly adds,
+ * renames and removes a scratch data set -- so that readers constantly race with writers that modify the block index,
+ * the ID-to-UID map and the data set cache. The repository is exercised with both chunked and memory-mapped reads.
+ * Finally, the file is reopened by a fresh proxy and every data set is verified again.
+ *
+ * <p>Usage: <i>java com.srscicomp.fc.data.ConcurrentReadStressTest [nThreads [nGets]]</i>. By default, it runs twice
+ * as many reader threads as there are available processors (at least 4), each performing 20000 retrievals. Exits
+ * with a non-zero status if any check fails.</p>
+ *
+ * @author sruffner
+ */
+public class ConcurrentReadStressTest
+{
+   public static void main(String[] args) throws Exception
+   {
+      int nThreads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+      int nGets = 20000;
+      if(args.length > 0) nThreads = Integer.parseInt(args[0]);
+      if(args.length > 1) nGets = Integer.parseInt(args[1]);
+
+      File f = File.createTempFile("stress", ".dnr");
+      try
+      {
+         if(!f.delete()) throw new IOException("Cannot delete " + f);
+         List<DataSet> sets = createSets(NSETS);
+
+         testRepository(f, sets, false, nThreads, nGets);
+         testRepository(f, sets, true, nThreads, nGets);
+         testBinarySrc(f, sets, nThreads, nGets);
+         verifyReopened(f, sets);
+      }
+      finally
+      {
+         //noinspection ResultOfMethodCallIgnored
+         f.delete();
+      }
+
+      if(nFailures > 0)
+      {
+         System.out.println("FAILED: " + nFailures + " check(s) failed.");
+         System.exit(1);
+      }
+      System.out.println("PASSED.");
+   }
+
+   /**
+    * Stress the repository directly: readers call {@link DataSetRepository#get(int)} while a writer puts, renames and
+    * removes a scratch data set.
+    * @param f The repository file. If it does not exist, it is created and populated with the test sets.
+    * @param sets The test sets; the set at index i is stored under UID i+1.
+    * @param mapped True for memory-mapped reads, false for chunked reads.
+    * @param nThreads Number of reader threads.
+    * @param nGets Number of retrievals per reader thread.
+    */
+   private static void testRepository(File f, List<DataSet> sets, boolean mapped, int nThreads, int nGets)
+         throws InterruptedException
+   {
+      final DataSetRepository repo = new DataSetRepository(f, false);
+      repo.setMappedReads(mapped);
+      if(!f.exists()) for(int i=0; i<sets.size(); i++) check(repo.put(i+1, sets.get(i)), "put UID=" + (i+1));
+
+      // disable the cache so that every retrieval goes to the file
+      repo.getCache().setMaxBytes(0);
+      repo.open();
+
+      final AtomicInteger nErrors = new AtomicInteger(0);
+      final AtomicBoolean stop = new AtomicBoolean(false);
+      final DataSet scratch = createSet("scratch", 997);
+      final int scratchUID = sets.size() + 1;
+      Thread writer = new Thread(() -> {
+         while(!stop.get() && !repo.isUnusable())
+         {
+            if(!(repo.put(scratchUID, scratch) && repo.changeDataSetIDString(scratchUID, "renamed") &&
+                  repo.remove(scratchUID)))
+               nErrors.incrementAndGet();
+         }
+      });
+      Thread[] readers = new Thread[nThreads];
+      for(int i=0; i<nThreads; i++) readers[i] = new Thread(() -> {
+         for(int j=0; j<nGets; j++)
+         {
+            int idx = (int) (Math.random() * sets.size());
+            DataSet ds = repo.get(idx+1);
+            if(ds == null || !Arrays.equals(ds.getRawDataArray(), sets.get(idx).getRawDataArray()) ||
+                  !ds.getID().equals(sets.get(idx).getID()))
+               nErrors.incrementAndGet();
+         }
+      });
+
+      double tElapsed = runThreads(writer, readers, stop);
+      repo.close();
+      check(!repo.isUnusable(), "repository usable after stress: " + repo.getFailureReason());
+      check(nErrors.get() == 0, nErrors.get() + " inconsistent retrievals or failed writes");
+      System.out.println(String.format("Repository (%s reads): %d readers x %d gets in %.1f ms",
+            mapped ? "mapped" : "chunked", nThreads, nGets, tElapsed));
+   }
+
+   /**
+    * Stress the binary data source: readers call {@link BinarySrc#getDataByID(String)} and {@link
+    * BinarySrc#getSummaryInfo()} while a writer writes, renames and removes a scratch data set.
+    * @param f The source file, already populated with the test sets.
+    * @param sets The test sets.
+    * @param nThreads Number of reader threads.
+    * @param nGets Number of retrievals per reader thread.
+    */
+   private static void testBinarySrc(File f, List<DataSet> sets, int nThreads, int nGets) throws InterruptedException
+   {
+      final BinarySrc src = new BinarySrc(f);
+      check(src.open(), "open source: " + src.getLastError());
+
+      final AtomicInteger nErrors = new AtomicInteger(0);
+      final AtomicBoolean stop = new AtomicBoolean(false);
+      final DataSet scratch = createSet("scratch", 997);
+      Thread writer = new Thread(() -> {
+         while(!stop.get() && !src.isUnusable())
+         {
+            if(!(src.writeData(scratch, true) && src.changeID("scratch", "renamed") && src.removeData("renamed")))
+               nErrors.incrementAndGet();
+         }
+      });
+      Thread[] readers = new Thread[nThreads];
+      for(int i=0; i<nThreads; i++) readers[i] = new Thread(() -> {
+         for(int j=0; j<nGets; j++)
+         {
+            int idx = (int) (Math.random() * sets.size());
+            DataSet expected = sets.get(idx);
+            DataSet ds = src.getDataByID(expected.getID());
+            if(ds == null || !Arrays.equals(ds.getRawDataArray(), expected.getRawDataArray()))
+               nErrors.incrementAndGet();
+            if(j % 500 == 0)
+            {
+               DataSetInfo[] infos = src.getSummaryInfo();
+               if(infos == null || infos.length < sets.size()) nErrors.incrementAndGet();
+            }
+         }
+      });
+
+      double tElapsed = runThreads(writer, readers, stop);
+      src.close();
+      check(!src.isUnusable(), "source usable after stress: " + src.getLastError());
+      check(nErrors.get() == 0, nErrors.get() + " inconsistent retrievals or failed writes");
+      System.out.println(String.format("BinarySrc: %d readers x %d gets in %.1f ms", nThreads, nGets, tElapsed));
+   }
+
+   /**
+    * Open the file with a fresh source proxy and verify that it contains exactly the test sets, intact.
+    * @param f The source file.
+    * @param sets The test sets.
+    */
+   private static void verifyReopened(File f, List<DataSet> sets)
+   {
+      BinarySrc src = new BinarySrc(f);
+      DataSetInfo[] infos = src.getSummaryInfo();
+      check(infos != null && infos.length == sets.size(), "reopened source contains the original sets only");
+      for(DataSet expected : sets)
+      {
+         DataSet ds = src.getDataByID(expected.getID());
+         check(ds != null && ds.equals(expected), "reopened source: set " + expected.getID() + " intact");
+      }
+      src.close();
+   }
+
+   /**
+    * Start the writer and reader threads, wait for all readers to finish, then stop the writer.
+    * @param writer The writer thread.
+    * @param readers The reader threads.
+    * @param stop Flag checked by the writer thread; set once all readers are done.
+    * @return Elapsed time in milliseconds.
+    */
+   private static double runThreads(Thread writer, Thread[] readers, AtomicBoolean stop) throws InterruptedException
+   {
+      long tStart = System.nanoTime();
+      writer.start();
+      for(Thread t : readers) t.start();
+      for(Thread t : readers) t.join();
+      stop.set(true);
+      writer.join();
+      return((System.nanoTime() - tStart) / 1.0e6);
+   }
+
+   /**
+    * Create the test data sets, with sizes spanning several orders of magnitude so that some sets share a file block
+    * chain with others while the largest span many blocks.
+    * @param n Number of sets.
+    * @return The test sets, with IDs "set0", "set1", etc.
+    */
+   private static List<DataSet> createSets(int n)
+   {
+      List<DataSet> sets = new ArrayList<>();
+      for(int i=0; i<n; i++) sets.add(createSet("set" + i, 1 + (i * 7919) % 20000));
+      return(sets);
+   }
+
+   /**
+    * Create a point set with deterministic, distinct content.
+    * @param id The data set ID.
+    * @param nPts Number of points.
+    * @return The point set.
+    */
+   private static DataSet createSet(String id, int nPts)
+   {
+      float[] raw = new float[2*nPts];
+      int seed = id.hashCode();
+      for(int i=0; i<raw.length; i++) raw[i] = (seed + 31*i) % 100003 / 7.0f;
+      return(DataSet.createDataSet(id, DataSet.Fmt.PTSET, null, nPts, 2, raw));
+   }
+
+   /**
+    * Record the outcome of a check, reporting it if it failed.
+    * @param ok True if the check passed.
+    * @param what Description of the check.
+    */
+   private static void check(boolean ok, String what)
+   {
+      if(ok) return;
+      ++nFailures;
+      System.out.println("  FAIL: " + what);
+   }
+
+   /** Number of test data sets. */
+   private final static int NSETS = 300;
+   /** Number of failed checks. */
+   private static int nFailures = 0;
+}
@@ -0,0 +1,143 @@
+package com.srscicomp.fc.data;
+
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.srscicomp.common.util.MicroBench;
+
+/**
+ * Benchmark measuring the garbage collection cost of keeping several large data sets live on the Java heap versus
+ * outside it, in the off-heap backing store used for very large data sets (see {@link DataSet#OFFHEAPMINBYTES}). A
+ * number of large image data sets are created and kept live -- first backed by Java arrays, then by direct buffers
+ * with the same content -- and in each case two operations are timed:
+ * <ul>
+ *    <li><i>churn</i>: allocate many short-lived objects, with a small fraction surviving a while, as the application
+ *    does while the user works. The GC columns report the young collections this triggers.</li>
+ *    <li><i>full GC</i>: a full collection, as triggered by <code>System.gc()</code>. Its elapsed time is dominated by
+ *    the collection pause itself.</li>
+ * </ul>
+ *
+ * <p>Before timing, the benchmark verifies that the off-heap data sets are equal to their heap counterparts, and it
+ * reports the heap in use while each set of data sets is live.</p>
+ *
+ * <p>Usage: <i>java com.srscicomp.fc.data.DataSetGCBenchmark [nSets [side]]</i>. Default is 4 images of 4096 x 4096
+ * samples (64MB each). Run with a fixed heap large enough to hold the data sets on the heap plus about 512MB, e.g.
+ * <i>-Xms1g -Xmx1g</i> for the default, and a direct memory limit at least as large as the data sets. Compare the
+ * results under different collectors, e.g. <i>-XX:+UseG1GC</i> and <i>-XX:+UseParallelGC</i>.</p>
+ *
+ * @author sruffner
+ */
+public class DataSetGCBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int nSets = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+      int side = (args.length > 1) ? Integer.parseInt(args[1]) : 4096;
+
+      MicroBench bench = new MicroBench(String.format("GC cost of %d live %d x %d images (%.0f MB)", nSets, side, side,
+            nSets * 4.0 * side * side / 1048576.0), 3, 10);
+      MicroBench.Result[] heap = run(bench, createSets(nSets, side, false), "heap");
+      MicroBench.Result[] offHeap = run(bench, createSets(nSets, side, true), "off-heap");
+      MicroBench.printSpeedup(heap[0], offHeap[0]);
+      MicroBench.printSpeedup(heap[1], offHeap[1]);
+      System.out.println("(sink=" + bench.getSink() + ")");
+   }
+
+   /**
+    * Run the benchmark operations while the specified data sets are live.
+    * @param bench The benchmark harness.
+    * @param sets The live data sets.
+    * @param what Description of the data sets' backing store.
+    * @return The results of the churn and full GC operations, in that order.
+    */
+   private static MicroBench.Result[] run(MicroBench bench, List<DataSet> sets, String what) throws Exception
+   {
+      System.gc();
+      Runtime rt = Runtime.getRuntime();
+      System.out.println(String.format("  %s: heap in use with data sets live = %.1f MB", what,
+            (rt.totalMemory() - rt.freeMemory()) / 1048576.0));
+
+      MicroBench.Result churn = bench.run("churn, " + what, DataSetGCBenchmark::churn);
+      MicroBench.Result full = bench.run("full GC, " + what, () -> { System.gc(); return(0); });
+
+      // keep the data sets reachable until all operations are done
+      Reference.reachabilityFence(sets);
+      return(new MicroBench.Result[] {churn, full});
+   }
+
+   /**
+    * Allocate about 256MB of short-lived objects: small arrays, of which a rolling window of the most recent few
+    * survives for a while.
+    * @return A value derived from the allocated objects.
+    */
+   private static long churn()
+   {
+      List<Object> window = new ArrayList<>();
+      long sum = 0;
+      for(int i=0; i<2000000; i++)
+      {
+         int[] a = new int[16 + (i & 31)];
+         a[0] = i;
+         sum += a.length;
+         if((i & 63) == 0)
+         {
+            if(window.size() >= 4096) window.set(i % 4096, a);
+            else window.add(a);
+         }
+      }
+      return(sum + window.size());
+   }
+
+   /**
+    * Create the image data sets.
+    * @param nSets Number of data sets.
+    * @param side Width and height of each image.
+    * @param offHeap True to back each data set by direct buffers, false by a Java array.
+    * @return The data sets.
+    */
+   private static List<DataSet> createSets(int nSets, int side, boolean offHeap)
+   {
+      List<DataSet> sets = new ArrayList<>();
+      for(int i=0; i<nSets; i++)
+      {
+         Random rng = new Random(20260101L + i);
+         float[] raw = new float[side*side];
+         for(int j=0; j<raw.length; j++) raw[j] = rng.nextFloat() * 1000f;
+         DataSetInfo info = DataSetInfo.createDataSetInfo("img" + i, DataSet.Fmt.XYZIMG, side, side,
+               new float[] {0, side, 0, side});
+         DataSet ds = DataSet.createDataSet(info, raw, null);
+         if(offHeap)
+         {
+            ByteBuffer[] segments = FloatStore.allocateDirect(raw.length);
+            check(segments != null, "allocate direct buffers for img" + i);
+            int ofs = 0;
+            for(ByteBuffer seg : segments)
+            {
+               FloatBuffer fb = seg.asFloatBuffer();
+               int n = fb.remaining();
+               fb.put(raw, ofs, n);
+               ofs += n;
+            }
+            DataSet dsOff = DataSet.createDataSet(info, FloatStore.wrap(segments), null);
+            check(dsOff != null && dsOff.isOffHeap() && dsOff.equals(ds), "off-heap img" + i + " equals heap copy");
+            ds = dsOff;
+         }
+         sets.add(ds);
+      }
+      return(sets);
+   }
+
+   /**
+    * Abort the benchmark if a check fails.
+    * @param ok True if the check passed.
+    * @param what Description of the check.
+    */
+   private static void check(boolean ok, String what)
+   {
+      if(!ok) throw new IllegalStateException("Check failed: " + what);
+   }
+}
@@ -0,0 +1,122 @@
+package com.srscicomp.fc.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import com.srscicomp.common.util.MicroBench;
+
+/**
+ * Benchmark comparing {@link FloatTextParser} against the tokenizer-based parsing that it replaced in {@link
+ * DataSet#fromPlainText}, {@link DataSet#fromCommaSeparatedTuples} and the plain-text data source: a {@link
+ * StringTokenizer} splits the text into lines and each line into tokens, and each token is converted by {@link
+ * Float#parseFloat(String)} and appended to a growable array. The text is a large table of random values in the
+ * decimal forms written by the text data sources and typically pasted into the data set editor. Before timing, the
+ * benchmark verifies that every approach produces exactly the same values.
+ *
+ * <p>Usage: <i>java com.srscicomp.fc.data.FloatTextParserBenchmark [nRows]</i>. Default is 1000000 rows of 3 columns.
+ * Run with a fixed heap, e.g. <i>-Xms1g -Xmx1g</i>.</p>
+ *
+ * @author sruffner
+ */
+public class FloatTextParserBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int nRows = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+      final String text = createText(nRows, 3);
+      final byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+
+      float[] expected = parseWithTokenizer(text);
+      check(Arrays.equals(expected, parseWithParser(text, false)), "FloatTextParser.parse() matches");
+      check(Arrays.equals(expected, parseWithParser(text, true)), "FloatTextParser.parseParallel() matches");
+      check(Arrays.equals(expected, parseWithParser(new FloatTextParser.AsciiText(bytes, 0, bytes.length), false)),
+            "FloatTextParser.parse(AsciiText) matches");
+
+      MicroBench bench = new MicroBench(String.format("Float text parsing: %d rows x 3 columns, %.1f MB of text",
+            nRows, text.length() / 1048576.0), 5, 10);
+      MicroBench.Result base = bench.run("StringTokenizer+Float.parseFloat", () -> parseWithTokenizer(text).length);
+      MicroBench.Result seq = bench.run("FloatTextParser.parse", () -> parseWithParser(text, false).length);
+      MicroBench.Result ascii = bench.run("FloatTextParser.parse(AsciiText)",
+            () -> parseWithParser(new FloatTextParser.AsciiText(bytes, 0, bytes.length), false).length);
+      MicroBench.Result par = bench.run("FloatTextParser.parseParallel", () -> parseWithParser(text, true).length);
+      MicroBench.printSpeedup(base, seq);
+      MicroBench.printSpeedup(base, ascii);
+      MicroBench.printSpeedup(base, par);
+      System.out.println("(sink=" + bench.getSink() + ")");
+   }
+
+   /**
+    * Parse the text as the data set text import methods did before {@link FloatTextParser} was introduced.
+    * @param text The text: one tuple per line, with whitespace-separated values.
+    * @return The parsed values, in order.
+    */
+   private static float[] parseWithTokenizer(String text)
+   {
+      float[] values = new float[16];
+      int n = 0;
+      StringTokenizer lines = new StringTokenizer(text, "\r\n");
+      while(lines.hasMoreTokens())
+      {
+         StringTokenizer tokens = new StringTokenizer(lines.nextToken());
+         while(tokens.hasMoreTokens())
+         {
+            if(n == values.length) values = Arrays.copyOf(values, 2 * n);
+            values[n++] = Float.parseFloat(tokens.nextToken());
+         }
+      }
+      return(Arrays.copyOf(values, n));
+   }
+
+   /**
+    * Parse the text with a new {@link FloatTextParser}.
+    * @param text The text: one tuple per line, with whitespace-separated values.
+    * @param parallel If true, parse in parallel.
+    * @return The parsed values, in order.
+    */
+   private static float[] parseWithParser(CharSequence text, boolean parallel)
+   {
+      FloatTextParser parser = new FloatTextParser();
+      boolean ok = parallel ? parser.parseParallel(text, "\r\n") : parser.parse(text, "\r\n");
+      if(!ok) throw new IllegalStateException("Parse error in tuple " + parser.getErrorTuple());
+      return(parser.toArray());
+   }
+
+   /**
+    * Generate a table of random floating-point values in the decimal forms commonly found in data set text: fixed-point
+    * with up to 6 fractional digits, integers, and occasional scientific notation.
+    * @param nRows Number of rows.
+    * @param nCols Number of values per row.
+    * @return The text, with values separated by a space and rows terminated by CRLF.
+    */
+   private static String createText(int nRows, int nCols)
+   {
+      Random rng = new Random(20260101L);
+      StringBuilder sb = new StringBuilder(nRows * nCols * 12);
+      for(int i=0; i<nRows; i++)
+      {
+         for(int j=0; j<nCols; j++)
+         {
+            if(j > 0) sb.append(' ');
+            int kind = rng.nextInt(10);
+            if(kind == 0) sb.append(rng.nextInt(2000) - 1000);
+            else if(kind == 1) sb.append(String.format("%.4e", (rng.nextDouble() - 0.5) * 1e7));
+            else sb.append(String.format("%.6f", (rng.nextDouble() - 0.5) * 2000));
+         }
+         sb.append("\r\n");
+      }
+      return(sb.toString());
+   }
+
+   /**
+    * Abort the benchmark if a check fails.
+    * @param ok True if the check passed.
+    * @param what Description of the check.
+    */
+   private static void check(boolean ok, String what)
+   {
+      if(!ok) throw new IllegalStateException("Check failed: " + what);
+      System.out.println("OK: " + what);
+   }
+}
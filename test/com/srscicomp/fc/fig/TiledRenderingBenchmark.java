@@ -0,0 +1,287 @@
+package com.srscicomp.fc.fig;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.srscicomp.common.g2dviewer.RenderTask;
+import com.srscicomp.common.util.MicroBench;
+import com.srscicomp.fc.data.DataSet;
+
+/**
+ * Benchmark comparing the single-pass rendering of a figure against the tiled, multi-threaded rendering used by the
+ * figure canvas when the figure supports it (see {@link FigureNode#supportsConcurrentRendering()}). The tiled render
+ * mimics the canvas: the image is split into 256-pixel tiles, and each tile is rendered on a worker thread in a copy of
+ * the graphics context clipped to the tile, with a render task whose only dirty region is the tile (expanded by 2
+ * pixels for antialiasing) in figure coordinates.
+ *
+ * <p>The test figure contains two 2D graphs with large data traces and a 3D graph with a large 3D scatter plot, so
+ * that tiles render the children of the 2D graphs in parallel and contend for the lock on the 3D graph. Retained
+ * raster layers are disabled, so every render draws the figure in full. Before timing, the benchmark verifies that
+ * repeated tiled renders are pixel-identical to the single-pass render.</p>
+ *
+ * <p>Usage: <i>java com.srscicomp.fc.fig.TiledRenderingBenchmark [nThreads [dpi]]</i>. Default is 4 worker threads
+ * and 100 dots per inch. Every tile traverses each node that intersects it, but the painters skip the marks that lie
+ * outside the tile, so the 3D scatter plot -- which straddles four tiles -- is drawn only about once in all. Still,
+ * the tiles together do somewhat more work than the single pass, so the tiled render can only pay off when several
+ * CPUs are available. With a single CPU, it is slower -- which is why the figure canvas does not tile when the common
+ * fork-join pool has a parallelism of 1, and why tiled rendering is disabled by default.</p>
+ *
+ * @author sruffner
+ */
+public class TiledRenderingBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int nThreads = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+      double dpi = (args.length > 1) ? Double.parseDouble(args[1]) : 100;
+
+      final FigureNode fig = createFigure();
+      final double scale = dpi / 1000.0;
+      final int w = (int) Math.ceil(fig.getWidthMI() * scale);
+      final int h = (int) Math.ceil(fig.getHeightMI() * scale);
+      final AffineTransform xfm = new AffineTransform(scale, 0, 0, -scale, 0, h);
+      final ForkJoinPool pool = new ForkJoinPool(nThreads);
+      try
+      {
+         BufferedImage expected = renderSingle(fig, w, h, xfm);
+         for(int i=0; i<5; i++)
+            check(isSameImage(expected, renderTiled(fig, w, h, xfm, pool)), "tiled render #" + i + " matches");
+         System.out.println("OK: tiled renders match single-pass render");
+
+         MicroBench bench = new MicroBench(String.format("Figure rendering: %d x %d pixels, %d tiles, %d threads",
+               w, h, prepareTiles(w, h).size(), nThreads), 5, 20);
+         MicroBench.Result single = bench.run("single pass", () -> renderSingle(fig, w, h, xfm).getRGB(w/2, h/2));
+         MicroBench.Result tiled = bench.run("tiled", () -> renderTiled(fig, w, h, xfm, pool).getRGB(w/2, h/2));
+         MicroBench.printSpeedup(single, tiled);
+         System.out.println("(sink=" + bench.getSink() + ")");
+      }
+      finally { pool.shutdown(); }
+   }
+
+   /**
+    * Render the figure in a single pass on the current thread.
+    * @param fig The figure.
+    * @param w Image width in pixels.
+    * @param h Image height in pixels.
+    * @param xfm The transform from figure coordinates (milli-in) to image pixels.
+    * @return The rendered image.
+    */
+   private static BufferedImage renderSingle(FigureNode fig, int w, int h, AffineTransform xfm)
+   {
+      BufferedImage img = createImage(w, h);
+      Graphics2D g2d = prepareGraphics(img);
+      try
+      {
+         g2d.transform(xfm);
+         Rectangle2D all = new Rectangle2D.Double(0, 0, fig.getWidthMI(), fig.getHeightMI());
+         check(fig.render(g2d, new Task(all)), "single-pass render");
+      }
+      finally { g2d.dispose(); }
+      return(img);
+   }
+
+   /**
+    * Render the figure in tiles on a pool of worker threads, as the figure canvas does.
+    * @param fig The figure.
+    * @param w Image width in pixels.
+    * @param h Image height in pixels.
+    * @param xfm The transform from figure coordinates (milli-in) to image pixels.
+    * @param pool The worker thread pool.
+    * @return The rendered image.
+    */
+   private static BufferedImage renderTiled(FigureNode fig, int w, int h, AffineTransform xfm, ForkJoinPool pool)
+         throws Exception
+   {
+      AffineTransform inv;
+      try { inv = xfm.createInverse(); }
+      catch(NoninvertibleTransformException nte) { throw new IllegalStateException(nte); }
+
+      BufferedImage img = createImage(w, h);
+      Graphics2D g2d = prepareGraphics(img);
+      try
+      {
+         Rectangle2D all = new Rectangle2D.Double(0, 0, fig.getWidthMI(), fig.getHeightMI());
+         List<Callable<Boolean>> tasks = new ArrayList<>();
+         for(Rectangle tile : prepareTiles(w, h))
+         {
+            Rectangle2D rDirty = inv.createTransformedShape(new Rectangle2D.Double(tile.x-2, tile.y-2, tile.width+4,
+                  tile.height+4)).getBounds2D();
+            final Task task = new Task(all.createIntersection(rDirty));
+            final Graphics2D g2Tile = (Graphics2D) g2d.create();
+            g2Tile.clip(tile);
+            g2Tile.transform(xfm);
+            tasks.add(() -> { try { return(fig.render(g2Tile, task)); } finally { g2Tile.dispose(); } });
+         }
+         for(Future<Boolean> result : pool.invokeAll(tasks)) check(result.get(), "tiled render");
+      }
+      finally { g2d.dispose(); }
+      return(img);
+   }
+
+   /**
+    * Split the image into tiles, as the figure canvas does.
+    * @param w Image width in pixels.
+    * @param h Image height in pixels.
+    * @return The tiles, in pixels.
+    */
+   private static List<Rectangle> prepareTiles(int w, int h)
+   {
+      List<Rectangle> tiles = new ArrayList<>();
+      for(int y=0; y<h; y+=TILESZ)
+         for(int x=0; x<w; x+=TILESZ)
+            tiles.add(new Rectangle(x, y, Math.min(TILESZ, w-x), Math.min(TILESZ, h-y)));
+      return(tiles);
+   }
+
+   /** Tile size in pixels, same as the figure canvas. */
+   private final static int TILESZ = 256;
+
+   /**
+    * Create an image buffer of the specified size, filled with white.
+    * @param w Image width in pixels.
+    * @param h Image height in pixels.
+    * @return The image.
+    */
+   private static BufferedImage createImage(int w, int h)
+   {
+      BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g2d = img.createGraphics();
+      g2d.setColor(Color.WHITE);
+      g2d.fillRect(0, 0, w, h);
+      g2d.dispose();
+      return(img);
+   }
+
+   /**
+    * Get a graphics context for the image, with the rendering hints installed by the figure canvas.
+    * @param img The image.
+    * @return The graphics context.
+    */
+   private static Graphics2D prepareGraphics(BufferedImage img)
+   {
+      Graphics2D g2d = img.createGraphics();
+      g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      return(g2d);
+   }
+
+   /**
+    * Are two images pixel-identical?
+    * @param a The first image.
+    * @param b The second image.
+    * @return True if the images have the same size and content.
+    */
+   private static boolean isSameImage(BufferedImage a, BufferedImage b)
+   {
+      if(a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) return(false);
+      int w = a.getWidth(), h = a.getHeight();
+      return(Arrays.equals(a.getRGB(0, 0, w, h, null, 0, w), b.getRGB(0, 0, w, h, null, 0, w)));
+   }
+
+   /**
+    * Create the test figure, 10 x 9 in: two 2D graphs, each with a data trace of 200000 points, and a 3D graph with a
+    * 3D scatter plot of 20000 points. Retained raster layers are disabled.
+    * @return The figure.
+    */
+   private static FigureNode createFigure()
+   {
+      FGraphicModel model = new FGraphicModel();
+      model.setRetainedLayersEnabled(false);
+      FigureNode fig = (FigureNode) model.getRoot();
+      check(fig.setWidth(new Measure(10, Measure.Unit.IN)) && fig.setHeight(new Measure(9, Measure.Unit.IN)),
+            "set figure size");
+      Random rng = new Random(20260101L);
+
+      for(int i=0; i<2; i++)
+      {
+         GraphNode g = (GraphNode) insert(model, fig, FGNodeType.GRAPH);
+         place(g, 1, 1 + 4.5*i, 5, 3.5);
+         TraceNode t = (TraceNode) insert(model, g, FGNodeType.TRACE);
+         int n = 200000;
+         float[] raw = new float[2*n];
+         for(int j=0; j<n; j++)
+         {
+            raw[2*j] = 100f * j / n;
+            raw[2*j+1] = (float) (50 + 30*Math.sin(j * 2e-4 * (i+1)) + rng.nextGaussian() * 5);
+         }
+         check(t.setDataSet(DataSet.createDataSet("trace" + i, DataSet.Fmt.PTSET, null, n, 2, raw)), "set trace data");
+      }
+
+      Graph3DNode g3 = (Graph3DNode) insert(model, fig, FGNodeType.GRAPH3D);
+      place(g3, 7.75, 2.5, 2, 2);
+      Scatter3DNode s3 = (Scatter3DNode) insert(model, g3, FGNodeType.SCATTER3D);
+      int n = 20000;
+      float[] raw = new float[3*n];
+      for(int j=0; j<3*n; j++) raw[j] = (float) (50 + rng.nextGaussian() * 15);
+      check(s3.setDataSet(DataSet.createDataSet("scat3d", DataSet.Fmt.XYZSET, null, n, 3, raw)), "set 3D data");
+
+      // compute and cache the render bounds of all nodes, as the model does before the figure is first rendered
+      BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g2d = img.createGraphics();
+      fig.getRenderBounds(g2d, true, null);
+      g2d.dispose();
+      return(fig);
+   }
+
+   /**
+    * Insert a new node into the test figure.
+    * @param model The figure model.
+    * @param parent The parent node.
+    * @param type The type of node to insert.
+    * @return The inserted node.
+    */
+   private static FGraphicNode insert(FGraphicModel model, FGraphicNode parent, FGNodeType type)
+   {
+      check(model.insertNode(parent, type, -1), "insert " + type);
+      return(model.getSelectedNode());
+   }
+
+   /**
+    * Set the location and size of a graph.
+    * @param g The graph.
+    * @param x X-coordinate of the graph's origin, in inches.
+    * @param y Y-coordinate of the graph's origin, in inches.
+    * @param w Width of the graph, in inches.
+    * @param h Height of the graph, in inches.
+    */
+   private static void place(FGraphicNode g, double x, double y, double w, double h)
+   {
+      check(g.setX(new Measure(x, Measure.Unit.IN)) && g.setY(new Measure(y, Measure.Unit.IN)) &&
+            g.setWidth(new Measure(w, Measure.Unit.IN)) && g.setHeight(new Measure(h, Measure.Unit.IN)),
+            "place " + g.getNodeType());
+   }
+
+   /** A render task that renders the specified dirty region and is never cancelled. */
+   private static class Task implements RenderTask
+   {
+      Task(Rectangle2D dirty) { this.dirty = Collections.singletonList(dirty); }
+      @Override public List<Rectangle2D> getDirtyRegions() { return(dirty); }
+      @Override public boolean updateProgress() { return(true); }
+      private final List<Rectangle2D> dirty;
+   }
+
+   /**
+    * Abort the benchmark if a check fails.
+    * @param ok True if the check passed.
+    * @param what Description of the check.
+    */
+   private static void check(boolean ok, String what)
+   {
+      if(!ok) throw new IllegalStateException("Check failed: " + what);
+   }
+}